@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.benchmarks;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.SearchResult;
+import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.epp.mpc.core.model.ISearchResult;
+import org.eclipse.epp.mpc.core.service.IMarketplaceService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Latency of {@link CachingMarketplaceService} lookups under contention. The delegate answers immediately, so the
+ * results only show the cache's own overhead.
+ *
+ * @author Carsten Reckord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Threads(4)
+@Fork(1)
+public class CachingMarketplaceServiceBenchmark {
+
+	/**
+	 * Number of distinct nodes requested by the cache hit benchmark. This is below the node cache's capacity, so all
+	 * of them stay cached.
+	 */
+	private static final int HOT_NODE_COUNT = 50;
+
+	private static final String[] QUERIES = { "mylyn", "wikitext", "uml", "git", "subversion" }; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+
+	private final AtomicLong missingNodeId = new AtomicLong(HOT_NODE_COUNT);
+
+	private CachingMarketplaceService service;
+
+	private Node[] hotNodes;
+
+	@Setup
+	public void setUp() throws CoreException {
+		service = new CachingMarketplaceService(createDelegate());
+		hotNodes = new Node[HOT_NODE_COUNT];
+		for (int i = 0; i < hotNodes.length; i++) {
+			hotNodes[i] = createNode(String.valueOf(i));
+			service.getNode(hotNodes[i], new NullProgressMonitor());
+		}
+		for (String query : QUERIES) {
+			service.search(null, null, query, new NullProgressMonitor());
+		}
+	}
+
+	@Benchmark
+	public INode nodeHit() throws CoreException {
+		Node node = hotNodes[ThreadLocalRandom.current().nextInt(hotNodes.length)];
+		return service.getNode(node, new NullProgressMonitor());
+	}
+
+	@Benchmark
+	public INode nodeMiss() throws CoreException {
+		Node node = createNode(String.valueOf(missingNodeId.incrementAndGet()));
+		return service.getNode(node, new NullProgressMonitor());
+	}
+
+	@Benchmark
+	public ISearchResult searchHit() throws CoreException {
+		String query = QUERIES[ThreadLocalRandom.current().nextInt(QUERIES.length)];
+		return service.search(null, null, query, new NullProgressMonitor());
+	}
+
+	private static Node createNode(String id) {
+		Node node = new Node();
+		node.setId(id);
+		return node;
+	}
+
+	private static IMarketplaceService createDelegate() {
+		return (IMarketplaceService) Proxy.newProxyInstance(CachingMarketplaceServiceBenchmark.class.getClassLoader(),
+				new Class<?>[] { IMarketplaceService.class }, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				String name = method.getName();
+				if ("getNode".equals(name)) { //$NON-NLS-1$
+					return createNode(((INode) args[0]).getId());
+				} else if ("search".equals(name)) { //$NON-NLS-1$
+					SearchResult result = new SearchResult();
+					result.setMatchCount(1);
+					result.setNodes(Collections.singletonList(createNode(String.valueOf(args[2]))));
+					return result;
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+}
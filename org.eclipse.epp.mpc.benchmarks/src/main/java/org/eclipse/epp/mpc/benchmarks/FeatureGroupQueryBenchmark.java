@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.benchmarks;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.ui.operations.FeatureGroupQueries;
+import org.eclipse.equinox.internal.p2.metadata.IUMap;
+import org.eclipse.equinox.internal.p2.metadata.index.IdIndex;
+import org.eclipse.equinox.internal.p2.metadata.index.IndexProvider;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.metadata.index.IIndex;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of finding the feature groups of a few selected solutions in a large aggregator repository, comparing the
+ * former latest-group scan filtered by id with the id constrained {@link FeatureGroupQueries}. The synthetic repository
+ * is indexed by id like a loaded local metadata repository. Each feature has a few versions of its group and some
+ * plug-in units.
+ *
+ * @author Carsten Reckord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class FeatureGroupQueryBenchmark {
+
+	private static final String FEATURE_GROUP_SUFFIX = ".feature.group"; //$NON-NLS-1$
+
+	private static final int VERSIONS_PER_FEATURE = 3;
+
+	private static final int PLUGINS_PER_FEATURE = 5;
+
+	private static final int SELECTED_FEATURES = 5;
+
+	@Param({ "1000", "10000" })
+	public int features;
+
+	private SyntheticRepository repository;
+
+	private Set<String> selectedIds;
+
+	@Setup
+	public void setUp() {
+		repository = new SyntheticRepository();
+		for (int i = 0; i < features; i++) {
+			String id = "org.example.feature" + i; //$NON-NLS-1$
+			for (int v = 0; v < VERSIONS_PER_FEATURE; v++) {
+				repository.add(createIU(id + FEATURE_GROUP_SUFFIX, Version.createOSGi(1, v, 0), true));
+			}
+			for (int p = 0; p < PLUGINS_PER_FEATURE; p++) {
+				repository.add(createIU(id + ".plugin" + p, Version.createOSGi(1, 0, 0), false)); //$NON-NLS-1$
+			}
+		}
+		selectedIds = new LinkedHashSet<String>();
+		for (int i = 0; i < SELECTED_FEATURES; i++) {
+			int feature = i * features / SELECTED_FEATURES;
+			selectedIds.add("org.example.feature" + feature + FEATURE_GROUP_SUFFIX); //$NON-NLS-1$
+		}
+	}
+
+	@Benchmark
+	public void latestGroupScan(Blackhole blackhole) {
+		for (IInstallableUnit iu : repository.query(QueryUtil.createLatestQuery(QueryUtil.createIUGroupQuery()),
+				new NullProgressMonitor())) {
+			if (selectedIds.contains(iu.getId())) {
+				blackhole.consume(iu);
+			}
+		}
+	}
+
+	@Benchmark
+	public void featureGroupQuery(Blackhole blackhole) {
+		blackhole.consume(FeatureGroupQueries.queryLatestFeatureGroups(repository, selectedIds,
+				new NullProgressMonitor()));
+	}
+
+	private static IInstallableUnit createIU(String id, Version version, boolean group) {
+		InstallableUnitDescription description = new InstallableUnitDescription();
+		description.setId(id);
+		description.setVersion(version);
+		if (group) {
+			description.setProperty(QueryUtil.PROP_TYPE_GROUP, Boolean.TRUE.toString());
+		}
+		return MetadataFactory.createInstallableUnit(description);
+	}
+
+	/**
+	 * In-memory repository with the same unit storage and id index as p2's local metadata repositories
+	 */
+	private static class SyntheticRepository extends IndexProvider<IInstallableUnit> {
+
+		private final IUMap units = new IUMap();
+
+		private IIndex<IInstallableUnit> idIndex;
+
+		public void add(IInstallableUnit iu) {
+			units.add(iu);
+			idIndex = null;
+		}
+
+		public Iterator<IInstallableUnit> everything() {
+			return units.iterator();
+		}
+
+		public synchronized IIndex<IInstallableUnit> getIndex(String memberName) {
+			if ("id".equals(memberName)) { //$NON-NLS-1$
+				if (idIndex == null) {
+					idIndex = new IdIndex(units);
+				}
+				return idIndex;
+			}
+			return null;
+		}
+
+		public Object getManagedProperty(Object client, String memberName, Object key) {
+			return null;
+		}
+	}
+}
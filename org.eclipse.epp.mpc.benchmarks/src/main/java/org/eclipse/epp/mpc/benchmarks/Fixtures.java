@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Access to the recorded marketplace responses used by the benchmarks.
+ *
+ * @author Carsten Reckord
+ */
+public class Fixtures {
+
+	public static final String NODE = "node.xml"; //$NON-NLS-1$
+
+	public static final String SEARCH = "search.xml"; //$NON-NLS-1$
+
+	public static final String FEATURED = "featured.xml"; //$NON-NLS-1$
+
+	private static final String FIXTURES_PATH = "fixtures/"; //$NON-NLS-1$
+
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private Fixtures() {
+	}
+
+	public static byte[] load(String fixture) throws IOException {
+		InputStream in = Fixtures.class.getResourceAsStream(FIXTURES_PATH + fixture);
+		if (in == null) {
+			throw new IOException("Missing fixture " + fixture); //$NON-NLS-1$
+		}
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int len; (len = in.read(buffer)) != -1;) {
+				out.write(buffer, 0, len);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	public static String loadString(String fixture) throws IOException {
+		return new String(load(fixture), UTF_8);
+	}
+
+	/**
+	 * Create a search result of the given size by repeating the first node of the recorded search result with
+	 * different ids.
+	 */
+	public static byte[] createSearchResult(int nodeCount) throws IOException {
+		String template = loadString(SEARCH);
+		int nodeStart = template.indexOf("<node "); //$NON-NLS-1$
+		int nodeEnd = template.indexOf("</node>", nodeStart) + "</node>".length(); //$NON-NLS-1$ //$NON-NLS-2$
+		String node = template.substring(nodeStart, nodeEnd);
+		int searchEnd = template.indexOf("</search>"); //$NON-NLS-1$
+
+		StringBuilder document = new StringBuilder(template.substring(0, nodeStart));
+		for (int i = 0; i < nodeCount; i++) {
+			document.append(node.replaceFirst("id=\"\\d+\"", "id=\"" + i + "\"")).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+		}
+		document.append(template.substring(searchEnd));
+		return document.toString().getBytes(UTF_8);
+	}
+}
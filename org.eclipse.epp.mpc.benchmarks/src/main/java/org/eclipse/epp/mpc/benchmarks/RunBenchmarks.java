@@ -0,0 +1,51 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.benchmarks;
+
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks inside the OSGi test runtime, where the marketplace bundles resolve against the target platform.
+ * JMH can't fork JVMs with an OSGi class path, so all benchmarks run in this JVM.
+ * <p>
+ * The {@value #PROP_ARGS} system property takes JMH command line options, e.g. to select benchmarks. Results are
+ * written as JSON to the file given in the {@value #PROP_RESULT} system property.
+ *
+ * @author Carsten Reckord
+ */
+public class RunBenchmarks {
+
+	public static final String PROP_ARGS = "org.eclipse.epp.mpc.benchmarks.args"; //$NON-NLS-1$
+
+	public static final String PROP_RESULT = "org.eclipse.epp.mpc.benchmarks.result"; //$NON-NLS-1$
+
+	@Test
+	public void runBenchmarks() throws Exception {
+		String args = System.getProperty(PROP_ARGS, "").trim(); //$NON-NLS-1$
+		CommandLineOptions commandLine = new CommandLineOptions(args.length() == 0 ? new String[0]
+				: args.split("\\s+")); //$NON-NLS-1$
+		OptionsBuilder builder = new OptionsBuilder();
+		builder.parent(commandLine).forks(0);
+		String result = System.getProperty(PROP_RESULT);
+		if (result != null) {
+			builder.resultFormat(ResultFormatType.JSON).result(result);
+		}
+		Options options = builder.build();
+		assertFalse(new Runner(options).run().isEmpty());
+	}
+}
@@ -0,0 +1,71 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.epp.internal.mpc.core.service.Category;
+import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of building search urls with {@link DefaultMarketplaceService#computeRelativeSearchUrl}.
+ *
+ * @author Carsten Reckord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SearchUrlBenchmark {
+
+	private DefaultMarketplaceService service;
+
+	private Market market;
+
+	private Category category;
+
+	@Setup
+	public void setUp() {
+		service = new DefaultMarketplaceService();
+		market = new Market();
+		market.setId("31"); //$NON-NLS-1$
+		category = new Category();
+		category.setId("38"); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public String queryWithFilters() {
+		return service.computeRelativeSearchUrl(market, category, "Mylyn WikiText & friends", true); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public String queryOnly() {
+		return service.computeRelativeSearchUrl(null, null, "WikiText", true); //$NON-NLS-1$
+	}
+
+	@Benchmark
+	public String taxonomy() {
+		return service.computeRelativeSearchUrl(market, category, null, true);
+	}
+}
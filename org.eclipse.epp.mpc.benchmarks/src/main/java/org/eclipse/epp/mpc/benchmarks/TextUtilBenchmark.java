@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.Marketplace;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceUnmarshaller;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.util.TextUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of {@link TextUtil#stripHtmlMarkup(String)} for the node descriptions of the recorded featured result, which
+ * contain a fair amount of HTML markup.
+ *
+ * @author Carsten Reckord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TextUtilBenchmark {
+
+	private List<String> descriptions;
+
+	@Setup
+	public void setUp() throws Exception {
+		Marketplace featured = new MarketplaceUnmarshaller().unmarshal(
+				new ByteArrayInputStream(Fixtures.load(Fixtures.FEATURED)), Marketplace.class,
+				new NullProgressMonitor());
+		descriptions = new ArrayList<String>();
+		for (Node node : featured.getFeatured().getNode()) {
+			if (node.getBody() != null) {
+				descriptions.add(node.getBody());
+			}
+		}
+	}
+
+	@Benchmark
+	public void stripHtmlMarkup(Blackhole blackhole) {
+		for (String description : descriptions) {
+			blackhole.consume(TextUtil.stripHtmlMarkup(description));
+		}
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.Marketplace;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceUnmarshaller;
+import org.eclipse.epp.internal.mpc.core.service.PooledMarketplaceUnmarshaller;
+import org.eclipse.epp.mpc.core.service.IMarketplaceUnmarshaller;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parse throughput of the marketplace unmarshallers for recorded responses and synthetic search results of different
+ * sizes.
+ *
+ * @author Carsten Reckord
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class UnmarshallerBenchmark {
+
+	@Param({ "pooled", "default" })
+	public String unmarshallerType;
+
+	@Param({ "10", "100", "500" })
+	public int nodeCount;
+
+	private IMarketplaceUnmarshaller unmarshaller;
+
+	private byte[] search;
+
+	private byte[] node;
+
+	private byte[] featured;
+
+	@Setup
+	public void setUp() throws Exception {
+		if ("pooled".equals(unmarshallerType)) { //$NON-NLS-1$
+			unmarshaller = new PooledMarketplaceUnmarshaller();
+		} else {
+			unmarshaller = new MarketplaceUnmarshaller();
+		}
+		search = Fixtures.createSearchResult(nodeCount);
+		node = Fixtures.load(Fixtures.NODE);
+		featured = Fixtures.load(Fixtures.FEATURED);
+	}
+
+	@Benchmark
+	public Marketplace parseSearch() throws Exception {
+		return parse(search);
+	}
+
+	@Benchmark
+	public Marketplace parseNode() throws Exception {
+		return parse(node);
+	}
+
+	@Benchmark
+	public Marketplace parseFeatured() throws Exception {
+		return parse(featured);
+	}
+
+	private Marketplace parse(byte[] document) throws Exception {
+		return unmarshaller.unmarshal(new ByteArrayInputStream(document), Marketplace.class, new NullProgressMonitor());
+	}
+}
@@ -11,10 +11,15 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Hashtable;
 import java.util.List;
 
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.internal.mpc.core.service.ResponseCache;
+import org.eclipse.epp.internal.mpc.core.util.HttpClientTransportFactory;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler;
 import org.eclipse.epp.internal.mpc.core.util.ProxyHelper;
 import org.eclipse.epp.internal.mpc.core.util.TransportFactory;
 import org.eclipse.epp.mpc.core.service.ITransportFactory;
@@ -26,14 +31,20 @@ import org.osgi.framework.ServiceRegistration;
 
 public class MarketplaceClientCorePlugin implements BundleActivator {
 
+	private static final String RESPONSE_CACHE_DIR = "responses"; //$NON-NLS-1$
+
 	private static MarketplaceClientCorePlugin instance;
 
 	private Bundle bundle;
 
 	private List<ServiceRegistration<?>> serviceRegistrations;
 
+	private List<ITransportFactory> transportFactories;
+
 	private ServiceHelperImpl serviceHelper;
 
+	private ResponseCache responseCache;
+
 	public void start(BundleContext context) throws Exception {
 		bundle = context.getBundle();
 		instance = this;
@@ -47,7 +58,11 @@ public class MarketplaceClientCorePlugin implements BundleActivator {
 		serviceHelper.stopTracking(context);
 		serviceHelper = null;
 		unregisterServices();
+		IOScheduler.getDefault().shutdown();
 		ProxyHelper.releaseProxyService();
+		synchronized (this) {
+			responseCache = null;
+		}
 		instance = null;
 	}
 
@@ -56,6 +71,7 @@ public class MarketplaceClientCorePlugin implements BundleActivator {
 		this.serviceRegistrations = serviceRegistrations;
 
 		List<ITransportFactory> factories = TransportFactory.listAvailableFactories();//highest-prio factory comes first
+		this.transportFactories = factories;
 		int prio = 100 * factories.size();//prio counts down from highest value to 0 in steps of 100
 		for (ITransportFactory factory : factories) {
 			prio -= 100;
@@ -75,6 +91,32 @@ public class MarketplaceClientCorePlugin implements BundleActivator {
 				serviceRegistration.unregister();
 			}
 		}
+		List<ITransportFactory> transportFactories = this.transportFactories;
+		this.transportFactories = null;
+		if (transportFactories != null) {
+			for (ITransportFactory factory : transportFactories) {
+				if (factory instanceof HttpClientTransportFactory) {
+					((HttpClientTransportFactory) factory).shutdown();
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the persistent response cache shared by all marketplace services, or null if the bundle state location
+	 *         is unavailable
+	 */
+	public synchronized ResponseCache getResponseCache() {
+		if (responseCache == null && Platform.getInstanceLocation() != null) {
+			try {
+				File cacheDir = Platform.getStateLocation(bundle).append(RESPONSE_CACHE_DIR).toFile();
+				responseCache = new ResponseCache(cacheDir);
+			} catch (IllegalStateException e) {
+				//read-only or no instance location
+				return null;
+			}
+		}
+		return responseCache;
 	}
 
 	public ServiceHelperImpl getServiceHelper() {
@@ -18,11 +18,14 @@ import java.util.Map;
 
 import org.eclipse.core.runtime.IProduct;
 import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.internal.mpc.core.service.AsyncMarketplaceService;
 import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceService;
 import org.eclipse.epp.internal.mpc.core.service.DefaultCatalogService;
 import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.ResponseCache;
 import org.eclipse.epp.internal.mpc.core.util.ServiceUtil;
 import org.eclipse.epp.internal.mpc.core.util.URLUtil;
+import org.eclipse.epp.mpc.core.service.IAsyncMarketplaceService;
 import org.eclipse.epp.mpc.core.service.ICatalogService;
 import org.eclipse.epp.mpc.core.service.IMarketplaceService;
 import org.eclipse.epp.mpc.core.service.IMarketplaceServiceLocator;
@@ -54,6 +57,8 @@ public class ServiceLocator implements IMarketplaceServiceLocator {
 
 	private URL defaultMarketplaceUrl;
 
+	private Map<?, ?> cacheProperties;
+
 	public ServiceLocator() {
 		defaultMarketplaceUrl = DefaultMarketplaceService.DEFAULT_SERVICE_URL;
 		defaultCatalogUrl = DefaultCatalogService.DEFAULT_CATALOG_SERVICE_URL;
@@ -102,6 +107,10 @@ public class ServiceLocator implements IMarketplaceServiceLocator {
 		return service;
 	}
 
+	public IAsyncMarketplaceService getAsyncMarketplaceService(String baseUrl) {
+		return new AsyncMarketplaceService(getMarketplaceService(baseUrl));
+	}
+
 	protected IMarketplaceService createMarketplaceService(String baseUrl) {
 		IMarketplaceService service;
 		URL base;
@@ -113,10 +122,18 @@ public class ServiceLocator implements IMarketplaceServiceLocator {
 		DefaultMarketplaceService defaultService = new DefaultMarketplaceService(base);
 		Map<String, String> requestMetaParameters = computeDefaultRequestMetaParameters();
 		defaultService.setRequestMetaParameters(requestMetaParameters);
-		service = new CachingMarketplaceService(defaultService);
+		defaultService.setResponseCache(getResponseCache());
+		CachingMarketplaceService cachingService = new CachingMarketplaceService(defaultService);
+		cachingService.activate(cacheProperties);
+		service = cachingService;
 		return service;
 	}
 
+	private static ResponseCache getResponseCache() {
+		MarketplaceClientCorePlugin plugin = MarketplaceClientCorePlugin.getDefault();
+		return plugin == null ? null : plugin.getResponseCache();
+	}
+
 	/**
 	 * OSGi service activation method. Activation will cause the locator to start managing individual marketplace
 	 * services and return the same instances per base url on subsequent calls to {@link #getMarketplaceService(String)}
@@ -139,6 +156,8 @@ public class ServiceLocator implements IMarketplaceServiceLocator {
 			marketplaceServices = new HashMap<String, IMarketplaceService>();
 		}
 
+		this.cacheProperties = properties;
+
 		marketplaceServiceTracker = new ServiceTracker<IMarketplaceService, IMarketplaceService>(context,
 				IMarketplaceService.class, null);
 		marketplaceServiceTracker.open(true);
@@ -163,6 +182,7 @@ public class ServiceLocator implements IMarketplaceServiceLocator {
 		}
 		marketplaceServices = null;
 		catalogService = null;
+		cacheProperties = null;
 	}
 
 	public synchronized ICatalogService getCatalogService() {
@@ -176,7 +196,8 @@ public class ServiceLocator implements IMarketplaceServiceLocator {
 		if (catalogService != null) {
 			return catalogService;
 		}
-		ICatalogService catalogService = new DefaultCatalogService(defaultCatalogUrl);
+		DefaultCatalogService catalogService = new DefaultCatalogService(defaultCatalogUrl);
+		catalogService.setResponseCache(getResponseCache());
 		if (marketplaceServices != null) {//used as an indicator to cache value
 			this.catalogService = catalogService;
 		}
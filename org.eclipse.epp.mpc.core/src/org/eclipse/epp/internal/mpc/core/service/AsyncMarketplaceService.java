@@ -0,0 +1,190 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
+import org.eclipse.epp.mpc.core.model.ICategory;
+import org.eclipse.epp.mpc.core.model.IMarket;
+import org.eclipse.epp.mpc.core.model.INews;
+import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.epp.mpc.core.model.ISearchResult;
+import org.eclipse.epp.mpc.core.service.IAsyncMarketplaceService;
+import org.eclipse.epp.mpc.core.service.IMarketplaceFuture;
+import org.eclipse.epp.mpc.core.service.IMarketplaceService;
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
+
+/**
+ * Runs the requests of a synchronous {@link IMarketplaceService} - usually a {@link CachingMarketplaceService} or
+ * {@link DefaultMarketplaceService} - in the background. Unless an executor is given, requests are run in the
+ * {@link Lane#API API lane} of the shared {@link IOScheduler}.
+ *
+ * @author Carsten Reckord
+ */
+public class AsyncMarketplaceService implements IAsyncMarketplaceService {
+
+	private final IMarketplaceService delegate;
+
+	private final Executor executor;
+
+	public AsyncMarketplaceService(IMarketplaceService delegate) {
+		this(delegate, null);
+	}
+
+	/**
+	 * @param executor
+	 *            the executor to run requests, or null to use the shared scheduler
+	 */
+	public AsyncMarketplaceService(IMarketplaceService delegate, Executor executor) {
+		if (delegate == null) {
+			throw new IllegalArgumentException();
+		}
+		this.delegate = delegate;
+		this.executor = executor;
+	}
+
+	public IMarketplaceService getMarketplaceService() {
+		return delegate;
+	}
+
+	protected <T> IMarketplaceFuture<T> submit(MarketplaceFuture.Request<T> request) {
+		MarketplaceFuture<T> future = new MarketplaceFuture<T>(request);
+		// look up the shared lane on each call, since it is recreated after a shutdown
+		Executor executor = this.executor == null ? IOScheduler.getDefault().getExecutor(Lane.API) : this.executor;
+		executor.execute(future);
+		return future;
+	}
+
+	public IMarketplaceFuture<List<? extends IMarket>> listMarkets() {
+		return submit(new MarketplaceFuture.Request<List<? extends IMarket>>() {
+			@Override
+			public List<? extends IMarket> run(IProgressMonitor monitor) throws CoreException {
+				return delegate.listMarkets(monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<IMarket> getMarket(final IMarket market) {
+		return submit(new MarketplaceFuture.Request<IMarket>() {
+			@Override
+			public IMarket run(IProgressMonitor monitor) throws CoreException {
+				return delegate.getMarket(market, monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ICategory> getCategory(final ICategory category) {
+		return submit(new MarketplaceFuture.Request<ICategory>() {
+			@Override
+			public ICategory run(IProgressMonitor monitor) throws CoreException {
+				return delegate.getCategory(category, monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<INode> getNode(final INode node) {
+		return submit(new MarketplaceFuture.Request<INode>() {
+			@Override
+			public INode run(IProgressMonitor monitor) throws CoreException {
+				return delegate.getNode(node, monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<INodeQueryResult> getNodes(final Collection<? extends INode> nodes) {
+		return submit(new MarketplaceFuture.Request<INodeQueryResult>() {
+			@Override
+			public INodeQueryResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.getNodes(nodes, monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ISearchResult> search(final IMarket market, final ICategory category,
+			final String queryText) {
+		return submit(new MarketplaceFuture.Request<ISearchResult>() {
+			@Override
+			public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.search(market, category, queryText, monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ISearchResult> search(final IMarket market, final ICategory category,
+			final String queryText, final int page) {
+		return submit(new MarketplaceFuture.Request<ISearchResult>() {
+			@Override
+			public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.search(market, category, queryText, page, monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ISearchResult> featured() {
+		return submit(new MarketplaceFuture.Request<ISearchResult>() {
+			@Override
+			public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.featured(monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ISearchResult> featured(final IMarket market, final ICategory category) {
+		return submit(new MarketplaceFuture.Request<ISearchResult>() {
+			@Override
+			public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.featured(market, category, monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ISearchResult> recent() {
+		return submit(new MarketplaceFuture.Request<ISearchResult>() {
+			@Override
+			public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.recent(monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ISearchResult> favorites() {
+		return submit(new MarketplaceFuture.Request<ISearchResult>() {
+			@Override
+			public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.favorites(monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<ISearchResult> popular() {
+		return submit(new MarketplaceFuture.Request<ISearchResult>() {
+			@Override
+			public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+				return delegate.popular(monitor);
+			}
+		});
+	}
+
+	public IMarketplaceFuture<INews> news() {
+		return submit(new MarketplaceFuture.Request<INews>() {
+			@Override
+			public INews run(IProgressMonitor monitor) throws CoreException {
+				return delegate.news(monitor);
+			}
+		});
+	}
+}
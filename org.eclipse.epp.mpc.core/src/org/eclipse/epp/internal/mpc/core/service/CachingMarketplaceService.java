@@ -11,8 +11,10 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service;
 
-import java.lang.ref.Reference;
-import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -21,28 +23,89 @@ import java.util.Set;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.epp.internal.mpc.core.util.CacheStats;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentLruCache;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentLruCache.Loader;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentLruCache.Weigher;
+import org.eclipse.epp.internal.mpc.core.util.ServiceUtil;
 import org.eclipse.epp.mpc.core.model.ICategory;
+import org.eclipse.epp.mpc.core.model.IIdentifiable;
 import org.eclipse.epp.mpc.core.model.IMarket;
 import org.eclipse.epp.mpc.core.model.INews;
 import org.eclipse.epp.mpc.core.model.INode;
 import org.eclipse.epp.mpc.core.model.ISearchResult;
 import org.eclipse.epp.mpc.core.service.IMarketplaceService;
-
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
+
+/**
+ * An {@link IMarketplaceService} that caches the results of its delegate in memory. Results are kept in separate
+ * regions per kind of request, each with its own capacity and time-to-live. Expired results are requested from the
+ * delegate again, which can revalidate its own cached data cheaply. Concurrent identical requests are coalesced into a
+ * single delegate request, whose result is shared by all callers.
+ * <p>
+ * Region capacities and time-to-live can be configured through the {@link #activate(Map) activation} properties
+ * <code>cache.&lt;region&gt;.weight</code> and <code>cache.&lt;region&gt;.ttl</code> (in milliseconds) for the regions
+ * {@link #REGION_NODE}, {@link #REGION_SEARCH}, {@link #REGION_MARKETS} and {@link #REGION_NEWS}. The weight of a
+ * search result is its number of nodes, the weight of all other entries is 1.
+ */
 public class CachingMarketplaceService implements IMarketplaceService {
 
-	private final IMarketplaceService delegate;
+	/**
+	 * Cache region for {@link #getNode(INode, IProgressMonitor) nodes}
+	 */
+	public static final String REGION_NODE = "node"; //$NON-NLS-1$
+
+	/**
+	 * Cache region for search results, including featured, recent, popular and favorites
+	 */
+	public static final String REGION_SEARCH = "search"; //$NON-NLS-1$
+
+	/**
+	 * Cache region for markets and categories
+	 */
+	public static final String REGION_MARKETS = "markets"; //$NON-NLS-1$
 
-	private int maxCacheSize = 30;
+	/**
+	 * Cache region for the news configuration
+	 */
+	public static final String REGION_NEWS = "news"; //$NON-NLS-1$
 
-	private final Map<String, Reference<Object>> cache = new LinkedHashMap<String, Reference<Object>>() {
-		private static final long serialVersionUID = 1L;
+	public static final String CACHE_PROPERTY_PREFIX = "cache."; //$NON-NLS-1$
 
-		@Override
-		protected boolean removeEldestEntry(Map.Entry<String, Reference<Object>> eldest) {
-			return size() > maxCacheSize || eldest.getValue().get() == null;
+	public static final String CACHE_WEIGHT_PROPERTY_SUFFIX = ".weight"; //$NON-NLS-1$
+
+	public static final String CACHE_TTL_PROPERTY_SUFFIX = ".ttl"; //$NON-NLS-1$
+
+	/**
+	 * Default time in milliseconds after which cached results are revalidated with the delegate
+	 */
+	public static final long DEFAULT_MAX_AGE = 5 * 60 * 1000L;
+
+	private static final Weigher<ISearchResult> SEARCH_RESULT_WEIGHER = new Weigher<ISearchResult>() {
+		public int weigh(ISearchResult value) {
+			List<? extends INode> nodes = value.getNodes();
+			return nodes == null ? 1 : nodes.size();
 		}
 	};
 
+	private static final String LIST_MARKETS_KEY = "markets"; //$NON-NLS-1$
+
+	private static final String NEWS_KEY = "news"; //$NON-NLS-1$
+
+	private final IMarketplaceService delegate;
+
+	private final ConcurrentLruCache<String, INode> nodeCache = new ConcurrentLruCache<String, INode>(100,
+			DEFAULT_MAX_AGE);
+
+	private final ConcurrentLruCache<String, ISearchResult> searchCache = new ConcurrentLruCache<String, ISearchResult>(
+			300, DEFAULT_MAX_AGE, SEARCH_RESULT_WEIGHER);
+
+	private final ConcurrentLruCache<String, Object> marketCache = new ConcurrentLruCache<String, Object>(50,
+			6 * DEFAULT_MAX_AGE);
+
+	private final ConcurrentLruCache<String, INews> newsCache = new ConcurrentLruCache<String, INews>(1,
+			6 * DEFAULT_MAX_AGE);
+
 	public CachingMarketplaceService(IMarketplaceService delegate) {
 		if (delegate == null) {
 			throw new IllegalArgumentException();
@@ -50,46 +113,172 @@ public class CachingMarketplaceService implements IMarketplaceService {
 		this.delegate = delegate;
 	}
 
-	public int getMaxCacheSize() {
-		return maxCacheSize;
+	/**
+	 * Configure the cache regions from the given properties.
+	 */
+	public void activate(Map<?, ?> properties) {
+		if (properties == null) {
+			return;
+		}
+		for (Map.Entry<String, ConcurrentLruCache<String, ?>> region : getCacheRegions().entrySet()) {
+			ConcurrentLruCache<String, ?> cache = region.getValue();
+			String prefix = CACHE_PROPERTY_PREFIX + region.getKey();
+			cache.setMaxWeight(ServiceUtil.getLong(properties, prefix + CACHE_WEIGHT_PROPERTY_SUFFIX,
+					cache.getMaxWeight()));
+			cache.setTimeToLive(ServiceUtil.getLong(properties, prefix + CACHE_TTL_PROPERTY_SUFFIX,
+					cache.getTimeToLive()));
+		}
 	}
 
-	public void setMaxCacheSize(int maxCacheSize) {
-		this.maxCacheSize = maxCacheSize;
+	/**
+	 * @return the cache regions by name
+	 */
+	public Map<String, ConcurrentLruCache<String, ?>> getCacheRegions() {
+		Map<String, ConcurrentLruCache<String, ?>> regions = new LinkedHashMap<String, ConcurrentLruCache<String, ?>>();
+		regions.put(REGION_NODE, nodeCache);
+		regions.put(REGION_SEARCH, searchCache);
+		regions.put(REGION_MARKETS, marketCache);
+		regions.put(REGION_NEWS, newsCache);
+		return regions;
 	}
 
-	public List<? extends IMarket> listMarkets(IProgressMonitor monitor) throws CoreException {
-		return delegate.listMarkets(monitor);
+	/**
+	 * @return a snapshot of the cache statistics by region name
+	 */
+	public Map<String, CacheStats> getCacheStats() {
+		Map<String, CacheStats> stats = new LinkedHashMap<String, CacheStats>();
+		for (Map.Entry<String, ConcurrentLruCache<String, ?>> region : getCacheRegions().entrySet()) {
+			stats.put(region.getKey(), region.getValue().getStats());
+		}
+		return stats;
 	}
 
-	public IMarket getMarket(IMarket market, IProgressMonitor monitor) throws CoreException {
-		return delegate.getMarket(market, monitor);
+	/**
+	 * Remove all cached results.
+	 */
+	public void invalidateAll() {
+		for (ConcurrentLruCache<String, ?> cache : getCacheRegions().values()) {
+			cache.invalidateAll();
+		}
 	}
 
-	public ICategory getCategory(ICategory category, IProgressMonitor monitor) throws CoreException {
-		return delegate.getCategory(category, monitor);
+	@SuppressWarnings("unchecked")
+	public List<? extends IMarket> listMarkets(final IProgressMonitor monitor) throws CoreException {
+		return (List<? extends IMarket>) marketCache.get(LIST_MARKETS_KEY, new Loader<Object>() {
+			public Object load() throws CoreException {
+				return delegate.listMarkets(monitor);
+			}
+		}, monitor);
 	}
 
-	public INode getNode(INode node, IProgressMonitor monitor) throws CoreException {
-		String nodeKey = computeNodeKey(node);
-		INode nodeResult = null;
-		if (nodeKey != null) {
-			synchronized (cache) {
-				Reference<Object> reference = cache.get(nodeKey);
-				if (reference != null) {
-					nodeResult = (Node) reference.get();
-				}
+	public IMarket getMarket(final IMarket market, final IProgressMonitor monitor) throws CoreException {
+		String key = computeIdentifiableKey("Market", market); //$NON-NLS-1$
+		if (key == null) {
+			return delegate.getMarket(market, monitor);
+		}
+		return (IMarket) marketCache.get(key, new Loader<Object>() {
+			public Object load() throws CoreException {
+				return delegate.getMarket(market, monitor);
 			}
+		}, monitor);
+	}
+
+	public ICategory getCategory(final ICategory category, final IProgressMonitor monitor) throws CoreException {
+		String key = computeIdentifiableKey("Category", category); //$NON-NLS-1$
+		if (key == null) {
+			return delegate.getCategory(category, monitor);
+		}
+		return (ICategory) marketCache.get(key, new Loader<Object>() {
+			public Object load() throws CoreException {
+				return delegate.getCategory(category, monitor);
+			}
+		}, monitor);
+	}
+
+	private static String computeIdentifiableKey(String prefix, IIdentifiable identifiable) {
+		if (identifiable.getId() != null) {
+			return prefix + ":" + identifiable.getId(); //$NON-NLS-1$
+		}
+		if (identifiable.getUrl() != null) {
+			return prefix + "@" + identifiable.getUrl(); //$NON-NLS-1$
 		}
-		if (nodeResult == null) {
-			nodeResult = delegate.getNode(node, monitor);
+		return null;
+	}
+
+	public INode getNode(final INode node, final IProgressMonitor monitor) throws CoreException {
+		String nodeKey = computeNodeKey(node);
+		if (nodeKey == null) {
+			INode nodeResult = delegate.getNode(node, monitor);
 			if (nodeResult != null) {
-				synchronized (cache) {
-					cache.put(computeNodeKey(nodeResult), new SoftReference<Object>(nodeResult));
+				cacheNode(nodeResult);
+			}
+			return nodeResult;
+		}
+		return nodeCache.get(nodeKey, new Loader<INode>() {
+			public INode load() throws CoreException {
+				return delegate.getNode(node, monitor);
+			}
+		}, monitor);
+	}
+
+	public INodeQueryResult getNodes(Collection<? extends INode> nodes, IProgressMonitor monitor) throws CoreException {
+		List<INode> requestedNodes = new ArrayList<INode>(nodes);
+		INode[] resultNodes = new INode[requestedNodes.size()];
+		List<INode> missingNodes = new ArrayList<INode>();
+		for (int i = 0; i < resultNodes.length; i++) {
+			INode node = requestedNodes.get(i);
+			String nodeKey = computeNodeKey(node);
+			if (nodeKey != null) {
+				resultNodes[i] = nodeCache.get(nodeKey);
+			}
+			if (resultNodes[i] == null) {
+				missingNodes.add(node);
+			}
+		}
+		IStatus status = null;
+		List<INode> loadedNodes = Collections.emptyList();
+		if (!missingNodes.isEmpty()) {
+			INodeQueryResult delegateResult = delegate.getNodes(missingNodes, monitor);
+			status = delegateResult.getStatus();
+			loadedNodes = new ArrayList<INode>(delegateResult.getNodes());
+			for (INode loadedNode : loadedNodes) {
+				cacheNode(loadedNode);
+			}
+			for (int i = 0; i < resultNodes.length && !loadedNodes.isEmpty(); i++) {
+				if (resultNodes[i] == null) {
+					resultNodes[i] = removeMatchingNode(requestedNodes.get(i), loadedNodes);
 				}
 			}
 		}
-		return nodeResult;
+		List<INode> result = new ArrayList<INode>(resultNodes.length);
+		for (INode node : resultNodes) {
+			if (node != null) {
+				result.add(node);
+			}
+		}
+		// nodes we couldn't match to a request, e.g. because the server reported a different url
+		result.addAll(loadedNodes);
+		return new NodeQueryResult(result, status);
+	}
+
+	private static INode removeMatchingNode(INode requestedNode, List<INode> loadedNodes) {
+		for (Iterator<INode> i = loadedNodes.iterator(); i.hasNext();) {
+			INode loadedNode = i.next();
+			boolean matches = requestedNode.getId() != null ? requestedNode.getId().equals(loadedNode.getId())
+					: requestedNode.getUrl() != null && requestedNode.getUrl().equals(loadedNode.getUrl());
+			if (matches) {
+				i.remove();
+				return loadedNode;
+			}
+		}
+		return null;
+	}
+
+	private void cacheNode(INode node) {
+		String nodeKey = computeNodeKey(node);
+		if (nodeKey != null) {
+			nodeCache.put(nodeKey, node);
+		}
 	}
 
 	private String computeNodeKey(INode node) {
@@ -103,38 +292,36 @@ public class CachingMarketplaceService implements IMarketplaceService {
 		public ISearchResult doSearch(IProgressMonitor monitor) throws CoreException;
 	}
 
+	public ISearchResult search(IMarket market, ICategory category, String queryText, IProgressMonitor monitor)
+			throws CoreException {
+		return search(market, category, queryText, 0, monitor);
+	}
+
 	public ISearchResult search(final IMarket market, final ICategory category, final String queryText,
-			IProgressMonitor monitor) throws CoreException {
-		String key = computeSearchKey("search", market, category, queryText); //$NON-NLS-1$
+			final int page, IProgressMonitor monitor) throws CoreException {
+		// each page is cached on its own, so paging through a result doesn't evict or refetch earlier pages
+		String key = computeSearchKey("search", market, category, queryText) + ":" + page; //$NON-NLS-1$ //$NON-NLS-2$
 		return performSearch(monitor, key, new SearchOperation() {
 
 			public ISearchResult doSearch(IProgressMonitor monitor) throws CoreException {
-				return delegate.search(market, category, queryText, monitor);
+				return delegate.search(market, category, queryText, page, monitor);
 			}
 		});
 	}
 
-	private ISearchResult performSearch(IProgressMonitor monitor, String key, SearchOperation searchOperation)
-			throws CoreException {
-		ISearchResult result = null;
-		synchronized (cache) {
-			Reference<Object> reference = cache.get(key);
-			if (reference != null) {
-				result = (ISearchResult) reference.get();
-			}
-		}
-		if (result == null) {
-			result = searchOperation.doSearch(monitor);
-			if (result != null) {
-				synchronized (cache) {
-					cache.put(key, new SoftReference<Object>(result));
+	private ISearchResult performSearch(final IProgressMonitor monitor, String key,
+			final SearchOperation searchOperation) throws CoreException {
+		return searchCache.get(key, new Loader<ISearchResult>() {
+			public ISearchResult load() throws CoreException {
+				ISearchResult result = searchOperation.doSearch(monitor);
+				if (result != null) {
 					for (INode node : result.getNodes()) {
-						cache.put(computeNodeKey(node), new SoftReference<Object>(node));
+						cacheNode(node);
 					}
 				}
+				return result;
 			}
-		}
-		return result;
+		}, monitor);
 	}
 
 	private String computeSearchKey(String prefix, IMarket market, ICategory category, String queryText) {
@@ -193,8 +380,12 @@ public class CachingMarketplaceService implements IMarketplaceService {
 
 	}
 
-	public INews news(IProgressMonitor monitor) throws CoreException {
-		return delegate.news(monitor);
+	public INews news(final IProgressMonitor monitor) throws CoreException {
+		return newsCache.get(NEWS_KEY, new Loader<INews>() {
+			public INews load() throws CoreException {
+				return delegate.news(monitor);
+			}
+		}, monitor);
 	}
 
 	public void reportInstallError(IProgressMonitor monitor, IStatus result, Set<Node> nodes,
@@ -19,9 +19,18 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.apache.http.NameValuePair;
 import org.apache.http.client.HttpClient;
@@ -31,15 +40,23 @@ import org.apache.http.message.BasicNameValuePair;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.MultiStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.internal.mpc.core.util.CancellationScope;
 import org.eclipse.epp.internal.mpc.core.util.HttpUtil;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
 import org.eclipse.epp.internal.mpc.core.util.ServiceUtil;
 import org.eclipse.epp.mpc.core.model.ICategory;
 import org.eclipse.epp.mpc.core.model.IIdentifiable;
 import org.eclipse.epp.mpc.core.model.IMarket;
 import org.eclipse.epp.mpc.core.model.INode;
 import org.eclipse.epp.mpc.core.service.IMarketplaceService;
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
 import org.eclipse.osgi.util.NLS;
 
 /**
@@ -159,6 +176,29 @@ MarketplaceService {
 	 */
 	public static final String META_PARAM_PRODUCT = "product"; //$NON-NLS-1$
 
+	/**
+	 * time-to-live for cached news responses, which change rarely
+	 *
+	 * @see #getCacheTimeToLive(String)
+	 */
+	public static final long NEWS_CACHE_TIME_TO_LIVE = 24 * DEFAULT_CACHE_TIME_TO_LIVE;
+
+	/**
+	 * time-to-live for cached search and recent responses, which are expected to change more quickly
+	 *
+	 * @see #getCacheTimeToLive(String)
+	 */
+	public static final long SEARCH_CACHE_TIME_TO_LIVE = DEFAULT_CACHE_TIME_TO_LIVE / 4;
+
+	/**
+	 * maximum number of node ids requested at once from the multi-node endpoint
+	 *
+	 * @see #getNodes(Collection, IProgressMonitor)
+	 */
+	public static final int MAX_NODES_PER_REQUEST = 50;
+
+	private volatile boolean multiNodeRequestSupported = true;
+
 	static {
 		DEFAULT_SERVICE_URL = ServiceUtil.parseUrl(DEFAULT_SERVICE_LOCATION);
 	}
@@ -261,10 +301,204 @@ MarketplaceService {
 		return getNode((INode) node, monitor);
 	}
 
+	/**
+	 * Get multiple nodes. Nodes with an id are first requested in batches from the multi-node endpoint
+	 * <code>node/[id1],[id2],.../api/p</code>. All nodes that could not be retrieved that way, because they only have
+	 * an url or because the server doesn't support the endpoint, are requested concurrently in the
+	 * {@link Lane#API API lane} of the shared {@link IOScheduler}.
+	 */
+	public INodeQueryResult getNodes(Collection<? extends INode> nodes, IProgressMonitor monitor) throws CoreException {
+		SubMonitor progress = SubMonitor.convert(monitor, Messages.DefaultMarketplaceService_retrievingNodes, 100);
+		List<INode> requestedNodes = new ArrayList<INode>(nodes);
+		INode[] resultNodes = new INode[requestedNodes.size()];
+		if (multiNodeRequestSupported) {
+			getNodesById(requestedNodes, resultNodes, progress.newChild(50));
+		}
+		MultiStatus status = new MultiStatus(MarketplaceClientCore.BUNDLE_ID, 0, NLS.bind(
+				Messages.DefaultMarketplaceService_nodesNotRetrieved, requestedNodes.size()), null);
+		getNodesConcurrently(requestedNodes, resultNodes, status, progress.newChild(50));
+
+		List<INode> result = new ArrayList<INode>(resultNodes.length);
+		for (INode node : resultNodes) {
+			if (node != null) {
+				result.add(node);
+			}
+		}
+		return new NodeQueryResult(result, status.isOK() ? null : status);
+	}
+
+	private void getNodesById(List<INode> requestedNodes, INode[] resultNodes, IProgressMonitor monitor)
+			throws CoreException {
+		Map<String, List<Integer>> indexesById = new LinkedHashMap<String, List<Integer>>();
+		for (int i = 0; i < requestedNodes.size(); i++) {
+			String id = requestedNodes.get(i).getId();
+			if (id != null) {
+				List<Integer> indexes = indexesById.get(id);
+				if (indexes == null) {
+					indexes = new ArrayList<Integer>(1);
+					indexesById.put(id, indexes);
+				}
+				indexes.add(i);
+			}
+		}
+		if (indexesById.size() < 2) {
+			// nothing to gain from a multi-node request
+			return;
+		}
+		List<String> ids = new ArrayList<String>(indexesById.keySet());
+		int batchCount = (ids.size() + MAX_NODES_PER_REQUEST - 1) / MAX_NODES_PER_REQUEST;
+		SubMonitor progress = SubMonitor.convert(monitor, batchCount);
+		for (int start = 0; start < ids.size(); start += MAX_NODES_PER_REQUEST) {
+			List<String> batch = ids.subList(start, Math.min(start + MAX_NODES_PER_REQUEST, ids.size()));
+			StringBuilder encodedIds = new StringBuilder();
+			for (String id : batch) {
+				if (encodedIds.length() > 0) {
+					encodedIds.append(',');
+				}
+				encodedIds.append(urlEncode(id));
+			}
+			Marketplace marketplace;
+			try {
+				marketplace = processRequest(API_NODE_URI + '/' + encodedIds + '/' + API_URI_SUFFIX,
+						progress.newChild(1));
+			} catch (CoreException ex) {
+				if (ex.getStatus().getSeverity() == IStatus.CANCEL) {
+					throw ex;
+				}
+				if (ex.getCause() instanceof FileNotFoundException) {
+					multiNodeRequestSupported = false;
+				}
+				// remaining nodes are requested one by one
+				return;
+			}
+			int found = 0;
+			for (Node node : marketplace.getNode()) {
+				List<Integer> indexes = node.getId() == null ? null : indexesById.get(node.getId());
+				if (indexes != null) {
+					for (Integer index : indexes) {
+						resultNodes[index] = node;
+					}
+					found++;
+				}
+			}
+			if (found == 0) {
+				// the server doesn't understand multiple ids - don't bother again
+				multiNodeRequestSupported = false;
+				return;
+			}
+		}
+	}
+
+	private void getNodesConcurrently(List<INode> requestedNodes, INode[] resultNodes, MultiStatus status,
+			IProgressMonitor monitor) throws CoreException {
+		List<Integer> missing = new ArrayList<Integer>();
+		for (int i = 0; i < resultNodes.length; i++) {
+			if (resultNodes[i] == null) {
+				missing.add(i);
+			}
+		}
+		if (missing.isEmpty()) {
+			return;
+		}
+		final SubMonitor progress = SubMonitor.convert(monitor, missing.size());
+		if (missing.size() == 1) {
+			int index = missing.get(0);
+			try {
+				resultNodes[index] = getNode(requestedNodes.get(index), progress.newChild(1));
+			} catch (CoreException ex) {
+				handleNodeError(requestedNodes.get(index), ex, status);
+			}
+			return;
+		}
+		// the child requests run in different threads, so they can only be canceled, but not report progress
+		final IProgressMonitor requestMonitor = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return progress.isCanceled();
+			}
+		};
+		// the requests form a cancellation group, so their transport requests can be aborted as a batch
+		final CancellationScope scope = new CancellationScope();
+		Executor executor = IOScheduler.getDefault().getExecutor(Lane.API);
+		List<FutureTask<Node>> futures = new ArrayList<FutureTask<Node>>(missing.size());
+		try {
+			for (Integer index : missing) {
+				final INode node = requestedNodes.get(index);
+				FutureTask<Node> future = new FutureTask<Node>(new Callable<Node>() {
+					public Node call() throws Exception {
+						CancellationScope previous = scope.enter();
+						try {
+							return getNode(node, requestMonitor);
+						} finally {
+							scope.exit(previous);
+						}
+					}
+				});
+				futures.add(future);
+				executor.execute(future);
+			}
+			for (int i = 0; i < futures.size(); i++) {
+				FutureTask<Node> future = futures.get(i);
+				int index = missing.get(i);
+				// run the request here if the lane hasn't started it yet. This keeps the lane from deadlocking when
+				// getNodes() is itself called from one of its threads, e.g. through the AsyncMarketplaceService.
+				future.run();
+				while (true) {
+					if (progress.isCanceled()) {
+						throw new CoreException(Status.CANCEL_STATUS);
+					}
+					try {
+						resultNodes[index] = future.get(1L, TimeUnit.SECONDS);
+						break;
+					} catch (TimeoutException e) {
+						// check for cancellation and keep waiting
+					} catch (InterruptedException e) {
+						throw new CoreException(Status.CANCEL_STATUS);
+					} catch (ExecutionException e) {
+						Throwable cause = e.getCause();
+						if (cause instanceof CoreException) {
+							handleNodeError(requestedNodes.get(index), (CoreException) cause, status);
+						} else {
+							status.add(createErrorStatus(NLS.bind(Messages.DefaultMarketplaceService_nodeNotRetrieved,
+									getNodeLabel(requestedNodes.get(index))), cause));
+						}
+						break;
+					}
+				}
+				progress.worked(1);
+			}
+		} finally {
+			for (Future<Node> future : futures) {
+				future.cancel(true);
+			}
+			scope.cancel();
+		}
+	}
+
+	private void handleNodeError(INode node, CoreException ex, MultiStatus status) throws CoreException {
+		if (ex.getStatus().getSeverity() == IStatus.CANCEL) {
+			throw ex;
+		}
+		status.add(new MultiStatus(MarketplaceClientCore.BUNDLE_ID, 0, new IStatus[] { ex.getStatus() }, NLS.bind(
+				Messages.DefaultMarketplaceService_nodeNotRetrieved, getNodeLabel(node)), ex));
+	}
+
+	private static String getNodeLabel(INode node) {
+		if (node.getName() != null) {
+			return node.getName();
+		}
+		return node.getId() != null ? node.getId() : node.getUrl();
+	}
+
 	public SearchResult search(IMarket market, ICategory category, String queryText, IProgressMonitor monitor)
 			throws CoreException {
+		return search(market, category, queryText, 0, monitor);
+	}
+
+	public SearchResult search(IMarket market, ICategory category, String queryText, int page,
+			IProgressMonitor monitor) throws CoreException {
 		SearchResult result = new SearchResult();
-		String relativeUrl = computeRelativeSearchUrl(market, category, queryText, true);
+		String relativeUrl = computeRelativeSearchUrl(market, category, queryText, page, true);
 		if (relativeUrl == null) {
 			// empty search
 			result.setMatchCount(0);
@@ -323,11 +557,28 @@ MarketplaceService {
 	 *         <code>taxonomy/term/38,31/api/p</code>
 	 */
 	public String computeRelativeSearchUrl(IMarket market, ICategory category, String queryText, boolean api) {
+		return computeRelativeSearchUrl(market, category, queryText, 0, api);
+	}
+
+	/**
+	 * Creates the query URL for the given result page. Page 0 is the same as
+	 * {@link #computeRelativeSearchUrl(IMarket, ICategory, String, boolean)}, for later pages a <code>page</code>
+	 * parameter is added to the url, e.g. <code>api/p/search/apachesolr_search/WikiText?page=2&filters=tid:38</code>
+	 * or <code>taxonomy/term/38,31/api/p?page=2</code>
+	 *
+	 * @param page
+	 *            the zero-based result page
+	 */
+	public String computeRelativeSearchUrl(IMarket market, ICategory category, String queryText, int page,
+			boolean api) {
 		String relativeUrl;
 		if (queryText != null && queryText.trim().length() > 0) {
 			relativeUrl = (api ? API_SEARCH_URI_FULL : API_SEARCH_URI) + urlEncode(queryText.trim());
-			String queryString = ""; //$NON-NLS-1$
+			String queryString = page > 0 ? "page=" + page : ""; //$NON-NLS-1$ //$NON-NLS-2$
 			if (market != null || category != null) {
+				if (queryString.length() > 0) {
+					queryString += '&';
+				}
 				queryString += "filters="; //$NON-NLS-1$
 				IIdentifiable first = api ? market : category;
 				IIdentifiable second = api ? category : market;
@@ -359,12 +610,26 @@ MarketplaceService {
 			if (api) {
 				relativeUrl += '/' + API_URI_SUFFIX;
 			}
+			if (page > 0) {
+				relativeUrl += "?page=" + page; //$NON-NLS-1$
+			}
 		} else {
 			relativeUrl = null;
 		}
 		return relativeUrl;
 	}
 
+	@Override
+	protected long getCacheTimeToLive(String relativePath) {
+		if (relativePath.startsWith(API_NEWS_URI)) {
+			return NEWS_CACHE_TIME_TO_LIVE;
+		}
+		if (relativePath.startsWith(API_SEARCH_URI_FULL) || relativePath.startsWith(API_RECENT_URI)) {
+			return SEARCH_CACHE_TIME_TO_LIVE;
+		}
+		return super.getCacheTimeToLive(relativePath);
+	}
+
 	public SearchResult featured(IProgressMonitor monitor) throws CoreException {
 		return featured(null, null, monitor);
 	}
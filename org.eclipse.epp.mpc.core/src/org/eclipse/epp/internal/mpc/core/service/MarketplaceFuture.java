@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.internal.mpc.core.util.CancellationScope;
+import org.eclipse.epp.mpc.core.service.IMarketplaceFuture;
+import org.eclipse.epp.mpc.core.service.IMarketplaceFutureListener;
+
+/**
+ * A {@link FutureTask} running a single marketplace request. The request is passed a progress monitor that is
+ * canceled together with the future, and runs in a {@link CancellationScope} that aborts its transport requests.
+ *
+ * @author Carsten Reckord
+ */
+public class MarketplaceFuture<T> extends FutureTask<T> implements IMarketplaceFuture<T> {
+
+	/**
+	 * A marketplace request run by a {@link MarketplaceFuture}
+	 */
+	public static abstract class Request<T> {
+		public abstract T run(IProgressMonitor monitor) throws CoreException;
+	}
+
+	private static final long POLL_INTERVAL = 100;
+
+	private final IProgressMonitor monitor;
+
+	private final CancellationScope scope;
+
+	private List<IMarketplaceFutureListener<T>> listeners;
+
+	public MarketplaceFuture(Request<T> request) {
+		this(request, new NullProgressMonitor(), new CancellationScope());
+	}
+
+	private MarketplaceFuture(final Request<T> request, final IProgressMonitor monitor, final CancellationScope scope) {
+		super(new Callable<T>() {
+			public T call() throws Exception {
+				CancellationScope previous = scope.enter();
+				try {
+					return request.run(monitor);
+				} finally {
+					scope.exit(previous);
+				}
+			}
+		});
+		this.monitor = monitor;
+		this.scope = scope;
+	}
+
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		boolean canceled = super.cancel(mayInterruptIfRunning);
+		if (canceled) {
+			monitor.setCanceled(true);
+			scope.cancel();
+		}
+		return canceled;
+	}
+
+	public T getResult(IProgressMonitor monitor) throws CoreException {
+		while (true) {
+			if (monitor != null && monitor.isCanceled()) {
+				cancel(true);
+				throw new OperationCanceledException();
+			}
+			try {
+				return get(POLL_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				// poll the monitor again
+			} catch (CancellationException e) {
+				throw new OperationCanceledException();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new OperationCanceledException();
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof CoreException) {
+					throw (CoreException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				} else if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, cause.getMessage(),
+						cause));
+			}
+		}
+	}
+
+	public void addListener(IMarketplaceFutureListener<T> listener) {
+		synchronized (this) {
+			if (!isDone()) {
+				if (listeners == null) {
+					listeners = new ArrayList<IMarketplaceFutureListener<T>>(2);
+				}
+				listeners.add(listener);
+				return;
+			}
+		}
+		notifyListener(listener);
+	}
+
+	public synchronized void removeListener(IMarketplaceFutureListener<T> listener) {
+		if (listeners != null) {
+			listeners.remove(listener);
+		}
+	}
+
+	@Override
+	protected void done() {
+		List<IMarketplaceFutureListener<T>> doneListeners;
+		synchronized (this) {
+			doneListeners = listeners;
+			listeners = null;
+		}
+		if (doneListeners != null) {
+			for (IMarketplaceFutureListener<T> listener : doneListeners) {
+				notifyListener(listener);
+			}
+		}
+	}
+
+	private void notifyListener(IMarketplaceFutureListener<T> listener) {
+		try {
+			listener.done(this);
+		} catch (RuntimeException ex) {
+			MarketplaceClientCore.error(ex);
+		}
+	}
+}
@@ -28,16 +28,26 @@ class Messages extends NLS {
 
 	public static String DefaultMarketplaceService_nodeNotFound;
 
+	public static String DefaultMarketplaceService_nodeNotRetrieved;
+
+	public static String DefaultMarketplaceService_nodesNotRetrieved;
+
 	public static String DefaultMarketplaceService_parseError;
 
 	public static String DefaultMarketplaceService_retrievingDataFrom;
 
+	public static String DefaultMarketplaceService_retrievingNodes;
+
 	public static String DefaultMarketplaceService_unexpectedResponse;
 
 	public static String DefaultMarketplaceService_unexpectedResponseContent;
 
 
 	public static String DefaultMarketplaceService_UnsupportedSearchString;
+
+	public static String RemoteService_cannotCacheResponse;
+
+	public static String RemoteService_refreshingCachedResponse;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,41 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
+
+/**
+ * @author Carsten Reckord
+ */
+public class NodeQueryResult implements INodeQueryResult {
+
+	private final List<INode> nodes;
+
+	private final IStatus status;
+
+	public NodeQueryResult(List<INode> nodes, IStatus status) {
+		this.nodes = nodes;
+		this.status = status == null ? Status.OK_STATUS : status;
+	}
+
+	public List<INode> getNodes() {
+		return nodes;
+	}
+
+	public IStatus getStatus() {
+		return status;
+	}
+}
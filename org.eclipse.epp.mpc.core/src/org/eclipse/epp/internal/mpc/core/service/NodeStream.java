@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.mpc.core.model.INode;
+
+/**
+ * Reports nodes as soon as they have been parsed, while the rest of the response is still being read. A stream is
+ * bound to the thread making a service request, so callers can process the first nodes of a large listing before the
+ * service call returns:
+ *
+ * <pre>
+ * NodeStream stream = new NodeStream(listener);
+ * NodeStream previous = stream.enter();
+ * try {
+ * 	result = marketplaceService.search(market, category, query, monitor);
+ * } finally {
+ * 	stream.exit(previous);
+ * }
+ * </pre>
+ *
+ * Nodes are only streamed if the response is actually parsed on the calling thread. Responses served from memory are
+ * returned without notifying the stream, so the listener has to be prepared to see only some or none of the result's
+ * nodes.
+ *
+ * @author Carsten Reckord
+ */
+public class NodeStream {
+
+	public interface Listener {
+		/**
+		 * Called on the parsing thread for each completed node element
+		 */
+		void nodeParsed(INode node);
+	}
+
+	private static final ThreadLocal<NodeStream> currentStream = new ThreadLocal<NodeStream>();
+
+	private final Listener listener;
+
+	public NodeStream(Listener listener) {
+		this.listener = listener;
+	}
+
+	/**
+	 * @return the stream bound to the current thread or null if there is none
+	 */
+	public static NodeStream current() {
+		return currentStream.get();
+	}
+
+	/**
+	 * Bind this stream to the current thread.
+	 *
+	 * @return the previously bound stream, which has to be passed to {@link #exit(NodeStream)}
+	 */
+	public NodeStream enter() {
+		NodeStream previous = currentStream.get();
+		currentStream.set(this);
+		return previous;
+	}
+
+	/**
+	 * Unbind this stream from the current thread and restore the previously bound stream.
+	 */
+	public void exit(NodeStream previous) {
+		if (previous == null) {
+			currentStream.remove();
+		} else {
+			currentStream.set(previous);
+		}
+	}
+
+	/**
+	 * Notify the stream's listener of a completed node. Exceptions thrown by the listener are not propagated, so they
+	 * can't break parsing of the remaining response.
+	 */
+	public void nodeParsed(INode node) {
+		try {
+			listener.nodeParsed(node);
+		} catch (RuntimeException ex) {
+			MarketplaceClientCore.error(ex);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.xml.Unmarshaller;
+import org.eclipse.epp.mpc.core.service.UnmarshalException;
+import org.eclipse.osgi.util.NLS;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+/**
+ * A {@link MarketplaceUnmarshaller} that reuses its SAX parsers and content handlers instead of creating new ones for
+ * every document. Idle parsers are kept in a small pool, and each parser is used by only one thread at a time.
+ * <p>
+ * Documents are parsed from the raw byte stream, so the parser can detect the encoding from the byte order mark or
+ * the XML declaration. Documents without either are read as UTF-8, as required by the XML specification.
+ *
+ * @author Carsten Reckord
+ */
+public class PooledMarketplaceUnmarshaller extends MarketplaceUnmarshaller {
+
+	/**
+	 * Maximum number of idle parsers kept for reuse
+	 */
+	public static final int MAX_POOL_SIZE = 8;
+
+	private static class PooledParser {
+
+		private final XMLReader xmlReader;
+
+		private final Unmarshaller unmarshaller;
+
+		public PooledParser(XMLReader xmlReader, Unmarshaller unmarshaller) {
+			this.xmlReader = xmlReader;
+			this.unmarshaller = unmarshaller;
+			xmlReader.setContentHandler(unmarshaller);
+		}
+	}
+
+	private final Queue<PooledParser> pool = new ConcurrentLinkedQueue<PooledParser>();
+
+	private final AtomicInteger poolSize = new AtomicInteger();
+
+	private final SAXParserFactory parserFactory;
+
+	public PooledMarketplaceUnmarshaller() {
+		parserFactory = SAXParserFactory.newInstance();
+		parserFactory.setNamespaceAware(true);
+	}
+
+	@Override
+	public <T> T unmarshal(InputStream in, Class<T> type, IProgressMonitor monitor) throws IOException,
+	UnmarshalException {
+		PooledParser parser = acquire();
+		boolean reusable = false;
+		Object model;
+		try {
+			InputSource source = new InputSource(new BufferedInputStream(in));
+			try {
+				parser.xmlReader.parse(source);
+			} catch (final SAXException e) {
+				throw new UnmarshalException(createErrorStatus(e.getMessage(), null));
+			}
+			model = parser.unmarshaller.getModel();
+			reusable = true;
+		} finally {
+			if (reusable) {
+				release(parser);
+			}
+		}
+
+		if (model == null) {
+			// if we reach here this should never happen
+			throw new IllegalStateException();
+		}
+		try {
+			return type.cast(model);
+		} catch (Exception e) {
+			String message = NLS.bind(Messages.DefaultMarketplaceService_unexpectedResponseContent,
+					model.getClass().getSimpleName(), type.getSimpleName());
+			throw new UnmarshalException(createErrorStatus(message, null));
+		}
+	}
+
+	private PooledParser acquire() {
+		PooledParser parser = pool.poll();
+		if (parser != null) {
+			poolSize.decrementAndGet();
+			return parser;
+		}
+		XMLReader xmlReader;
+		try {
+			synchronized (parserFactory) {
+				xmlReader = parserFactory.newSAXParser().getXMLReader();
+			}
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		} catch (SAXException e) {
+			throw new IllegalStateException(e);
+		}
+		return new PooledParser(xmlReader, createUnmarshaller());
+	}
+
+	private void release(PooledParser parser) {
+		// don't keep a reference to the parsed model
+		parser.unmarshaller.reset();
+		if (poolSize.incrementAndGet() <= MAX_POOL_SIZE) {
+			pool.offer(parser);
+		} else {
+			poolSize.decrementAndGet();
+		}
+	}
+}
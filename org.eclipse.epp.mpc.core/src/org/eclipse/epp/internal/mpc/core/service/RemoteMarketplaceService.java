@@ -24,7 +24,7 @@ public class RemoteMarketplaceService<T> extends RemoteService<T> {
 		IMarketplaceUnmarshaller unmarshaller = ServiceHelper.getMarketplaceUnmarshaller();
 		if (unmarshaller == null) {
 			//no unmarshaller registered, create a default instance
-			unmarshaller = new MarketplaceUnmarshaller();
+			unmarshaller = new PooledMarketplaceUnmarshaller();
 		}
 		return unmarshaller;
 	}
@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
@@ -18,19 +20,24 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 import org.eclipse.epp.internal.mpc.core.util.ServiceUtil;
 import org.eclipse.epp.internal.mpc.core.util.TransportFactory;
+import org.eclipse.epp.mpc.core.service.IConditionalTransport;
 import org.eclipse.epp.mpc.core.service.IMarketplaceService;
 import org.eclipse.epp.mpc.core.service.IMarketplaceUnmarshaller;
 import org.eclipse.epp.mpc.core.service.ITransport;
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
 import org.eclipse.epp.mpc.core.service.UnmarshalException;
 import org.eclipse.osgi.util.NLS;
 
@@ -40,6 +47,8 @@ public abstract class RemoteService<T> {
 
 	protected static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
 
+	protected static final long DEFAULT_CACHE_TIME_TO_LIVE = 60 * 60 * 1000L;
+
 	protected final ITransport transport;
 
 	protected final IMarketplaceUnmarshaller unmarshaller;
@@ -54,6 +63,10 @@ public abstract class RemoteService<T> {
 
 	private Map<String, String> requestMetaParameters;
 
+	private ResponseCache responseCache;
+
+	private final Set<URI> pendingRefreshes = new HashSet<URI>();
+
 	protected IStatus createErrorStatus(String message, Throwable t) {
 		return new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, 0, message, t);
 	}
@@ -145,22 +158,22 @@ public abstract class RemoteService<T> {
 
 		monitor.beginTask(NLS.bind(Messages.DefaultMarketplaceService_retrievingDataFrom, baseUri), 100);
 		try {
-			InputStream in = transport.stream(location, monitor);
-			try {
-				monitor.worked(30);
-
-				try {
-					return unmarshaller.unmarshal(in, classT, monitor);
-				} catch (UnmarshalException e) {
-					MarketplaceClientCore.error(
-							NLS.bind(Messages.DefaultMarketplaceService_parseError, location.toString()), e);
-					throw new IOException(e.getMessage());
-				}
-			} finally {
-				if (in != null) {
-					in.close();
+			ResponseCache cache = responseCache;
+			ResponseCache.Entry entry = null;
+			if (cache != null) {
+				entry = cache.get(location);
+				if (entry != null && cache.isServable(entry, System.currentTimeMillis())) {
+					T cachedResult = getCachedModel(cache, entry, location, monitor);
+					if (cachedResult != null) {
+						if (!entry.isFresh(System.currentTimeMillis())) {
+							scheduleRefresh(location, relativePath, entry);
+						}
+						return cachedResult;
+					}
+					entry = null;
 				}
 			}
+			return fetch(location, relativePath, entry, monitor);
 		} catch (Exception e) {
 			if (e.getCause() instanceof OperationCanceledException) {
 				throw new CoreException(Status.CANCEL_STATUS);
@@ -173,6 +186,251 @@ public abstract class RemoteService<T> {
 		}
 	}
 
+	private T fetch(URI location, String relativePath, ResponseCache.Entry cachedEntry, IProgressMonitor monitor)
+			throws Exception {
+		ResponseCache cache = responseCache;
+		InputStream in;
+		String eTag = null;
+		String lastModified = null;
+		if (cache != null && transport instanceof IConditionalTransport) {
+			IConditionalTransport conditionalTransport = (IConditionalTransport) transport;
+			ITransportResponse response;
+			if (cachedEntry != null && cachedEntry.hasValidators()) {
+				response = conditionalTransport.stream(location, cachedEntry.getETag(), cachedEntry.getLastModified(),
+						monitor);
+			} else {
+				response = conditionalTransport.stream(location, null, null, monitor);
+			}
+			if (response == null) {
+				throw new CoreException(createErrorStatus(NLS.bind(
+						Messages.DefaultMarketplaceService_cannotCompleteRequest_reason, location,
+						Messages.DefaultMarketplaceService_unexpectedResponse), null));
+			}
+			if (response.getStatusCode() == ITransportResponse.STATUS_NOT_MODIFIED) {
+				monitor.worked(30);
+				T revalidated = revalidate(cache, location, relativePath, monitor);
+				if (revalidated != null) {
+					return revalidated;
+				}
+				//entry vanished in the meantime
+				return fetch(location, relativePath, null, monitor);
+			}
+			in = response.getContent();
+			eTag = response.getETag();
+			lastModified = response.getLastModified();
+		} else {
+			in = transport.stream(location, monitor);
+		}
+		try {
+			monitor.worked(30);
+
+			if (cache == null) {
+				return unmarshal(in, location, monitor);
+			}
+			// parse while the response is downloaded, so streamed nodes are reported as soon as they arrive
+			RecordingInputStream recordingIn = new RecordingInputStream(in);
+			T result = unmarshal(recordingIn, location, monitor);
+			byte[] content = recordingIn.getContent();
+			try {
+				ResponseCache.Entry entry = cache.put(location, content, getCacheTimeToLive(relativePath), eTag,
+						lastModified);
+				entry.setModel(result);
+			} catch (IOException e) {
+				MarketplaceClientCore.error(NLS.bind(Messages.RemoteService_cannotCacheResponse, location), e);
+			}
+			return result;
+		} finally {
+			if (in != null) {
+				in.close();
+			}
+		}
+	}
+
+	private T revalidate(ResponseCache cache, URI location, String relativePath, IProgressMonitor monitor) {
+		ResponseCache.Entry entry;
+		try {
+			entry = cache.revalidate(location, getCacheTimeToLive(relativePath));
+		} catch (IOException e) {
+			MarketplaceClientCore.error(NLS.bind(Messages.RemoteService_cannotCacheResponse, location), e);
+			entry = cache.get(location);
+		}
+		return entry == null ? null : getCachedModel(cache, entry, location, monitor);
+	}
+
+	private T unmarshal(InputStream in, URI location, IProgressMonitor monitor) throws IOException {
+		try {
+			return unmarshaller.unmarshal(in, classT, monitor);
+		} catch (UnmarshalException e) {
+			MarketplaceClientCore.error(NLS.bind(Messages.DefaultMarketplaceService_parseError, location.toString()),
+					e);
+			throw new IOException(e.getMessage());
+		}
+	}
+
+	/**
+	 * Get the model for a cached entry, reusing the previously unmarshalled object if it is still available.
+	 */
+	private T getCachedModel(ResponseCache cache, ResponseCache.Entry entry, URI location, IProgressMonitor monitor) {
+		Object model = entry.getModel();
+		if (classT.isInstance(model)) {
+			return classT.cast(model);
+		}
+		try {
+			InputStream in = entry.open();
+			try {
+				T result = unmarshaller.unmarshal(in, classT, monitor);
+				entry.setModel(result);
+				return result;
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			//corrupt or evicted - drop it and go remote
+			cache.remove(location);
+			return null;
+		}
+	}
+
+	private void scheduleRefresh(final URI location, final String relativePath, final ResponseCache.Entry entry) {
+		synchronized (pendingRefreshes) {
+			if (!pendingRefreshes.add(location)) {
+				return;
+			}
+		}
+		Job refreshJob = new Job(NLS.bind(Messages.RemoteService_refreshingCachedResponse, location)) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				try {
+					fetch(location, relativePath, entry, monitor);
+				} catch (Exception e) {
+					//keep serving the stale entry, we'll try again next time
+				} finally {
+					synchronized (pendingRefreshes) {
+						pendingRefreshes.remove(location);
+					}
+				}
+				return Status.OK_STATUS;
+			}
+		};
+		refreshJob.setSystem(true);
+		refreshJob.setPriority(Job.DECORATE);
+		refreshJob.schedule();
+	}
+
+	/**
+	 * Keeps a copy of everything read from the underlying stream, so a response can be parsed while it is downloaded
+	 * and still be cached afterwards. Closing this stream doesn't close the underlying stream, since parsers usually
+	 * close their input once they are done.
+	 */
+	private static class RecordingInputStream extends FilterInputStream {
+
+		private final ByteArrayOutputStream recorded = new ByteArrayOutputStream(8192);
+
+		private boolean eof;
+
+		public RecordingInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b == -1) {
+				eof = true;
+			} else {
+				recorded.write(b);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int read = super.read(b, off, len);
+			if (read == -1) {
+				eof = true;
+			} else {
+				recorded.write(b, off, read);
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// read instead of skipping, so the skipped bytes are recorded as well
+			byte[] buffer = new byte[(int) Math.min(n, 8192)];
+			long skipped = 0;
+			while (skipped < n) {
+				int read = read(buffer, 0, (int) Math.min(n - skipped, buffer.length));
+				if (read == -1) {
+					break;
+				}
+				skipped += read;
+			}
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public synchronized void mark(int readlimit) {
+			// not supported
+		}
+
+		@Override
+		public synchronized void reset() throws IOException {
+			throw new IOException();
+		}
+
+		@Override
+		public void close() throws IOException {
+			// keep the underlying stream open
+		}
+
+		/**
+		 * Read the rest of the underlying stream and return everything read so far.
+		 */
+		public byte[] getContent() throws IOException {
+			if (!eof) {
+				byte[] buffer = new byte[8192];
+				while (read(buffer, 0, buffer.length) != -1) {
+					// recorded
+				}
+			}
+			return recorded.toByteArray();
+		}
+	}
+
+	/**
+	 * The time in milliseconds that a response for the given request path stays fresh in the {@link ResponseCache
+	 * response cache}.
+	 *
+	 * @param relativePath
+	 *            the request path relative to the service base url
+	 */
+	protected long getCacheTimeToLive(String relativePath) {
+		return DEFAULT_CACHE_TIME_TO_LIVE;
+	}
+
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Set a persistent cache for raw responses. Cached responses are served without contacting the server while they
+	 * are fresh, and served while being refreshed in the background once they are stale. If the transport supports
+	 * {@link IConditionalTransport conditional requests}, expired responses are revalidated with the server, reusing
+	 * the cached content and its unmarshalled model if it has not changed.
+	 *
+	 * @param responseCache
+	 *            the cache or null to always contact the server
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
 	public String addMetaParameters(String uri) {
 		if (requestMetaParameters != null) {
 			try {
@@ -0,0 +1,504 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
+import java.net.URI;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A persistent cache for raw marketplace API responses. Entries are keyed by the fully expanded request URI and stored
+ * as individual files in the cache directory, together with a small properties file holding the entry's metadata.
+ * <p>
+ * Each entry is <em>fresh</em> until its time-to-live has elapsed. After that, it is <em>stale</em> but can still be
+ * served for the {@link #getStaleWhileRevalidate() stale-while-revalidate} period, while the caller refreshes it in the
+ * background. Entries that carry validators (an entity tag or last modification date) are kept beyond that period, so
+ * they can be revalidated with a conditional request. The total size of all entries is bounded by
+ * {@link #getMaxSize()}, evicting the least recently used entries first.
+ *
+ * @author Carsten Reckord
+ */
+public class ResponseCache {
+
+	private static final long MINUTE = 60 * 1000L;
+
+	private static final long DAY = 24 * 60 * MINUTE;
+
+	public static final long DEFAULT_MAX_SIZE = 10 * 1024 * 1024L;
+
+	public static final long DEFAULT_STALE_WHILE_REVALIDATE = 7 * DAY;
+
+	private static final String DATA_SUFFIX = ".xml"; //$NON-NLS-1$
+
+	private static final String META_SUFFIX = ".properties"; //$NON-NLS-1$
+
+	private static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private static final String PROP_URI = "uri"; //$NON-NLS-1$
+
+	private static final String PROP_FETCHED = "fetched"; //$NON-NLS-1$
+
+	private static final String PROP_EXPIRES = "expires"; //$NON-NLS-1$
+
+	private static final String PROP_SIZE = "size"; //$NON-NLS-1$
+
+	private static final String PROP_ETAG = "etag"; //$NON-NLS-1$
+
+	private static final String PROP_LAST_MODIFIED = "lastModified"; //$NON-NLS-1$
+
+	/**
+	 * A single cached response.
+	 */
+	public static class Entry {
+
+		private final String key;
+
+		private final String uri;
+
+		private final long fetched;
+
+		private final long expires;
+
+		private final long size;
+
+		private final File file;
+
+		private final String eTag;
+
+		private final String lastModified;
+
+		private volatile Reference<Object> model;
+
+		private Entry(String key, String uri, long fetched, long expires, long size, File file, String eTag,
+				String lastModified) {
+			this.key = key;
+			this.uri = uri;
+			this.fetched = fetched;
+			this.expires = expires;
+			this.size = size;
+			this.file = file;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+
+		public String getUri() {
+			return uri;
+		}
+
+		public long getFetched() {
+			return fetched;
+		}
+
+		public long getExpires() {
+			return expires;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return true if the entry has validators that allow a conditional request to revalidate it
+		 */
+		public boolean hasValidators() {
+			return eTag != null || lastModified != null;
+		}
+
+		public boolean isFresh(long now) {
+			return now < expires;
+		}
+
+		/**
+		 * @return the object previously unmarshalled from this entry's content, if it is still in memory
+		 */
+		public Object getModel() {
+			Reference<Object> model = this.model;
+			return model == null ? null : model.get();
+		}
+
+		/**
+		 * Remember the object unmarshalled from this entry's content, so it doesn't need to be unmarshalled again
+		 * while it is still in memory.
+		 */
+		public void setModel(Object model) {
+			this.model = model == null ? null : new SoftReference<Object>(model);
+		}
+
+		/**
+		 * Open the cached response content.
+		 *
+		 * @throws FileNotFoundException
+		 *             if the entry has been evicted in the meantime
+		 */
+		public InputStream open() throws FileNotFoundException {
+			return new BufferedInputStream(new FileInputStream(file));
+		}
+	}
+
+	private final File cacheDir;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private long maxSize = DEFAULT_MAX_SIZE;
+
+	private long staleWhileRevalidate = DEFAULT_STALE_WHILE_REVALIDATE;
+
+	private long currentSize;
+
+	private boolean loaded;
+
+	public ResponseCache(File cacheDir) {
+		if (cacheDir == null) {
+			throw new IllegalArgumentException();
+		}
+		this.cacheDir = cacheDir;
+	}
+
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the maximum total size in bytes of all cached responses. Exceeding this size will evict the least recently
+	 * used entries.
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	public synchronized long getStaleWhileRevalidate() {
+		return staleWhileRevalidate;
+	}
+
+	/**
+	 * Set the period in milliseconds after expiry during which a stale entry may still be served while it is being
+	 * revalidated.
+	 */
+	public synchronized void setStaleWhileRevalidate(long staleWhileRevalidate) {
+		this.staleWhileRevalidate = staleWhileRevalidate;
+	}
+
+	public synchronized long getCurrentSize() {
+		load();
+		return currentSize;
+	}
+
+	/**
+	 * Get the cached response for the given location, or null if there is none. Entries that are too old to be
+	 * {@link #isServable(Entry, long) served} are only returned if they can be revalidated with a conditional request.
+	 */
+	public synchronized Entry get(URI location) {
+		load();
+		String key = computeKey(location.toString());
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.file.exists() || (!entry.hasValidators() && !isServable(entry, System.currentTimeMillis()))) {
+			remove(key);
+			return null;
+		}
+		return entry;
+	}
+
+	/**
+	 * @return true if the entry is either fresh or still within the stale-while-revalidate period
+	 */
+	public synchronized boolean isServable(Entry entry, long now) {
+		return now < entry.getExpires() + staleWhileRevalidate;
+	}
+
+	/**
+	 * Mark the cached response for the given location as fresh again, after the server confirmed that it is still
+	 * current.
+	 *
+	 * @return the updated entry, or null if there is no such entry anymore
+	 */
+	public synchronized Entry revalidate(URI location, long timeToLive) throws IOException {
+		load();
+		String key = computeKey(location.toString());
+		Entry entry = entries.get(key);
+		if (entry == null || !entry.file.exists()) {
+			return null;
+		}
+		long fetched = System.currentTimeMillis();
+		Entry revalidated = new Entry(key, entry.getUri(), fetched, fetched + timeToLive, entry.getSize(), entry.file,
+				entry.getETag(), entry.getLastModified());
+		revalidated.model = entry.model;
+		writeMeta(revalidated);
+		entries.put(key, revalidated);
+		return revalidated;
+	}
+
+	/**
+	 * Store the response content for the given location.
+	 *
+	 * @param timeToLive
+	 *            the time in milliseconds the stored response stays fresh
+	 */
+	public synchronized Entry put(URI location, byte[] content, long timeToLive) throws IOException {
+		return put(location, content, timeToLive, null, null);
+	}
+
+	/**
+	 * Store the response content for the given location, together with the validators needed to revalidate it later.
+	 *
+	 * @param timeToLive
+	 *            the time in milliseconds the stored response stays fresh
+	 * @param eTag
+	 *            the response's entity tag or null
+	 * @param lastModified
+	 *            the response's last modification date or null
+	 */
+	public synchronized Entry put(URI location, byte[] content, long timeToLive, String eTag, String lastModified)
+			throws IOException {
+		load();
+		String uri = location.toString();
+		String key = computeKey(uri);
+		remove(key);
+
+		long fetched = System.currentTimeMillis();
+		Entry entry = new Entry(key, uri, fetched, fetched + timeToLive, content.length, getDataFile(key), eTag,
+				lastModified);
+
+		if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+			throw new IOException(cacheDir.getAbsolutePath());
+		}
+		write(entry.file, content);
+		try {
+			writeMeta(entry);
+		} catch (IOException e) {
+			entry.file.delete();
+			throw e;
+		}
+
+		entries.put(key, entry);
+		currentSize += entry.getSize();
+		evict();
+		return entry;
+	}
+
+	public synchronized void remove(URI location) {
+		load();
+		remove(computeKey(location.toString()));
+	}
+
+	public synchronized void clear() {
+		load();
+		for (String key : new ArrayList<String>(entries.keySet())) {
+			remove(key);
+		}
+	}
+
+	private void remove(String key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			currentSize -= entry.getSize();
+		}
+		getMetaFile(key).delete();
+		getDataFile(key).delete();
+	}
+
+	private void evict() {
+		if (currentSize <= maxSize) {
+			return;
+		}
+		List<String> evicted = new ArrayList<String>();
+		long size = currentSize;
+		for (Iterator<Entry> i = entries.values().iterator(); i.hasNext() && size > maxSize;) {
+			Entry entry = i.next();
+			evicted.add(entry.key);
+			size -= entry.getSize();
+		}
+		for (String key : evicted) {
+			remove(key);
+		}
+	}
+
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		File[] files = cacheDir.listFiles();
+		if (files == null) {
+			return;
+		}
+		List<Entry> loadedEntries = new ArrayList<Entry>();
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(TEMP_SUFFIX)) {
+				file.delete();
+				continue;
+			}
+			if (!name.endsWith(META_SUFFIX)) {
+				continue;
+			}
+			String key = name.substring(0, name.length() - META_SUFFIX.length());
+			Entry entry = readEntry(key, file);
+			if (entry == null) {
+				file.delete();
+				getDataFile(key).delete();
+			} else {
+				loadedEntries.add(entry);
+			}
+		}
+		// approximate access order by fetch time, so the oldest responses are evicted first
+		Collections.sort(loadedEntries, new Comparator<Entry>() {
+			public int compare(Entry o1, Entry o2) {
+				return o1.getFetched() < o2.getFetched() ? -1 : o1.getFetched() == o2.getFetched() ? 0 : 1;
+			}
+		});
+		for (Entry entry : loadedEntries) {
+			entries.put(entry.key, entry);
+			currentSize += entry.getSize();
+		}
+		evict();
+	}
+
+	private void writeMeta(Entry entry) throws IOException {
+		Properties meta = new Properties();
+		meta.setProperty(PROP_URI, entry.getUri());
+		meta.setProperty(PROP_FETCHED, Long.toString(entry.getFetched()));
+		meta.setProperty(PROP_EXPIRES, Long.toString(entry.getExpires()));
+		meta.setProperty(PROP_SIZE, Long.toString(entry.getSize()));
+		if (entry.getETag() != null) {
+			meta.setProperty(PROP_ETAG, entry.getETag());
+		}
+		if (entry.getLastModified() != null) {
+			meta.setProperty(PROP_LAST_MODIFIED, entry.getLastModified());
+		}
+
+		File metaFile = getMetaFile(entry.key);
+		File tempFile = new File(cacheDir, entry.key + META_SUFFIX + TEMP_SUFFIX);
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+		try {
+			meta.store(out, null);
+		} finally {
+			out.close();
+		}
+		if (metaFile.exists()) {
+			metaFile.delete();
+		}
+		if (!tempFile.renameTo(metaFile)) {
+			tempFile.delete();
+			throw new IOException(metaFile.getAbsolutePath());
+		}
+	}
+
+	private Entry readEntry(String key, File metaFile) {
+		Properties meta = new Properties();
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(metaFile));
+			try {
+				meta.load(in);
+			} finally {
+				in.close();
+			}
+			String uri = meta.getProperty(PROP_URI);
+			File dataFile = getDataFile(key);
+			if (uri == null || !key.equals(computeKey(uri)) || !dataFile.isFile()) {
+				return null;
+			}
+			long fetched = Long.parseLong(meta.getProperty(PROP_FETCHED));
+			long expires = Long.parseLong(meta.getProperty(PROP_EXPIRES));
+			long size = Long.parseLong(meta.getProperty(PROP_SIZE));
+			if (size != dataFile.length()) {
+				return null;
+			}
+			return new Entry(key, uri, fetched, expires, size, dataFile, meta.getProperty(PROP_ETAG),
+					meta.getProperty(PROP_LAST_MODIFIED));
+		} catch (IOException e) {
+			return null;
+		} catch (RuntimeException e) {
+			//missing or malformed values
+			return null;
+		}
+	}
+
+	private void write(File file, byte[] content) throws IOException {
+		File tempFile = new File(file.getParentFile(), file.getName() + TEMP_SUFFIX);
+		OutputStream out = new FileOutputStream(tempFile);
+		try {
+			out.write(content);
+		} finally {
+			out.close();
+		}
+		if (file.exists()) {
+			file.delete();
+		}
+		if (!tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException(file.getAbsolutePath());
+		}
+	}
+
+	private File getDataFile(String key) {
+		return new File(cacheDir, key + DATA_SUFFIX);
+	}
+
+	private File getMetaFile(String key) {
+		return new File(cacheDir, key + META_SUFFIX);
+	}
+
+	private static String computeKey(String uri) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+			byte[] hash = digest.digest(uri.getBytes(RemoteService.UTF_8));
+			StringBuilder key = new StringBuilder(hash.length * 2);
+			for (byte b : hash) {
+				String hex = Integer.toHexString(b & 0xff);
+				if (hex.length() == 1) {
+					key.append('0');
+				}
+				key.append(hex);
+			}
+			return key.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
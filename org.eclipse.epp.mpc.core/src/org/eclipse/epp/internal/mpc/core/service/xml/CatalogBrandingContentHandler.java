@@ -51,10 +51,7 @@ public class CatalogBrandingContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("icon")) { //$NON-NLS-1$
 			if (content != null) {
@@ -26,7 +26,7 @@ public class CatalogContentHandler extends UnmarshalContentHandler {
 	private Catalog model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("catalog")) { //$NON-NLS-1$
 			model = new Catalog();
 
@@ -40,19 +40,9 @@ public class CatalogContentHandler extends UnmarshalContentHandler {
 		} else if (localName.equals("description")) { //$NON-NLS-1$
 			capturingContent = true;
 		} else if (localName.equals("wizard")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CatalogBrandingContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CatalogBrandingContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(CatalogBrandingContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("news")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NewsContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NewsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(NewsContentHandler.class, model, uri, localName, attributes);
 		}
 	}
 
@@ -64,10 +54,7 @@ public class CatalogContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("dependenciesRepository")) { //$NON-NLS-1$
 			if (content != null) {
@@ -25,7 +25,7 @@ public class CategoryContentHandler extends UnmarshalContentHandler {
 	
 	private Category model;
 	
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("category")) { //$NON-NLS-1$
 			model = new Category();
 			
@@ -34,12 +34,7 @@ public class CategoryContentHandler extends UnmarshalContentHandler {
 			model.setUrl(attributes.getValue(NS_URI,"url")); //$NON-NLS-1$
 			model.setCount(toInteger(attributes.getValue(NS_URI,"count"))); //$NON-NLS-1$
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri,localName,attributes);
+			startNested(NodeContentHandler.class, model, uri, localName, attributes);
 		}
 	}
 	
@@ -54,10 +49,7 @@ public class CategoryContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri,localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("node")) { //$NON-NLS-1$
 			// nothing to do
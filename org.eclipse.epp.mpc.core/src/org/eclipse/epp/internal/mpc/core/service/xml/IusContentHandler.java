@@ -39,10 +39,7 @@ public class IusContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("iu")) { //$NON-NLS-1$
 			if (content != null) {
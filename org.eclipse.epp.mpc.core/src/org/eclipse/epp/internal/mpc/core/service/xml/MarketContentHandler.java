@@ -25,7 +25,7 @@ public class MarketContentHandler extends UnmarshalContentHandler {
 	
 	private Market model;
 	
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("market")) { //$NON-NLS-1$
 			model = new Market();
 			
@@ -33,12 +33,7 @@ public class MarketContentHandler extends UnmarshalContentHandler {
 			model.setName(attributes.getValue(NS_URI,"name")); //$NON-NLS-1$
 			model.setUrl(attributes.getValue(NS_URI,"url")); //$NON-NLS-1$
 		} else if (localName.equals("category")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri,localName,attributes);
+			startNested(CategoryContentHandler.class, model, uri, localName, attributes);
 		}
 	}
 	
@@ -49,10 +44,7 @@ public class MarketContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri,localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("category")) { //$NON-NLS-1$
 			// nothing to do
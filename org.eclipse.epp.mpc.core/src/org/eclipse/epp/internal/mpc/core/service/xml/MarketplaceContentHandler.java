@@ -24,80 +24,30 @@ public class MarketplaceContentHandler extends UnmarshalContentHandler {
 	private Marketplace model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("marketplace")) { //$NON-NLS-1$
 			model = new Marketplace();
 
 		} else if (localName.equals("market")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.MarketContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.MarketContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(MarketContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("catalogs")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CatalogsContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CatalogsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(CatalogsContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("category")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CategoryContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(CategoryContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(NodeContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("featured")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.FeaturedContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.FeaturedContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(FeaturedContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("search")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.SearchContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.SearchContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(SearchContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("favorites")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.FavoritesContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.FavoritesContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(FavoritesContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("popular")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.PopularContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.PopularContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(PopularContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("recent")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.RecentContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.RecentContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(RecentContentHandler.class, model, uri, localName, attributes);
 		} else if (localName.equals("news")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NewsContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NewsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(NewsContentHandler.class, model, uri, localName, attributes);
 		}
 	}
 
@@ -107,10 +57,7 @@ public class MarketplaceContentHandler extends UnmarshalContentHandler {
 
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("market")) { //$NON-NLS-1$
 			// nothing to do
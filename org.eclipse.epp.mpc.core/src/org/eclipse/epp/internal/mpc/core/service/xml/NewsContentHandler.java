@@ -48,10 +48,7 @@ public class NewsContentHandler extends UnmarshalContentHandler {
 
 			getUnmarshaller().setModel(model.getUrl() == null ? null : model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
-			}
+			endNested(uri, localName);
 		}
 		return false;
 	}
@@ -10,7 +10,11 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.service.xml;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeStream;
 import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 
@@ -22,90 +26,199 @@ public class NodeContentHandler extends UnmarshalContentHandler {
 
 	private static final String NS_URI = ""; //$NON-NLS-1$
 
+	/**
+	 * The child elements of a node. Elements are looked up by name in a precomputed table instead of comparing the
+	 * name against each known element in turn, since this handler sees more elements than any other.
+	 */
+	private static enum Element {
+		NODE("node", null), //$NON-NLS-1$
+		CATEGORIES("categories", CategoriesContentHandler.class), //$NON-NLS-1$
+		TAGS("tags", TagsContentHandler.class), //$NON-NLS-1$
+		IUS("ius", IusContentHandler.class), //$NON-NLS-1$
+		PLATFORMS("platforms", PlatformsContentHandler.class), //$NON-NLS-1$
+		FAVORITED("favorited") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setFavorited(handler.toNatural(value));
+			}
+		},
+		INSTALLS_TOTAL("installstotal") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setInstallsTotal(handler.toNatural(value));
+			}
+		},
+		INSTALLS_RECENT("installsrecent") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setInstallsRecent(handler.toNatural(value));
+			}
+		},
+		TYPE("type") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setType(value);
+			}
+		},
+		OWNER("owner") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setOwner(value);
+			}
+		},
+		SHORT_DESCRIPTION("shortdescription") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setShortdescription(value);
+			}
+		},
+		BODY("body") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setBody(value);
+			}
+		},
+		CREATED("created") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setCreated(handler.toDate(value));
+			}
+		},
+		CHANGED("changed") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setChanged(handler.toDate(value));
+			}
+		},
+		FOUNDATION_MEMBER("foundationmember") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setFoundationmember(handler.toBoolean(value));
+			}
+		},
+		HOMEPAGE_URL("homepageurl") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setHomepageurl(value);
+			}
+		},
+		IMAGE("image") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setImage(value);
+			}
+		},
+		SCREENSHOT("screenshot") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setScreenshot(value);
+			}
+		},
+		VERSION("version") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setVersion(value);
+			}
+		},
+		LICENSE("license") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setLicense(value);
+			}
+		},
+		COMPANY_NAME("companyname") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setCompanyname(value);
+			}
+		},
+		STATUS("status") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setStatus(value);
+			}
+		},
+		ECLIPSE_VERSION("eclipseversion") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setEclipseversion(value);
+			}
+		},
+		SUPPORT_URL("supporturl") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setSupporturl(value);
+			}
+		},
+		UPDATE_URL("updateurl") { //$NON-NLS-1$
+			@Override
+			void setValue(NodeContentHandler handler, Node model, String value) {
+				model.setUpdateurl(value);
+			}
+		};
+
+		private static final Map<String, Element> ELEMENTS = new HashMap<String, Element>();
+
+		static {
+			for (Element element : values()) {
+				ELEMENTS.put(element.localName, element);
+			}
+		}
+
+		private final String localName;
+
+		private final Class<? extends UnmarshalContentHandler> nestedHandler;
+
+		private Element(String localName) {
+			this(localName, null);
+		}
+
+		private Element(String localName, Class<? extends UnmarshalContentHandler> nestedHandler) {
+			this.localName = localName;
+			this.nestedHandler = nestedHandler;
+		}
+
+		boolean isValue() {
+			return this != NODE && nestedHandler == null;
+		}
+
+		/**
+		 * Set the captured text of a value element on the node
+		 */
+		void setValue(NodeContentHandler handler, Node model, String value) {
+			throw new UnsupportedOperationException();
+		}
+
+		static Element forName(String localName) {
+			return ELEMENTS.get(localName);
+		}
+	}
+
 	private Node model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
-		if (localName.equals("node")) { //$NON-NLS-1$
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
+		Element element = Element.forName(localName);
+		if (element == null) {
+			return;
+		}
+		if (element == Element.NODE) {
 			model = new Node();
 
 			model.setId(attributes.getValue(NS_URI, "id")); //$NON-NLS-1$
 			model.setName(attributes.getValue(NS_URI, "name")); //$NON-NLS-1$
 			model.setUrl(attributes.getValue(NS_URI, "url")); //$NON-NLS-1$
-		} else if (localName.equals("favorited")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("installstotal")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("installsrecent")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("type")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("categories")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.CategoriesContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.CategoriesContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("tags")) { //$NON-NLS-1$
-			TagsContentHandler childHandler = new TagsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("owner")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("shortdescription")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("body")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("created")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("changed")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("foundationmember")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("homepageurl")) { //$NON-NLS-1$
+		} else if (element.nestedHandler != null) {
+			startNested(element.nestedHandler, model, uri, localName, attributes);
+		} else {
 			capturingContent = true;
-		} else if (localName.equals("image")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("screenshot")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("version")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("license")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("companyname")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("status")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("eclipseversion")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("supporturl")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("updateurl")) { //$NON-NLS-1$
-			capturingContent = true;
-		} else if (localName.equals("ius")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.IusContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.IusContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
-		} else if (localName.equals("platforms")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.PlatformsContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.PlatformsContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
 		}
 	}
 
 	@Override
 	public boolean endElement(String uri, String localName) throws SAXException {
-		if (localName.equals("node")) { //$NON-NLS-1$
+		Element element = Element.forName(localName);
+		if (element == Element.NODE) {
 			if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Marketplace) {
 				((org.eclipse.epp.internal.mpc.core.service.Marketplace) parentModel).getNode().add(model);
 			} else if (parentModel instanceof org.eclipse.epp.internal.mpc.core.service.Category) {
@@ -122,138 +235,19 @@ public class NodeContentHandler extends UnmarshalContentHandler {
 				((org.eclipse.epp.internal.mpc.core.service.Favorites) parentModel).getNode().add(model);
 			}
 			getUnmarshaller().setModel(model);
-			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
+			NodeStream stream = NodeStream.current();
+			if (stream != null) {
+				stream.nodeParsed(model);
 			}
+			model = null;
+			endNested(uri, localName);
 			return true;
-		} else if (localName.equals("favorited")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setFavorited(toNatural(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("installstotal")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setInstallsTotal(toNatural(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("installsrecent")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setInstallsRecent(toNatural(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("type")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setType(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("categories")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("owner")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setOwner(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("shortdescription")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setShortdescription(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("body")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setBody(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("created")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setCreated(toDate(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("changed")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setChanged(toDate(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("foundationmember")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setFoundationmember(toBoolean(content.toString()));
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("homepageurl")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setHomepageurl(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("image")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setImage(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("screenshot")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setScreenshot(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("version")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setVersion(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("license")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setLicense(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("companyname")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setCompanyname(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("status")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setStatus(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("eclipseversion")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setEclipseversion(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("supporturl")) { //$NON-NLS-1$
-			if (content != null) {
-				model.setSupporturl(content.toString());
-				content = null;
-			}
-			capturingContent = false;
-		} else if (localName.equals("updateurl")) { //$NON-NLS-1$
+		} else if (element != null && element.isValue()) {
 			if (content != null) {
-				model.setUpdateurl(content.toString());
+				element.setValue(this, model, content.toString());
 				content = null;
 			}
 			capturingContent = false;
-		} else if (localName.equals("ius")) { //$NON-NLS-1$
-			// nothing to do
-		} else if (localName.equals("platforms")) { //$NON-NLS-1$
-			// nothing to do
 		}
 		return false;
 	}
@@ -25,18 +25,13 @@ public class PopularContentHandler extends UnmarshalContentHandler {
 	
 	private Popular model;
 	
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("popular")) { //$NON-NLS-1$
 			model = new Popular();
 			
 			model.setCount(toInteger(attributes.getValue(NS_URI,"count"))); //$NON-NLS-1$
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri,localName,attributes);
+			startNested(NodeContentHandler.class, model, uri, localName, attributes);
 		}
 	}
 	
@@ -47,10 +42,7 @@ public class PopularContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri,localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("node")) { //$NON-NLS-1$
 			// nothing to do
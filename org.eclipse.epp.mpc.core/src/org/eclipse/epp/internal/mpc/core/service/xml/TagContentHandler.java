@@ -24,7 +24,7 @@ public class TagContentHandler extends UnmarshalContentHandler {
 	private Tag model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("tag")) { //$NON-NLS-1$
 			model = new Tag();
 
@@ -32,12 +32,7 @@ public class TagContentHandler extends UnmarshalContentHandler {
 			model.setName(attributes.getValue(NS_URI, "name")); //$NON-NLS-1$
 			model.setUrl(attributes.getValue(NS_URI, "url")); //$NON-NLS-1$
 		} else if (localName.equals("node")) { //$NON-NLS-1$
-			org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler childHandler = new org.eclipse.epp.internal.mpc.core.service.xml.NodeContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(NodeContentHandler.class, model, uri, localName, attributes);
 		}
 	}
 
@@ -49,10 +44,7 @@ public class TagContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
-			}
+			endNested(uri, localName);
 			return true;
 		}
 		return false;
@@ -22,17 +22,12 @@ public class TagsContentHandler extends UnmarshalContentHandler {
 	private Tags model;
 
 	@Override
-	public void startElement(String uri, String localName, Attributes attributes) {
+	public void startElement(String uri, String localName, Attributes attributes) throws SAXException {
 		if (localName.equals("tags")) { //$NON-NLS-1$
 			model = new Tags();
 
 		} else if (localName.equals("tag")) { //$NON-NLS-1$
-			TagContentHandler childHandler = new TagContentHandler();
-			childHandler.setParentModel(model);
-			childHandler.setParentHandler(this);
-			childHandler.setUnmarshaller(getUnmarshaller());
-			getUnmarshaller().setCurrentHandler(childHandler);
-			childHandler.startElement(uri, localName, attributes);
+			startNested(TagContentHandler.class, model, uri, localName, attributes);
 		}
 	}
 
@@ -44,10 +39,7 @@ public class TagsContentHandler extends UnmarshalContentHandler {
 			}
 			getUnmarshaller().setModel(model);
 			model = null;
-			getUnmarshaller().setCurrentHandler(parentHandler);
-			if (parentHandler != null) {
-				parentHandler.endElement(uri, localName);
-			}
+			endNested(uri, localName);
 			return true;
 		} else if (localName.equals("tag")) { //$NON-NLS-1$
 			// nothing to do
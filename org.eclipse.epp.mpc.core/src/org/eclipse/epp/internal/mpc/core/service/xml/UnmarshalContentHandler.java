@@ -42,7 +42,7 @@ public abstract class UnmarshalContentHandler {
 	public void characters(char[] ch, int start, int length) throws SAXException {
 		if (capturingContent) {
 			if (content == null) {
-				content = new StringBuilder();
+				content = getUnmarshaller().getContentBuffer();
 			}
 			content.append(ch, start, length);
 		}
@@ -55,9 +55,32 @@ public abstract class UnmarshalContentHandler {
 		getUnmarshaller().setCurrentHandler(childHandler);
 	}
 
+	/**
+	 * Delegate the current element and its content to a nested handler of the given type. The handler instance is
+	 * taken from the unmarshaller's {@link Unmarshaller#acquireHandler(Class) pool} and returned to it once it
+	 * {@link #endNested(String, String) ends}.
+	 */
+	protected void startNested(Class<? extends UnmarshalContentHandler> handlerType, Object parentModel, String uri,
+			String localName, Attributes attributes) throws SAXException {
+		UnmarshalContentHandler childHandler = getUnmarshaller().acquireHandler(handlerType);
+		startNested(childHandler, parentModel);
+		childHandler.startElement(uri, localName, attributes);
+	}
+
+	/**
+	 * End this handler's element and return control to the parent handler. Nested handlers are returned to the
+	 * unmarshaller's pool for reuse, so they must not be used after this call.
+	 */
 	protected void endNested(String uri, String localName) throws SAXException {
+		UnmarshalContentHandler parentHandler = this.parentHandler;
 		getUnmarshaller().setCurrentHandler(parentHandler);
 		if (parentHandler != null) {
+			// root handlers are owned by the unmarshaller's element map, only nested ones are pooled
+			this.parentHandler = null;
+			this.parentModel = null;
+			content = null;
+			capturingContent = false;
+			getUnmarshaller().releaseHandler(this);
 			parentHandler.endElement(uri, localName);
 		}
 	}
@@ -13,7 +13,9 @@ package org.eclipse.epp.internal.mpc.core.service.xml;
 
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -86,6 +88,12 @@ public class Unmarshaller extends DefaultHandler {
 		elementNameToUnmarshalContentHandler.put("news", new NewsContentHandler()); //$NON-NLS-1$
 	}
 
+	private static final int MAX_CONTENT_BUFFER_CAPACITY = 64 * 1024;
+
+	private final Map<Class<?>, List<UnmarshalContentHandler>> handlerPool = new HashMap<Class<?>, List<UnmarshalContentHandler>>();
+
+	private StringBuilder contentBuffer = new StringBuilder(256);
+
 	private UnmarshalContentHandler currentHandler;
 	private Object model;
 
@@ -117,6 +125,58 @@ public class Unmarshaller extends DefaultHandler {
 		}
 	}
 
+	/**
+	 * Get a handler of the given type for a nested element. Handlers are reused once they have
+	 * {@link #releaseHandler(UnmarshalContentHandler) completed}, so parsing many elements of the same type doesn't
+	 * create a new handler for each of them.
+	 */
+	public <H extends UnmarshalContentHandler> H acquireHandler(Class<H> type) {
+		List<UnmarshalContentHandler> handlers = handlerPool.get(type);
+		if (handlers != null && !handlers.isEmpty()) {
+			return type.cast(handlers.remove(handlers.size() - 1));
+		}
+		try {
+			return type.newInstance();
+		} catch (InstantiationException e) {
+			throw new IllegalStateException(e);
+		} catch (IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Return a completed handler for reuse by {@link #acquireHandler(Class)}
+	 */
+	public void releaseHandler(UnmarshalContentHandler handler) {
+		List<UnmarshalContentHandler> handlers = handlerPool.get(handler.getClass());
+		if (handlers == null) {
+			handlers = new ArrayList<UnmarshalContentHandler>();
+			handlerPool.put(handler.getClass(), handlers);
+		}
+		handlers.add(handler);
+	}
+
+	/**
+	 * Get the buffer for capturing element text. There is only one buffer per unmarshaller, which is cleared on each
+	 * call, so handlers have to consume its content before the next element's text is captured.
+	 */
+	public StringBuilder getContentBuffer() {
+		if (contentBuffer.capacity() > MAX_CONTENT_BUFFER_CAPACITY) {
+			// don't hold on to the memory of an exceptionally large element
+			contentBuffer = new StringBuilder(256);
+		}
+		contentBuffer.setLength(0);
+		return contentBuffer;
+	}
+
+	/**
+	 * Reset the parse state, so this unmarshaller can be reused for another document.
+	 */
+	public void reset() {
+		currentHandler = null;
+		model = null;
+	}
+
 	public Object getModel() {
 		return model;
 	}
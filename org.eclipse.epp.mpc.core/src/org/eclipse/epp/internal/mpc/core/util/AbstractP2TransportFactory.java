@@ -18,6 +18,7 @@ import java.net.URI;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCorePlugin;
 import org.eclipse.equinox.internal.p2.repository.Transport;
 
 @SuppressWarnings("restriction")
@@ -40,6 +41,10 @@ public abstract class AbstractP2TransportFactory extends TransportFactory {
 
 	@Override
 	protected boolean isAvailable() {
+		if (MarketplaceClientCorePlugin.getBundle() == null) {
+			//not running in an OSGi framework, e.g. in benchmarks, so there are no p2 transports to look up
+			return false;
+		}
 		try {
 			return getTransportService() != null;
 		} catch (Exception e) {
@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+/**
+ * An immutable snapshot of a {@link ConcurrentLruCache cache's} statistics.
+ *
+ * @author Carsten Reckord
+ */
+public class CacheStats {
+
+	private final long hitCount;
+
+	private final long missCount;
+
+	private final long evictionCount;
+
+	private final long loadCount;
+
+	private final long loadFailureCount;
+
+	private final long totalLoadTime;
+
+	private final long coalescedLoadCount;
+
+	public CacheStats(long hitCount, long missCount, long evictionCount, long loadCount, long loadFailureCount,
+			long totalLoadTime, long coalescedLoadCount) {
+		this.hitCount = hitCount;
+		this.missCount = missCount;
+		this.evictionCount = evictionCount;
+		this.loadCount = loadCount;
+		this.loadFailureCount = loadFailureCount;
+		this.totalLoadTime = totalLoadTime;
+		this.coalescedLoadCount = coalescedLoadCount;
+	}
+
+	public long getHitCount() {
+		return hitCount;
+	}
+
+	public long getMissCount() {
+		return missCount;
+	}
+
+	public long getRequestCount() {
+		return hitCount + missCount;
+	}
+
+	/**
+	 * @return the ratio of requests that were served from the cache, or 1 if there were no requests yet
+	 */
+	public double getHitRate() {
+		long requestCount = getRequestCount();
+		return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+	}
+
+	public long getEvictionCount() {
+		return evictionCount;
+	}
+
+	public long getLoadCount() {
+		return loadCount;
+	}
+
+	public long getLoadFailureCount() {
+		return loadFailureCount;
+	}
+
+	/**
+	 * @return the total time in nanoseconds spent loading values
+	 */
+	public long getTotalLoadTime() {
+		return totalLoadTime;
+	}
+
+	/**
+	 * @return the average time in nanoseconds spent loading a value
+	 */
+	public double getAverageLoadTime() {
+		return loadCount == 0 ? 0.0 : (double) totalLoadTime / loadCount;
+	}
+
+	/**
+	 * @return the number of loads that were not performed because they could wait for the result of a concurrent load
+	 *         for the same key
+	 */
+	public long getCoalescedLoadCount() {
+		return coalescedLoadCount;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStats [hits=" + hitCount + ", misses=" + missCount + ", hitRate=" + getHitRate() //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ ", evictions=" + evictionCount + ", loads=" + loadCount + ", loadFailures=" + loadFailureCount //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+				+ ", coalescedLoads=" + coalescedLoadCount + ", averageLoadTime=" + getAverageLoadTime() + "ns]"; //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+	}
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tracks blocking operations - like running http requests - that need to be aborted if a background task is canceled.
+ * A scope is bound to the thread running the task, so code deep down in the call chain can register abort handlers
+ * without having to inspect the progress monitor it was passed, which is usually wrapped in sub monitors.
+ *
+ * @author Carsten Reckord
+ */
+public class CancellationScope {
+
+	private static final ThreadLocal<CancellationScope> currentScope = new ThreadLocal<CancellationScope>();
+
+	private final List<Runnable> abortHandlers = new ArrayList<Runnable>();
+
+	private boolean canceled;
+
+	/**
+	 * @return the scope bound to the current thread or null if there is none
+	 */
+	public static CancellationScope current() {
+		return currentScope.get();
+	}
+
+	/**
+	 * Bind this scope to the current thread.
+	 *
+	 * @return the previously bound scope, which has to be passed to {@link #exit(CancellationScope)}
+	 */
+	public CancellationScope enter() {
+		CancellationScope previous = currentScope.get();
+		currentScope.set(this);
+		return previous;
+	}
+
+	/**
+	 * Unbind this scope from the current thread and restore the previously bound scope.
+	 */
+	public void exit(CancellationScope previous) {
+		if (previous == null) {
+			currentScope.remove();
+		} else {
+			currentScope.set(previous);
+		}
+	}
+
+	/**
+	 * Register a handler to be run when this scope is canceled.
+	 *
+	 * @return false if this scope has already been canceled, in which case the handler is not registered and the
+	 *         caller should not start its operation
+	 */
+	public synchronized boolean register(Runnable abortHandler) {
+		if (canceled) {
+			return false;
+		}
+		abortHandlers.add(abortHandler);
+		return true;
+	}
+
+	public synchronized void unregister(Runnable abortHandler) {
+		abortHandlers.remove(abortHandler);
+	}
+
+	public synchronized boolean isCanceled() {
+		return canceled;
+	}
+
+	/**
+	 * Cancel this scope and run all registered abort handlers.
+	 */
+	public void cancel() {
+		Runnable[] handlers;
+		synchronized (this) {
+			if (canceled) {
+				return;
+			}
+			canceled = true;
+			handlers = abortHandlers.toArray(new Runnable[abortHandlers.size()]);
+			abortHandlers.clear();
+		}
+		for (Runnable handler : handlers) {
+			handler.run();
+		}
+	}
+}
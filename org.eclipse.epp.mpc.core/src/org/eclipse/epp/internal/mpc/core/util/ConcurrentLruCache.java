@@ -0,0 +1,395 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.lang.ref.SoftReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+
+/**
+ * A bounded, thread-safe LRU cache. The cache is split into independently locked segments, so concurrent readers and
+ * writers only contend if their keys fall into the same segment. Each segment evicts its least recently used entries
+ * once the total {@link Weigher weight} of its entries exceeds its share of the cache's capacity.
+ * <p>
+ * Values are softly referenced and expire after the configured time-to-live. Concurrent
+ * {@link #get(Object, Loader, IProgressMonitor) loads} for the same key are coalesced, so only the first caller runs
+ * the loader while the others wait for its result. The cache keeps hit, miss, eviction and load statistics, which can
+ * be retrieved with {@link #getStats()}.
+ *
+ * @author Carsten Reckord
+ */
+public class ConcurrentLruCache<K, V> {
+
+	private static final int DEFAULT_SEGMENTS = 4;
+
+	private static final long WAIT_INTERVAL = 100;
+
+	/**
+	 * Computes the weight of cache values.
+	 */
+	public static interface Weigher<V> {
+		int weigh(V value);
+	}
+
+	/**
+	 * Loads a value on a cache miss.
+	 */
+	public static interface Loader<V> {
+		V load() throws CoreException;
+	}
+
+	private static final Weigher<Object> SINGLETON_WEIGHER = new Weigher<Object>() {
+		public int weigh(Object value) {
+			return 1;
+		}
+	};
+
+	private static class CacheEntry<V> extends SoftReference<V> {
+
+		private final long timestamp;
+
+		private final int weight;
+
+		public CacheEntry(V referent, int weight) {
+			super(referent);
+			this.weight = weight;
+			this.timestamp = System.currentTimeMillis();
+		}
+	}
+
+	private class Segment {
+
+		private final Map<K, CacheEntry<V>> entries = new LinkedHashMap<K, CacheEntry<V>>(16, 0.75f, true);
+
+		private long weight;
+
+		private long maxWeight;
+
+		synchronized V get(K key) {
+			CacheEntry<V> entry = entries.get(key);
+			if (entry == null) {
+				return null;
+			}
+			V value = entry.get();
+			if (value == null || isExpired(entry)) {
+				remove(key);
+				evictions.incrementAndGet();
+				return null;
+			}
+			return value;
+		}
+
+		synchronized void put(K key, V value) {
+			int valueWeight = Math.max(1, weigher.weigh(value));
+			CacheEntry<V> old = entries.put(key, new CacheEntry<V>(value, valueWeight));
+			if (old != null) {
+				weight -= old.weight;
+			}
+			weight += valueWeight;
+			evict();
+		}
+
+		synchronized void remove(K key) {
+			CacheEntry<V> old = entries.remove(key);
+			if (old != null) {
+				weight -= old.weight;
+			}
+		}
+
+		synchronized void clear() {
+			entries.clear();
+			weight = 0;
+		}
+
+		synchronized int size() {
+			return entries.size();
+		}
+
+		synchronized void setMaxWeight(long maxWeight) {
+			this.maxWeight = maxWeight;
+			evict();
+		}
+
+		private void evict() {
+			for (Iterator<CacheEntry<V>> i = entries.values().iterator(); weight > maxWeight && i.hasNext();) {
+				CacheEntry<V> entry = i.next();
+				i.remove();
+				weight -= entry.weight;
+				evictions.incrementAndGet();
+			}
+		}
+	}
+
+	private final Segment[] segments;
+
+	private final Weigher<? super V> weigher;
+
+	private volatile long timeToLive;
+
+	private volatile long maxWeight;
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	private final AtomicLong evictions = new AtomicLong();
+
+	private final AtomicLong loads = new AtomicLong();
+
+	private final AtomicLong loadFailures = new AtomicLong();
+
+	private final AtomicLong totalLoadTime = new AtomicLong();
+
+	private final AtomicLong coalescedLoads = new AtomicLong();
+
+	private final ConcurrentMap<K, FutureTask<V>> pendingLoads = new ConcurrentHashMap<K, FutureTask<V>>();
+
+	public ConcurrentLruCache(long maxWeight, long timeToLive) {
+		this(maxWeight, timeToLive, SINGLETON_WEIGHER);
+	}
+
+	/**
+	 * @param maxWeight
+	 *            the maximum total weight of all cached values
+	 * @param timeToLive
+	 *            the time in milliseconds after which a cached value expires, or 0 if values should not expire
+	 * @param weigher
+	 *            computes the weight of each value
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public ConcurrentLruCache(long maxWeight, long timeToLive, Weigher<? super V> weigher) {
+		this.weigher = weigher;
+		this.timeToLive = timeToLive;
+		int segmentCount = maxWeight < DEFAULT_SEGMENTS * 4 ? 1 : DEFAULT_SEGMENTS;
+		this.segments = new ConcurrentLruCache.Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++) {
+			segments[i] = new Segment();
+		}
+		setMaxWeight(maxWeight);
+	}
+
+	public long getMaxWeight() {
+		return maxWeight;
+	}
+
+	public void setMaxWeight(long maxWeight) {
+		this.maxWeight = maxWeight;
+		long segmentWeight = (maxWeight + segments.length - 1) / segments.length;
+		for (Segment segment : segments) {
+			segment.setMaxWeight(segmentWeight);
+		}
+	}
+
+	public long getTimeToLive() {
+		return timeToLive;
+	}
+
+	public void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * @return the cached value for the given key, or null if there is none or it has expired
+	 */
+	public V get(K key) {
+		V value = segmentFor(key).get(key);
+		if (value == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return value;
+	}
+
+	/**
+	 * Get the cached value for the given key, or load and cache it if there is none.
+	 *
+	 * @return the cached or loaded value. Null values returned by the loader are not cached.
+	 * @see #get(Object, Loader, IProgressMonitor)
+	 */
+	public V get(K key, Loader<? extends V> loader) throws CoreException {
+		return get(key, loader, null);
+	}
+
+	/**
+	 * Get the cached value for the given key, or load and cache it if there is none. If another thread is already
+	 * loading the value for the same key, this waits for its result instead of loading it again. Canceling the given
+	 * monitor only stops this caller from waiting; the shared load continues for the other callers.
+	 *
+	 * @param monitor
+	 *            the monitor used to check for cancellation while waiting for another thread's load, or null
+	 * @return the cached or loaded value. Null values returned by the loader are not cached.
+	 */
+	public V get(K key, final Loader<? extends V> loader, IProgressMonitor monitor) throws CoreException {
+		while (true) {
+			V value = get(key);
+			if (value != null) {
+				return value;
+			}
+			FutureTask<V> load = new FutureTask<V>(new Callable<V>() {
+				public V call() throws Exception {
+					return loader.load();
+				}
+			});
+			FutureTask<V> pendingLoad = pendingLoads.putIfAbsent(key, load);
+			if (pendingLoad == null) {
+				try {
+					return load(key, load);
+				} finally {
+					pendingLoads.remove(key, load);
+				}
+			}
+			coalescedLoads.incrementAndGet();
+			try {
+				return await(pendingLoad, monitor);
+			} catch (CoreException e) {
+				if (!isCancellation(e) || (monitor != null && monitor.isCanceled())) {
+					throw e;
+				}
+				//the other caller's load was canceled, but we weren't - try again
+			} catch (OperationCanceledException e) {
+				if (monitor != null && monitor.isCanceled()) {
+					throw e;
+				}
+			}
+		}
+	}
+
+	private V load(K key, FutureTask<V> load) throws CoreException {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			load.run();
+			V value = getResult(load);
+			if (value != null) {
+				put(key, value);
+			}
+			success = true;
+			return value;
+		} finally {
+			recordLoad(System.nanoTime() - start, success);
+		}
+	}
+
+	private V await(FutureTask<V> load, IProgressMonitor monitor) throws CoreException {
+		while (!load.isDone()) {
+			if (monitor != null && monitor.isCanceled()) {
+				throw new CoreException(Status.CANCEL_STATUS);
+			}
+			try {
+				load.get(WAIT_INTERVAL, TimeUnit.MILLISECONDS);
+			} catch (TimeoutException e) {
+				//check cancellation and keep waiting
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new CoreException(Status.CANCEL_STATUS);
+			} catch (ExecutionException e) {
+				//handled below
+			}
+		}
+		return getResult(load);
+	}
+
+	private V getResult(FutureTask<V> load) throws CoreException {
+		try {
+			return load.get();
+		} catch (InterruptedException e) {
+			//can't happen - the load is done
+			Thread.currentThread().interrupt();
+			throw new CoreException(Status.CANCEL_STATUS);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof CoreException) {
+				throw (CoreException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, cause.getMessage(),
+					cause));
+		}
+	}
+
+	private static boolean isCancellation(CoreException e) {
+		return e.getStatus().getSeverity() == IStatus.CANCEL || e.getCause() instanceof OperationCanceledException;
+	}
+
+	protected void recordLoad(long loadTime, boolean success) {
+		loads.incrementAndGet();
+		if (!success) {
+			loadFailures.incrementAndGet();
+		}
+		totalLoadTime.addAndGet(loadTime);
+	}
+
+	public void put(K key, V value) {
+		if (value == null) {
+			throw new IllegalArgumentException();
+		}
+		segmentFor(key).put(key, value);
+	}
+
+	public void invalidate(K key) {
+		segmentFor(key).remove(key);
+	}
+
+	public void invalidateAll() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	public CacheStats getStats() {
+		return new CacheStats(hits.get(), misses.get(), evictions.get(), loads.get(), loadFailures.get(),
+				totalLoadTime.get(), coalescedLoads.get());
+	}
+
+	private boolean isExpired(CacheEntry<V> entry) {
+		long timeToLive = this.timeToLive;
+		return timeToLive > 0 && System.currentTimeMillis() - entry.timestamp > timeToLive;
+	}
+
+	private Segment segmentFor(K key) {
+		if (segments.length == 1) {
+			return segments[0];
+		}
+		int hash = key.hashCode();
+		// spread higher bits, like HashMap does, so similar keys are distributed across segments
+		hash ^= (hash >>> 20) ^ (hash >>> 12);
+		hash ^= (hash >>> 7) ^ (hash >>> 4);
+		return segments[hash & (segments.length - 1)];
+	}
+}
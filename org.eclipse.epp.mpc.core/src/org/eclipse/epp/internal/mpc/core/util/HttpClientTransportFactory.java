@@ -0,0 +1,259 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.client.ContentEncodingHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.CoreProtocolPNames;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
+import org.eclipse.epp.internal.mpc.core.service.ServiceUnavailableException;
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
+import org.eclipse.osgi.util.NLS;
+
+/**
+ * A transport factory that shares a single pool of keep-alive connections between all requests, so repeated requests
+ * to the marketplace and its image servers don't need a new TCP connection and TLS handshake each time. Responses are
+ * requested with gzip/deflate content encoding and decompressed transparently. Idle connections are closed after
+ * {@link #IDLE_CONNECTION_TIMEOUT}. Requests made within a {@link CancellationScope} are aborted when the scope is
+ * canceled.
+ * <p>
+ * Proxies are selected per request from the platform's proxy settings, including authenticating HTTP proxies and
+ * SOCKS proxies (see {@link SocksSchemeSocketFactory}).
+ *
+ * @author Carsten Reckord
+ */
+public class HttpClientTransportFactory extends TransportFactory {
+
+	/**
+	 * Maximum number of pooled connections per host
+	 */
+	public static final int MAX_CONNECTIONS_PER_ROUTE = 6;
+
+	/**
+	 * Maximum number of pooled connections in total
+	 */
+	public static final int MAX_CONNECTIONS = 24;
+
+	/**
+	 * Time in milliseconds after which unused connections are closed
+	 */
+	public static final long IDLE_CONNECTION_TIMEOUT = 60 * 1000;
+
+	/**
+	 * Time in milliseconds to keep a connection alive if the server doesn't specify a keep-alive timeout
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = 30 * 1000;
+
+	private static final int CONNECT_TIMEOUT = 30 * 1000;
+
+	private static final int SOCKET_TIMEOUT = 60 * 1000;
+
+	private static final String HEADER_ETAG = "ETag"; //$NON-NLS-1$
+
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified"; //$NON-NLS-1$
+
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match"; //$NON-NLS-1$
+
+	private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since"; //$NON-NLS-1$
+
+	private ContentEncodingHttpClient client;
+
+	private IdleConnectionEvictor evictor;
+
+	@Override
+	protected boolean isAvailable() {
+		return true;
+	}
+
+	protected synchronized ContentEncodingHttpClient getClient() {
+		if (client == null) {
+			ThreadSafeClientConnManager connectionManager = new ThreadSafeClientConnManager(
+					SocksSchemeSocketFactory.createSchemeRegistry());
+			connectionManager.setMaxTotal(MAX_CONNECTIONS);
+			connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_ROUTE);
+
+			client = new ContentEncodingHttpClient(connectionManager, null);
+			HttpParams params = client.getParams();
+			params.setParameter(CoreProtocolPNames.USER_AGENT, MarketplaceClientCore.BUNDLE_ID);
+			HttpConnectionParams.setConnectionTimeout(params, CONNECT_TIMEOUT);
+			HttpConnectionParams.setSoTimeout(params, SOCKET_TIMEOUT);
+			client.setKeepAliveStrategy(new DefaultConnectionKeepAliveStrategy() {
+				@Override
+				public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+					long duration = super.getKeepAliveDuration(response, context);
+					return duration < 0 ? DEFAULT_KEEP_ALIVE : duration;
+				}
+			});
+
+			evictor = new IdleConnectionEvictor(connectionManager);
+			evictor.start();
+		}
+		return client;
+	}
+
+	/**
+	 * Close all pooled connections. The factory can still be used afterwards and will create a new connection pool.
+	 */
+	public synchronized void shutdown() {
+		if (evictor != null) {
+			evictor.shutdown();
+			evictor = null;
+		}
+		if (client != null) {
+			client.getConnectionManager().shutdown();
+			client = null;
+		}
+	}
+
+	@Override
+	protected InputStream invokeStream(URI location, IProgressMonitor monitor) throws Exception {
+		return execute(location, null, null, monitor).getContent();
+	}
+
+	@Override
+	protected boolean supportsConditionalRequests() {
+		return true;
+	}
+
+	@Override
+	protected ITransportResponse invokeConditionalStream(URI location, String eTag, String lastModified,
+			IProgressMonitor monitor) throws Exception {
+		return execute(location, eTag, lastModified, monitor);
+	}
+
+	private ITransportResponse execute(URI location, String eTag, String lastModified, IProgressMonitor monitor)
+			throws Exception {
+		if (monitor != null && monitor.isCanceled()) {
+			throw new OperationCanceledException();
+		}
+		ContentEncodingHttpClient client = getClient();
+		final HttpGet request = new HttpGet(location);
+		CancellationScope scope = CancellationScope.current();
+		if (scope != null) {
+			// stays registered while the response is read, so canceling also aborts a stalled content stream
+			boolean registered = scope.register(new Runnable() {
+				public void run() {
+					request.abort();
+				}
+			});
+			if (!registered) {
+				throw new OperationCanceledException();
+			}
+		}
+		HttpUtil.configureProxy(client, request, location.toString());
+		if (eTag != null) {
+			request.setHeader(HEADER_IF_NONE_MATCH, eTag);
+		}
+		if (lastModified != null) {
+			request.setHeader(HEADER_IF_MODIFIED_SINCE, lastModified);
+		}
+
+		HttpResponse response = client.execute(request);
+		int statusCode = response.getStatusLine().getStatusCode();
+		HttpEntity entity = response.getEntity();
+		if (statusCode >= 200 && statusCode < 300) {
+			// the connection is released to the pool once the content stream is closed
+			InputStream content = entity == null ? new ByteArrayInputStream(new byte[0]) : entity.getContent();
+			return new TransportResponse(ITransportResponse.STATUS_OK, content, getHeader(response, HEADER_ETAG),
+					getHeader(response, HEADER_LAST_MODIFIED));
+		}
+
+		// release the connection
+		EntityUtils.consume(entity);
+		switch (statusCode) {
+		case HttpStatus.SC_NOT_MODIFIED:
+			return TransportResponse.notModified(eTag, lastModified);
+		case HttpStatus.SC_NOT_FOUND:
+			throw new FileNotFoundException(location.toString());
+		case HttpStatus.SC_SERVICE_UNAVAILABLE:
+			throw new ServiceUnavailableException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, 503,
+					Messages.DefaultMarketplaceService_serviceUnavailable503, null));
+		default:
+			throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID, statusCode, NLS.bind(
+					Messages.HttpClientTransportFactory_requestFailed, location, response.getStatusLine()), null));
+		}
+	}
+
+	private static String getHeader(HttpResponse response, String name) {
+		Header header = response.getFirstHeader(name);
+		return header == null ? null : header.getValue();
+	}
+
+	@Override
+	protected void handleStreamExceptions(Exception e) throws ServiceUnavailableException, CoreException,
+	FileNotFoundException {
+		if (e instanceof CoreException) {
+			throw (CoreException) e;
+		} else if (e instanceof FileNotFoundException) {
+			throw (FileNotFoundException) e;
+		}
+		super.handleStreamExceptions(e);
+	}
+
+	private static class IdleConnectionEvictor extends Thread {
+
+		private static final long EVICTION_INTERVAL = 10 * 1000;
+
+		private final ClientConnectionManager connectionManager;
+
+		private volatile boolean shutdown;
+
+		public IdleConnectionEvictor(ClientConnectionManager connectionManager) {
+			super(IdleConnectionEvictor.class.getName());
+			this.connectionManager = connectionManager;
+			setDaemon(true);
+		}
+
+		@Override
+		public void run() {
+			try {
+				while (!shutdown) {
+					synchronized (this) {
+						wait(EVICTION_INTERVAL);
+					}
+					connectionManager.closeExpiredConnections();
+					connectionManager.closeIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.MILLISECONDS);
+				}
+			} catch (InterruptedException e) {
+				// exit
+			}
+		}
+
+		public void shutdown() {
+			shutdown = true;
+			synchronized (this) {
+				notifyAll();
+			}
+		}
+	}
+}
@@ -10,7 +10,11 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.core.util;
 
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.HttpClient;
@@ -18,6 +22,7 @@ import org.apache.http.conn.params.ConnRoutePNames;
 import org.apache.http.impl.client.AbstractHttpClient;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.params.CoreProtocolPNames;
+import org.apache.http.params.HttpParams;
 import org.eclipse.core.net.proxy.IProxyData;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 
@@ -38,10 +43,26 @@ public class HttpUtil {
 	}
 
 	public static void configureProxy(HttpClient client, String url) {
+		configureProxy(client, client.getParams(), url);
+	}
+
+	/**
+	 * Configure the proxy for a single request only. This is used with shared clients that send requests to different
+	 * hosts, which might need different proxies.
+	 */
+	public static void configureProxy(HttpClient client, HttpRequest request, String url) {
+		configureProxy(client, request.getParams(), url);
+	}
+
+	private static void configureProxy(HttpClient client, HttpParams params, String url) {
 		final IProxyData proxyData = ProxyHelper.getProxyData(url);
-		if (proxyData != null && !IProxyData.SOCKS_PROXY_TYPE.equals(proxyData.getType())) {
+		if (proxyData != null && IProxyData.SOCKS_PROXY_TYPE.equals(proxyData.getType())) {
+			// only used by clients with a SocksSchemeSocketFactory, others connect directly as before
+			params.setParameter(SocksSchemeSocketFactory.SOCKS_PROXY, new Proxy(Proxy.Type.SOCKS,
+					InetSocketAddress.createUnresolved(proxyData.getHost(), proxyData.getPort())));
+		} else if (proxyData != null) {
 			HttpHost proxy = new HttpHost(proxyData.getHost(), proxyData.getPort(), proxyData.getType().toLowerCase());
-			client.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
+			params.setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
 
 			if (proxyData.isRequiresAuthentication()) {
 				((AbstractHttpClient) client).getCredentialsProvider().setCredentials(
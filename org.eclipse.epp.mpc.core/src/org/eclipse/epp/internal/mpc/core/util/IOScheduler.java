@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Process-wide scheduler for blocking I/O tasks. Tasks are run in separate lanes per kind of work, each with its own
+ * bounded pool of daemon threads. This way, a page of slow screenshot downloads can't hold up marketplace API calls,
+ * and threads are reused across wizard pages and catalog queries instead of being created for each batch of tasks.
+ * <p>
+ * Lane threads are created on demand. {@link #shutdown()} stops all lanes, canceling pending tasks; lanes are
+ * recreated if they are used again afterwards.
+ *
+ * @author Carsten Reckord
+ */
+public class IOScheduler {
+
+	public static enum Lane {
+		/**
+		 * Marketplace REST API calls
+		 */
+		API(4, Thread.NORM_PRIORITY),
+
+		/**
+		 * Icon downloads, which are needed to render list items
+		 */
+		ICONS(6, Thread.NORM_PRIORITY),
+
+		/**
+		 * Screenshot downloads, which are only needed on demand
+		 */
+		SCREENSHOTS(2, Thread.NORM_PRIORITY - 1),
+
+		/**
+		 * Loading p2 repositories
+		 */
+		REPOSITORIES(4, Thread.NORM_PRIORITY);
+
+		private final int threads;
+
+		private final int priority;
+
+		private Lane(int threads, int priority) {
+			this.threads = threads;
+			this.priority = priority;
+		}
+
+		/**
+		 * @return the maximum number of tasks that run concurrently in this lane
+		 */
+		public int getThreads() {
+			return threads;
+		}
+	}
+
+	private static IOScheduler instance;
+
+	private final Map<Lane, ExecutorService> executors = new EnumMap<Lane, ExecutorService>(Lane.class);
+
+	public static synchronized IOScheduler getDefault() {
+		if (instance == null) {
+			instance = new IOScheduler();
+		}
+		return instance;
+	}
+
+	/**
+	 * @return the executor for the given lane
+	 */
+	public synchronized Executor getExecutor(Lane lane) {
+		ExecutorService executor = executors.get(lane);
+		if (executor == null) {
+			executor = createExecutor(lane);
+			executors.put(lane, executor);
+		}
+		return executor;
+	}
+
+	private static ExecutorService createExecutor(final Lane lane) {
+		final String namePrefix = IOScheduler.class.getSimpleName() + "-" + lane.name().toLowerCase() + "-"; //$NON-NLS-1$ //$NON-NLS-2$
+		return new ThreadPoolExecutor(lane.threads, lane.threads, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, namePrefix + count.incrementAndGet());
+				thread.setDaemon(true);
+				thread.setPriority(lane.priority);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Stop all lanes, canceling pending tasks and interrupting running ones.
+	 */
+	public synchronized void shutdown() {
+		for (ExecutorService executor : executors.values()) {
+			executor.shutdownNow();
+		}
+		executors.clear();
+	}
+}
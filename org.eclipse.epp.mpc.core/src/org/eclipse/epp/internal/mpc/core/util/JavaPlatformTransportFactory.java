@@ -11,12 +11,23 @@
 package org.eclipse.epp.internal.mpc.core.util;
 
 import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URI;
+import java.net.URLConnection;
 
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
 
 public class JavaPlatformTransportFactory extends TransportFactory {
 
+	private static final String HEADER_ETAG = "ETag"; //$NON-NLS-1$
+
+	private static final String HEADER_LAST_MODIFIED = "Last-Modified"; //$NON-NLS-1$
+
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match"; //$NON-NLS-1$
+
+	private static final String HEADER_IF_MODIFIED_SINCE = "If-Modified-Since"; //$NON-NLS-1$
+
 	@Override
 	protected boolean isAvailable() {
 		return true;
@@ -27,4 +38,31 @@ public class JavaPlatformTransportFactory extends TransportFactory {
 		return location.toURL().openStream();
 	}
 
+	@Override
+	protected boolean supportsConditionalRequests() {
+		return true;
+	}
+
+	@Override
+	protected ITransportResponse invokeConditionalStream(URI location, String eTag, String lastModified,
+			IProgressMonitor monitor) throws Exception {
+		URLConnection connection = location.toURL().openConnection();
+		if (!(connection instanceof HttpURLConnection)) {
+			return super.invokeConditionalStream(location, eTag, lastModified, monitor);
+		}
+		HttpURLConnection httpConnection = (HttpURLConnection) connection;
+		if (eTag != null) {
+			httpConnection.setRequestProperty(HEADER_IF_NONE_MATCH, eTag);
+		}
+		if (lastModified != null) {
+			httpConnection.setRequestProperty(HEADER_IF_MODIFIED_SINCE, lastModified);
+		}
+		if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			httpConnection.disconnect();
+			return TransportResponse.notModified(eTag, lastModified);
+		}
+		InputStream content = httpConnection.getInputStream();
+		return new TransportResponse(ITransportResponse.STATUS_OK, content,
+				httpConnection.getHeaderField(HEADER_ETAG), httpConnection.getHeaderField(HEADER_LAST_MODIFIED));
+	}
 }
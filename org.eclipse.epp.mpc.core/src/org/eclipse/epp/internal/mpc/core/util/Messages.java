@@ -19,6 +19,8 @@ class Messages extends NLS {
 
 	public static String DefaultMarketplaceService_serviceUnavailable503;
 
+	public static String HttpClientTransportFactory_requestFailed;
+
 	public static String ProxyHelper_replacingAuthenticator;
 
 	public static String ServiceUtil_ignoringIncompatibleServiceProperty;
@@ -104,6 +104,8 @@ public class ProxyHelper {
 	}
 
 	private static class ProxyAuthenticator extends Authenticator {
+		private static final String SOCKS_PROTOCOL = "SOCKS"; //$NON-NLS-1$
+
 		private final Authenticator delegate;
 
 		public ProxyAuthenticator(Authenticator delegate) {
@@ -135,6 +137,19 @@ public class ProxyHelper {
 					}
 				}
 			}
+			if (isSocksRequest()) {
+				// the JDK's SOCKS implementation asks for SOCKS5 credentials as a server request without url
+				IProxyService proxyService = getProxyService();
+				if (proxyService != null && proxyService.isProxiesEnabled()) {
+					IProxyData proxyData = proxyService.getProxyData(IProxyData.SOCKS_PROXY_TYPE);
+					if (proxyData != null && proxyData.isRequiresAuthentication()
+							&& proxyData.getPort() == getRequestingPort()
+							&& proxyData.getHost().equals(getRequestingHost())) {
+						return new PasswordAuthentication(proxyData.getUserId(), proxyData.getPassword()
+								.toCharArray());
+					}
+				}
+			}
 			if (delegate != null) {
 				// Pass on to previously registered authenticator
 				// Eclipse UI bundle registers one to query credentials from user
@@ -150,6 +165,11 @@ public class ProxyHelper {
 			return null;
 		}
 
+		private boolean isSocksRequest() {
+			String protocol = getRequestingProtocol();
+			return protocol != null && protocol.toUpperCase().startsWith(SOCKS_PROTOCOL);
+		}
+
 		public Authenticator getDelegate() {
 			return delegate;
 		}
@@ -74,6 +74,37 @@ public class ServiceUtil {
 		return defaultValue;
 	}
 
+	/**
+	 * Get a long value from a property map for the given key. The value can either be a number or a string that can
+	 * be parsed into a long. If no entry exists for the key or it can't be converted to a long, the default value is
+	 * returned.
+	 *
+	 * @param properties the map to extract the value from
+	 * @param key the key to search under
+	 * @param defaultValue the default value returned if the entry does not exist or can't be converted
+	 * @return the long value found in the map under the given key, or the default value.
+	 */
+	public static long getLong(Map<?, ?> properties, String key, long defaultValue) {
+		if (properties != null) {
+			Object value = properties.get(key);
+			if (value instanceof Number) {
+				return ((Number) value).longValue();
+			} else if (value instanceof String) {
+				try {
+					return Long.parseLong(((String) value).trim());
+				} catch (NumberFormatException e) {
+					MarketplaceClientCore.error(e);
+				}
+			} else if (value != null) {
+				//wrong type, ignore
+				MarketplaceClientCore.getLog().log(
+						new Status(IStatus.WARNING, MarketplaceClientCore.BUNDLE_ID, NLS.bind(
+								Messages.ServiceUtil_ignoringIncompatibleServiceProperty, value, key)));
+			}
+		}
+		return defaultValue;
+	}
+
 	/**
 	 * Parse the given string to an URL. If the string can't be parsed, an error is logged
 	 * and null is returned
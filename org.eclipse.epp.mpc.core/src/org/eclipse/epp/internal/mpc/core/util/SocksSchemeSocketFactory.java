@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.UnknownHostException;
+
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.conn.scheme.LayeredSchemeSocketFactory;
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.conn.scheme.Scheme;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.scheme.SchemeSocketFactory;
+import org.apache.http.conn.ssl.SSLSocketFactory;
+import org.apache.http.params.HttpParams;
+
+/**
+ * A socket factory that connects through the SOCKS proxy given in the {@link #SOCKS_PROXY} parameter of a request, and
+ * directly otherwise. HttpClient only supports HTTP proxies itself. The connected socket is handed to the wrapped
+ * factory, so https connections are layered on top of the SOCKS connection as usual. Credentials for the SOCKS proxy
+ * are requested from the default {@link java.net.Authenticator}, see {@link ProxyHelper}.
+ * <p>
+ * Pooled connections are kept per target host, so changed SOCKS settings only apply to new connections.
+ *
+ * @author Carsten Reckord
+ */
+public class SocksSchemeSocketFactory implements SchemeSocketFactory {
+
+	/**
+	 * Request parameter holding the SOCKS {@link Proxy} to connect through
+	 */
+	public static final String SOCKS_PROXY = "org.eclipse.epp.mpc.socks-proxy"; //$NON-NLS-1$
+
+	private final SchemeSocketFactory delegate;
+
+	public SocksSchemeSocketFactory(SchemeSocketFactory delegate) {
+		this.delegate = delegate;
+	}
+
+	/**
+	 * @return a scheme registry for http and https connections that supports SOCKS proxies
+	 */
+	public static SchemeRegistry createSchemeRegistry() {
+		SchemeRegistry registry = new SchemeRegistry();
+		registry.register(new Scheme("http", 80, new SocksSchemeSocketFactory( //$NON-NLS-1$
+				PlainSocketFactory.getSocketFactory())));
+		registry.register(new Scheme("https", 443, new Layered(SSLSocketFactory.getSocketFactory()))); //$NON-NLS-1$
+		return registry;
+	}
+
+	public Socket createSocket(HttpParams params) throws IOException {
+		Object proxy = params == null ? null : params.getParameter(SOCKS_PROXY);
+		if (proxy instanceof Proxy && ((Proxy) proxy).type() == Proxy.Type.SOCKS) {
+			return new Socket((Proxy) proxy);
+		}
+		return delegate.createSocket(params);
+	}
+
+	public Socket connectSocket(Socket sock, InetSocketAddress remoteAddress, InetSocketAddress localAddress,
+			HttpParams params) throws IOException, UnknownHostException, ConnectTimeoutException {
+		return delegate.connectSocket(sock, remoteAddress, localAddress, params);
+	}
+
+	public boolean isSecure(Socket sock) throws IllegalArgumentException {
+		return delegate.isSecure(sock);
+	}
+
+	/**
+	 * SOCKS support for secure schemes. HttpClient only treats schemes with a layered socket factory as secure, so
+	 * this is kept separate from the plain factory.
+	 */
+	public static class Layered extends SocksSchemeSocketFactory implements LayeredSchemeSocketFactory {
+
+		private final LayeredSchemeSocketFactory layeredDelegate;
+
+		public Layered(LayeredSchemeSocketFactory delegate) {
+			super(delegate);
+			this.layeredDelegate = delegate;
+		}
+
+		public Socket createLayeredSocket(Socket socket, String target, int port, boolean autoClose)
+				throws IOException, UnknownHostException {
+			return layeredDelegate.createLayeredSocket(socket, target, port, autoClose);
+		}
+	}
+}
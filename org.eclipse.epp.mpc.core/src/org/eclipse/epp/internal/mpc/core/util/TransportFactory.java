@@ -25,8 +25,11 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCorePlugin;
 import org.eclipse.epp.internal.mpc.core.service.ServiceUnavailableException;
+import org.eclipse.epp.mpc.core.service.IConditionalTransport;
 import org.eclipse.epp.mpc.core.service.ITransportFactory;
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
 import org.eclipse.epp.mpc.core.service.ServiceHelper;
+import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
 
@@ -39,7 +42,9 @@ import org.osgi.framework.ServiceReference;
  */
 public abstract class TransportFactory implements ITransportFactory {
 
+	//the pooled HttpClient transport comes first, so requests reuse keep-alive connections
 	private static final String[] factoryClasses = new String[] { //
+		"org.eclipse.epp.internal.mpc.core.util.HttpClientTransportFactory", // //$NON-NLS-1$
 		"org.eclipse.epp.internal.mpc.core.util.P2TransportFactory", // //$NON-NLS-1$
 		"org.eclipse.epp.internal.mpc.core.util.Eclipse36TransportFactory", // //$NON-NLS-1$
 	"org.eclipse.epp.internal.mpc.core.util.JavaPlatformTransportFactory" }; //$NON-NLS-1$
@@ -53,19 +58,28 @@ public abstract class TransportFactory implements ITransportFactory {
 	@Deprecated
 	public static synchronized TransportFactory instance() {
 		if (instance == null) {
-			List<ITransportFactory> availableFactories = listAvailableFactories();
-			if (availableFactories.isEmpty()) {
+			//only probe factories until the first available one is found
+			for (String factoryClass : factoryClasses) {
+				TransportFactory factory = createFactory(factoryClass);
+				if (factory != null && factory.isAvailable()) {
+					instance = factory;
+					break;
+				}
+			}
+			if (instance == null) {
 				throw new IllegalStateException();
 			}
-			instance = (TransportFactory) availableFactories.get(0);
 		}
 		return instance;
 	}
 
 	public static org.eclipse.epp.mpc.core.service.ITransport createTransport() {
 		//search for registered factory service
-		BundleContext context = MarketplaceClientCorePlugin.getBundle().getBundleContext();
-		ServiceReference<ITransportFactory> serviceReference = context.getServiceReference(ITransportFactory.class);
+		Bundle bundle = MarketplaceClientCorePlugin.getBundle();
+		//the bundle is null if running outside of an OSGi framework, e.g. in plain JUnit runs
+		BundleContext context = bundle == null ? null : bundle.getBundleContext();
+		ServiceReference<ITransportFactory> serviceReference = context == null ? null : context
+				.getServiceReference(ITransportFactory.class);
 		if (serviceReference != null) {
 			ITransportFactory transportService = context.getService(serviceReference);
 			if (transportService != null) {
@@ -83,41 +97,81 @@ public abstract class TransportFactory implements ITransportFactory {
 	public static List<ITransportFactory> listAvailableFactories() {
 		List<ITransportFactory> factories = new ArrayList<ITransportFactory>();
 		for (String factoryClass : factoryClasses) {
-			TransportFactory factory;
-			try {
-				factory = (TransportFactory) Class.forName(factoryClass, true, TransportFactory.class.getClassLoader())
-						.newInstance();
-			} catch (Throwable t) {
-				// ignore
-				continue;
-			}
-			if (factory.isAvailable()) {
+			TransportFactory factory = createFactory(factoryClass);
+			if (factory != null && factory.isAvailable()) {
 				factories.add(factory);
 			}
 		}
 		return factories;
 	}
 
+	private static TransportFactory createFactory(String factoryClass) {
+		try {
+			return (TransportFactory) Class.forName(factoryClass, true, TransportFactory.class.getClassLoader())
+					.newInstance();
+		} catch (Throwable t) {
+			// ignore
+			return null;
+		}
+	}
+
 	public ITransport getTransport() {
-		return new ITransport() {
+		return supportsConditionalRequests() ? new ConditionalFactoryTransport() : new FactoryTransport();
+	}
 
-			public InputStream stream(URI location, IProgressMonitor monitor) throws FileNotFoundException,
-			org.eclipse.epp.mpc.core.service.ServiceUnavailableException, CoreException {
-				try {
-					return invokeStream(location, monitor);
-				} catch (Exception e) {
-					handleStreamExceptions(e);
-				}
-				return null;
+	private class FactoryTransport implements ITransport {
+
+		public InputStream stream(URI location, IProgressMonitor monitor) throws FileNotFoundException,
+		org.eclipse.epp.mpc.core.service.ServiceUnavailableException, CoreException {
+			try {
+				return invokeStream(location, monitor);
+			} catch (Exception e) {
+				handleStreamExceptions(e);
 			}
+			return null;
+		}
+	}
+
+	private class ConditionalFactoryTransport extends FactoryTransport implements IConditionalTransport {
 
-		};
+		public ITransportResponse stream(URI location, String eTag, String lastModified, IProgressMonitor monitor)
+				throws FileNotFoundException, org.eclipse.epp.mpc.core.service.ServiceUnavailableException,
+				CoreException {
+			try {
+				return invokeConditionalStream(location, eTag, lastModified, monitor);
+			} catch (Exception e) {
+				handleStreamExceptions(e);
+				//not rethrown above, but there is no response to return
+				Throwable cause = e.getCause() == null ? e : e.getCause();
+				throw new CoreException(new Status(IStatus.ERROR, MarketplaceClientCore.BUNDLE_ID,
+						cause.getMessage(), cause));
+			}
+		}
 	}
 
 	protected abstract boolean isAvailable();
 
 	protected abstract InputStream invokeStream(URI location, IProgressMonitor monitor) throws Exception;
 
+	/**
+	 * @return true if this factory sends conditional requests in
+	 *         {@link #invokeConditionalStream(URI, String, String, IProgressMonitor)}. Only then are its transports
+	 *         {@link IConditionalTransport conditional transports}.
+	 */
+	protected boolean supportsConditionalRequests() {
+		return false;
+	}
+
+	/**
+	 * Perform a conditional request. Factories that override this must also override
+	 * {@link #supportsConditionalRequests()}. The default implementation doesn't send validators and always returns the
+	 * full content from {@link #invokeStream(URI, IProgressMonitor)}.
+	 */
+	protected ITransportResponse invokeConditionalStream(URI location, String eTag, String lastModified,
+			IProgressMonitor monitor) throws Exception {
+		return new TransportResponse(ITransportResponse.STATUS_OK, invokeStream(location, monitor), null, null);
+	}
+
 	protected void handleStreamExceptions(Exception e) throws ServiceUnavailableException, CoreException,
 	FileNotFoundException {
 		if (e instanceof InvocationTargetException) {
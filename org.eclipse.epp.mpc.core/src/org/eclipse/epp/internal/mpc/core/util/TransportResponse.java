@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.core.util;
+
+import java.io.InputStream;
+
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
+
+/**
+ * @author Carsten Reckord
+ */
+public class TransportResponse implements ITransportResponse {
+
+	private final int statusCode;
+
+	private final InputStream content;
+
+	private final String eTag;
+
+	private final String lastModified;
+
+	public TransportResponse(int statusCode, InputStream content, String eTag, String lastModified) {
+		this.statusCode = statusCode;
+		this.content = content;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+	}
+
+	public static TransportResponse notModified(String eTag, String lastModified) {
+		return new TransportResponse(STATUS_NOT_MODIFIED, null, eTag, lastModified);
+	}
+
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	public InputStream getContent() {
+		return content;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+}
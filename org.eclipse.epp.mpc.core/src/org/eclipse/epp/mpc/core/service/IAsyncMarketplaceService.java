@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.core.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.eclipse.epp.mpc.core.model.ICategory;
+import org.eclipse.epp.mpc.core.model.IMarket;
+import org.eclipse.epp.mpc.core.model.INews;
+import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.epp.mpc.core.model.ISearchResult;
+
+/**
+ * Asynchronous companion of {@link IMarketplaceService}. All requests are started immediately in the background and
+ * return an {@link IMarketplaceFuture} for the result, so independent requests - e.g. for the featured listing, the
+ * news and the list of markets - can run concurrently instead of one after the other.
+ * <p>
+ * An instance can be retrieved from the {@link IMarketplaceServiceLocator#getAsyncMarketplaceService(String) service
+ * locator}.
+ *
+ * @see IMarketplaceService
+ * @noimplement This interface is not intended to be implemented by clients.
+ * @noextend This interface is not intended to be extended by clients.
+ * @author Carsten Reckord
+ */
+public interface IAsyncMarketplaceService {
+
+	/**
+	 * @return the synchronous service that handles the requests of this service
+	 */
+	IMarketplaceService getMarketplaceService();
+
+	/**
+	 * @see IMarketplaceService#listMarkets(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<List<? extends IMarket>> listMarkets();
+
+	/**
+	 * @see IMarketplaceService#getMarket(IMarket, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<IMarket> getMarket(IMarket market);
+
+	/**
+	 * @see IMarketplaceService#getCategory(ICategory, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ICategory> getCategory(ICategory category);
+
+	/**
+	 * @see IMarketplaceService#getNode(INode, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<INode> getNode(INode node);
+
+	/**
+	 * @see IMarketplaceService#getNodes(Collection, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<INodeQueryResult> getNodes(Collection<? extends INode> nodes);
+
+	/**
+	 * @see IMarketplaceService#search(IMarket, ICategory, String, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ISearchResult> search(IMarket market, ICategory category, String queryText);
+
+	/**
+	 * @see IMarketplaceService#search(IMarket, ICategory, String, int, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ISearchResult> search(IMarket market, ICategory category, String queryText, int page);
+
+	/**
+	 * @see IMarketplaceService#featured(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ISearchResult> featured();
+
+	/**
+	 * @see IMarketplaceService#featured(IMarket, ICategory, org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ISearchResult> featured(IMarket market, ICategory category);
+
+	/**
+	 * @see IMarketplaceService#recent(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ISearchResult> recent();
+
+	/**
+	 * @see IMarketplaceService#favorites(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ISearchResult> favorites();
+
+	/**
+	 * @see IMarketplaceService#popular(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<ISearchResult> popular();
+
+	/**
+	 * @see IMarketplaceService#news(org.eclipse.core.runtime.IProgressMonitor)
+	 */
+	IMarketplaceFuture<INews> news();
+}
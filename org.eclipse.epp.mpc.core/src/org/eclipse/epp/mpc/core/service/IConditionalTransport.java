@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.core.service;
+
+import java.io.FileNotFoundException;
+import java.net.URI;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+
+/**
+ * An {@link ITransport} that supports conditional requests. Callers that hold a previously retrieved copy of a resource
+ * can pass its validators to have the server confirm that their copy is still current instead of sending the full
+ * content again.
+ *
+ * @author Carsten Reckord
+ */
+public interface IConditionalTransport extends ITransport {
+
+	/**
+	 * Request the given location, optionally conditional on the given validators. If the implementation can't send
+	 * conditional requests, it will ignore the validators and always return the full content.
+	 *
+	 * @param location
+	 *            the location to retrieve
+	 * @param eTag
+	 *            the entity tag of the cached copy, sent as <code>If-None-Match</code>, or null
+	 * @param lastModified
+	 *            the last modification date of the cached copy, sent as <code>If-Modified-Since</code>, or null
+	 * @return the response, which has status {@link ITransportResponse#STATUS_NOT_MODIFIED} and no content if the
+	 *         cached copy is still current
+	 */
+	ITransportResponse stream(URI location, String eTag, String lastModified, IProgressMonitor monitor)
+			throws FileNotFoundException, ServiceUnavailableException, CoreException;
+}
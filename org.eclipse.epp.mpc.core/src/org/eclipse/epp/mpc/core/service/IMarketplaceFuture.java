@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.core.service;
+
+import java.util.concurrent.Future;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+
+/**
+ * The pending result of an {@link IAsyncMarketplaceService} request. Cancelling the future also aborts a running
+ * request on the underlying transport.
+ * <p>
+ * Several requests can be combined by starting all of them first and then waiting for each result in turn, or by
+ * registering {@link IMarketplaceFutureListener listeners} that are notified as soon as a request completes.
+ *
+ * @param <T>
+ *            the result type
+ * @noimplement This interface is not intended to be implemented by clients.
+ * @noextend This interface is not intended to be extended by clients.
+ * @author Carsten Reckord
+ */
+public interface IMarketplaceFuture<T> extends Future<T> {
+
+	/**
+	 * Wait for the request to complete and return its result. Unlike {@link #get()}, this will rethrow the original
+	 * {@link CoreException} of a failed request.
+	 *
+	 * @param monitor
+	 *            a monitor used to abort waiting. If it is canceled while waiting, this future is canceled as well.
+	 * @return the result of the request
+	 * @throws CoreException
+	 *             if the request failed
+	 * @throws OperationCanceledException
+	 *             if the request or the given monitor was canceled
+	 */
+	T getResult(IProgressMonitor monitor) throws CoreException;
+
+	/**
+	 * Register a listener that is notified once the request has completed, failed or was canceled. If the request is
+	 * already done, the listener is notified immediately in the calling thread. Otherwise it is notified in the thread
+	 * that completed the request.
+	 */
+	void addListener(IMarketplaceFutureListener<T> listener);
+
+	/**
+	 * Remove a previously registered listener.
+	 */
+	void removeListener(IMarketplaceFutureListener<T> listener);
+}
@@ -0,0 +1,28 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.core.service;
+
+/**
+ * Listener for the completion of an {@link IMarketplaceFuture}.
+ *
+ * @param <T>
+ *            the result type
+ * @see IMarketplaceFuture#addListener(IMarketplaceFutureListener)
+ * @author Carsten Reckord
+ */
+public interface IMarketplaceFutureListener<T> {
+
+	/**
+	 * Called once the given future is {@link IMarketplaceFuture#isDone() done}. Implementations should not block, since
+	 * they might be called on a thread that is used to run other marketplace requests.
+	 */
+	void done(IMarketplaceFuture<T> future);
+}
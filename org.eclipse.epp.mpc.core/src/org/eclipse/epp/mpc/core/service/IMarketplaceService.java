@@ -11,6 +11,7 @@
  *******************************************************************************/
 package org.eclipse.epp.mpc.core.service;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -71,6 +72,18 @@ public interface IMarketplaceService {
 	 */
 	INode getNode(INode node, IProgressMonitor monitor) throws CoreException;
 
+	/**
+	 * Get multiple nodes by their ids. This is more efficient than {@link #getNode(INode, IProgressMonitor) getting}
+	 * each node separately, since the nodes are retrieved in a single request if possible, or concurrently otherwise.
+	 *
+	 * @param nodes
+	 *            the nodes, each of which must either have an {@link INode#getUrl() url} or an {@link INode#getId() id}.
+	 * @return the retrieved nodes and the status of the nodes that could not be retrieved
+	 * @throws CoreException
+	 *             if the operation was canceled
+	 */
+	INodeQueryResult getNodes(Collection<? extends INode> nodes, IProgressMonitor monitor) throws CoreException;
+
 	/**
 	 * Find nodes in the marketplace with a text query, and optionally specify the market/category
 	 *
@@ -85,6 +98,27 @@ public interface IMarketplaceService {
 	ISearchResult search(IMarket market, ICategory category, String queryText, IProgressMonitor monitor)
 			throws CoreException;
 
+	/**
+	 * Retrieve a single page of the results of a {@link #search(IMarket, ICategory, String, IProgressMonitor) search}.
+	 * The page size is determined by the marketplace server. The returned result's {@link ISearchResult#getNodes()
+	 * nodes} are the nodes on the requested page, while its {@link ISearchResult#getMatchCount() match count} is the
+	 * total number of matches for the query. Further pages are available as long as the number of nodes retrieved so
+	 * far is less than the match count and the last page was not empty.
+	 *
+	 * @param market
+	 *            the market to search in, or null if the search should span all markets
+	 * @param category
+	 *            the category to search in, or null if the search should span all categories
+	 * @param queryText
+	 *            the query text, must not be null
+	 * @param page
+	 *            the zero-based index of the result page. Page 0 is the same result as returned by
+	 *            {@link #search(IMarket, ICategory, String, IProgressMonitor)}.
+	 * @return the search result for the requested page
+	 */
+	ISearchResult search(IMarket market, ICategory category, String queryText, int page, IProgressMonitor monitor)
+			throws CoreException;
+
 	/**
 	 * Find featured nodes in the marketplace
 	 *
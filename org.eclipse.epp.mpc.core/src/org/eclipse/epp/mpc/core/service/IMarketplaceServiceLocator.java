@@ -76,6 +76,12 @@ public interface IMarketplaceServiceLocator {
 	 */
 	IMarketplaceService getMarketplaceService(String baseUrl);
 
+	/**
+	 * Get an asynchronous marketplace service for the given base url. Requests are delegated to the service returned
+	 * by {@link #getMarketplaceService(String)} for the same url.
+	 */
+	IAsyncMarketplaceService getAsyncMarketplaceService(String baseUrl);
+
 	/**
 	 * Get a catalog service for the default {@link #CATALOG_URL discovery url}.
 	 */
@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.core.service;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.epp.mpc.core.model.INode;
+
+/**
+ * The result of {@link IMarketplaceService#getNodes(java.util.Collection, org.eclipse.core.runtime.IProgressMonitor)
+ * retrieving multiple nodes}. Nodes that could not be retrieved are missing from the result and reported in its
+ * status.
+ *
+ * @author Carsten Reckord
+ * @noimplement This interface is not intended to be implemented by clients.
+ */
+public interface INodeQueryResult {
+
+	/**
+	 * @return the retrieved nodes, in the order they were requested
+	 */
+	List<INode> getNodes();
+
+	/**
+	 * @return an OK status if all nodes were retrieved, or a {@link org.eclipse.core.runtime.MultiStatus MultiStatus}
+	 *         with one child status for each node that could not be retrieved
+	 */
+	IStatus getStatus();
+}
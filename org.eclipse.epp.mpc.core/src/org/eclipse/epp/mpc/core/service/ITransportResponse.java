@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.core.service;
+
+import java.io.InputStream;
+
+/**
+ * The response to a request made through an {@link IConditionalTransport}.
+ *
+ * @author Carsten Reckord
+ * @noimplement This interface is not intended to be implemented by clients.
+ */
+public interface ITransportResponse {
+
+	/**
+	 * Status of a successful request with content
+	 */
+	public static final int STATUS_OK = 200;
+
+	/**
+	 * Status of a conditional request for which the cached copy is still current
+	 */
+	public static final int STATUS_NOT_MODIFIED = 304;
+
+	/**
+	 * @return the response's status code, either {@link #STATUS_OK} or {@link #STATUS_NOT_MODIFIED}
+	 */
+	int getStatusCode();
+
+	/**
+	 * @return the entity tag of the returned content, or null if the server didn't send one
+	 */
+	String getETag();
+
+	/**
+	 * @return the last modification date of the returned content as sent by the server, or null if the server didn't
+	 *         send one
+	 */
+	String getLastModified();
+
+	/**
+	 * @return the response content, or null if the status is {@link #STATUS_NOT_MODIFIED}. Callers are responsible for
+	 *         closing the returned stream.
+	 */
+	InputStream getContent();
+}
@@ -23,7 +23,9 @@ import org.eclipse.epp.internal.mpc.core.MarketplaceClientCorePlugin;
 public abstract class ServiceHelper {
 
 	private static ServiceHelper getInstance() {
-		return MarketplaceClientCorePlugin.getDefault().getServiceHelper();
+		MarketplaceClientCorePlugin plugin = MarketplaceClientCorePlugin.getDefault();
+		//null if running outside of an OSGi framework, e.g. in plain JUnit runs
+		return plugin == null ? null : plugin.getServiceHelper();
 	}
 
 	protected abstract IMarketplaceServiceLocator doGetMarketplaceServiceLocator();
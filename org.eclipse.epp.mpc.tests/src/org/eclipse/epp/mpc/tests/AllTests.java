@@ -10,6 +10,10 @@
  *******************************************************************************/
 package org.eclipse.epp.mpc.tests;
 
+import java.io.IOException;
+
+import org.eclipse.epp.mpc.tests.server.MarketplaceStandInServer;
+import org.junit.BeforeClass;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite;
 import org.junit.runners.Suite.SuiteClasses;
@@ -23,4 +27,10 @@ import org.junit.runners.Suite.SuiteClasses;
 	BotTests.class //
 })
 public class AllTests {
+
+	@BeforeClass
+	public static void startLocalMarketplace() throws IOException {
+		// the server is shared by all suites and stops with the test VM
+		MarketplaceStandInServer.startIfConfigured();
+	}
 }
@@ -10,15 +10,30 @@
  *******************************************************************************/
 package org.eclipse.epp.mpc.tests;
 
+import java.io.IOException;
+
+import org.eclipse.epp.mpc.tests.server.MarketplaceStandInServer;
+import org.eclipse.epp.mpc.tests.service.AsyncMarketplaceServiceTest;
 import org.eclipse.epp.mpc.tests.service.CatalogServiceTest;
 import org.eclipse.epp.mpc.tests.service.DefaultMarketplaceServiceTest;
+import org.eclipse.epp.mpc.tests.service.ResponseCacheTest;
+import org.eclipse.epp.mpc.tests.service.StandInMarketplaceServiceTest;
+import org.eclipse.epp.mpc.tests.service.xml.PooledMarketplaceUnmarshallerTest;
 import org.eclipse.epp.mpc.tests.service.xml.UnmarshallerTest;
+import org.eclipse.epp.mpc.tests.ui.ProfileSnapshotServiceTest;
 import org.eclipse.epp.mpc.tests.ui.catalog.CatalogDescriptorTest;
 import org.eclipse.epp.mpc.tests.ui.catalog.MarketplaceInfoTest;
+import org.eclipse.epp.mpc.tests.ui.catalog.RepositoryVersionCacheTest;
+import org.eclipse.epp.mpc.tests.ui.catalog.ResourceCacheTest;
+import org.eclipse.epp.mpc.tests.ui.catalog.UpdateCheckResultsTest;
+import org.eclipse.epp.mpc.tests.ui.operations.FeatureGroupQueriesTest;
 import org.eclipse.epp.mpc.tests.ui.wizard.MarketplaceUrlHandlerTest;
 import org.eclipse.epp.mpc.tests.ui.wizard.SelectionModelStateSerializerTest;
+import org.eclipse.epp.mpc.tests.util.ConcurrentLruCacheTest;
+import org.eclipse.epp.mpc.tests.util.ConcurrentTaskManagerTest;
 import org.eclipse.epp.mpc.tests.util.TextUtilTest;
 import org.eclipse.epp.mpc.tests.util.TransportFactoryTest;
+import org.junit.BeforeClass;
 import org.junit.runner.RunWith;
 import org.junit.runners.Suite.SuiteClasses;
 
@@ -28,16 +43,32 @@ import org.junit.runners.Suite.SuiteClasses;
 @RunWith(UISuite.class)
 @SuiteClasses({ //
 	UnmarshallerTest.class, //
+	PooledMarketplaceUnmarshallerTest.class, //
 	DefaultMarketplaceServiceTest.class, //
+	StandInMarketplaceServiceTest.class, //
+	AsyncMarketplaceServiceTest.class, //
 	TextUtilTest.class, //
 	SelectionModelStateSerializerTest.class, //
 	MarketplaceUrlHandlerTest.class, //
 	TransportFactoryTest.class, //
 	MarketplaceInfoTest.class, //
+	ResourceCacheTest.class, //
 	CatalogServiceTest.class, //
-	CatalogDescriptorTest.class //
+	CatalogDescriptorTest.class, //
+	ResponseCacheTest.class, //
+	ConcurrentLruCacheTest.class, //
+	ConcurrentTaskManagerTest.class, //
+	ProfileSnapshotServiceTest.class, //
+	RepositoryVersionCacheTest.class, //
+	UpdateCheckResultsTest.class, //
+	FeatureGroupQueriesTest.class //
 
 })
 public class UITests {
 
+	@BeforeClass
+	public static void startLocalMarketplace() throws IOException {
+		// the server is shared by all suites and stops with the test VM
+		MarketplaceStandInServer.startIfConfigured();
+	}
 }
@@ -0,0 +1,691 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.server;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.eclipse.epp.internal.mpc.core.service.DefaultCatalogService;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceService;
+
+/**
+ * A minimal HTTP server standing in for marketplace.eclipse.org in tests. It serves the REST API endpoints from the
+ * recorded responses in the <code>service/xml/resources</code> folder, so service features can be tested offline and
+ * reproducibly. Latency, bandwidth and failures can be simulated, and responses carry an <code>ETag</code> so
+ * conditional requests are answered with <code>304 Not Modified</code>.
+ * <p>
+ * Node requests are answered for any id by rewriting the recorded node, and requests for multiple comma-separated ids
+ * return one node per id.
+ * <p>
+ * The test suite starts a stand-in server with {@link #startIfConfigured()} if the
+ * <code>org.eclipse.epp.internal.mpc.core.service.MarketplaceService.url</code> system property points to a local
+ * port, e.g. <code>-Dorg.eclipse.epp.internal.mpc.core.service.MarketplaceService.url=http://localhost:18089</code>.
+ *
+ * @author Carsten Reckord
+ */
+public class MarketplaceStandInServer {
+
+	/**
+	 * System property for the marketplace service url, see
+	 * {@link org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService#DEFAULT_SERVICE_LOCATION}
+	 */
+	public static final String MARKETPLACE_URL_PROPERTY = MarketplaceService.class.getName() + ".url"; //$NON-NLS-1$
+
+	/**
+	 * System property for the catalog service url, see {@link DefaultCatalogService#DEFAULT_CATALOG_SERVICE_LOCATION}
+	 */
+	public static final String CATALOG_URL_PROPERTY = DefaultCatalogService.class.getName() + ".url"; //$NON-NLS-1$
+
+	private static final String FIXTURE_PATH = "/org/eclipse/epp/mpc/tests/service/xml/resources/"; //$NON-NLS-1$
+
+	private static final String API_SUFFIX = "/api/p"; //$NON-NLS-1$
+
+	private static final String CONTENT_TYPE = "application/xml; charset=UTF-8"; //$NON-NLS-1$
+
+	private static final String ISO_8859_1 = "ISO-8859-1"; //$NON-NLS-1$
+
+	private static final String UTF_8 = "UTF-8"; //$NON-NLS-1$
+
+	private static final int BANDWIDTH_CHUNK_SIZE = 1024;
+
+	private static final Pattern NODE_PATTERN = Pattern.compile("^node/([^/]+)$"); //$NON-NLS-1$
+
+	private static final Pattern NODE_ELEMENT_PATTERN = Pattern.compile("<node\\s.*?</node>", Pattern.DOTALL); //$NON-NLS-1$
+
+	private static final Pattern NODE_ID_PATTERN = Pattern.compile("(<node\\s[^>]*?id=\")[^\"]*(\")"); //$NON-NLS-1$
+
+	private static final Map<String, String> FIXTURES = new HashMap<String, String>();
+
+	static {
+		FIXTURES.put("", "marketplace-root.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("featured", "featured.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("recent", "recent.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("popular/top", "popular.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("favorites/top", "favorites.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("catalogs", "catalogs.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("news", "news.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("search", "search.xml"); //$NON-NLS-1$//$NON-NLS-2$
+		FIXTURES.put("taxonomy", "category-taxonomy.xml"); //$NON-NLS-1$//$NON-NLS-2$
+	}
+
+	private static MarketplaceStandInServer configuredServer;
+
+	private final int requestedPort;
+
+	private final Map<String, byte[]> fixtureCache = new ConcurrentHashMap<String, byte[]>();
+
+	private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+	private final Set<Socket> openConnections = Collections.synchronizedSet(new HashSet<Socket>());
+
+	private final AtomicInteger connectionCount = new AtomicInteger();
+
+	private final AtomicInteger notModifiedCount = new AtomicInteger();
+
+	private final AtomicInteger pendingFailures = new AtomicInteger();
+
+	private volatile long latency;
+
+	private volatile int bandwidth;
+
+	private volatile double errorRate;
+
+	private volatile int errorStatus = 503;
+
+	private Random random = new Random(0);
+
+	private ServerSocket serverSocket;
+
+	private ExecutorService executor;
+
+	private Thread acceptThread;
+
+	/**
+	 * Create a server listening on a free port
+	 */
+	public MarketplaceStandInServer() {
+		this(0);
+	}
+
+	public MarketplaceStandInServer(int port) {
+		this.requestedPort = port;
+	}
+
+	/**
+	 * Start a stand-in server if the {@link #MARKETPLACE_URL_PROPERTY marketplace url property} points to a port on
+	 * the local host. If no catalog url is configured, catalogs are served from the same server.
+	 *
+	 * @return the started server or null if no local marketplace url is configured
+	 */
+	public static synchronized MarketplaceStandInServer startIfConfigured() throws IOException {
+		if (configuredServer != null) {
+			return configuredServer;
+		}
+		String location = System.getProperty(MARKETPLACE_URL_PROPERTY);
+		if (location == null) {
+			return null;
+		}
+		URL url = new URL(location);
+		String host = url.getHost();
+		if (url.getPort() == -1 || !("localhost".equals(host) || "127.0.0.1".equals(host))) { //$NON-NLS-1$ //$NON-NLS-2$
+			return null;
+		}
+		if (System.getProperty(CATALOG_URL_PROPERTY) == null) {
+			System.setProperty(CATALOG_URL_PROPERTY, location);
+		}
+		configuredServer = new MarketplaceStandInServer(url.getPort());
+		configuredServer.start();
+		return configuredServer;
+	}
+
+	/**
+	 * Stop the server started by {@link #startIfConfigured()}, if any
+	 */
+	public static synchronized void stopConfigured() {
+		if (configuredServer != null) {
+			configuredServer.stop();
+			configuredServer = null;
+		}
+	}
+
+	public synchronized void start() throws IOException {
+		if (serverSocket != null) {
+			return;
+		}
+		serverSocket = new ServerSocket(requestedPort, 50, InetAddress.getByName("localhost")); //$NON-NLS-1$
+		executor = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger();
+
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, MarketplaceStandInServer.class.getSimpleName() + "-" //$NON-NLS-1$
+						+ count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		final ServerSocket socket = serverSocket;
+		acceptThread = new Thread(MarketplaceStandInServer.class.getSimpleName()) {
+			@Override
+			public void run() {
+				acceptConnections(socket);
+			}
+		};
+		acceptThread.setDaemon(true);
+		acceptThread.start();
+	}
+
+	public synchronized void stop() {
+		if (serverSocket == null) {
+			return;
+		}
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// ignore
+		}
+		executor.shutdownNow();
+		synchronized (openConnections) {
+			// unblock handlers waiting for the next request on a keep-alive connection
+			for (Socket connection : openConnections) {
+				close(connection);
+			}
+		}
+		try {
+			acceptThread.join(1000);
+			executor.awaitTermination(1, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		serverSocket = null;
+		executor = null;
+		acceptThread = null;
+	}
+
+	public synchronized int getPort() {
+		if (serverSocket == null) {
+			throw new IllegalStateException();
+		}
+		return serverSocket.getLocalPort();
+	}
+
+	public URL getBaseUrl() {
+		try {
+			return new URL("http://localhost:" + getPort()); //$NON-NLS-1$
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Delay every response by the given time
+	 */
+	public void setLatency(long latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * Throttle the transfer of each response body to the given number of bytes per second
+	 *
+	 * @param bandwidth
+	 *            the bandwidth in bytes per second or 0 for unlimited
+	 */
+	public void setBandwidth(int bandwidth) {
+		this.bandwidth = bandwidth;
+	}
+
+	/**
+	 * Answer a random share of requests with an error status. The random sequence is fixed, so runs are reproducible.
+	 *
+	 * @param errorRate
+	 *            the share of failing requests between 0 and 1
+	 * @param errorStatus
+	 *            the HTTP status code of failing requests
+	 */
+	public synchronized void setErrorRate(double errorRate, int errorStatus) {
+		this.errorRate = errorRate;
+		this.errorStatus = errorStatus;
+		this.random = new Random(0);
+	}
+
+	/**
+	 * Answer the next requests with an error status
+	 *
+	 * @param count
+	 *            the number of requests to fail
+	 * @param errorStatus
+	 *            the HTTP status code of failing requests
+	 */
+	public void failNextRequests(int count, int errorStatus) {
+		this.errorStatus = errorStatus;
+		pendingFailures.set(count);
+	}
+
+	/**
+	 * Clear the recorded requests and all simulated latency, bandwidth limits and failures
+	 */
+	public synchronized void reset() {
+		requests.clear();
+		connectionCount.set(0);
+		notModifiedCount.set(0);
+		pendingFailures.set(0);
+		latency = 0;
+		bandwidth = 0;
+		errorRate = 0;
+		errorStatus = 503;
+		random = new Random(0);
+	}
+
+	/**
+	 * @return the paths of all received requests, relative to the server root and without query string
+	 */
+	public List<String> getRequests() {
+		synchronized (requests) {
+			return new ArrayList<String>(requests);
+		}
+	}
+
+	/**
+	 * @return the number of received requests whose path starts with the given prefix
+	 */
+	public int getRequestCount(String pathPrefix) {
+		int count = 0;
+		synchronized (requests) {
+			for (String request : requests) {
+				if (request.startsWith(pathPrefix)) {
+					count++;
+				}
+			}
+		}
+		return count;
+	}
+
+	public int getRequestCount() {
+		return requests.size();
+	}
+
+	/**
+	 * @return the number of accepted connections. Clients reusing keep-alive connections will open fewer connections
+	 *         than they send requests.
+	 */
+	public int getConnectionCount() {
+		return connectionCount.get();
+	}
+
+	/**
+	 * @return the number of conditional requests that were answered with <code>304 Not Modified</code>
+	 */
+	public int getNotModifiedCount() {
+		return notModifiedCount.get();
+	}
+
+	private void acceptConnections(ServerSocket socket) {
+		while (!socket.isClosed()) {
+			final Socket connection;
+			try {
+				connection = socket.accept();
+			} catch (IOException e) {
+				// closed
+				return;
+			}
+			connectionCount.incrementAndGet();
+			openConnections.add(connection);
+			try {
+				executor.execute(new Runnable() {
+					public void run() {
+						serve(connection);
+					}
+				});
+			} catch (RuntimeException e) {
+				// rejected during shutdown
+				openConnections.remove(connection);
+				close(connection);
+			}
+		}
+	}
+
+	private void serve(Socket connection) {
+		try {
+			InputStream in = new BufferedInputStream(connection.getInputStream());
+			OutputStream out = connection.getOutputStream();
+			boolean keepAlive = true;
+			while (keepAlive && !Thread.currentThread().isInterrupted()) {
+				Request request = Request.read(in);
+				if (request == null) {
+					break;
+				}
+				keepAlive = request.isKeepAlive();
+				handle(request, out, keepAlive);
+			}
+		} catch (SocketException e) {
+			// client closed the connection
+		} catch (IOException e) {
+			// client closed the connection
+		} catch (InterruptedException e) {
+			// server shut down
+		} finally {
+			openConnections.remove(connection);
+			close(connection);
+		}
+	}
+
+	private void handle(Request request, OutputStream out, boolean keepAlive) throws IOException,
+	InterruptedException {
+		String path = request.getPath();
+		requests.add(path);
+		if (latency > 0) {
+			Thread.sleep(latency);
+		}
+		if (shouldFail()) {
+			writeResponse(out, errorStatus, null, null, keepAlive);
+			return;
+		}
+		byte[] body = getContent(path);
+		if (body == null) {
+			writeResponse(out, 404, null, null, keepAlive);
+			return;
+		}
+		String eTag = computeETag(body);
+		if (eTag.equals(request.getHeader("if-none-match"))) { //$NON-NLS-1$
+			notModifiedCount.incrementAndGet();
+			writeResponse(out, 304, null, eTag, keepAlive);
+			return;
+		}
+		writeResponse(out, 200, body, eTag, keepAlive);
+	}
+
+	private boolean shouldFail() {
+		for (int pending = pendingFailures.get(); pending > 0; pending = pendingFailures.get()) {
+			if (pendingFailures.compareAndSet(pending, pending - 1)) {
+				return true;
+			}
+		}
+		if (errorRate > 0) {
+			synchronized (this) {
+				return random.nextDouble() < errorRate;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compute the response body for the given request path
+	 *
+	 * @return the response body or null if the path is not supported
+	 */
+	protected byte[] getContent(String path) throws IOException {
+		if (path.startsWith("/")) { //$NON-NLS-1$
+			path = path.substring(1);
+		}
+		if (path.startsWith("api/p/search/")) { //$NON-NLS-1$
+			return getFixture(FIXTURES.get("search")); //$NON-NLS-1$
+		}
+		if (path.equals("api/p")) { //$NON-NLS-1$
+			return getFixture(FIXTURES.get("")); //$NON-NLS-1$
+		}
+		if (!path.endsWith(API_SUFFIX)) {
+			return null;
+		}
+		String resource = path.substring(0, path.length() - API_SUFFIX.length());
+		Matcher nodeMatcher = NODE_PATTERN.matcher(resource);
+		if (nodeMatcher.matches()) {
+			return getNodes(URLDecoder.decode(nodeMatcher.group(1), UTF_8).split(",")); //$NON-NLS-1$
+		}
+		if (resource.startsWith("featured/")) { //$NON-NLS-1$
+			// featured for market and/or category
+			resource = "featured"; //$NON-NLS-1$
+		} else if (resource.startsWith("taxonomy/term/")) { //$NON-NLS-1$
+			resource = "taxonomy"; //$NON-NLS-1$
+		}
+		String fixture = FIXTURES.get(resource);
+		return fixture == null ? null : getFixture(fixture);
+	}
+
+	private byte[] getNodes(String[] ids) throws IOException {
+		String template = new String(getFixture("node.xml"), UTF_8); //$NON-NLS-1$
+		Matcher nodeMatcher = NODE_ELEMENT_PATTERN.matcher(template);
+		if (!nodeMatcher.find()) {
+			throw new IllegalStateException();
+		}
+		String node = nodeMatcher.group();
+		StringBuilder nodes = new StringBuilder();
+		for (String id : ids) {
+			Matcher idMatcher = NODE_ID_PATTERN.matcher(node);
+			nodes.append(idMatcher.replaceFirst("$1" + Matcher.quoteReplacement(id.trim()) + "$2")).append('\n'); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		String document = template.substring(0, nodeMatcher.start()) + nodes
+				+ template.substring(nodeMatcher.end());
+		return document.getBytes(UTF_8);
+	}
+
+	private byte[] getFixture(String name) throws IOException {
+		byte[] content = fixtureCache.get(name);
+		if (content == null) {
+			InputStream in = MarketplaceStandInServer.class.getResourceAsStream(FIXTURE_PATH + name);
+			if (in == null) {
+				throw new IOException(name);
+			}
+			try {
+				ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				byte[] buffer = new byte[8192];
+				for (int len; (len = in.read(buffer)) != -1;) {
+					bytes.write(buffer, 0, len);
+				}
+				content = bytes.toByteArray();
+			} finally {
+				in.close();
+			}
+			fixtureCache.put(name, content);
+		}
+		return content;
+	}
+
+	private void writeResponse(OutputStream out, int status, byte[] body, String eTag, boolean keepAlive)
+			throws IOException, InterruptedException {
+		StringBuilder header = new StringBuilder();
+		header.append("HTTP/1.1 ").append(status).append(' ').append(getReason(status)).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		header.append("Content-Length: ").append(body == null ? 0 : body.length).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (body != null) {
+			header.append("Content-Type: ").append(CONTENT_TYPE).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		if (eTag != null) {
+			header.append("ETag: ").append(eTag).append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$
+		}
+		header.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+		header.append("\r\n"); //$NON-NLS-1$
+		out.write(header.toString().getBytes(ISO_8859_1));
+		if (body != null) {
+			writeBody(out, body);
+		}
+		out.flush();
+	}
+
+	private void writeBody(OutputStream out, byte[] body) throws IOException, InterruptedException {
+		int bandwidth = this.bandwidth;
+		if (bandwidth <= 0) {
+			out.write(body);
+			return;
+		}
+		long start = System.currentTimeMillis();
+		for (int offset = 0; offset < body.length; offset += BANDWIDTH_CHUNK_SIZE) {
+			int length = Math.min(BANDWIDTH_CHUNK_SIZE, body.length - offset);
+			out.write(body, offset, length);
+			out.flush();
+			long due = start + (offset + length) * 1000L / bandwidth;
+			long wait = due - System.currentTimeMillis();
+			if (wait > 0) {
+				Thread.sleep(wait);
+			}
+		}
+	}
+
+	private static String computeETag(byte[] body) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(body); //$NON-NLS-1$
+			StringBuilder eTag = new StringBuilder("\""); //$NON-NLS-1$
+			for (byte b : digest) {
+				eTag.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+			}
+			return eTag.append('"').toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String getReason(int status) {
+		switch (status) {
+		case 200:
+			return "OK"; //$NON-NLS-1$
+		case 304:
+			return "Not Modified"; //$NON-NLS-1$
+		case 404:
+			return "Not Found"; //$NON-NLS-1$
+		case 500:
+			return "Internal Server Error"; //$NON-NLS-1$
+		case 503:
+			return "Service Unavailable"; //$NON-NLS-1$
+		default:
+			return "Status " + status; //$NON-NLS-1$
+		}
+	}
+
+	private static void close(Socket connection) {
+		try {
+			connection.close();
+		} catch (IOException e) {
+			// ignore
+		}
+	}
+
+	private static class Request {
+
+		private final String method;
+
+		private final String path;
+
+		private final String version;
+
+		private final Map<String, String> headers;
+
+		private Request(String method, String path, String version, Map<String, String> headers) {
+			this.method = method;
+			this.path = path;
+			this.version = version;
+			this.headers = headers;
+		}
+
+		/**
+		 * @return the next request on the connection or null if the client closed it
+		 */
+		static Request read(InputStream in) throws IOException {
+			String requestLine = readLine(in);
+			while (requestLine != null && requestLine.length() == 0) {
+				requestLine = readLine(in);
+			}
+			if (requestLine == null) {
+				return null;
+			}
+			String[] parts = requestLine.split(" "); //$NON-NLS-1$
+			if (parts.length < 2) {
+				throw new IOException(requestLine);
+			}
+			Map<String, String> headers = new HashMap<String, String>();
+			for (String line = readLine(in); line != null && line.length() > 0; line = readLine(in)) {
+				int separator = line.indexOf(':');
+				if (separator > 0) {
+					headers.put(line.substring(0, separator).trim().toLowerCase(Locale.ENGLISH),
+							line.substring(separator + 1).trim());
+				}
+			}
+			String path = parts[1];
+			int queryStart = path.indexOf('?');
+			if (queryStart != -1) {
+				path = path.substring(0, queryStart);
+			}
+			Request request = new Request(parts[0], path, parts.length > 2 ? parts[2] : "HTTP/1.0", headers); //$NON-NLS-1$
+			request.skipBody(in);
+			return request;
+		}
+
+		private void skipBody(InputStream in) throws IOException {
+			String contentLength = getHeader("content-length"); //$NON-NLS-1$
+			if (contentLength == null || "GET".equals(method)) { //$NON-NLS-1$
+				return;
+			}
+			for (long remaining = Long.parseLong(contentLength); remaining > 0;) {
+				long skipped = in.skip(remaining);
+				if (skipped <= 0) {
+					if (in.read() == -1) {
+						return;
+					}
+					skipped = 1;
+				}
+				remaining -= skipped;
+			}
+		}
+
+		private static String readLine(InputStream in) throws IOException {
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			for (int b = in.read(); b != '\n'; b = in.read()) {
+				if (b == -1) {
+					return line.size() == 0 ? null : line.toString(ISO_8859_1);
+				}
+				if (b != '\r') {
+					line.write(b);
+				}
+			}
+			return line.toString(ISO_8859_1);
+		}
+
+		String getPath() {
+			return path;
+		}
+
+		String getHeader(String name) {
+			return headers.get(name);
+		}
+
+		boolean isKeepAlive() {
+			String connection = getHeader("connection"); //$NON-NLS-1$
+			if ("HTTP/1.0".equals(version)) { //$NON-NLS-1$
+				return "keep-alive".equalsIgnoreCase(connection); //$NON-NLS-1$
+			}
+			return !"close".equalsIgnoreCase(connection); //$NON-NLS-1$
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.epp.internal.mpc.core.service.AsyncMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.mpc.core.model.IMarket;
+import org.eclipse.epp.mpc.core.model.INews;
+import org.eclipse.epp.mpc.core.model.ISearchResult;
+import org.eclipse.epp.mpc.core.service.IMarketplaceFuture;
+import org.eclipse.epp.mpc.core.service.IMarketplaceFutureListener;
+import org.eclipse.epp.mpc.tests.server.MarketplaceStandInServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link AsyncMarketplaceService} against a local {@link MarketplaceStandInServer}.
+ *
+ * @author Carsten Reckord
+ */
+public class AsyncMarketplaceServiceTest {
+
+	private MarketplaceStandInServer server;
+
+	private ExecutorService executor;
+
+	private AsyncMarketplaceService asyncService;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MarketplaceStandInServer();
+		server.start();
+		executor = Executors.newFixedThreadPool(3);
+		asyncService = new AsyncMarketplaceService(new DefaultMarketplaceService(server.getBaseUrl()), executor);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		server.setLatency(500);
+		long start = System.currentTimeMillis();
+		IMarketplaceFuture<ISearchResult> featured = asyncService.featured();
+		IMarketplaceFuture<INews> news = asyncService.news();
+		IMarketplaceFuture<List<? extends IMarket>> markets = asyncService.listMarkets();
+
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		assertEquals(6, featured.getResult(monitor).getNodes().size());
+		assertNotNull(news.getResult(monitor));
+		assertFalse(markets.getResult(monitor).isEmpty());
+		// sequential loading would take at least 1500ms
+		assertTrue(System.currentTimeMillis() - start < 1200);
+		assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		server.failNextRequests(1, 503);
+		IMarketplaceFuture<ISearchResult> featured = asyncService.featured();
+		try {
+			featured.getResult(new NullProgressMonitor());
+			fail("Expected CoreException");
+		} catch (CoreException e) {
+			// expected
+		}
+		assertTrue(featured.isDone());
+	}
+
+	@Test
+	public void testCancelAbortsRequest() throws Exception {
+		ExecutorService singleExecutor = Executors.newSingleThreadExecutor();
+		try {
+			asyncService = new AsyncMarketplaceService(asyncService.getMarketplaceService(), singleExecutor);
+			server.setLatency(10000);
+			IMarketplaceFuture<ISearchResult> featured = asyncService.featured();
+			Thread.sleep(200);
+			assertTrue(featured.cancel(true));
+			try {
+				featured.getResult(new NullProgressMonitor());
+				fail("Expected OperationCanceledException");
+			} catch (OperationCanceledException e) {
+				// expected
+			}
+
+			// the only worker thread must be available again without waiting for the server
+			server.setLatency(0);
+			long start = System.currentTimeMillis();
+			assertNotNull(asyncService.recent().getResult(new NullProgressMonitor()));
+			assertTrue(System.currentTimeMillis() - start < 2000);
+		} finally {
+			singleExecutor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testMonitorCancelsFuture() throws Exception {
+		server.setLatency(10000);
+		IMarketplaceFuture<ISearchResult> featured = asyncService.featured();
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			featured.getResult(monitor);
+			fail("Expected OperationCanceledException");
+		} catch (OperationCanceledException e) {
+			// expected
+		}
+		assertTrue(featured.isCancelled());
+	}
+
+	@Test
+	public void testListener() throws Exception {
+		final CountDownLatch latch = new CountDownLatch(2);
+		IMarketplaceFutureListener<ISearchResult> listener = new IMarketplaceFutureListener<ISearchResult>() {
+			public void done(IMarketplaceFuture<ISearchResult> future) {
+				latch.countDown();
+			}
+		};
+		IMarketplaceFuture<ISearchResult> featured = asyncService.featured();
+		featured.addListener(listener);
+		featured.getResult(new NullProgressMonitor());
+		// listeners added after completion are notified immediately
+		featured.addListener(listener);
+		assertTrue(latch.await(5, TimeUnit.SECONDS));
+	}
+}
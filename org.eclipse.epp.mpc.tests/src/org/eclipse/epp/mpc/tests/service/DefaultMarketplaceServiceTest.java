@@ -14,6 +14,7 @@ package org.eclipse.epp.mpc.tests.service;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -21,16 +22,19 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 import org.eclipse.epp.internal.mpc.core.service.Category;
 import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
 import org.eclipse.epp.internal.mpc.core.service.Market;
+import org.eclipse.epp.internal.mpc.core.service.Node;
 import org.eclipse.epp.internal.mpc.core.service.RemoteMarketplaceService;
 import org.eclipse.epp.mpc.core.model.ICategory;
 import org.eclipse.epp.mpc.core.model.IMarket;
 import org.eclipse.epp.mpc.core.model.INode;
 import org.eclipse.epp.mpc.core.model.ISearchResult;
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -180,6 +184,17 @@ public class DefaultMarketplaceServiceTest {
 				searchUrl);
 		searchUrl = service.computeRelativeSearchUrl(market, category, null, false);
 		assertEquals(DefaultMarketplaceService.API_TAXONOMY_URI + "38,31", searchUrl);
+
+		// first page is the same as the unpaged url
+		searchUrl = service.computeRelativeSearchUrl(market, category, query, 0, true);
+		assertEquals(apiSearchPrefix + "some+query?filters=tid:31%20tid:38", searchUrl);
+		searchUrl = service.computeRelativeSearchUrl(null, null, query, 2, true);
+		assertEquals(apiSearchPrefix + "some+query?page=2", searchUrl);
+		searchUrl = service.computeRelativeSearchUrl(market, category, query, 2, true);
+		assertEquals(apiSearchPrefix + "some+query?page=2&filters=tid:31%20tid:38", searchUrl);
+		searchUrl = service.computeRelativeSearchUrl(market, category, null, 2, true);
+		assertEquals(DefaultMarketplaceService.API_TAXONOMY_URI + "38,31/" + RemoteMarketplaceService.API_URI_SUFFIX
+				+ "?page=2", searchUrl);
 	}
 
 	@Test
@@ -217,6 +232,23 @@ public class DefaultMarketplaceServiceTest {
 		assertEquals("1065", node.getId());
 	}
 
+	@Test
+	public void getNodes() throws CoreException {
+		List<Node> nodes = new ArrayList<Node>();
+		for (String id : new String[] { "1065", "1139", "999999999" }) {
+			Node node = new Node();
+			node.setId(id);
+			nodes.add(node);
+		}
+		INodeQueryResult result = marketplaceService.getNodes(nodes, new NullProgressMonitor());
+		assertNotNull(result);
+		assertEquals(2, result.getNodes().size());
+		assertEquals("1065", result.getNodes().get(0).getId());
+		assertEquals("1139", result.getNodes().get(1).getId());
+		assertEquals(IStatus.ERROR, result.getStatus().getSeverity());
+		assertEquals(1, result.getStatus().getChildren().length);
+	}
+
 	@Test
 	public void featured() throws CoreException {
 		ISearchResult result = marketplaceService.featured(new NullProgressMonitor());
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+
+import org.eclipse.epp.internal.mpc.core.service.ResponseCache;
+import org.eclipse.epp.internal.mpc.core.service.ResponseCache.Entry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResponseCacheTest {
+
+	private File cacheDir;
+
+	private ResponseCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		cacheDir = File.createTempFile("mpc-response-cache", "");
+		cacheDir.delete();
+		cacheDir.mkdirs();
+		cache = new ResponseCache(cacheDir);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (cacheDir != null) {
+			delete(cacheDir);
+		}
+	}
+
+	@Test
+	public void testPutAndGet() throws Exception {
+		URI uri = new URI("http://marketplace.eclipse.org/featured/api/p?client=test");
+		cache.put(uri, "<marketplace/>".getBytes("UTF-8"), 60000);
+		Entry entry = cache.get(uri);
+		assertNotNull(entry);
+		assertTrue(entry.isFresh(System.currentTimeMillis()));
+		assertEquals("<marketplace/>", read(entry));
+	}
+
+	@Test
+	public void testKeyIncludesQuery() throws Exception {
+		URI uri = new URI("http://marketplace.eclipse.org/featured/api/p?client=test");
+		cache.put(uri, "<marketplace/>".getBytes("UTF-8"), 60000);
+		assertNull(cache.get(new URI("http://marketplace.eclipse.org/featured/api/p?client=other")));
+	}
+
+	@Test
+	public void testPersistent() throws Exception {
+		URI uri = new URI("http://marketplace.eclipse.org/node/1234/api/p");
+		cache.put(uri, "<marketplace/>".getBytes("UTF-8"), 60000);
+		ResponseCache reloaded = new ResponseCache(cacheDir);
+		Entry entry = reloaded.get(uri);
+		assertNotNull(entry);
+		assertEquals("<marketplace/>", read(entry));
+	}
+
+	@Test
+	public void testStaleWhileRevalidate() throws Exception {
+		URI uri = new URI("http://marketplace.eclipse.org/news/api/p");
+		cache.setStaleWhileRevalidate(60000);
+		cache.put(uri, "<marketplace/>".getBytes("UTF-8"), -1000);
+		Entry entry = cache.get(uri);
+		assertNotNull(entry);
+		assertFalse(entry.isFresh(System.currentTimeMillis()));
+
+		cache.setStaleWhileRevalidate(0);
+		assertNull(cache.get(uri));
+	}
+
+	@Test
+	public void testRevalidate() throws Exception {
+		URI uri = new URI("http://marketplace.eclipse.org/featured/api/p");
+		cache.setStaleWhileRevalidate(0);
+		cache.put(uri, "<marketplace/>".getBytes("UTF-8"), -1000, "\"abc\"", null);
+		Entry entry = cache.get(uri);
+		assertNotNull(entry);
+		assertFalse(cache.isServable(entry, System.currentTimeMillis()));
+		assertTrue(entry.hasValidators());
+
+		Object model = new Object();
+		entry.setModel(model);
+		Entry revalidated = cache.revalidate(uri, 60000);
+		assertTrue(revalidated.isFresh(System.currentTimeMillis()));
+		assertSame(model, revalidated.getModel());
+		assertEquals("<marketplace/>", read(revalidated));
+
+		revalidated = new ResponseCache(cacheDir).get(uri);
+		assertEquals("\"abc\"", revalidated.getETag());
+		assertTrue(revalidated.isFresh(System.currentTimeMillis()));
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		cache.setMaxSize(25);
+		URI first = new URI("http://marketplace.eclipse.org/node/1/api/p");
+		URI second = new URI("http://marketplace.eclipse.org/node/2/api/p");
+		URI third = new URI("http://marketplace.eclipse.org/node/3/api/p");
+		cache.put(first, new byte[10], 60000);
+		cache.put(second, new byte[10], 60000);
+		cache.get(first);
+		cache.put(third, new byte[10], 60000);
+
+		assertNotNull(cache.get(first));
+		assertNull(cache.get(second));
+		assertNotNull(cache.get(third));
+		assertEquals(20, cache.getCurrentSize());
+	}
+
+	private static String read(Entry entry) throws IOException {
+		InputStream in = entry.open();
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for (int b; (b = in.read()) != -1;) {
+				out.write(b);
+			}
+			return out.toString("UTF-8");
+		} finally {
+			in.close();
+		}
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+		if (children != null) {
+			for (File child : children) {
+				delete(child);
+			}
+		}
+		file.delete();
+	}
+}
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service;
+
+import static org.junit.Assert.*;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.CachingMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeStream;
+import org.eclipse.epp.internal.mpc.core.util.HttpClientTransportFactory;
+import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.epp.mpc.core.model.ISearchResult;
+import org.eclipse.epp.mpc.core.service.IConditionalTransport;
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
+import org.eclipse.epp.mpc.tests.server.MarketplaceStandInServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the marketplace service against a local {@link MarketplaceStandInServer}, so they run offline and don't
+ * depend on the current content of marketplace.eclipse.org.
+ *
+ * @author Carsten Reckord
+ */
+public class StandInMarketplaceServiceTest {
+
+	private MarketplaceStandInServer server;
+
+	private DefaultMarketplaceService marketplaceService;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new MarketplaceStandInServer();
+		server.start();
+		marketplaceService = new DefaultMarketplaceService(server.getBaseUrl());
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testListings() throws CoreException {
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		assertFalse(marketplaceService.listMarkets(monitor).isEmpty());
+		assertEquals(6, marketplaceService.featured(monitor).getNodes().size());
+		assertEquals(6, marketplaceService.recent(monitor).getNodes().size());
+		assertEquals(10, marketplaceService.popular(monitor).getNodes().size());
+		assertEquals(6, marketplaceService.favorites(monitor).getNodes().size());
+		assertNotNull(marketplaceService.news(monitor));
+
+		ISearchResult searchResult = marketplaceService.search(null, null, "mylyn", monitor);
+		assertEquals(7, searchResult.getNodes().size());
+		assertEquals(7, server.getRequestCount());
+	}
+
+	@Test
+	public void testGetNode() throws CoreException {
+		INode node = marketplaceService.getNode(createNode("1234"), new NullProgressMonitor());
+		assertEquals("1234", node.getId());
+		assertEquals("Mylyn WikiText - Lightweight Markup Editing, Tools and Framework", node.getName());
+		assertEquals(1, server.getRequestCount("/node/1234/"));
+	}
+
+	@Test
+	public void testGetNodesBatched() throws CoreException {
+		List<INode> nodes = new ArrayList<INode>();
+		for (int i = 0; i < 5; i++) {
+			nodes.add(createNode(String.valueOf(1000 + i)));
+		}
+		INodeQueryResult result = marketplaceService.getNodes(nodes, new NullProgressMonitor());
+		assertTrue(result.getStatus().isOK());
+		assertEquals(5, result.getNodes().size());
+		assertEquals(1, server.getRequestCount("/node/"));
+	}
+
+	@Test
+	public void testConcurrentRequestsCoalesced() throws Exception {
+		server.setLatency(200);
+		final CachingMarketplaceService cachingService = new CachingMarketplaceService(marketplaceService);
+		final INode[] results = new INode[4];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						results[index] = cachingService.getNode(createNode("1065"), new NullProgressMonitor());
+					} catch (CoreException e) {
+						//result stays null
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+		for (INode result : results) {
+			assertNotNull(result);
+		}
+		assertEquals(1, server.getRequestCount("/node/1065/"));
+	}
+
+	@Test
+	public void testSearchPagesCachedIndependently() throws CoreException {
+		CachingMarketplaceService cachingService = new CachingMarketplaceService(marketplaceService);
+		ISearchResult firstPage = cachingService.search(null, null, "test", new NullProgressMonitor());
+		ISearchResult secondPage = cachingService.search(null, null, "test", 1, new NullProgressMonitor());
+		assertEquals(2, server.getRequestCount("/api/p/search/"));
+		assertNotNull(firstPage.getMatchCount());
+		assertFalse(secondPage.getNodes().isEmpty());
+
+		assertSame(firstPage, cachingService.search(null, null, "test", 0, new NullProgressMonitor()));
+		assertSame(secondPage, cachingService.search(null, null, "test", 1, new NullProgressMonitor()));
+		assertEquals(2, server.getRequestCount("/api/p/search/"));
+	}
+
+	@Test
+	public void testServiceUnavailable() throws CoreException {
+		server.failNextRequests(1, 503);
+		try {
+			marketplaceService.featured(new NullProgressMonitor());
+			fail("Expected CoreException");
+		} catch (CoreException e) {
+			// expected
+		}
+		assertNotNull(marketplaceService.featured(new NullProgressMonitor()));
+	}
+
+	@Test
+	public void testConditionalRequestAndKeepAlive() throws Exception {
+		HttpClientTransportFactory factory = new HttpClientTransportFactory();
+		try {
+			IConditionalTransport transport = (IConditionalTransport) factory.getTransport();
+			URI uri = new URI(server.getBaseUrl() + "/featured/api/p");
+			ITransportResponse response = transport.stream(uri, null, null, new NullProgressMonitor());
+			assertEquals(ITransportResponse.STATUS_OK, response.getStatusCode());
+			assertNotNull(response.getETag());
+			consume(response.getContent());
+
+			response = transport.stream(uri, response.getETag(), null, new NullProgressMonitor());
+			assertEquals(ITransportResponse.STATUS_NOT_MODIFIED, response.getStatusCode());
+			assertEquals(1, server.getNotModifiedCount());
+			assertEquals(1, server.getConnectionCount());
+		} finally {
+			factory.shutdown();
+		}
+	}
+
+	@Test
+	public void testBandwidth() throws Exception {
+		server.setBandwidth(50 * 1024);
+		long start = System.currentTimeMillis();
+		marketplaceService.featured(new NullProgressMonitor());
+		// the featured fixture is about 15K, so it should take about 300ms
+		assertTrue(System.currentTimeMillis() - start >= 200);
+	}
+
+	@Test
+	public void testNodesStreamedWhileParsing() throws Exception {
+		// the featured fixture is about 15K, so reading it takes about 750ms
+		server.setBandwidth(20 * 1024);
+		final List<INode> streamedNodes = new ArrayList<INode>();
+		final long[] firstNodeTime = new long[1];
+		NodeStream stream = new NodeStream(new NodeStream.Listener() {
+			public void nodeParsed(INode node) {
+				if (streamedNodes.isEmpty()) {
+					firstNodeTime[0] = System.currentTimeMillis();
+				}
+				streamedNodes.add(node);
+			}
+		});
+		ISearchResult result;
+		NodeStream previous = stream.enter();
+		try {
+			result = marketplaceService.featured(new NullProgressMonitor());
+		} finally {
+			stream.exit(previous);
+		}
+		long endTime = System.currentTimeMillis();
+		assertEquals(result.getNodes(), streamedNodes);
+		assertTrue(endTime - firstNodeTime[0] >= 200);
+		assertNull(NodeStream.current());
+	}
+
+	private static Node createNode(String id) {
+		Node node = new Node();
+		node.setId(id);
+		return node;
+	}
+
+	private static void consume(InputStream in) throws Exception {
+		try {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) != -1) {
+				// skip
+			}
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,187 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.service.xml;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.service.Marketplace;
+import org.eclipse.epp.internal.mpc.core.service.MarketplaceUnmarshaller;
+import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.PooledMarketplaceUnmarshaller;
+import org.eclipse.epp.mpc.core.service.UnmarshalException;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PooledMarketplaceUnmarshallerTest {
+
+	private PooledMarketplaceUnmarshaller unmarshaller;
+
+	@Before
+	public void before() {
+		unmarshaller = new PooledMarketplaceUnmarshaller();
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		for (int i = 0; i < 3; i++) {
+			Marketplace marketplace = process("resources/search.xml");
+			assertNotNull(marketplace.getSearch());
+			assertEquals(Integer.valueOf(62), marketplace.getSearch().getCount());
+			assertEquals(7, marketplace.getSearch().getNode().size());
+
+			marketplace = process("resources/node.xml");
+			assertNull(marketplace.getSearch());
+			assertEquals(1, marketplace.getNode().size());
+		}
+	}
+
+	@Test
+	public void testSameResultAsMarketplaceUnmarshaller() throws Exception {
+		MarketplaceUnmarshaller plainUnmarshaller = new MarketplaceUnmarshaller();
+		InputStream in = PooledMarketplaceUnmarshallerTest.class.getResourceAsStream("resources/search.xml");
+		Marketplace expected;
+		try {
+			expected = plainUnmarshaller.unmarshal(in, Marketplace.class, new NullProgressMonitor());
+		} finally {
+			in.close();
+		}
+		// the second parse reuses the pooled parser of the first one
+		for (int i = 0; i < 2; i++) {
+			Marketplace marketplace = process("resources/search.xml");
+			assertEquals(expected.getSearch().getCount(), marketplace.getSearch().getCount());
+			List<Node> expectedNodes = expected.getSearch().getNode();
+			List<Node> nodes = marketplace.getSearch().getNode();
+			assertEquals(expectedNodes.size(), nodes.size());
+			for (int j = 0; j < expectedNodes.size(); j++) {
+				assertEquals(expectedNodes.get(j).getId(), nodes.get(j).getId());
+				assertEquals(expectedNodes.get(j).getName(), nodes.get(j).getName());
+				assertEquals(expectedNodes.get(j).getUpdateurl(), nodes.get(j).getUpdateurl());
+				assertEquals(expectedNodes.get(j).getUrl(), nodes.get(j).getUrl());
+			}
+		}
+	}
+
+	@Test
+	public void testLargeResult() throws Exception {
+		byte[] document = createSearchResult(500);
+		for (int i = 0; i < 3; i++) {
+			Marketplace marketplace = unmarshaller.unmarshal(new ByteArrayInputStream(document), Marketplace.class,
+					new NullProgressMonitor());
+			List<Node> nodes = marketplace.getSearch().getNode();
+			assertEquals(500, nodes.size());
+			for (int j = 0; j < nodes.size(); j++) {
+				assertEquals(String.valueOf(j), nodes.get(j).getId());
+			}
+		}
+	}
+
+	@Test
+	public void testReuseAfterError() throws Exception {
+		try {
+			unmarshaller.unmarshal(new ByteArrayInputStream("<marketplace><node id='1'>".getBytes("UTF-8")),
+					Marketplace.class, new NullProgressMonitor());
+			fail("Expected UnmarshalException");
+		} catch (UnmarshalException e) {
+			// expected
+		}
+		Marketplace marketplace = process("resources/search.xml");
+		assertEquals(7, marketplace.getSearch().getNode().size());
+	}
+
+	@Test
+	public void testEncodingFromDeclaration() throws Exception {
+		String xml = "<?xml version='1.0' encoding='ISO-8859-1'?><marketplace><node id='1' name='Müller'/></marketplace>";
+		Marketplace marketplace = unmarshaller.unmarshal(new ByteArrayInputStream(xml.getBytes("ISO-8859-1")),
+				Marketplace.class, new NullProgressMonitor());
+		assertEquals("Müller", marketplace.getNode().get(0).getName());
+	}
+
+	@Test
+	public void testDefaultEncoding() throws Exception {
+		String xml = "<marketplace><node id='1' name='Müller'/></marketplace>";
+		Marketplace marketplace = unmarshaller.unmarshal(new ByteArrayInputStream(xml.getBytes("UTF-8")),
+				Marketplace.class, new NullProgressMonitor());
+		assertEquals("Müller", marketplace.getNode().get(0).getName());
+	}
+
+	@Test
+	public void testConcurrentUse() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Marketplace>> results = new ArrayList<Future<Marketplace>>();
+			for (int i = 0; i < 20; i++) {
+				results.add(executor.submit(new Callable<Marketplace>() {
+					public Marketplace call() throws Exception {
+						return process("resources/search.xml");
+					}
+				}));
+			}
+			for (Future<Marketplace> result : results) {
+				assertEquals(7, result.get().getSearch().getNode().size());
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Create a search result by repeating the first node of the search.xml test resource
+	 */
+	private static byte[] createSearchResult(int nodeCount) throws IOException {
+		InputStream in = PooledMarketplaceUnmarshallerTest.class.getResourceAsStream("resources/search.xml");
+		String template;
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			for (int len; (len = in.read(buffer)) != -1;) {
+				out.write(buffer, 0, len);
+			}
+			template = out.toString("UTF-8");
+		} finally {
+			in.close();
+		}
+		int nodeStart = template.indexOf("<node ");
+		int nodeEnd = template.indexOf("</node>", nodeStart) + "</node>".length();
+		String node = template.substring(nodeStart, nodeEnd);
+		int searchEnd = template.indexOf("</search>");
+
+		StringBuilder document = new StringBuilder(template.substring(0, nodeStart));
+		for (int i = 0; i < nodeCount; i++) {
+			document.append(node.replaceFirst("id=\"\\d+\"", "id=\"" + i + "\"")).append('\n');
+		}
+		document.append(template.substring(searchEnd));
+		return document.toString().getBytes("UTF-8");
+	}
+
+	private Marketplace process(String resource) throws IOException, UnmarshalException {
+		InputStream in = PooledMarketplaceUnmarshallerTest.class.getResourceAsStream(resource);
+		if (in == null) {
+			throw new IllegalStateException(resource);
+		}
+		try {
+			return unmarshaller.unmarshal(in, Marketplace.class, new NullProgressMonitor());
+		} finally {
+			in.close();
+		}
+	}
+}
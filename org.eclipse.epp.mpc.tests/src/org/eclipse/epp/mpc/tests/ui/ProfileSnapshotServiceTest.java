@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.ui;
+
+import static org.junit.Assert.*;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+import org.eclipse.epp.internal.mpc.ui.ProfileSnapshot;
+import org.eclipse.epp.internal.mpc.ui.ProfileSnapshotService;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.engine.IProfile;
+import org.eclipse.equinox.p2.engine.IProfileRegistry;
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
+
+/**
+ * @author Carsten Reckord
+ */
+public class ProfileSnapshotServiceTest {
+
+	// the running profile, see IProfileRegistry.SELF
+	private static final String SELF_PROFILE = "_SELF_";
+
+	private ServiceReference<IProvisioningAgent> agentReference;
+
+	private IProvisioningAgent agent;
+
+	private ProfileSnapshotService service;
+
+	@Before
+	public void setUp() {
+		BundleContext context = MarketplaceClientUi.getBundleContext();
+		agentReference = context.getServiceReference(IProvisioningAgent.class);
+		Assume.assumeNotNull(agentReference);
+		agent = context.getService(agentReference);
+		service = new ProfileSnapshotService(agent, SELF_PROFILE);
+	}
+
+	@After
+	public void tearDown() {
+		if (service != null) {
+			MarketplaceClientUi.getBundleContext().ungetService(agentReference);
+		}
+	}
+
+	@Test
+	public void testSnapshotShared() {
+		ProfileSnapshot snapshot = service.getSnapshot(new NullProgressMonitor());
+		int queryCount = service.getQueryCount();
+		assertTrue(queryCount <= 1);
+
+		assertSame(snapshot, service.getSnapshot(new NullProgressMonitor()));
+		assertSame(snapshot, service.getSnapshot(new NullProgressMonitor()));
+		assertEquals(queryCount, service.getQueryCount());
+		assertEquals(2, service.getAvoidedQueryCount());
+	}
+
+	@Test
+	public void testSnapshotMatchesProfileTimestamp() {
+		ProfileSnapshot snapshot = service.getSnapshot(new NullProgressMonitor());
+		IProfileRegistry profileRegistry = (IProfileRegistry) agent.getService(IProfileRegistry.SERVICE_NAME);
+		IProfile profile = profileRegistry.getProfile(SELF_PROFILE);
+		assertEquals(profile == null ? ProfileSnapshot.NO_PROFILE : profile.getTimestamp(), snapshot.getTimestamp());
+	}
+}
@@ -13,11 +13,16 @@ package org.eclipse.epp.mpc.tests.ui.catalog;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
+import java.io.RandomAccessFile;
 import java.net.URI;
 import java.net.URL;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.epp.internal.mpc.core.service.Ius;
@@ -25,6 +30,10 @@ import org.eclipse.epp.internal.mpc.core.service.Node;
 import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceInfo;
 import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceNodeCatalogItem;
 import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.Version;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -42,6 +51,8 @@ public class MarketplaceInfoTest {
 
 	private MarketplaceInfo catalogRegistry;
 
+	private Map<String, IInstallableUnit> installedIUs;
+
 	@Before
 	public void before() throws Exception {
 		catalogRegistry = new MarketplaceInfo();
@@ -57,6 +68,10 @@ public class MarketplaceInfoTest {
 		node.getIus().getIu().add("com.example.test.a2");
 		item.setData(node);
 		item.setInstallableUnits(node.getIus().getIu());
+
+		installedIUs = new HashMap<String, IInstallableUnit>();
+		addInstalledIU("com.example.test.a1.feature.group", "1.0.0");
+		addInstalledIU("com.example.test.a2.feature.group", "1.0.0");
 	}
 
 	@Test
@@ -137,6 +152,171 @@ public class MarketplaceInfoTest {
 		assertTrue(isInstalled);
 	}
 
+	@Test
+	public void computeInstalledFeatureGroup() {
+		catalogRegistry.map(item.getMarketplaceUrl(), item.getData());
+
+		Set<String> installedIus = new HashSet<String>();
+		installedIus.add(item.getInstallableUnits().get(0) + ".feature.group");
+		Set<? extends INode> installedNodes = catalogRegistry.computeInstalledNodes(item.getMarketplaceUrl(),
+				installedIus);
+		assertEquals(1, installedNodes.size());
+		assertEquals(item.getId(), installedNodes.iterator().next().getId());
+	}
+
+	@Test
+	public void remapCatalogNode() throws Exception {
+		catalogRegistry.map(item.getMarketplaceUrl(), item.getData());
+		Node node = (Node) item.getData();
+		node.setIus(new Ius());
+		node.getIus().getIu().add("com.example.test.b1");
+		catalogRegistry.map(item.getMarketplaceUrl(), node);
+
+		assertNull(catalogRegistry.getIuToNodeKey().get("com.example.test.a1"));
+		assertEquals(1, catalogRegistry.getIuToNodeKey().get("com.example.test.b1").size());
+
+		node.setIus(null);
+		catalogRegistry.map(item.getMarketplaceUrl(), node);
+		assertTrue(catalogRegistry.getNodeKeyToIU().isEmpty());
+		assertTrue(catalogRegistry.getIuToNodeKey().isEmpty());
+	}
+
+	@Test
+	public void saveAndLoad() throws Exception {
+		File journal = File.createTempFile("marketplaceinfo", ".journal");
+		try {
+			journal.delete();
+			catalogRegistry.map(item.getMarketplaceUrl(), item.getData());
+			catalogRegistry.save(journal);
+			long size = journal.length();
+			assertTrue(size > 0);
+
+			// nothing changed, so nothing is written
+			catalogRegistry.map(item.getMarketplaceUrl(), item.getData());
+			catalogRegistry.save(journal);
+			assertEquals(size, journal.length());
+
+			Node otherNode = new Node();
+			otherNode.setId("456");
+			otherNode.setIus(new Ius());
+			otherNode.getIus().getIu().add("com.example.test.b1");
+			catalogRegistry.map(new URL("http://marketplace.example.org"), otherNode);
+			catalogRegistry.save(journal);
+			assertTrue(journal.length() > size);
+
+			MarketplaceInfo loaded = MarketplaceInfo.load(journal);
+			assertEquals(catalogRegistry.getNodeKeyToIU(), loaded.getNodeKeyToIU());
+			Set<String> installedIus = Collections.singleton("com.example.test.a1");
+			assertEquals(1, loaded.computeInstalledNodes(item.getMarketplaceUrl(), installedIus).size());
+			assertEquals(0, loaded.computeInstalledNodes(new URL("http://marketplace.example.org"), installedIus)
+					.size());
+
+			// removals are persisted too
+			otherNode.setIus(null);
+			loaded.map(new URL("http://marketplace.example.org"), otherNode);
+			loaded.save(journal);
+			assertEquals(1, MarketplaceInfo.load(journal).getNodeKeyToIU().size());
+		} finally {
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void loadTruncatedJournal() throws Exception {
+		File journal = File.createTempFile("marketplaceinfo", ".journal");
+		try {
+			journal.delete();
+			catalogRegistry.map(item.getMarketplaceUrl(), item.getData());
+			catalogRegistry.save(journal);
+			long size = journal.length();
+
+			Node otherNode = new Node();
+			otherNode.setId("456");
+			otherNode.setIus(new Ius());
+			otherNode.getIus().getIu().add("com.example.test.b1");
+			catalogRegistry.map(item.getMarketplaceUrl(), otherNode);
+			catalogRegistry.save(journal);
+
+			// simulate an interrupted write of the second block
+			RandomAccessFile file = new RandomAccessFile(journal, "rw");
+			try {
+				file.setLength(journal.length() - 3);
+			} finally {
+				file.close();
+			}
+			MarketplaceInfo loaded = MarketplaceInfo.load(journal);
+			assertEquals(1, loaded.getNodeKeyToIU().size());
+			// the damaged block has been dropped from the journal
+			assertEquals(size, journal.length());
+		} finally {
+			journal.delete();
+		}
+	}
+
+	@Test
+	public void knownUpToDate() throws Exception {
+		Node node = (Node) item.getData();
+		node.setVersion("1.0");
+		node.setChanged(new Date(1000));
+		assertFalse(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+
+		catalogRegistry.mapUpToDate(item.getMarketplaceUrl(), node, installedIUs);
+		assertTrue(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+		assertFalse(catalogRegistry.isKnownUpToDate(new URL("http://marketplace.example.org"), node, installedIUs));
+
+		node.setChanged(new Date(2000));
+		assertFalse(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+		node.setChanged(new Date(1000));
+		node.setVersion("1.1");
+		assertFalse(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+	}
+
+	@Test
+	public void knownUpToDateWithChangedInstall() throws Exception {
+		Node node = (Node) item.getData();
+		node.setVersion("1.0");
+		node.setChanged(new Date(1000));
+		catalogRegistry.mapUpToDate(item.getMarketplaceUrl(), node, installedIUs);
+		assertTrue(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+
+		// rolled back to an older version of one of the features, which might have an update now
+		addInstalledIU("com.example.test.a2.feature.group", "0.9.0");
+		assertFalse(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+
+		installedIUs.remove("com.example.test.a2.feature.group");
+		assertFalse(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+
+		addInstalledIU("com.example.test.a2.feature.group", "1.0.0");
+		assertTrue(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+	}
+
+	@Test
+	public void knownUpToDateWithoutListingStamp() {
+		catalogRegistry.mapUpToDate(item.getMarketplaceUrl(), item.getData(), installedIUs);
+		assertFalse(catalogRegistry.isKnownUpToDate(item.getMarketplaceUrl(), item.getData(), installedIUs));
+	}
+
+	@Test
+	public void saveAndLoadUpToDate() throws Exception {
+		File journal = File.createTempFile("marketplaceinfo", ".journal");
+		try {
+			journal.delete();
+			Node node = (Node) item.getData();
+			node.setVersion("1.0");
+			node.setChanged(new Date(1000));
+			catalogRegistry.map(item.getMarketplaceUrl(), node);
+			catalogRegistry.mapUpToDate(item.getMarketplaceUrl(), node, installedIUs);
+			catalogRegistry.save(journal);
+
+			MarketplaceInfo loaded = MarketplaceInfo.load(journal);
+			assertTrue(loaded.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+			node.setVersion("1.1");
+			assertFalse(loaded.isKnownUpToDate(item.getMarketplaceUrl(), node, installedIUs));
+		} finally {
+			journal.delete();
+		}
+	}
+
 	@Test
 	@SuppressWarnings("deprecation")
 	public void computeInstalledLegacy() throws Exception {
@@ -163,4 +343,11 @@ public class MarketplaceInfoTest {
 		isInstalled = catalogRegistry.computeInstalled(installedIus, Collections.singleton(updateUri), node);
 		assertFalse(isInstalled);
 	}
+
+	private void addInstalledIU(String id, String version) {
+		InstallableUnitDescription description = new InstallableUnitDescription();
+		description.setId(id);
+		description.setVersion(Version.create(version));
+		installedIUs.put(id, MetadataFactory.createInstallableUnit(description));
+	}
 }
@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.ui.catalog;
+
+import static org.junit.Assert.*;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.ui.catalog.RepositoryVersionCache;
+import org.eclipse.epp.internal.mpc.ui.catalog.RepositoryVersions;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Carsten Reckord
+ */
+public class RepositoryVersionCacheTest {
+
+	private static final URI SITE = URI.create("http://example.org/updates"); //$NON-NLS-1$
+
+	private final AtomicInteger loadCount = new AtomicInteger();
+
+	private CountDownLatch loadStarted;
+
+	private CountDownLatch releaseLoad;
+
+	private RepositoryVersionCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new RepositoryVersionCache(null) {
+			@Override
+			protected RepositoryVersions load(URI location, IProgressMonitor monitor) throws CoreException {
+				loadCount.incrementAndGet();
+				if (loadStarted != null) {
+					loadStarted.countDown();
+					try {
+						releaseLoad.await(5, TimeUnit.SECONDS);
+					} catch (InterruptedException e) {
+						fail();
+					}
+				}
+				return RepositoryVersions.create(location, "1", //$NON-NLS-1$
+						Collections.<IInstallableUnit> emptyList());
+			}
+		};
+	}
+
+	@Test
+	public void testHighestVersion() {
+		RepositoryVersions versions = RepositoryVersions.create(SITE, "1", Arrays.asList( //$NON-NLS-1$
+				createIU("a.feature.group", "1.0.0"), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("a.feature.group", "1.2.0"), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("a.feature.group", "1.1.0"), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("b.feature.group", "2.0.0"))); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Version.create("1.2.0"), versions.getVersion("a.feature.group")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Version.create("2.0.0"), versions.getVersion("b.feature.group")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertTrue(versions.containsAll(Arrays.asList("a.feature.group", //$NON-NLS-1$
+				"b.feature.group"))); //$NON-NLS-1$
+		assertFalse(versions.containsAll(Arrays.asList("a.feature.group", //$NON-NLS-1$
+				"c.feature.group"))); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testVersionsReused() throws Exception {
+		RepositoryVersions versions = cache.getVersions(SITE, new NullProgressMonitor());
+		assertSame(versions, cache.getVersions(SITE, new NullProgressMonitor()));
+		assertEquals(1, loadCount.get());
+		assertEquals(1, cache.getStats().getHitCount());
+	}
+
+	@Test
+	public void testInvalidate() throws Exception {
+		cache.getVersions(SITE, new NullProgressMonitor());
+		cache.invalidate(SITE);
+		cache.getVersions(SITE, new NullProgressMonitor());
+		assertEquals(2, loadCount.get());
+	}
+
+	@Test
+	public void testExpiry() throws Exception {
+		cache.setTimeToLive(10);
+		cache.getVersions(SITE, new NullProgressMonitor());
+		Thread.sleep(50);
+		cache.getVersions(SITE, new NullProgressMonitor());
+		assertEquals(2, loadCount.get());
+	}
+
+	@Test
+	public void testConcurrentRequestsShareLoad() throws Exception {
+		loadStarted = new CountDownLatch(1);
+		releaseLoad = new CountDownLatch(1);
+		final RepositoryVersions[] results = new RepositoryVersions[2];
+		Thread first = new Thread() {
+			@Override
+			public void run() {
+				try {
+					results[0] = cache.getVersions(SITE, new NullProgressMonitor());
+				} catch (CoreException e) {
+					// results stays empty
+				}
+			}
+		};
+		first.start();
+		assertTrue(loadStarted.await(5, TimeUnit.SECONDS));
+		Thread second = new Thread() {
+			@Override
+			public void run() {
+				try {
+					results[1] = cache.getVersions(SITE, new NullProgressMonitor());
+				} catch (CoreException e) {
+					// results stays empty
+				}
+			}
+		};
+		second.start();
+		Thread.sleep(50);
+		releaseLoad.countDown();
+		first.join(5000);
+		second.join(5000);
+
+		assertNotNull(results[0]);
+		assertSame(results[0], results[1]);
+		assertEquals(1, loadCount.get());
+	}
+
+	private static IInstallableUnit createIU(String id, String version) {
+		InstallableUnitDescription description = new InstallableUnitDescription();
+		description.setId(id);
+		description.setVersion(Version.create(version));
+		return MetadataFactory.createInstallableUnit(description);
+	}
+}
@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.ui.catalog;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.eclipse.epp.internal.mpc.ui.catalog.ResourceCache;
+import org.eclipse.epp.internal.mpc.ui.catalog.ResourceCache.Entry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ResourceCacheTest {
+
+	private File cacheDir;
+
+	private ResourceCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		cacheDir = File.createTempFile("mpc-resource-cache", "");
+		cacheDir.delete();
+		cacheDir.mkdirs();
+		cache = new ResourceCache(cacheDir);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (cacheDir != null) {
+			File[] files = cacheDir.listFiles();
+			if (files != null) {
+				for (File file : files) {
+					file.delete();
+				}
+			}
+			cacheDir.delete();
+		}
+	}
+
+	@Test
+	public void testPutAndGet() throws Exception {
+		String url = "http://marketplace.eclipse.org/sites/default/files/logo.png";
+		cache.put(url, content(100, 1), "\"abc\"", null);
+		Entry entry = cache.get(url);
+		assertNotNull(entry);
+		assertTrue(cache.isFresh(entry));
+		assertTrue(entry.hasValidators());
+		assertEquals("\"abc\"", entry.getETag());
+		assertEquals(100, read(entry.getFile()).length);
+	}
+
+	@Test
+	public void testSameContentStoredOnce() throws Exception {
+		cache.put("http://example.org/a.png", content(1000, 1), null, null);
+		cache.put("http://example.org/b.png", content(1000, 1), null, null);
+		Entry a = cache.get("http://example.org/a.png");
+		Entry b = cache.get("http://example.org/b.png");
+		assertEquals(a.getFile(), b.getFile());
+		assertEquals(1000, cache.getCurrentSize());
+
+		// the shared content has to survive removing one of its urls
+		cache.remove("http://example.org/a.png");
+		assertTrue(b.getFile().exists());
+		cache.remove("http://example.org/b.png");
+		assertFalse(b.getFile().exists());
+		assertEquals(0, cache.getCurrentSize());
+	}
+
+	@Test
+	public void testPersistent() throws Exception {
+		String url = "http://example.org/logo.png";
+		cache.put(url, content(500, 2), null, "Wed, 01 Oct 2014 10:00:00 GMT");
+		ResourceCache reloaded = new ResourceCache(cacheDir);
+		Entry entry = reloaded.get(url);
+		assertNotNull(entry);
+		assertEquals("Wed, 01 Oct 2014 10:00:00 GMT", entry.getLastModified());
+		assertEquals(500, reloaded.getCurrentSize());
+	}
+
+	@Test
+	public void testLruEviction() throws Exception {
+		cache.setMaxSize(2500);
+		cache.put("http://example.org/1.png", content(1000, 1), null, null);
+		cache.put("http://example.org/2.png", content(1000, 2), null, null);
+		assertNotNull(cache.get("http://example.org/1.png"));
+		cache.put("http://example.org/3.png", content(1000, 3), null, null);
+
+		assertNotNull(cache.get("http://example.org/1.png"));
+		assertNull(cache.get("http://example.org/2.png"));
+		assertNotNull(cache.get("http://example.org/3.png"));
+		assertEquals(2000, cache.getCurrentSize());
+	}
+
+	@Test
+	public void testGetDoesNotWrite() throws Exception {
+		String url = "http://example.org/logo.png";
+		cache.put(url, content(100, 1), null, null);
+		for (File file : cacheDir.listFiles()) {
+			file.setLastModified(1000000000L);
+		}
+		assertNotNull(cache.get(url));
+		for (File file : cacheDir.listFiles()) {
+			assertEquals(1000000000L, file.lastModified());
+		}
+	}
+
+	@Test
+	public void testAccessOrderPersistedOnFlush() throws Exception {
+		cache.put("http://example.org/1.png", content(1000, 1), null, null);
+		cache.put("http://example.org/2.png", content(1000, 2), null, null);
+		assertNotNull(cache.get("http://example.org/1.png"));
+		cache.flush();
+
+		ResourceCache reloaded = new ResourceCache(cacheDir);
+		reloaded.setMaxSize(1500);
+		assertNotNull(reloaded.get("http://example.org/1.png"));
+		assertNull(reloaded.get("http://example.org/2.png"));
+	}
+
+	@Test
+	public void testRevalidate() throws Exception {
+		String url = "http://example.org/logo.png";
+		cache.setTimeToLive(0);
+		cache.put(url, content(100, 1), "\"abc\"", null);
+		assertFalse(cache.isFresh(cache.get(url)));
+
+		cache.setTimeToLive(60000);
+		Entry revalidated = cache.revalidate(url);
+		assertTrue(cache.isFresh(revalidated));
+		assertEquals("\"abc\"", revalidated.getETag());
+		assertNull(cache.revalidate("http://example.org/other.png"));
+	}
+
+	private static InputStream content(int size, int seed) {
+		byte[] data = new byte[size];
+		for (int i = 0; i < size; i++) {
+			data[i] = (byte) (i * seed);
+		}
+		return new ByteArrayInputStream(data);
+	}
+
+	private static byte[] read(File file) throws IOException {
+		byte[] data = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int offset = 0;
+			for (int len; offset < data.length && (len = in.read(data, offset, data.length - offset)) != -1;) {
+				offset += len;
+			}
+		} finally {
+			in.close();
+		}
+		return data;
+	}
+}
@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.ui.catalog;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+
+import org.eclipse.epp.internal.mpc.ui.catalog.UpdateCheckResults;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Carsten Reckord
+ */
+public class UpdateCheckResultsTest {
+
+	private File file;
+
+	private URL marketUrl;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("updateCheck", ".properties"); //$NON-NLS-1$ //$NON-NLS-2$
+		file.delete();
+		marketUrl = new URL("http://marketplace.eclipse.org"); //$NON-NLS-1$
+	}
+
+	@After
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Test
+	public void testSaveAndLoad() {
+		UpdateCheckResults results = new UpdateCheckResults(1234L, 5678L);
+		results.setUpdateAvailable(marketUrl, "1", true); //$NON-NLS-1$
+		results.setUpdateAvailable(marketUrl, "2", false); //$NON-NLS-1$
+		results.save(file);
+
+		UpdateCheckResults loaded = UpdateCheckResults.load(file);
+		assertNotNull(loaded);
+		assertEquals(1234L, loaded.getProfileTimestamp());
+		assertEquals(5678L, loaded.getCheckTime());
+		assertEquals(2, loaded.size());
+		assertEquals(Boolean.TRUE, loaded.getUpdateAvailable(marketUrl, "1")); //$NON-NLS-1$
+		assertEquals(Boolean.FALSE, loaded.getUpdateAvailable(marketUrl, "2")); //$NON-NLS-1$
+		assertNull(loaded.getUpdateAvailable(marketUrl, "3")); //$NON-NLS-1$
+	}
+
+	@Test
+	public void testLoadMissing() {
+		assertNull(UpdateCheckResults.load(file));
+	}
+
+	@Test
+	public void testLoadDamaged() throws IOException {
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			out.write("http\\://marketplace.eclipse.org#1=true\n".getBytes("ISO-8859-1")); //$NON-NLS-1$ //$NON-NLS-2$
+		} finally {
+			out.close();
+		}
+		assertNull(UpdateCheckResults.load(file));
+	}
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.ui.operations;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.ui.operations.FeatureGroupQueries;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.MetadataFactory;
+import org.eclipse.equinox.p2.metadata.MetadataFactory.InstallableUnitDescription;
+import org.eclipse.equinox.p2.metadata.Version;
+import org.eclipse.equinox.p2.query.CollectionResult;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author Carsten Reckord
+ */
+public class FeatureGroupQueriesTest {
+
+	private IQueryable<IInstallableUnit> repository;
+
+	@Before
+	public void setUp() {
+		repository = new CollectionResult<IInstallableUnit>(Arrays.asList( //
+				createIU("a.feature.group", "1.0.0", true), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("a.feature.group", "1.2.0", true), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("a.feature.group", "1.1.0", true), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("b.feature.group", "2.0.0", true), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("c.feature.group", "3.0.0", false), //$NON-NLS-1$ //$NON-NLS-2$
+				createIU("d.feature.group", "4.0.0", true))); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testLatestFeatureGroups() {
+		List<String> ids = Arrays.asList("a.feature.group", "c.feature.group", //$NON-NLS-1$ //$NON-NLS-2$
+				"d.feature.group", "e.feature.group"); //$NON-NLS-1$ //$NON-NLS-2$
+		Map<String, Version> versionsById = new HashMap<String, Version>();
+		for (IInstallableUnit iu : FeatureGroupQueries.queryLatestFeatureGroups(repository, ids,
+				new NullProgressMonitor())) {
+			assertNull(versionsById.put(iu.getId(), iu.getVersion()));
+		}
+		assertEquals(2, versionsById.size());
+		assertEquals(Version.create("1.2.0"), versionsById.get("a.feature.group")); //$NON-NLS-1$ //$NON-NLS-2$
+		assertEquals(Version.create("4.0.0"), versionsById.get("d.feature.group")); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+
+	@Test
+	public void testSameAsFilteredLatestGroupQuery() {
+		Set<String> ids = new HashSet<String>(Arrays.asList("a.feature.group", //$NON-NLS-1$
+				"b.feature.group", "c.feature.group")); //$NON-NLS-1$ //$NON-NLS-2$
+		Set<IInstallableUnit> expected = new HashSet<IInstallableUnit>();
+		for (IInstallableUnit iu : repository.query(QueryUtil.createLatestQuery(QueryUtil.createIUGroupQuery()),
+				new NullProgressMonitor())) {
+			if (ids.contains(iu.getId())) {
+				expected.add(iu);
+			}
+		}
+		List<IInstallableUnit> result = FeatureGroupQueries.queryLatestFeatureGroups(repository, ids,
+				new NullProgressMonitor());
+		assertEquals(expected, new HashSet<IInstallableUnit>(result));
+	}
+
+	@Test
+	public void testNoIds() {
+		assertTrue(FeatureGroupQueries.queryLatestFeatureGroups(repository, Collections.<String> emptySet(),
+				new NullProgressMonitor()).isEmpty());
+		assertTrue(repository.query(FeatureGroupQueries.createFeatureGroupQuery(Collections.<String> emptySet()),
+				new NullProgressMonitor()).isEmpty());
+	}
+
+	private static IInstallableUnit createIU(String id, String version, boolean group) {
+		InstallableUnitDescription description = new InstallableUnitDescription();
+		description.setId(id);
+		description.setVersion(Version.create(version));
+		if (group) {
+			description.setProperty(QueryUtil.PROP_TYPE_GROUP, Boolean.TRUE.toString());
+		}
+		return MetadataFactory.createInstallableUnit(description);
+	}
+}
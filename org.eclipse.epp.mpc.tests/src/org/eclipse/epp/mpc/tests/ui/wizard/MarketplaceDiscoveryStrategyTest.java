@@ -11,14 +11,21 @@
  *******************************************************************************/
 package org.eclipse.epp.mpc.tests.ui.wizard;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.service.DefaultMarketplaceService;
+import org.eclipse.epp.internal.mpc.core.service.Market;
 import org.eclipse.epp.internal.mpc.core.service.Node;
 import org.eclipse.epp.internal.mpc.core.service.SearchResult;
 import org.eclipse.epp.internal.mpc.ui.CatalogRegistry;
@@ -29,6 +36,7 @@ import org.eclipse.epp.mpc.core.model.IMarket;
 import org.eclipse.epp.mpc.core.model.INode;
 import org.eclipse.epp.mpc.core.service.IMarketplaceService;
 import org.eclipse.epp.mpc.ui.CatalogDescriptor;
+import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
 import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
@@ -102,4 +110,67 @@ public class MarketplaceDiscoveryStrategyTest {
 		assertNotNull(testNode[0]);
 		assertNotNull(testNode[0].getId());
 	}
+
+	@Test
+	public void testSearchNextPage() throws Exception {
+		final int matchCount = 5;
+		final int pageSize = 2;
+		final List<Integer> requestedPages = new ArrayList<Integer>();
+		final IMarketplaceService marketplaceService = new DefaultMarketplaceService(catalogUrl) {
+			@Override
+			public List<Market> listMarkets(IProgressMonitor monitor) throws CoreException {
+				return new ArrayList<Market>();
+			}
+
+			@Override
+			public SearchResult search(IMarket market, ICategory category, String queryText, int page,
+					IProgressMonitor monitor) throws CoreException {
+				requestedPages.add(page);
+				List<Node> nodes = new ArrayList<Node>();
+				for (int i = page * pageSize; i < Math.min(matchCount, (page + 1) * pageSize); i++) {
+					Node node = new Node();
+					node.setId(String.valueOf(i));
+					node.setName("Node " + i);
+					nodes.add(node);
+				}
+				SearchResult result = new SearchResult();
+				result.setMatchCount(matchCount);
+				result.setNodes(nodes);
+				return result;
+			}
+		};
+		setupCatalog(marketplaceService);
+
+		catalog.performQuery(null, null, "test", new NullProgressMonitor());
+		assertEquals(Arrays.asList("0", "1"), getNodeIds());
+		assertTrue(catalog.hasNextPage());
+		// more results are linked at the end
+		assertEquals(3, catalog.getItems().size());
+
+		catalog.loadNextPage(new NullProgressMonitor());
+		assertEquals(Arrays.asList("0", "1", "2", "3"), getNodeIds());
+		assertTrue(catalog.hasNextPage());
+		assertEquals(5, catalog.getItems().size());
+
+		catalog.loadNextPage(new NullProgressMonitor());
+		assertEquals(Arrays.asList("0", "1", "2", "3", "4"), getNodeIds());
+		assertFalse(catalog.hasNextPage());
+		assertEquals(5, catalog.getItems().size());
+		assertEquals(Arrays.asList(0, 1, 2), requestedPages);
+
+		// a new query starts over
+		catalog.performQuery(null, null, "test", new NullProgressMonitor());
+		assertEquals(Arrays.asList("0", "1"), getNodeIds());
+		assertTrue(catalog.hasNextPage());
+	}
+
+	private List<String> getNodeIds() {
+		List<String> ids = new ArrayList<String>();
+		for (CatalogItem item : catalog.getItems()) {
+			if (item.getData() instanceof INode) {
+				ids.add(((INode) item.getData()).getId());
+			}
+		}
+		return ids;
+	}
 }
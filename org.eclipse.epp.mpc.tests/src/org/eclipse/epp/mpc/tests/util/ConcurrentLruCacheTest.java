@@ -0,0 +1,197 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.CacheStats;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentLruCache;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentLruCache.Loader;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentLruCache.Weigher;
+import org.junit.Test;
+
+public class ConcurrentLruCacheTest {
+
+	@Test
+	public void testGetAndPut() {
+		ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10, 0);
+		assertNull(cache.get("a"));
+		cache.put("a", "A");
+		assertEquals("A", cache.get("a"));
+
+		CacheStats stats = cache.getStats();
+		assertEquals(1, stats.getHitCount());
+		assertEquals(1, stats.getMissCount());
+		assertEquals(0.5, stats.getHitRate(), 0.001);
+	}
+
+	@Test
+	public void testLruEviction() {
+		ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(2, 0);
+		cache.put("a", "A");
+		cache.put("b", "B");
+		cache.get("a");
+		cache.put("c", "C");
+
+		assertEquals("A", cache.get("a"));
+		assertNull(cache.get("b"));
+		assertEquals("C", cache.get("c"));
+		assertEquals(1, cache.getStats().getEvictionCount());
+	}
+
+	@Test
+	public void testWeightedEviction() {
+		ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(5, 0,
+				new Weigher<String>() {
+			public int weigh(String value) {
+				return value.length();
+			}
+		});
+		cache.put("a", "AAA");
+		cache.put("b", "BB");
+		assertEquals(2, cache.size());
+		cache.put("c", "C");
+		assertEquals(2, cache.size());
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	public void testExpiry() throws Exception {
+		ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10, 10);
+		cache.put("a", "A");
+		Thread.sleep(50);
+		assertNull(cache.get("a"));
+	}
+
+	@Test
+	public void testLoader() throws Exception {
+		ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10, 0);
+		final int[] loadCount = new int[1];
+		Loader<String> loader = new Loader<String>() {
+			public String load() throws CoreException {
+				loadCount[0]++;
+				return "A";
+			}
+		};
+		assertEquals("A", cache.get("a", loader));
+		assertEquals("A", cache.get("a", loader));
+		assertEquals(1, loadCount[0]);
+		assertEquals(1, cache.getStats().getLoadCount());
+	}
+
+	@Test
+	public void testConcurrentLoadsCoalesced() throws Exception {
+		final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10, 0);
+		final AtomicInteger loadCount = new AtomicInteger();
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final Loader<String> loader = new Loader<String>() {
+			public String load() throws CoreException {
+				loadCount.incrementAndGet();
+				loading.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return "A";
+			}
+		};
+		final String[] results = new String[4];
+		Thread[] threads = new Thread[results.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						results[index] = cache.get("a", loader, new NullProgressMonitor());
+					} catch (CoreException e) {
+						//result stays null
+					}
+				}
+			};
+			threads[i].start();
+			if (i == 0) {
+				assertTrue(loading.await(5, TimeUnit.SECONDS));
+			}
+		}
+		while (cache.getStats().getCoalescedLoadCount() < threads.length - 1) {
+			Thread.sleep(10);
+		}
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000);
+		}
+
+		assertEquals(1, loadCount.get());
+		for (String result : results) {
+			assertEquals("A", result);
+		}
+		assertEquals(1, cache.getStats().getLoadCount());
+	}
+
+	@Test
+	public void testCancelWhileWaiting() throws Exception {
+		final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(10, 0);
+		final CountDownLatch loading = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final String[] result = new String[1];
+		Thread loaderThread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					result[0] = cache.get("a", new Loader<String>() {
+						public String load() throws CoreException {
+							loading.countDown();
+							try {
+								release.await();
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+							return "A";
+						}
+					});
+				} catch (CoreException e) {
+					//result stays null
+				}
+			}
+		};
+		loaderThread.start();
+		assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+		NullProgressMonitor monitor = new NullProgressMonitor();
+		monitor.setCanceled(true);
+		try {
+			cache.get("a", new Loader<String>() {
+				public String load() throws CoreException {
+					fail("Load should have been coalesced");
+					return null;
+				}
+			}, monitor);
+			fail("Expected cancellation");
+		} catch (CoreException e) {
+			assertEquals(IStatus.CANCEL, e.getStatus().getSeverity());
+		}
+
+		release.countDown();
+		loaderThread.join(5000);
+		assertEquals("A", result[0]);
+		assertEquals("A", cache.get("a"));
+	}
+}
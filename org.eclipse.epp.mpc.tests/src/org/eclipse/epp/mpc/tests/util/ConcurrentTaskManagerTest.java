@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.mpc.tests.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
+import org.eclipse.epp.internal.mpc.ui.util.ConcurrentTaskManager;
+import org.eclipse.epp.internal.mpc.ui.util.ConcurrentTaskManager.CompletionListener;
+import org.junit.Test;
+
+public class ConcurrentTaskManagerTest {
+
+	@Test
+	public void testRunsTasksConcurrently() throws Exception {
+		final CountDownLatch started = new CountDownLatch(3);
+		final CountDownLatch release = new CountDownLatch(1);
+		ConcurrentTaskManager taskManager = new ConcurrentTaskManager(Lane.REPOSITORIES, "test");
+		for (int i = 0; i < 3; i++) {
+			taskManager.submit(new BlockingTask(started, release));
+		}
+		// all tasks must be running at the same time in the shared lane
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		release.countDown();
+		taskManager.waitUntilFinished(new NullProgressMonitor());
+		for (Future<?> future : taskManager.getFutures()) {
+			assertTrue(future.isDone());
+			assertFalse(future.isCancelled());
+		}
+	}
+
+	@Test
+	public void testShutdownCancelsOnlyOwnBatch() throws Exception {
+		final CountDownLatch started = new CountDownLatch(2);
+		final CountDownLatch release = new CountDownLatch(1);
+		ConcurrentTaskManager canceledBatch = new ConcurrentTaskManager(Lane.REPOSITORIES, "canceled");
+		ConcurrentTaskManager otherBatch = new ConcurrentTaskManager(Lane.REPOSITORIES, "other");
+		canceledBatch.submit(new BlockingTask(started, release));
+		otherBatch.submit(new BlockingTask(started, release));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		canceledBatch.shutdownNow();
+		assertTrue(canceledBatch.getFutures().get(0).isCancelled());
+		assertFalse(otherBatch.getFutures().get(0).isDone());
+
+		release.countDown();
+		otherBatch.waitUntilFinished(new NullProgressMonitor());
+		assertFalse(otherBatch.getFutures().get(0).isCancelled());
+	}
+
+	@Test
+	public void testCompletionOrder() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		ConcurrentTaskManager taskManager = new ConcurrentTaskManager(Lane.REPOSITORIES, "test");
+		taskManager.submit(new BlockingTask(new CountDownLatch(1), release));
+		taskManager.submit(new Runnable() {
+			public void run() {
+				// finishes right away
+			}
+		});
+		final List<Future<?>> completed = new ArrayList<Future<?>>();
+		final List<Long> latencies = new ArrayList<Long>();
+		taskManager.setCompletionListener(new CompletionListener() {
+			public void taskCompleted(Future<?> task, long latency) {
+				completed.add(task);
+				latencies.add(latency);
+				release.countDown();
+			}
+		});
+		taskManager.waitUntilFinished(new NullProgressMonitor());
+
+		// the fast task is reported first, although it was submitted last
+		assertEquals(2, completed.size());
+		assertSame(taskManager.getFutures().get(1), completed.get(0));
+		assertSame(taskManager.getFutures().get(0), completed.get(1));
+		assertTrue(latencies.get(1) >= latencies.get(0));
+	}
+
+	@Test
+	public void testTimeout() throws Exception {
+		ConcurrentTaskManager taskManager = new ConcurrentTaskManager(Lane.REPOSITORIES, "test");
+		taskManager.setTimeout(300);
+		taskManager.submit(new BlockingTask(new CountDownLatch(1), new CountDownLatch(1)));
+		long start = System.currentTimeMillis();
+		try {
+			taskManager.waitUntilFinished(new NullProgressMonitor());
+			fail("Expected CoreException");
+		} catch (CoreException e) {
+			assertEquals(IStatus.WARNING, e.getStatus().getSeverity());
+		}
+		assertTrue(System.currentTimeMillis() - start < 5000);
+		assertTrue(taskManager.getFutures().get(0).isCancelled());
+	}
+
+	@Test
+	public void testErrorsAreReported() {
+		ConcurrentTaskManager taskManager = new ConcurrentTaskManager(Lane.API, "test");
+		taskManager.submit(new Runnable() {
+			public void run() {
+				throw new IllegalStateException("expected");
+			}
+		});
+		try {
+			taskManager.waitUntilFinished(new NullProgressMonitor());
+			fail("Expected CoreException");
+		} catch (CoreException e) {
+			assertTrue(e.getStatus().getException() instanceof IllegalStateException);
+		}
+	}
+
+	private static class BlockingTask implements Runnable {
+
+		private final CountDownLatch started;
+
+		private final CountDownLatch release;
+
+		public BlockingTask(CountDownLatch started, CountDownLatch release) {
+			this.started = started;
+			this.release = release;
+		}
+
+		public void run() {
+			started.countDown();
+			try {
+				release.await(10, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				// canceled
+			}
+		}
+	}
+}
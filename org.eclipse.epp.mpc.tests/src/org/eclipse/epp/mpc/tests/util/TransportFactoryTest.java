@@ -13,18 +13,35 @@ package org.eclipse.epp.mpc.tests.util;
 
 import static org.junit.Assert.*;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
+import org.apache.http.conn.scheme.PlainSocketFactory;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCorePlugin;
+import org.eclipse.epp.internal.mpc.core.util.HttpClientTransportFactory;
+import org.eclipse.epp.internal.mpc.core.util.SocksSchemeSocketFactory;
 import org.eclipse.epp.internal.mpc.core.util.TransportFactory;
+import org.eclipse.epp.mpc.core.service.IConditionalTransport;
 import org.eclipse.epp.mpc.core.service.ITransport;
 import org.eclipse.epp.mpc.core.service.ITransportFactory;
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
 import org.eclipse.epp.mpc.core.service.ServiceHelper;
+import org.eclipse.epp.mpc.tests.server.MarketplaceStandInServer;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -81,4 +98,130 @@ public class TransportFactoryTest {
 		assertNotNull(stream);
 		stream.close();
 	}
+
+	@Test
+	public void testHttpClientTransportReusesConnection() throws Exception {
+		MarketplaceStandInServer server = new MarketplaceStandInServer();
+		server.start();
+		HttpClientTransportFactory factory = new HttpClientTransportFactory();
+		try {
+			ITransport transport = factory.getTransport();
+			URI uri = new URI(server.getBaseUrl() + "/featured/api/p");
+			for (int i = 0; i < 2; i++) {
+				consume(transport.stream(uri, new NullProgressMonitor()));
+			}
+			assertThat(transport, CoreMatchers.instanceOf(IConditionalTransport.class));
+			ITransportResponse response = ((IConditionalTransport) transport).stream(uri, null, null,
+					new NullProgressMonitor());
+			assertEquals(ITransportResponse.STATUS_OK, response.getStatusCode());
+			consume(response.getContent());
+
+			assertEquals(3, server.getRequestCount());
+			assertEquals(1, server.getConnectionCount());
+		} finally {
+			factory.shutdown();
+			server.stop();
+		}
+	}
+
+	@Test
+	public void testConditionalRequestSupport() throws Exception {
+		TransportFactory plainFactory = new TestTransportFactory(false, new IllegalStateException());
+		assertFalse(plainFactory.getTransport() instanceof IConditionalTransport);
+
+		TransportFactory conditionalFactory = new TestTransportFactory(true, new InvocationTargetException(
+				new IllegalStateException("unexpected")));
+		ITransport transport = conditionalFactory.getTransport();
+		assertThat(transport, CoreMatchers.instanceOf(IConditionalTransport.class));
+		try {
+			((IConditionalTransport) transport).stream(new URI("http://localhost/"), null, null,
+					new NullProgressMonitor());
+			fail("Expected CoreException");
+		} catch (CoreException e) {
+			assertEquals("unexpected", e.getStatus().getMessage());
+		}
+	}
+
+	private static class TestTransportFactory extends TransportFactory {
+
+		private final boolean conditional;
+
+		private final Exception failure;
+
+		public TestTransportFactory(boolean conditional, Exception failure) {
+			this.conditional = conditional;
+			this.failure = failure;
+		}
+
+		@Override
+		protected boolean isAvailable() {
+			return true;
+		}
+
+		@Override
+		protected boolean supportsConditionalRequests() {
+			return conditional;
+		}
+
+		@Override
+		protected InputStream invokeStream(URI location, IProgressMonitor monitor) throws Exception {
+			throw failure;
+		}
+	}
+
+	@Test
+	public void testSocksProxy() throws Exception {
+		final ServerSocket proxy = new ServerSocket(0);
+		final int[] greeting = { -1 };
+		Thread proxyThread = new Thread() {
+			@Override
+			public void run() {
+				try {
+					Socket connection = proxy.accept();
+					try {
+						greeting[0] = connection.getInputStream().read();
+					} finally {
+						// refuse, the request should fail after the handshake started
+						connection.close();
+					}
+				} catch (IOException e) {
+					// closed
+				}
+			}
+		};
+		proxyThread.start();
+		try {
+			SocksSchemeSocketFactory socketFactory = new SocksSchemeSocketFactory(
+					PlainSocketFactory.getSocketFactory());
+			HttpParams params = new BasicHttpParams();
+			params.setParameter(SocksSchemeSocketFactory.SOCKS_PROXY, new Proxy(Proxy.Type.SOCKS,
+					new InetSocketAddress(InetAddress.getByName(null), proxy.getLocalPort())));
+			Socket socket = socketFactory.createSocket(params);
+			try {
+				socketFactory.connectSocket(socket, new InetSocketAddress("marketplace.example.org", 80), null, params);
+				fail("Expected IOException");
+			} catch (IOException e) {
+				// expected
+			} finally {
+				socket.close();
+			}
+			proxyThread.join(5000);
+			// SOCKS protocol version 5
+			assertEquals(5, greeting[0]);
+		} finally {
+			proxy.close();
+		}
+	}
+
+	private static void consume(InputStream in) throws IOException {
+		assertNotNull(in);
+		try {
+			byte[] buffer = new byte[8192];
+			while (in.read(buffer) != -1) {
+				// skip
+			}
+		} finally {
+			in.close();
+		}
+	}
 }
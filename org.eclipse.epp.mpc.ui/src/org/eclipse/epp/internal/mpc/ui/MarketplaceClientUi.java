@@ -17,7 +17,7 @@ import java.net.NoRouteToHostException;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
 import java.net.UnknownHostException;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -32,18 +32,11 @@ import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
-import org.eclipse.equinox.p2.core.IProvisioningAgent;
-import org.eclipse.equinox.p2.engine.IProfile;
-import org.eclipse.equinox.p2.engine.IProfileRegistry;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
-import org.eclipse.equinox.p2.query.IQueryResult;
-import org.eclipse.equinox.p2.query.QueryUtil;
-import org.eclipse.equinox.p2.ui.ProvisioningUI;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.ui.PlatformUI;
 import org.osgi.framework.BundleContext;
-import org.osgi.framework.ServiceReference;
 
 /**
  * @author Steffen Pingel
@@ -154,54 +147,20 @@ public class MarketplaceClientUi {
 		return MarketplaceClientUiPlugin.getInstance().getBundle().getBundleContext();
 	}
 
+	/**
+	 * @return the installed feature groups by id, taken from the shared {@link ProfileSnapshotService profile
+	 *         snapshot}. The returned map is unmodifiable.
+	 */
 	public static Map<String, IInstallableUnit> computeInstalledIUsById(IProgressMonitor monitor) {
-		Map<String, IInstallableUnit> iUs = new HashMap<String, IInstallableUnit>();
-		BundleContext bundleContext = MarketplaceClientUi.getBundleContext();
-		ServiceReference<IProvisioningAgent> serviceReference = bundleContext.getServiceReference(IProvisioningAgent.class);
-		if (serviceReference != null) {
-			IProvisioningAgent agent = bundleContext.getService(serviceReference);
-			try {
-				IProfileRegistry profileRegistry = (IProfileRegistry) agent.getService(IProfileRegistry.SERVICE_NAME);
-				if (profileRegistry != null) {
-					IProfile profile = profileRegistry.getProfile(ProvisioningUI.getDefaultUI().getProfileId());
-					if (profile != null) {
-						IQueryResult<IInstallableUnit> result = profile.available(QueryUtil.createIUGroupQuery(),
-								monitor);
-						for (IInstallableUnit unit : result) {
-							iUs.put(unit.getId(), unit);
-						}
-					}
-				}
-			} finally {
-				bundleContext.ungetService(serviceReference);
-			}
+		ProfileSnapshotService snapshotService = MarketplaceClientUiPlugin.getInstance().getProfileSnapshotService();
+		if (snapshotService == null) {
+			return Collections.emptyMap();
 		}
-		return iUs;
+		return snapshotService.getSnapshot(monitor).getInstalledIUsById();
 	}
 
 	public static Set<String> computeInstalledFeatures(IProgressMonitor monitor) {
-		Set<String> features = new HashSet<String>();
-
-		BundleContext bundleContext = MarketplaceClientUi.getBundleContext();
-		ServiceReference<IProvisioningAgent> serviceReference = bundleContext.getServiceReference(IProvisioningAgent.class);
-		if (serviceReference != null) {
-			IProvisioningAgent agent = bundleContext.getService(serviceReference);
-			try {
-				IProfileRegistry profileRegistry = (IProfileRegistry) agent.getService(IProfileRegistry.SERVICE_NAME);
-				if (profileRegistry != null) {
-					IProfile profile = profileRegistry.getProfile(ProvisioningUI.getDefaultUI().getProfileId());
-					if (profile != null) {
-						IQueryResult<IInstallableUnit> result = profile.available(QueryUtil.createIUGroupQuery(),
-								monitor);
-						for (IInstallableUnit unit : result) {
-							features.add(unit.getId());
-						}
-					}
-				}
-			} finally {
-				bundleContext.ungetService(serviceReference);
-			}
-		}
+		Set<String> features = new HashSet<String>(computeInstalledIUsById(monitor).keySet());
 		if (features.isEmpty()) {
 			// probably a self-hosted environment
 			IBundleGroupProvider[] bundleGroupProviders = Platform.getBundleGroupProviders();
@@ -11,10 +11,25 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.ui;
 
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.core.runtime.Platform;
+import org.eclipse.epp.internal.mpc.ui.catalog.RepositoryVersionCache;
+import org.eclipse.epp.internal.mpc.ui.catalog.ResourceCache;
+import org.eclipse.epp.internal.mpc.ui.catalog.ScaledImageCache;
+import org.eclipse.epp.internal.mpc.ui.catalog.UpdateCheckJob;
+import org.eclipse.epp.internal.mpc.ui.catalog.UpdateCheckResults;
 import org.eclipse.epp.mpc.ui.IMarketplaceClientService;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
+import org.eclipse.equinox.p2.ui.ProvisioningUI;
 import org.eclipse.jface.resource.ImageRegistry;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceReference;
 import org.osgi.util.tracker.ServiceTracker;
 
 /**
@@ -52,8 +67,41 @@ public class MarketplaceClientUiPlugin extends AbstractUIPlugin {
 
 	public static final String ITEM_ICON_CART = "ITEM_ICON_CART"; //$NON-NLS-1$
 
+	private static final String RESOURCE_CACHE_DIR = "resources"; //$NON-NLS-1$
+
+	private static final String UPDATE_CHECK_RESULTS_FILE = "UpdateCheckResults.properties"; //$NON-NLS-1$
+
 	private static MarketplaceClientUiPlugin instance;
 
+	private ResourceCache resourceCache;
+
+	private ScaledImageCache scaledImageCache;
+
+	private ProfileSnapshotService profileSnapshotService;
+
+	private RepositoryVersionCache repositoryVersionCache;
+
+	private volatile UpdateCheckJob updateCheckJob;
+
+	private UpdateCheckResults updateCheckResults;
+
+	private boolean updateCheckResultsLoaded;
+
+	private final IPropertyChangeListener updateCheckPreferenceListener = new IPropertyChangeListener() {
+		public void propertyChange(PropertyChangeEvent event) {
+			if (UpdateCheckJob.PREF_ENABLED.equals(event.getProperty())
+					|| UpdateCheckJob.PREF_INTERVAL.equals(event.getProperty())) {
+				UpdateCheckJob job = updateCheckJob;
+				if (job != null) {
+					job.cancel();
+					job.scheduleInitialCheck();
+				}
+			}
+		}
+	};
+
+	private ServiceReference<IProvisioningAgent> agentReference;
+
 	private ServiceTracker<IMarketplaceClientService, IMarketplaceClientService> clientServiceTracker;
 
 	public MarketplaceClientUiPlugin() {
@@ -66,12 +114,37 @@ public class MarketplaceClientUiPlugin extends AbstractUIPlugin {
 		clientServiceTracker = new ServiceTracker<IMarketplaceClientService, IMarketplaceClientService>(context,
 				IMarketplaceClientService.class, null);
 		clientServiceTracker.open();
+		updateCheckJob = new UpdateCheckJob(getPreferenceStore());
+		getPreferenceStore().addPropertyChangeListener(updateCheckPreferenceListener);
+		updateCheckJob.scheduleInitialCheck();
 	}
 
 	@Override
 	public void stop(BundleContext context) throws Exception {
+		getPreferenceStore().removePropertyChangeListener(updateCheckPreferenceListener);
+		updateCheckJob.cancel();
+		updateCheckJob = null;
 		clientServiceTracker.close();
 		clientServiceTracker = null;
+		synchronized (this) {
+			if (resourceCache != null) {
+				try {
+					resourceCache.flush();
+				} catch (IOException e) {
+					MarketplaceClientUi.error(e);
+				}
+			}
+			resourceCache = null;
+			scaledImageCache = null;
+			repositoryVersionCache = null;
+			updateCheckResults = null;
+			updateCheckResultsLoaded = false;
+			if (profileSnapshotService != null) {
+				profileSnapshotService = null;
+				context.ungetService(agentReference);
+				agentReference = null;
+			}
+		}
 		super.stop(context);
 		instance = null;
 	}
@@ -101,6 +174,107 @@ public class MarketplaceClientUiPlugin extends AbstractUIPlugin {
 		return imageRegistry;
 	}
 
+	/**
+	 * @return the persistent cache for downloaded icons and screenshots, or null if the bundle state location is
+	 *         unavailable
+	 */
+	public synchronized ResourceCache getResourceCache() {
+		if (resourceCache == null && Platform.getInstanceLocation() != null) {
+			try {
+				resourceCache = new ResourceCache(getStateLocation().append(RESOURCE_CACHE_DIR).toFile());
+			} catch (IllegalStateException e) {
+				//read-only or no instance location
+				return null;
+			}
+		}
+		return resourceCache;
+	}
+
+	/**
+	 * @return the cache for scaled catalog icons, which uses the {@link #getResourceCache() resource cache} to keep
+	 *         them across sessions
+	 */
+	public synchronized ScaledImageCache getScaledImageCache() {
+		if (scaledImageCache == null) {
+			scaledImageCache = new ScaledImageCache(getResourceCache());
+		}
+		return scaledImageCache;
+	}
+
+	/**
+	 * @return the shared snapshot of the installed features of the running profile, or null if no provisioning agent
+	 *         is available
+	 */
+	public synchronized ProfileSnapshotService getProfileSnapshotService() {
+		if (profileSnapshotService == null) {
+			BundleContext context = getBundle().getBundleContext();
+			ServiceReference<IProvisioningAgent> reference = context.getServiceReference(IProvisioningAgent.class);
+			if (reference == null) {
+				return null;
+			}
+			IProvisioningAgent agent = context.getService(reference);
+			if (agent == null) {
+				return null;
+			}
+			agentReference = reference;
+			profileSnapshotService = new ProfileSnapshotService(agent, ProvisioningUI.getDefaultUI().getProfileId());
+		}
+		return profileSnapshotService;
+	}
+
+	/**
+	 * @return the cache of available feature versions by update site, which is shared by all update checks
+	 */
+	public synchronized RepositoryVersionCache getRepositoryVersionCache() {
+		if (repositoryVersionCache == null) {
+			IProvisioningAgent agent = ProvisioningUI.getDefaultUI().getSession().getProvisioningAgent();
+			IMetadataRepositoryManager manager = (IMetadataRepositoryManager) agent
+					.getService(IMetadataRepositoryManager.SERVICE_NAME);
+			repositoryVersionCache = new RepositoryVersionCache(manager);
+		}
+		return repositoryVersionCache;
+	}
+
+	/**
+	 * @return the results of the last scheduled update check, or null if there are none, scheduled checks are disabled
+	 *         or the results are older than twice the check interval
+	 * @see UpdateCheckJob
+	 */
+	public synchronized UpdateCheckResults getUpdateCheckResults() {
+		if (!updateCheckResultsLoaded) {
+			updateCheckResultsLoaded = true;
+			File file = getUpdateCheckResultsFile();
+			if (file != null) {
+				updateCheckResults = UpdateCheckResults.load(file);
+			}
+		}
+		UpdateCheckJob job = updateCheckJob;
+		if (updateCheckResults == null || job == null || !job.isEnabled()
+				|| System.currentTimeMillis() - updateCheckResults.getCheckTime() > 2 * job.getInterval()) {
+			return null;
+		}
+		return updateCheckResults;
+	}
+
+	/**
+	 * Publish and persist the results of a scheduled update check
+	 */
+	public void setUpdateCheckResults(UpdateCheckResults results) {
+		synchronized (this) {
+			updateCheckResults = results;
+			updateCheckResultsLoaded = true;
+		}
+		File file = getUpdateCheckResultsFile();
+		if (file != null) {
+			results.save(file);
+		}
+	}
+
+	private File getUpdateCheckResultsFile() {
+		BundleContext context = getBundle().getBundleContext();
+		return context == null ? null : context.getDataFile(UPDATE_CHECK_RESULTS_FILE);
+	}
+
 	public IMarketplaceClientService getClientService() {
 		return clientServiceTracker == null ? null : clientServiceTracker.getService();
 	}
@@ -0,0 +1,45 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ * 	The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui;
+
+import org.eclipse.epp.internal.mpc.ui.catalog.UpdateCheckJob;
+import org.eclipse.jface.preference.BooleanFieldEditor;
+import org.eclipse.jface.preference.FieldEditorPreferencePage;
+import org.eclipse.jface.preference.IntegerFieldEditor;
+import org.eclipse.ui.IWorkbench;
+import org.eclipse.ui.IWorkbenchPreferencePage;
+
+/**
+ * Preferences of the marketplace client, currently the scheduled {@link UpdateCheckJob update check}
+ *
+ * @author Carsten Reckord
+ */
+public class MarketplacePreferencePage extends FieldEditorPreferencePage implements IWorkbenchPreferencePage {
+
+	public MarketplacePreferencePage() {
+		super(GRID);
+		setDescription(Messages.MarketplacePreferencePage_description);
+	}
+
+	public void init(IWorkbench workbench) {
+		setPreferenceStore(MarketplaceClientUiPlugin.getInstance().getPreferenceStore());
+	}
+
+	@Override
+	protected void createFieldEditors() {
+		addField(new BooleanFieldEditor(UpdateCheckJob.PREF_ENABLED, Messages.MarketplacePreferencePage_updateCheck,
+				getFieldEditorParent()));
+		IntegerFieldEditor interval = new IntegerFieldEditor(UpdateCheckJob.PREF_INTERVAL,
+				Messages.MarketplacePreferencePage_updateCheckInterval, getFieldEditorParent());
+		interval.setValidRange(1, Integer.MAX_VALUE);
+		addField(interval);
+	}
+}
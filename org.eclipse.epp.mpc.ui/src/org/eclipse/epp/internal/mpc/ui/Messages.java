@@ -30,6 +30,12 @@ class Messages extends NLS {
 	public static String MarketplaceClientUi_unknownHost;
 
 	public static String MarketplaceClientUi_connectionProblem;
+
+	public static String MarketplacePreferencePage_description;
+
+	public static String MarketplacePreferencePage_updateCheck;
+
+	public static String MarketplacePreferencePage_updateCheckInterval;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui;
+
+import org.eclipse.core.runtime.preferences.AbstractPreferenceInitializer;
+import org.eclipse.epp.internal.mpc.ui.catalog.UpdateCheckJob;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+/**
+ * Default values of the plugin preferences
+ *
+ * @author Carsten Reckord
+ */
+public class PreferenceInitializer extends AbstractPreferenceInitializer {
+
+	@Override
+	public void initializeDefaultPreferences() {
+		IPreferenceStore store = MarketplaceClientUiPlugin.getInstance().getPreferenceStore();
+		store.setDefault(UpdateCheckJob.PREF_ENABLED, UpdateCheckJob.DEFAULT_ENABLED);
+		store.setDefault(UpdateCheckJob.PREF_INTERVAL, UpdateCheckJob.DEFAULT_INTERVAL);
+	}
+}
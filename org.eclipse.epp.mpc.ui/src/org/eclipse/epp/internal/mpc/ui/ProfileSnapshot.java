@@ -0,0 +1,78 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.equinox.p2.engine.IProfile;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.IQueryResult;
+import org.eclipse.equinox.p2.query.QueryUtil;
+
+/**
+ * An immutable index of the installed feature groups of a profile at a certain {@link IProfile#getTimestamp()
+ * timestamp}.
+ *
+ * @see ProfileSnapshotService
+ * @author Carsten Reckord
+ */
+public class ProfileSnapshot {
+
+	/**
+	 * Timestamp of the snapshot if the profile doesn't exist
+	 */
+	public static final long NO_PROFILE = -1;
+
+	private final String profileId;
+
+	private final long timestamp;
+
+	private final Map<String, IInstallableUnit> installedIUsById;
+
+	private ProfileSnapshot(String profileId, long timestamp, Map<String, IInstallableUnit> installedIUsById) {
+		this.profileId = profileId;
+		this.timestamp = timestamp;
+		this.installedIUsById = Collections.unmodifiableMap(installedIUsById);
+	}
+
+	static ProfileSnapshot create(String profileId, IProfile profile, IProgressMonitor monitor) {
+		Map<String, IInstallableUnit> iUs = new HashMap<String, IInstallableUnit>();
+		if (profile == null) {
+			return new ProfileSnapshot(profileId, NO_PROFILE, iUs);
+		}
+		IQueryResult<IInstallableUnit> result = profile.available(QueryUtil.createIUGroupQuery(), monitor);
+		for (IInstallableUnit unit : result) {
+			iUs.put(unit.getId(), unit);
+		}
+		return new ProfileSnapshot(profileId, profile.getTimestamp(), iUs);
+	}
+
+	public String getProfileId() {
+		return profileId;
+	}
+
+	/**
+	 * @return the profile timestamp this snapshot was taken at, or {@link #NO_PROFILE}
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return an unmodifiable map of the installed feature groups by id
+	 */
+	public Map<String, IInstallableUnit> getInstalledIUsById() {
+		return installedIUsById;
+	}
+}
@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.equinox.p2.core.IProvisioningAgent;
+import org.eclipse.equinox.p2.engine.IProfile;
+import org.eclipse.equinox.p2.engine.IProfileRegistry;
+
+/**
+ * Shares a {@link ProfileSnapshot snapshot} of the installed features between everyone who needs to look up installed
+ * IUs, so the profile is only queried again after it changed. The profile timestamp is compared on each request,
+ * which is cheap compared to querying the installed IUs. Profile events are delivered asynchronously, so they can't
+ * be relied on to invalidate the snapshot before the next request after a provisioning operation.
+ *
+ * @author Carsten Reckord
+ */
+public class ProfileSnapshotService {
+
+	private final IProvisioningAgent agent;
+
+	private final String profileId;
+
+	private final AtomicInteger queryCount = new AtomicInteger();
+
+	private final AtomicInteger avoidedQueryCount = new AtomicInteger();
+
+	private ProfileSnapshot snapshot;
+
+	public ProfileSnapshotService(IProvisioningAgent agent, String profileId) {
+		this.agent = agent;
+		this.profileId = profileId;
+	}
+
+	public String getProfileId() {
+		return profileId;
+	}
+
+	/**
+	 * Get the snapshot of the current profile state, querying the profile only if its timestamp changed since the last
+	 * snapshot. Concurrent callers wait for a running query instead of querying the profile themselves.
+	 */
+	public synchronized ProfileSnapshot getSnapshot(IProgressMonitor monitor) {
+		IProfile profile = getProfile();
+		long timestamp = profile == null ? ProfileSnapshot.NO_PROFILE : profile.getTimestamp();
+		if (snapshot != null && snapshot.getTimestamp() == timestamp) {
+			avoidedQueryCount.incrementAndGet();
+			return snapshot;
+		}
+		ProfileSnapshot newSnapshot = ProfileSnapshot.create(profileId, profile, monitor);
+		if (profile != null) {
+			queryCount.incrementAndGet();
+		}
+		if (monitor != null && monitor.isCanceled()) {
+			// incomplete, so don't share it
+			return newSnapshot;
+		}
+		snapshot = newSnapshot;
+		return snapshot;
+	}
+
+	private IProfile getProfile() {
+		IProfileRegistry profileRegistry = (IProfileRegistry) agent.getService(IProfileRegistry.SERVICE_NAME);
+		return profileRegistry == null ? null : profileRegistry.getProfile(profileId);
+	}
+
+	/**
+	 * @return the number of profile queries run to build snapshots
+	 */
+	public int getQueryCount() {
+		return queryCount.get();
+	}
+
+	/**
+	 * @return the number of requests answered from an existing snapshot, each of which would otherwise have queried
+	 *         the profile
+	 */
+	public int getAvoidedQueryCount() {
+		return avoidedQueryCount.get();
+	}
+}
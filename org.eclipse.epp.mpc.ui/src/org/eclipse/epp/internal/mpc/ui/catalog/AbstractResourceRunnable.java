@@ -12,18 +12,14 @@ package org.eclipse.epp.internal.mpc.ui.catalog;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URISyntaxException;
-import java.net.URL;
 import java.util.concurrent.Callable;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
-import org.eclipse.epp.internal.mpc.core.util.TransportFactory;
-import org.eclipse.epp.internal.mpc.core.util.URLUtil;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
 import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
 import org.eclipse.jface.operation.IRunnableWithProgress;
@@ -44,6 +40,8 @@ abstract class AbstractResourceRunnable implements IRunnableWithProgress, Callab
 
 	private final IProgressMonitor cancellationMonitor;
 
+	private volatile boolean retrieved;
+
 	public AbstractResourceRunnable(IProgressMonitor cancellationMonitor, CatalogItem catalogItem,
 			ResourceProvider resourceProvider,
 			String resourceUrl) {
@@ -65,16 +63,7 @@ abstract class AbstractResourceRunnable implements IRunnableWithProgress, Callab
 
 	public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
 		try {
-			URL imageUrl = URLUtil.toURL(resourceUrl);
-
-			InputStream in = TransportFactory.createTransport().stream(imageUrl.toURI(), monitor);
-			try {
-				resourceProvider.putResource(resourceUrl, in);
-			} finally {
-				if (in != null) {
-					in.close();
-				}
-			}
+			resourceProvider.retrieveResource(resourceUrl, monitor);
 		} catch (URISyntaxException e) {
 			MarketplaceClientUi.error(
 					NLS.bind(Messages.AbstractResourceRunnable_badUri, new Object[] { catalogItem.getName(),
@@ -97,9 +86,17 @@ abstract class AbstractResourceRunnable implements IRunnableWithProgress, Callab
 		}
 		if (resourceProvider.containsResource(resourceUrl)) {
 			resourceRetrieved();
+			retrieved = true;
 		}
 	}
 
 	protected abstract void resourceRetrieved();
 
+	/**
+	 * @return true if the resource has been retrieved and {@link #resourceRetrieved()} has been called
+	 */
+	public boolean isRetrieved() {
+		return retrieved;
+	}
+
 }
@@ -13,11 +13,13 @@ package org.eclipse.epp.internal.mpc.ui.catalog;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -28,7 +30,10 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.SubMonitor;
 import org.eclipse.core.runtime.SubProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUiPlugin;
+import org.eclipse.epp.internal.mpc.ui.ProfileSnapshotService;
 import org.eclipse.epp.internal.mpc.ui.util.ConcurrentTaskManager;
 import org.eclipse.epp.mpc.core.model.ICategory;
 import org.eclipse.epp.mpc.core.model.IMarket;
@@ -41,16 +46,7 @@ import org.eclipse.equinox.internal.p2.discovery.model.CatalogCategory;
 import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
 import org.eclipse.equinox.internal.p2.discovery.model.Certification;
 import org.eclipse.equinox.internal.p2.discovery.model.Tag;
-import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
-import org.eclipse.equinox.p2.metadata.Version;
-import org.eclipse.equinox.p2.operations.ProvisioningSession;
-import org.eclipse.equinox.p2.query.IQuery;
-import org.eclipse.equinox.p2.query.IQueryResult;
-import org.eclipse.equinox.p2.query.QueryUtil;
-import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
-import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
-import org.eclipse.equinox.p2.ui.ProvisioningUI;
 import org.eclipse.osgi.util.NLS;
 
 /**
@@ -59,6 +55,11 @@ import org.eclipse.osgi.util.NLS;
  */
 public class MarketplaceCatalog extends Catalog {
 
+	/**
+	 * Time budget in milliseconds for loading all update sites in {@link #checkForUpdates(IProgressMonitor)}
+	 */
+	private static final long UPDATE_CHECK_TIMEOUT = 5 * 60 * 1000;
+
 	private final Map<String, Boolean> updateAvailableByNodeId = new HashMap<String, Boolean>();
 
 	private INews news;
@@ -67,15 +68,130 @@ public class MarketplaceCatalog extends Catalog {
 		public void run(MarketplaceDiscoveryStrategy strategy, IProgressMonitor monitor) throws CoreException;
 	}
 
+	/**
+	 * Receives the items found so far while a query is still running, so they can be shown before the query
+	 * completes.
+	 */
+	public interface PartialResultListener {
+		/**
+		 * Called from the thread running the query, at most every few tens of milliseconds.
+		 *
+		 * @param items
+		 *            a snapshot of the items found so far, which isn't modified afterwards
+		 */
+		public void partialResult(List<CatalogItem> items);
+	}
+
+	private final List<PartialResultListener> partialListeners = new CopyOnWriteArrayList<PartialResultListener>();
+
+	private final PartialResultListener partialResultDispatcher = new PartialResultListener() {
+		public void partialResult(List<CatalogItem> items) {
+			for (PartialResultListener listener : partialListeners) {
+				listener.partialResult(items);
+			}
+		}
+	};
+
+	/**
+	 * Receives the items whose icon or screenshot has been loaded while a query is still running, so they can be
+	 * updated without waiting for the resources of the other items.
+	 */
+	public interface ResourceListener {
+		/**
+		 * Called from the thread running the query as soon as a resource of an item is available.
+		 *
+		 * @param item
+		 *            the item whose resource has been loaded
+		 * @param latency
+		 *            the time in milliseconds from requesting the resource until it was available
+		 */
+		public void resourceLoaded(CatalogItem item, long latency);
+	}
+
+	private final List<ResourceListener> resourceListeners = new CopyOnWriteArrayList<ResourceListener>();
+
+	private final ResourceListener resourceDispatcher = new ResourceListener() {
+		public void resourceLoaded(CatalogItem item, long latency) {
+			for (ResourceListener listener : resourceListeners) {
+				listener.resourceLoaded(item, latency);
+			}
+		}
+	};
+
+	/**
+	 * A text query with more results than have been loaded so far
+	 */
+	private static class PagedQuery {
+
+		private final IMarket market;
+
+		private final ICategory category;
+
+		private final String queryText;
+
+		private int nextPage = 1;
+
+		public PagedQuery(IMarket market, ICategory category, String queryText) {
+			this.market = market;
+			this.category = category;
+			this.queryText = queryText;
+		}
+	}
+
+	private final Object discoveryLock = new Object();
+
+	private volatile PagedQuery pagedQuery;
+
 	public IStatus performQuery(final IMarket market, final ICategory category, final String queryText,
 			IProgressMonitor monitor) {
 		return performDiscovery(new DiscoveryOperation() {
 			public void run(MarketplaceDiscoveryStrategy strategy, IProgressMonitor monitor) throws CoreException {
-				strategy.performQuery(market, category, queryText, monitor);
+				if (strategy.performQuery(market, category, queryText, 0, monitor)) {
+					pagedQuery = new PagedQuery(market, category, queryText);
+				}
 			}
 		}, monitor);
 	}
 
+	/**
+	 * @return true if the last query was a {@link #performQuery(IMarket, ICategory, String, IProgressMonitor) text
+	 *         query} with more results on the server than have been loaded so far
+	 * @see #loadNextPage(IProgressMonitor)
+	 */
+	public boolean hasNextPage() {
+		return pagedQuery != null;
+	}
+
+	/**
+	 * Load the next result page of the last {@link #performQuery(IMarket, ICategory, String, IProgressMonitor) text
+	 * query} and append its items to the current items. Does nothing if there are no {@link #hasNextPage() more
+	 * results} or if a different query has been performed in the meantime.
+	 */
+	public IStatus loadNextPage(IProgressMonitor monitor) {
+		final PagedQuery query = pagedQuery;
+		if (query == null) {
+			return Status.OK_STATUS;
+		}
+		synchronized (discoveryLock) {
+			if (pagedQuery != query) {
+				return Status.OK_STATUS;
+			}
+			IStatus status = performDiscovery(new DiscoveryOperation() {
+				public void run(MarketplaceDiscoveryStrategy strategy, IProgressMonitor monitor) throws CoreException {
+					boolean more = strategy.performQuery(query.market, query.category, query.queryText,
+							query.nextPage, monitor);
+					query.nextPage++;
+					pagedQuery = more ? query : null;
+				}
+			}, true, monitor);
+			if (status.getSeverity() == IStatus.ERROR) {
+				// don't retry over and over, the remaining results can still be browsed on the website
+				pagedQuery = null;
+			}
+			return status;
+		}
+	}
+
 	public IStatus recent(IProgressMonitor monitor) {
 		return performDiscovery(new DiscoveryOperation() {
 			public void run(MarketplaceDiscoveryStrategy strategy, IProgressMonitor monitor) throws CoreException {
@@ -146,6 +262,7 @@ public class MarketplaceCatalog extends Catalog {
 		monitor.beginTask(Messages.MarketplaceCatalog_checkingForUpdates, 10000000);
 		try {
 			List<MarketplaceNodeCatalogItem> updateCheckNeeded = new ArrayList<MarketplaceNodeCatalogItem>();
+			UpdateCheckResults scheduledResults = getScheduledUpdateCheckResults(monitor);
 			for (CatalogItem item : getItems()) {
 				if (!(item instanceof MarketplaceNodeCatalogItem)) {
 					continue;
@@ -153,6 +270,10 @@ public class MarketplaceCatalog extends Catalog {
 				MarketplaceNodeCatalogItem catalogItem = (MarketplaceNodeCatalogItem) item;
 				if (catalogItem.isInstalled()) {
 					Boolean updateAvailable = updateAvailableByNodeId.get(item.getId());
+					URL marketplaceUrl = catalogItem.getMarketplaceUrl();
+					if (updateAvailable == null && scheduledResults != null && marketplaceUrl != null) {
+						updateAvailable = scheduledResults.getUpdateAvailable(marketplaceUrl, item.getId());
+					}
 					if (updateAvailable != null) {
 						catalogItem.setUpdateAvailable(updateAvailable);
 					} else {
@@ -180,9 +301,19 @@ public class MarketplaceCatalog extends Catalog {
 		int remainingWork = 10000000;
 		final SubMonitor progress = SubMonitor.convert(monitor, remainingWork);
 		Map<URI, List<MarketplaceNodeCatalogItem>> installedCatalogItemsByUpdateUri = new HashMap<URI, List<MarketplaceNodeCatalogItem>>();
+		final MarketplaceInfo marketplaceInfo = getMarketplaceInfo();
+
+		final Map<String, IInstallableUnit> installedIUs = MarketplaceClientUi.computeInstalledIUsById(progress.newChild(remainingWork / 20));
+		remainingWork -= remainingWork / 20;
 
 		for (MarketplaceNodeCatalogItem catalogItem : updateCheckNeeded) {
 			INode node = catalogItem.getData();
+			if (marketplaceInfo != null && catalogItem.getMarketplaceUrl() != null
+					&& marketplaceInfo.isKnownUpToDate(catalogItem.getMarketplaceUrl(), node, installedIUs)) {
+				// the listing didn't change since the node was last up to date, so don't load its update site
+				catalogItem.setUpdateAvailable(false);
+				continue;
+			}
 			try {
 				String updateurl = node.getUpdateurl();
 				if (updateurl == null) {
@@ -205,11 +336,10 @@ public class MarketplaceCatalog extends Catalog {
 			return Status.OK_STATUS;
 		}
 
-		final Map<String, IInstallableUnit> installedIUs = MarketplaceClientUi.computeInstalledIUsById(progress.newChild(remainingWork / 20));
-		remainingWork -= remainingWork / 20;
-
-		ConcurrentTaskManager executor = new ConcurrentTaskManager(installedCatalogItemsByUpdateUri.size(),
+		final RepositoryVersionCache versionCache = getRepositoryVersionCache();
+		ConcurrentTaskManager executor = new ConcurrentTaskManager(Lane.REPOSITORIES,
 				Messages.MarketplaceCatalog_checkingForUpdates);
+		executor.setTimeout(UPDATE_CHECK_TIMEOUT);
 		try {
 			final IProgressMonitor pm = new NullProgressMonitor() {
 				@Override
@@ -222,47 +352,26 @@ public class MarketplaceCatalog extends Catalog {
 				final List<MarketplaceNodeCatalogItem> catalogItemsThisSite = entry.getValue();
 				executor.submit(new Runnable() {
 					public void run() {
-						ProvisioningSession session = ProvisioningUI.getDefaultUI().getSession();
-						IMetadataRepositoryManager manager = (IMetadataRepositoryManager) session.getProvisioningAgent()
-								.getService(IMetadataRepositoryManager.SERVICE_NAME);
 						try {
-							IMetadataRepository repository = manager.loadRepository(uri, pm);
-							IQuery<IInstallableUnit> query = QueryUtil.createMatchQuery( //
-									"id ~= /*.feature.group/ && " + //$NON-NLS-1$
-									"properties['org.eclipse.equinox.p2.type.group'] == true ");//$NON-NLS-1$
-							IQueryResult<IInstallableUnit> result = repository.query(query, pm);
-
-							// compute highest version for all available IUs.
-							Map<String, Version> repositoryIuVersionById = new HashMap<String, Version>();
-							for (IInstallableUnit iu : result) {
-								String id = iu.getId();
-								Version version = iu.getVersion();
-								Version priorVersion = repositoryIuVersionById.put(id, version);
-								if (priorVersion != null && priorVersion.compareTo(version) > 0) {
-									repositoryIuVersionById.put(id, priorVersion);
-								}
-							}
-
+							RepositoryVersions versions = versionCache.getVersions(uri, pm);
 							for (MarketplaceNodeCatalogItem item : catalogItemsThisSite) {
-								item.setUpdateAvailable(false);
 								List<String> installableUnits = item.getInstallableUnits();
-								if (!repositoryIuVersionById.keySet().containsAll(installableUnits)) {
+								if (!versions.containsAll(installableUnits)) {
+									item.setUpdateAvailable(false);
 									item.setAvailable(false);
 								} else {
-									for (String iu : installableUnits) {
-										Version availableVersion = repositoryIuVersionById.get(iu);
-										if (availableVersion != null) {
-											IInstallableUnit installedIu = installedIUs.get(iu);
-											if (installedIu != null
-													&& installedIu.getVersion().compareTo(availableVersion) < 0) {
-												item.setUpdateAvailable(true);
-												break;
-											}
-										}
+									boolean updateAvailable = versions.hasUpdate(installableUnits, installedIUs);
+									item.setUpdateAvailable(updateAvailable);
+									URL marketplaceUrl = item.getMarketplaceUrl();
+									if (!updateAvailable && marketplaceInfo != null && marketplaceUrl != null) {
+										marketplaceInfo.mapUpToDate(marketplaceUrl, item.getData(), installedIUs);
 									}
 								}
 							}
-						} catch (ProvisionException e) {
+						} catch (CoreException e) {
+							if (e.getStatus().getSeverity() == IStatus.CANCEL) {
+								return;
+							}
 							MarketplaceClientUi.error(e);
 							for (MarketplaceNodeCatalogItem item : catalogItemsThisSite) {
 								item.setAvailable(false);
@@ -285,8 +394,46 @@ public class MarketplaceCatalog extends Catalog {
 		}
 	}
 
+	/**
+	 * @return the results of the last {@link UpdateCheckJob scheduled update check} if they were computed for the
+	 *         currently installed features, or null otherwise
+	 */
+	private UpdateCheckResults getScheduledUpdateCheckResults(IProgressMonitor monitor) {
+		MarketplaceClientUiPlugin plugin = MarketplaceClientUiPlugin.getInstance();
+		UpdateCheckResults results = plugin.getUpdateCheckResults();
+		if (results == null) {
+			return null;
+		}
+		ProfileSnapshotService snapshotService = plugin.getProfileSnapshotService();
+		if (snapshotService == null
+				|| snapshotService.getSnapshot(monitor).getTimestamp() != results.getProfileTimestamp()) {
+			return null;
+		}
+		return results;
+	}
+
+	private MarketplaceInfo getMarketplaceInfo() {
+		for (AbstractDiscoveryStrategy discoveryStrategy : getDiscoveryStrategies()) {
+			if (discoveryStrategy instanceof MarketplaceDiscoveryStrategy) {
+				MarketplaceDiscoveryStrategy marketplaceStrategy = (MarketplaceDiscoveryStrategy) discoveryStrategy;
+				if (marketplaceStrategy.getMarketplaceInfo() != null) {
+					return marketplaceStrategy.getMarketplaceInfo();
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the cache of update site contents used to check for updates
+	 */
+	protected RepositoryVersionCache getRepositoryVersionCache() {
+		return MarketplaceClientUiPlugin.getInstance().getRepositoryVersionCache();
+	}
+
 	@Override
 	public IStatus performDiscovery(IProgressMonitor monitor) {
+		pagedQuery = null;
 		SubMonitor progress = SubMonitor.convert(monitor, 200000);
 		IStatus status = super.performDiscovery(progress.newChild(100000));
 
@@ -329,14 +476,32 @@ public class MarketplaceCatalog extends Catalog {
 	}
 
 	protected IStatus performDiscovery(DiscoveryOperation operation, IProgressMonitor monitor) {
+		return performDiscovery(operation, false, monitor);
+	}
+
+	/**
+	 * @param append
+	 *            true to keep the current items and let the operation add to them, false to start with an empty
+	 *            result
+	 */
+	private IStatus performDiscovery(DiscoveryOperation operation, boolean append, IProgressMonitor monitor) {
+		synchronized (discoveryLock) {
+			if (!append) {
+				pagedQuery = null;
+			}
+			return doPerformDiscovery(operation, append, monitor);
+		}
+	}
+
+	private IStatus doPerformDiscovery(DiscoveryOperation operation, boolean append, IProgressMonitor monitor) {
 		MultiStatus status = new MultiStatus(MarketplaceClientUi.BUNDLE_ID, 0, Messages.MarketplaceCatalog_queryFailed,
 				null);
 		if (getDiscoveryStrategies().isEmpty()) {
 			throw new IllegalStateException();
 		}
 
-		// reset, keeping no items but the same tags, categories and certifications
-		List<CatalogItem> items = new ArrayList<CatalogItem>();
+		// reset, keeping no items unless appending, but the same tags, categories and certifications
+		List<CatalogItem> items = append ? new ArrayList<CatalogItem>(getItems()) : new ArrayList<CatalogItem>();
 		List<CatalogCategory> categories = new ArrayList<CatalogCategory>(getCategories());
 		List<Certification> certifications = new ArrayList<Certification>(getCertifications());
 		List<Tag> tags = new ArrayList<Tag>(getTags());
@@ -361,7 +526,15 @@ public class MarketplaceCatalog extends Catalog {
 					discoveryStrategy.setTags(tags);
 					try {
 						MarketplaceDiscoveryStrategy marketplaceStrategy = (MarketplaceDiscoveryStrategy) discoveryStrategy;
-						operation.run(marketplaceStrategy, new SubProgressMonitor(monitor, strategyTicks));
+						// appended pages are shown when complete, partial results only make sense for a new result
+						marketplaceStrategy.setPartialResultListener(append ? null : partialResultDispatcher);
+						marketplaceStrategy.setResourceListener(append ? null : resourceDispatcher);
+						try {
+							operation.run(marketplaceStrategy, new SubProgressMonitor(monitor, strategyTicks));
+						} finally {
+							marketplaceStrategy.setPartialResultListener(null);
+							marketplaceStrategy.setResourceListener(null);
+						}
 
 					} catch (CoreException e) {
 						IStatus error = MarketplaceClientUi.computeWellknownProblemStatus(e);
@@ -382,6 +555,22 @@ public class MarketplaceCatalog extends Catalog {
 		return computeStatus(status);
 	}
 
+	public void addPartialResultListener(PartialResultListener listener) {
+		partialListeners.add(listener);
+	}
+
+	public void removePartialResultListener(PartialResultListener listener) {
+		partialListeners.remove(listener);
+	}
+
+	public void addResourceListener(ResourceListener listener) {
+		resourceListeners.add(listener);
+	}
+
+	public void removeResourceListener(ResourceListener listener) {
+		resourceListeners.remove(listener);
+	}
+
 	public IStatus performNewsDiscovery(IProgressMonitor monitor) {
 		if (getDiscoveryStrategies().isEmpty()) {
 			throw new IllegalStateException();
@@ -15,10 +15,14 @@ import java.net.MalformedURLException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -32,9 +36,12 @@ import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.epp.internal.mpc.core.MarketplaceClientCore;
 import org.eclipse.epp.internal.mpc.core.ServiceLocator;
 import org.eclipse.epp.internal.mpc.core.payment.PaymentServiceImpl;
+import org.eclipse.epp.internal.mpc.core.service.AsyncMarketplaceService;
 import org.eclipse.epp.internal.mpc.core.service.Identifiable;
 import org.eclipse.epp.internal.mpc.core.service.Node;
+import org.eclipse.epp.internal.mpc.core.service.NodeStream;
 import org.eclipse.epp.internal.mpc.core.service.SearchResult;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
 import org.eclipse.epp.internal.mpc.core.util.URLUtil;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
 import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceCategory.Contents;
@@ -48,8 +55,11 @@ import org.eclipse.epp.mpc.core.model.INews;
 import org.eclipse.epp.mpc.core.model.INode;
 import org.eclipse.epp.mpc.core.model.ISearchResult;
 import org.eclipse.epp.mpc.core.payment.PaymentService;
+import org.eclipse.epp.mpc.core.service.IAsyncMarketplaceService;
+import org.eclipse.epp.mpc.core.service.IMarketplaceFuture;
 import org.eclipse.epp.mpc.core.service.IMarketplaceService;
 import org.eclipse.epp.mpc.core.service.IMarketplaceServiceLocator;
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
 import org.eclipse.epp.mpc.ui.CatalogDescriptor;
 import org.eclipse.epp.mpc.ui.MarketplaceUrlHandler;
 import org.eclipse.equinox.internal.p2.discovery.AbstractDiscoveryStrategy;
@@ -70,17 +80,26 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 
 	private static final Pattern BREAK_PATTERN = Pattern.compile("<!--\\s*break\\s*-->"); //$NON-NLS-1$
 
+	/**
+	 * Minimum time in milliseconds between two partial results reported while a result is streamed
+	 */
+	private static final long PARTIAL_RESULT_INTERVAL = 50;
+
 	protected final CatalogDescriptor catalogDescriptor;
 
 	private final IMarketplaceService marketplaceService;
 
+	private final IAsyncMarketplaceService asyncMarketplaceService;
+
 	private final PaymentServiceImpl paymentService;
 
 	private MarketplaceCatalogSource source;
 
 	private MarketplaceInfo marketplaceInfo;
 
-	private Map<String, IInstallableUnit> featureIUById;
+	private volatile MarketplaceCatalog.PartialResultListener partialResultListener;
+
+	private volatile MarketplaceCatalog.ResourceListener resourceListener;
 
 	public MarketplaceDiscoveryStrategy(CatalogDescriptor catalogDescriptor) {
 		if (catalogDescriptor == null) {
@@ -88,6 +107,7 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		}
 		this.catalogDescriptor = catalogDescriptor;
 		marketplaceService = createMarketplaceService();//use deprecated method in case someone has overridden it
+		asyncMarketplaceService = new AsyncMarketplaceService(marketplaceService);
 		PaymentServiceImpl paymentService = new PaymentServiceImpl(marketplaceService, catalogDescriptor.getUrl()
 				.toExternalForm());
 		if (paymentService.isPaymentServiceEnabled()) {
@@ -120,6 +140,14 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		return ServiceLocator.computeDefaultRequestMetaParameters();
 	}
 
+	/**
+	 * @return the node to IU mappings used by this strategy, which are saved when the strategy is disposed, or null if
+	 *         the strategy has been disposed
+	 */
+	public MarketplaceInfo getMarketplaceInfo() {
+		return marketplaceInfo;
+	}
+
 	@Override
 	public void dispose() {
 		if (source != null) {
@@ -144,155 +172,298 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		final int totalWork = 10000000;
 		final int workSegment = totalWork / 3;
 		monitor.beginTask(Messages.MarketplaceDiscoveryStrategy_loadingMarketplace, totalWork);
+		// load featured nodes while the markets are listed
+		IMarketplaceFuture<ISearchResult> featuredFuture = asyncMarketplaceService.featured();
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, workSegment));
 
 			catalogCategory.setContents(Contents.FEATURED);
 
-			ISearchResult featured = marketplaceService.featured(new SubProgressMonitor(monitor, workSegment));
+			ISearchResult featured = featuredFuture.getResult(new SubProgressMonitor(monitor, workSegment));
 			handleSearchResult(catalogCategory, featured, new SubProgressMonitor(monitor, workSegment));
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
+			featuredFuture.cancel(true);
 			monitor.done();
 		}
 	}
 
 	protected void handleSearchResult(MarketplaceCategory catalogCategory, ISearchResult result,
 			final IProgressMonitor monitor) {
+		handleSearchResult(new SearchResultHandler(catalogCategory, monitor), result, monitor);
+	}
+
+	private void handleSearchResult(SearchResultHandler handler, ISearchResult result, IProgressMonitor monitor) {
 		if (!result.getNodes().isEmpty()) {
 			int totalWork = 10000000;
 			monitor.beginTask(Messages.MarketplaceDiscoveryStrategy_loadingResources, totalWork);
-			ConcurrentTaskManager executor = new ConcurrentTaskManager(result.getNodes().size(),
-					Messages.MarketplaceDiscoveryStrategy_loadingResources);
 			try {
-				final MultiStatus errors = new MultiStatus(MarketplaceClientCore.BUNDLE_ID, 0,
-						Messages.MarketplaceDiscoveryStrategy_Error_during_query, null);
 				for (final INode node : result.getNodes()) {
-					try {
-						final MarketplaceNodeCatalogItem catalogItem = new MarketplaceNodeCatalogItem();
-						catalogItem.setMarketplaceUrl(catalogDescriptor.getUrl());
-						catalogItem.setId(node.getId());
-						catalogItem.setName(getCatalogItemName(node));
-						catalogItem.setCategoryId(catalogCategory.getId());
-						ICategories categories = node.getCategories();
-						if (categories != null) {
-							for (ICategory category : categories.getCategory()) {
-								catalogItem.addTag(new Tag(ICategory.class, category.getId(), category.getName()));
-							}
-						}
-						catalogItem.setData(node);
-						catalogItem.setSource(source);
-						catalogItem.setLicense(node.getLicense());
-						IIus ius = node.getIus();
-						if (ius != null) {
-							List<String> discoveryIus = new ArrayList<String>(ius.getIu());
-							for (int x = 0; x < discoveryIus.size(); ++x) {
-								String iu = discoveryIus.get(x);
-								if (!iu.endsWith(DOT_FEATURE_DOT_GROUP)) {
-									discoveryIus.set(x, iu + DOT_FEATURE_DOT_GROUP);
-								}
-							}
-							catalogItem.setInstallableUnits(discoveryIus);
-						}
-						if (node.getShortdescription() == null && node.getBody() != null) {
-							// bug 306653 <!--break--> marks the end of the short description.
-							String descriptionText = node.getBody();
-							Matcher matcher = BREAK_PATTERN.matcher(node.getBody());
-							if (matcher.find()) {
-								int start = matcher.start();
-								if (start > 0) {
-									String shortDescriptionText = descriptionText.substring(0, start).trim();
-									if (shortDescriptionText.length() > 0) {
-										descriptionText = shortDescriptionText;
-									}
-								}
-							}
-							catalogItem.setDescription(descriptionText);
-						} else {
-							catalogItem.setDescription(node.getShortdescription());
+					handler.handleNode(node);
+				}
+				// show the items while their resources are still loading
+				firePartialResult();
+				handler.waitUntilFinished(new SubProgressMonitor(monitor, totalWork - 10));
+			} finally {
+				handler.dispose();
+				monitor.done();
+			}
+			MarketplaceCategory catalogCategory = handler.catalogCategory;
+			if (result.getMatchCount() != null) {
+				catalogCategory.setMatchCount(result.getMatchCount());
+				if (result.getMatchCount() > countNodeItems()) {
+					// add an item here to indicate that the search matched more items than were returned by the server
+					addCatalogItem(catalogCategory);
+				}
+			}
+		} else {
+			handler.dispose();
+		}
+	}
+
+	/**
+	 * Run a service request that returns a search result, and start creating catalog items for the result's nodes
+	 * while the response is still being parsed.
+	 */
+	private ISearchResult streamSearchResult(SearchResultHandler handler, SearchOperation operation,
+			IProgressMonitor monitor) throws CoreException {
+		NodeStream stream = new NodeStream(handler);
+		NodeStream previous = stream.enter();
+		boolean success = false;
+		try {
+			ISearchResult result = operation.run(monitor);
+			success = true;
+			return result;
+		} finally {
+			stream.exit(previous);
+			if (!success) {
+				handler.discard();
+			}
+		}
+	}
+
+	void setPartialResultListener(MarketplaceCatalog.PartialResultListener partialResultListener) {
+		this.partialResultListener = partialResultListener;
+	}
+
+	private void firePartialResult() {
+		MarketplaceCatalog.PartialResultListener listener = partialResultListener;
+		if (listener != null) {
+			listener.partialResult(new ArrayList<CatalogItem>(items));
+		}
+	}
+
+	void setResourceListener(MarketplaceCatalog.ResourceListener resourceListener) {
+		this.resourceListener = resourceListener;
+	}
+
+	private void fireResourceLoaded(Future<?> task, long latency) {
+		MarketplaceCatalog.ResourceListener listener = resourceListener;
+		if (listener == null || task.isCancelled()) {
+			return;
+		}
+		Object result;
+		try {
+			result = task.get();
+		} catch (InterruptedException e) {
+			return;
+		} catch (ExecutionException e) {
+			// already reported by the task manager
+			return;
+		}
+		if (result instanceof AbstractResourceRunnable) {
+			AbstractResourceRunnable resourceRunnable = (AbstractResourceRunnable) result;
+			if (resourceRunnable.isRetrieved()) {
+				listener.resourceLoaded(resourceRunnable.catalogItem, latency);
+			}
+		}
+	}
+
+	private interface SearchOperation {
+		public ISearchResult run(IProgressMonitor monitor) throws CoreException;
+	}
+
+	/**
+	 * Creates catalog items for the nodes of a search result and loads their resources. Nodes can be passed in as
+	 * they are {@link NodeStream streamed}, before the complete result is available. Each node is handled only once.
+	 */
+	private class SearchResultHandler implements NodeStream.Listener {
+
+		private final MarketplaceCategory catalogCategory;
+
+		private final IProgressMonitor cancellationMonitor;
+
+		private final ConcurrentTaskManager executor;
+
+		private final MultiStatus errors;
+
+		private final Map<INode, Boolean> handledNodes = new IdentityHashMap<INode, Boolean>();
+
+		private final List<CatalogItem> createdItems = new ArrayList<CatalogItem>();
+
+		private long lastPartialResult;
+
+		public SearchResultHandler(MarketplaceCategory catalogCategory, IProgressMonitor cancellationMonitor) {
+			this.catalogCategory = catalogCategory;
+			this.cancellationMonitor = cancellationMonitor;
+			this.executor = new ConcurrentTaskManager(Lane.ICONS,
+					Messages.MarketplaceDiscoveryStrategy_loadingResources);
+			// update each item as soon as its own resources are available instead of after all of them
+			this.executor.setCompletionListener(new ConcurrentTaskManager.CompletionListener() {
+				public void taskCompleted(Future<?> task, long latency) {
+					fireResourceLoaded(task, latency);
+				}
+			});
+			this.errors = new MultiStatus(MarketplaceClientCore.BUNDLE_ID, 0,
+					Messages.MarketplaceDiscoveryStrategy_Error_during_query, null);
+		}
+
+		public void nodeParsed(INode node) {
+			if (cancellationMonitor.isCanceled()) {
+				return;
+			}
+			handleNode(node);
+			long now = System.currentTimeMillis();
+			if (now - lastPartialResult >= PARTIAL_RESULT_INTERVAL) {
+				lastPartialResult = now;
+				firePartialResult();
+			}
+		}
+
+		public void handleNode(final INode node) {
+			if (handledNodes.put(node, Boolean.TRUE) != null) {
+				return;
+			}
+			try {
+				final MarketplaceNodeCatalogItem catalogItem = new MarketplaceNodeCatalogItem();
+				catalogItem.setMarketplaceUrl(catalogDescriptor.getUrl());
+				catalogItem.setId(node.getId());
+				catalogItem.setName(getCatalogItemName(node));
+				catalogItem.setCategoryId(catalogCategory.getId());
+				ICategories categories = node.getCategories();
+				if (categories != null) {
+					for (ICategory category : categories.getCategory()) {
+						catalogItem.addTag(new Tag(ICategory.class, category.getId(), category.getName()));
+					}
+				}
+				catalogItem.setData(node);
+				catalogItem.setSource(source);
+				catalogItem.setLicense(node.getLicense());
+				IIus ius = node.getIus();
+				if (ius != null) {
+					List<String> discoveryIus = new ArrayList<String>(ius.getIu());
+					for (int x = 0; x < discoveryIus.size(); ++x) {
+						String iu = discoveryIus.get(x);
+						if (!iu.endsWith(DOT_FEATURE_DOT_GROUP)) {
+							discoveryIus.set(x, iu + DOT_FEATURE_DOT_GROUP);
 						}
-						catalogItem.setProvider(node.getCompanyname());
-						String updateurl = node.getUpdateurl();
-						if (updateurl != null) {
-							try {
-								// trim is important!
-								updateurl = updateurl.trim();
-								URLUtil.toURL(updateurl);
-								catalogItem.setSiteUrl(updateurl);
-							} catch (MalformedURLException e) {
-								// don't use malformed URLs
+					}
+					catalogItem.setInstallableUnits(discoveryIus);
+				}
+				if (node.getShortdescription() == null && node.getBody() != null) {
+					// bug 306653 <!--break--> marks the end of the short description.
+					String descriptionText = node.getBody();
+					Matcher matcher = BREAK_PATTERN.matcher(node.getBody());
+					if (matcher.find()) {
+						int start = matcher.start();
+						if (start > 0) {
+							String shortDescriptionText = descriptionText.substring(0, start).trim();
+							if (shortDescriptionText.length() > 0) {
+								descriptionText = shortDescriptionText;
 							}
 						}
-						if (node.getBody() != null || node.getScreenshot() != null) {
-							final Overview overview = new Overview();
-							overview.setItem(catalogItem);
-							overview.setSummary(node.getBody());
-							overview.setUrl(node.getUrl());
-							catalogItem.setOverview(overview);
-
-							if (node.getScreenshot() != null) {
-								if (!source.getResourceProvider().containsResource(node.getScreenshot())) {
-									executor.submit(new AbstractResourceRunnable(monitor, catalogItem,
-											source.getResourceProvider(), node.getScreenshot()) {
-										@Override
-										protected void resourceRetrieved() {
-											overview.setScreenshot(node.getScreenshot());
-										}
-									});
-								} else {
+					}
+					catalogItem.setDescription(descriptionText);
+				} else {
+					catalogItem.setDescription(node.getShortdescription());
+				}
+				catalogItem.setProvider(node.getCompanyname());
+				String updateurl = node.getUpdateurl();
+				if (updateurl != null) {
+					try {
+						// trim is important!
+						updateurl = updateurl.trim();
+						URLUtil.toURL(updateurl);
+						catalogItem.setSiteUrl(updateurl);
+					} catch (MalformedURLException e) {
+						// don't use malformed URLs
+					}
+				}
+				if (node.getBody() != null || node.getScreenshot() != null) {
+					final Overview overview = new Overview();
+					overview.setItem(catalogItem);
+					overview.setSummary(node.getBody());
+					overview.setUrl(node.getUrl());
+					catalogItem.setOverview(overview);
+
+					if (node.getScreenshot() != null) {
+						if (!source.getResourceProvider().containsResource(node.getScreenshot())) {
+							executor.submit(Lane.SCREENSHOTS, new AbstractResourceRunnable(cancellationMonitor,
+									catalogItem, source.getResourceProvider(), node.getScreenshot()) {
+								@Override
+								protected void resourceRetrieved() {
 									overview.setScreenshot(node.getScreenshot());
 								}
-							}
+							});
+						} else {
+							overview.setScreenshot(node.getScreenshot());
 						}
-						if (node.getImage() != null) {
-							if (!source.getResourceProvider().containsResource(node.getImage())) {
-								executor.submit(new AbstractResourceRunnable(monitor, catalogItem,
-										source.getResourceProvider(), node.getImage()) {
-									@Override
-									protected void resourceRetrieved() {
-										createIcon(catalogItem, node);
-									}
-
-								});
-							} else {
+					}
+				}
+				if (node.getImage() != null) {
+					if (!source.getResourceProvider().containsResource(node.getImage())) {
+						executor.submit(new AbstractResourceRunnable(cancellationMonitor, catalogItem,
+								source.getResourceProvider(), node.getImage()) {
+							@Override
+							protected void resourceRetrieved() {
 								createIcon(catalogItem, node);
 							}
-						}
-						if (paymentService != null) {
-							executor.submit(new PaymentServiceRunnable(paymentService,
-									paymentService.getDiscoveryService(), catalogItem, monitor, errors));
-						}
-						items.add(catalogItem);
-						marketplaceInfo.map(catalogItem.getMarketplaceUrl(), node);
-						catalogItem.setInstalled(marketplaceInfo.computeInstalled(computeInstalledFeatures(monitor),
-								node));
-					} catch (RuntimeException ex) {
-						MarketplaceClientUi.error(
-								NLS.bind(Messages.MarketplaceDiscoveryStrategy_ParseError,
-										node == null ? "null" : node.getId()), ex); //$NON-NLS-1$
+
+						});
+					} else {
+						createIcon(catalogItem, node);
 					}
 				}
-				try {
-					executor.waitUntilFinished(new SubProgressMonitor(monitor, totalWork - 10));
-				} catch (CoreException e) {
-					// just log, since this is expected to occur frequently
-					MarketplaceClientUi.error(e);
+				if (paymentService != null) {
+					executor.submit(Lane.API, new PaymentServiceRunnable(paymentService,
+							paymentService.getDiscoveryService(), catalogItem, cancellationMonitor, errors));
 				}
-				if (errors.getChildren().length > 0) {
-					MarketplaceClientUi.getLog().log(errors);
-				}
-			} finally {
-				executor.shutdownNow();
-				monitor.done();
+				items.add(catalogItem);
+				createdItems.add(catalogItem);
+				marketplaceInfo.map(catalogItem.getMarketplaceUrl(), node);
+				catalogItem.setInstalled(marketplaceInfo.computeInstalled(computeInstalledFeatures(cancellationMonitor),
+						node));
+			} catch (RuntimeException ex) {
+				MarketplaceClientUi.error(
+						NLS.bind(Messages.MarketplaceDiscoveryStrategy_ParseError,
+								node == null ? "null" : node.getId()), ex); //$NON-NLS-1$
 			}
-			if (result.getMatchCount() != null) {
-				catalogCategory.setMatchCount(result.getMatchCount());
-				if (result.getMatchCount() > result.getNodes().size()) {
-					// add an item here to indicate that the search matched more items than were returned by the server
-					addCatalogItem(catalogCategory);
-				}
+		}
+
+		public void waitUntilFinished(IProgressMonitor monitor) {
+			try {
+				executor.waitUntilFinished(monitor);
+			} catch (CoreException e) {
+				// just log, since this is expected to occur frequently
+				MarketplaceClientUi.error(e);
+			}
+			if (errors.getChildren().length > 0) {
+				MarketplaceClientUi.getLog().log(errors);
 			}
 		}
+
+		/**
+		 * Remove the items created so far, e.g. if the request failed after some nodes had already been streamed
+		 */
+		public void discard() {
+			dispose();
+			items.removeAll(createdItems);
+			createdItems.clear();
+		}
+
+		public void dispose() {
+			executor.shutdownNow();
+		}
 	}
 
 	private String getCatalogItemName(INode node) {
@@ -329,22 +500,41 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		catalogItem.setIcon(icon);
 	}
 
-	public void performQuery(IMarket market, ICategory category, String queryText, IProgressMonitor monitor)
+	public void performQuery(IMarket market, ICategory category, final String queryText, IProgressMonitor monitor)
 			throws CoreException {
+		performQuery(market, category, queryText, 0, monitor);
+	}
+
+	/**
+	 * Search the marketplace and add the items of the given result page. Page 0 starts a new search. The items of
+	 * later pages are appended to those of the previous pages, which have to be this strategy's current items.
+	 *
+	 * @return true if there are more results on further pages
+	 */
+	public boolean performQuery(IMarket market, ICategory category, final String queryText, final int page,
+			IProgressMonitor monitor) throws CoreException {
 		final int totalWork = 1000000;
 		SubMonitor progress = SubMonitor.convert(monitor, Messages.MarketplaceDiscoveryStrategy_searchingMarketplace,
 				totalWork);
+		MarketplaceCategory catalogCategory = null;
+		boolean success = false;
 		try {
-			ISearchResult result;
-			MarketplaceCategory catalogCategory = findMarketplaceCategory(progress.newChild(1));
+			ISearchResult result = null;
+			catalogCategory = findMarketplaceCategory(progress.newChild(1));
 			catalogCategory.setContents(Contents.QUERY);
+			SearchResultHandler handler = new SearchResultHandler(catalogCategory, progress);
 
-			try {
-				//check if the query matches a node url and just retrieve that node
-				result = performNodeQuery(queryText, progress.newChild(totalWork / 2));
-			} catch (CoreException ex) {
-				// node not found, continue with regular query
-				result = null;
+			if (page > 0) {
+				// the new page's items go before the "more results" item
+				removeCatalogItems();
+			} else {
+				try {
+					//check if the query matches a node url and just retrieve that node
+					result = performNodeQuery(queryText, progress.newChild(totalWork / 2));
+				} catch (CoreException ex) {
+					// node not found, continue with regular query
+					result = null;
+				}
 			}
 
 			if (result == null) {
@@ -363,20 +553,58 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 				}
 
 				progress.setWorkRemaining(totalWork);
-				result = marketplaceService.search(resolvedMarket, resolvedCategory, queryText,
-						progress.newChild(totalWork / 2));
+				final IMarket searchMarket = resolvedMarket;
+				final ICategory searchCategory = resolvedCategory;
+				result = streamSearchResult(handler, new SearchOperation() {
+					public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+						if (page == 0) {
+							return marketplaceService.search(searchMarket, searchCategory, queryText, monitor);
+						}
+						return marketplaceService.search(searchMarket, searchCategory, queryText, page, monitor);
+					}
+				}, progress.newChild(totalWork / 2));
 			}
 
-			handleSearchResult(catalogCategory, result, progress.newChild(totalWork / 2));
+			handleSearchResult(handler, result, progress.newChild(totalWork / 2));
+			success = true;
 			if (result.getNodes().isEmpty()) {
-				catalogCategory.setMatchCount(0);
-				addCatalogItem(catalogCategory);
+				if (page == 0) {
+					catalogCategory.setMatchCount(0);
+					addCatalogItem(catalogCategory);
+				} else {
+					// the server has no more pages even though the match count says otherwise
+					maybeAddCatalogItem(catalogCategory);
+				}
+				return false;
 			}
+			return result.getMatchCount() != null && result.getMatchCount() > countNodeItems();
 		} finally {
+			if (!success && page > 0 && catalogCategory != null) {
+				// keep the link to the full result on the website
+				maybeAddCatalogItem(catalogCategory);
+			}
 			progress.done();
 		}
 	}
 
+	private void removeCatalogItems() {
+		for (Iterator<CatalogItem> i = items.iterator(); i.hasNext();) {
+			if (i.next().getData() == catalogDescriptor) {
+				i.remove();
+			}
+		}
+	}
+
+	private int countNodeItems() {
+		int count = 0;
+		for (CatalogItem item : items) {
+			if (item.getData() instanceof INode) {
+				count++;
+			}
+		}
+		return count;
+	}
+
 	private ICategory resolveCategory(ICategory category, List<? extends IMarket> markets)
 			throws IllegalArgumentException, NoSuchElementException {
 		if (category != null && category.getId() == null) {
@@ -450,8 +678,13 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.RECENT);
-			ISearchResult result = marketplaceService.recent(new SubProgressMonitor(monitor, totalWork / 2));
-			handleSearchResult(catalogCategory, result, new SubProgressMonitor(monitor, totalWork / 2));
+			SearchResultHandler handler = new SearchResultHandler(catalogCategory, monitor);
+			ISearchResult result = streamSearchResult(handler, new SearchOperation() {
+				public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+					return marketplaceService.recent(monitor);
+				}
+			}, new SubProgressMonitor(monitor, totalWork / 2));
+			handleSearchResult(handler, result, new SubProgressMonitor(monitor, totalWork / 2));
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
 			monitor.done();
@@ -464,9 +697,13 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.FEATURED);
-			ISearchResult result = marketplaceService.featured(market, category,
-					new SubProgressMonitor(monitor, totalWork / 2));
-			handleSearchResult(catalogCategory, result, new SubProgressMonitor(monitor, totalWork / 2));
+			SearchResultHandler handler = new SearchResultHandler(catalogCategory, monitor);
+			ISearchResult result = streamSearchResult(handler, new SearchOperation() {
+				public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+					return marketplaceService.featured(market, category, monitor);
+				}
+			}, new SubProgressMonitor(monitor, totalWork / 2));
+			handleSearchResult(handler, result, new SubProgressMonitor(monitor, totalWork / 2));
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
 			monitor.done();
@@ -479,8 +716,13 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		try {
 			MarketplaceCategory catalogCategory = findMarketplaceCategory(new SubProgressMonitor(monitor, 1));
 			catalogCategory.setContents(Contents.POPULAR);
-			ISearchResult result = marketplaceService.popular(new SubProgressMonitor(monitor, totalWork / 2));
-			handleSearchResult(catalogCategory, result, new SubProgressMonitor(monitor, totalWork / 2));
+			SearchResultHandler handler = new SearchResultHandler(catalogCategory, monitor);
+			ISearchResult result = streamSearchResult(handler, new SearchOperation() {
+				public ISearchResult run(IProgressMonitor monitor) throws CoreException {
+					return marketplaceService.popular(monitor);
+				}
+			}, new SubProgressMonitor(monitor, totalWork / 2));
+			handleSearchResult(handler, result, new SubProgressMonitor(monitor, totalWork / 2));
 			maybeAddCatalogItem(catalogCategory);
 		} finally {
 			monitor.done();
@@ -500,12 +742,7 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 				Set<INode> catalogNodes = marketplaceInfo.computeInstalledNodes(catalogDescriptor.getUrl(),
 						installedFeatures);
 				if (!catalogNodes.isEmpty()) {
-					int unitWork = totalWork / (2 * catalogNodes.size());
-					for (INode node : catalogNodes) {
-						node = marketplaceService.getNode(node, monitor);
-						result.getNodes().add((Node) node);
-						monitor.worked(unitWork);
-					}
+					getNodes(catalogNodes, result, new SubProgressMonitor(monitor, totalWork / 2));
 				} else {
 					monitor.worked(totalWork / 2);
 				}
@@ -536,12 +773,7 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 			result.setNodes(new ArrayList<Node>());
 			if (!monitor.isCanceled()) {
 				if (!nodes.isEmpty()) {
-					int unitWork = totalWork / (2 * nodes.size());
-					for (INode node : nodes) {
-						node = marketplaceService.getNode(node, monitor);
-						result.getNodes().add((Node) node);
-						monitor.worked(unitWork);
-					}
+					getNodes(nodes, result, new SubProgressMonitor(monitor, totalWork / 2));
 				} else {
 					monitor.worked(totalWork / 2);
 				}
@@ -554,15 +786,29 @@ public class MarketplaceDiscoveryStrategy extends AbstractDiscoveryStrategy {
 		}
 	}
 
+	private void getNodes(Set<? extends INode> nodes, SearchResult result, IProgressMonitor monitor)
+			throws CoreException {
+		INodeQueryResult nodesResult = marketplaceService.getNodes(nodes, monitor);
+		IStatus status = nodesResult.getStatus();
+		if (!status.isOK()) {
+			if (nodesResult.getNodes().isEmpty()) {
+				throw new CoreException(status);
+			}
+			// show what we could retrieve
+			MarketplaceClientUi.getLog().log(status);
+		}
+		for (INode node : nodesResult.getNodes()) {
+			result.getNodes().add((Node) node);
+		}
+	}
+
 	protected Set<String> computeInstalledFeatures(IProgressMonitor monitor) {
 		return computeInstalledIUs(monitor).keySet();
 	}
 
-	protected synchronized Map<String, IInstallableUnit> computeInstalledIUs(IProgressMonitor monitor) {
-		if (featureIUById == null) {
-			featureIUById = MarketplaceClientUi.computeInstalledIUsById(monitor);
-		}
-		return featureIUById;
+	protected Map<String, IInstallableUnit> computeInstalledIUs(IProgressMonitor monitor) {
+		// the shared profile snapshot is cheap to look up and stays current when features are installed
+		return MarketplaceClientUi.computeInstalledIUsById(monitor);
 	}
 
 	protected MarketplaceCategory findMarketplaceCategory(IProgressMonitor monitor) throws CoreException {
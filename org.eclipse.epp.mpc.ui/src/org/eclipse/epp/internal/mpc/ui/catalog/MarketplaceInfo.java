@@ -12,63 +12,237 @@
 package org.eclipse.epp.internal.mpc.ui.catalog;
 
 import java.beans.XMLDecoder;
-import java.beans.XMLEncoder;
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
+import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import org.eclipse.core.runtime.Platform;
 import org.eclipse.epp.internal.mpc.core.service.Node;
 import org.eclipse.epp.internal.mpc.core.util.URLUtil;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
 import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.osgi.util.NLS;
 
 /**
  * A means of knowing about how nodes map to IUs and visa versa. Can handle nodes from multiple marketplaces, and does a
  * best-effort job at persisting information across sessions.
+ * <p>
+ * Mappings are indexed per marketplace, both from node to IUs and from IU to nodes, so
+ * {@link #computeInstalledNodes(URL, Set) installed nodes} are found by looking up the installed IUs instead of
+ * checking every node ever seen. They are persisted in an append-only binary journal: {@link #save()} only appends
+ * the mappings that changed since they were loaded, in one block per marketplace. The journal is compacted when it is
+ * loaded and contains mostly superseded entries.
+ * <p>
+ * For installed nodes, the listing state at which they were last known to be up to date is recorded as well, so update
+ * checks can skip nodes whose {@link #isKnownUpToDate(URL, INode, Map) listing and installed features didn't change}.
  *
  * @author David Green
+ * @author Carsten Reckord
  */
 public class MarketplaceInfo {
 
 	private static final String P2_FEATURE_GROUP_SUFFIX = ".feature.group"; //$NON-NLS-1$
 
-	private static final String PERSISTENT_FILE = MarketplaceInfo.class.getSimpleName() + ".xml"; //$NON-NLS-1$
+	private static final String LEGACY_PERSISTENT_FILE = MarketplaceInfo.class.getSimpleName() + ".xml"; //$NON-NLS-1$
 
-	private Map<String, List<String>> nodeKeyToIU = new HashMap<String, List<String>>();
+	private static final String PERSISTENT_FILE = MarketplaceInfo.class.getSimpleName() + ".journal"; //$NON-NLS-1$
 
-	private Map<String, List<String>> iuToNodeKey = new HashMap<String, List<String>>();
+	private static final int JOURNAL_MAGIC = 0x4d504349;
+
+	private static final int JOURNAL_VERSION = 1;
+
+	private static final byte JOURNAL_BLOCK = 1;
+
+	private static final byte JOURNAL_LISTING_BLOCK = 2;
+
+	/**
+	 * Time in milliseconds after which a node is checked against its update site even if its listing didn't change
+	 */
+	private static final long LISTING_MAX_AGE = 7 * 24 * 60 * 60 * 1000L;
+
+	/**
+	 * Minimum number of superseded journal entries before the journal is compacted
+	 */
+	private static final int COMPACTION_THRESHOLD = 1000;
+
+	/**
+	 * The listing state of a node when it was last known to be up to date
+	 */
+	private static class Listing {
+
+		private final String stamp;
+
+		private final long recordTime;
+
+		public Listing(String stamp, long recordTime) {
+			this.stamp = stamp;
+			this.recordTime = recordTime;
+		}
+	}
+
+	/**
+	 * Node to IU mappings of a single marketplace
+	 */
+	private static class MarketIndex {
+
+		private final Map<String, List<String>> iusByNodeId = new HashMap<String, List<String>>();
+
+		private final Map<String, Set<String>> nodeIdsByIu = new HashMap<String, Set<String>>();
+
+		private final Set<String> dirtyNodeIds = new HashSet<String>();
+
+		private final Map<String, Listing> listingsByNodeId = new HashMap<String, Listing>();
+
+		private final Set<String> dirtyListingNodeIds = new HashSet<String>();
+
+		/**
+		 * @return true if the mapping changed
+		 */
+		boolean put(String nodeId, List<String> ius) {
+			List<String> oldIus = iusByNodeId.get(nodeId);
+			if (ius.isEmpty()) {
+				if (oldIus == null) {
+					return false;
+				}
+				remove(nodeId, oldIus);
+				iusByNodeId.remove(nodeId);
+				return true;
+			}
+			if (oldIus != null) {
+				if (new HashSet<String>(oldIus).equals(new HashSet<String>(ius))) {
+					return false;
+				}
+				remove(nodeId, oldIus);
+			}
+			iusByNodeId.put(nodeId, ius);
+			for (String iu : ius) {
+				Set<String> nodeIds = nodeIdsByIu.get(iu);
+				if (nodeIds == null) {
+					nodeIds = new HashSet<String>(1);
+					nodeIdsByIu.put(iu, nodeIds);
+				}
+				nodeIds.add(nodeId);
+			}
+			return true;
+		}
+
+		private void remove(String nodeId, List<String> ius) {
+			for (String iu : ius) {
+				Set<String> nodeIds = nodeIdsByIu.get(iu);
+				if (nodeIds != null) {
+					nodeIds.remove(nodeId);
+					if (nodeIds.isEmpty()) {
+						nodeIdsByIu.remove(iu);
+					}
+				}
+			}
+		}
+
+		void addNodeIds(String iu, Set<String> nodeIds) {
+			Set<String> mappedNodeIds = nodeIdsByIu.get(iu);
+			if (mappedNodeIds != null) {
+				nodeIds.addAll(mappedNodeIds);
+			}
+		}
+	}
+
+	private final Map<String, MarketIndex> marketIndexes = new HashMap<String, MarketIndex>();
 
 	public MarketplaceInfo() {
 	}
 
-	public Map<String, List<String>> getNodeKeyToIU() {
+	/**
+	 * @return a copy of all node to IU mappings, keyed by marketplace url and node id
+	 */
+	public synchronized Map<String, List<String>> getNodeKeyToIU() {
+		Map<String, List<String>> nodeKeyToIU = new HashMap<String, List<String>>();
+		for (Map.Entry<String, MarketIndex> market : marketIndexes.entrySet()) {
+			for (Map.Entry<String, List<String>> node : market.getValue().iusByNodeId.entrySet()) {
+				nodeKeyToIU.put(computeItemKey(market.getKey(), node.getKey()), new ArrayList<String>(node.getValue()));
+			}
+		}
 		return nodeKeyToIU;
 	}
 
-	public void setNodeKeyToIU(Map<String, List<String>> nodeKeyToIU) {
-		this.nodeKeyToIU = nodeKeyToIU;
+	/**
+	 * Replace the current mappings. This is used to read the legacy XML format.
+	 */
+	public synchronized void setNodeKeyToIU(Map<String, List<String>> nodeKeyToIU) {
+		marketIndexes.clear();
+		for (Map.Entry<String, List<String>> entry : nodeKeyToIU.entrySet()) {
+			String key = entry.getKey();
+			int separator = key.lastIndexOf('#');
+			if (separator != -1 && entry.getValue() != null) {
+				MarketIndex index = getMarketIndex(key.substring(0, separator));
+				String nodeId = key.substring(separator + 1);
+				if (index.put(nodeId, new ArrayList<String>(new HashSet<String>(entry.getValue())))) {
+					index.dirtyNodeIds.add(nodeId);
+				}
+			}
+		}
 	}
 
-	public Map<String, List<String>> getIuToNodeKey() {
+	/**
+	 * @return a copy of all IU to node mappings, with nodes keyed by marketplace url and node id
+	 */
+	public synchronized Map<String, List<String>> getIuToNodeKey() {
+		Map<String, List<String>> iuToNodeKey = new HashMap<String, List<String>>();
+		for (Map.Entry<String, MarketIndex> market : marketIndexes.entrySet()) {
+			for (Map.Entry<String, Set<String>> iu : market.getValue().nodeIdsByIu.entrySet()) {
+				List<String> nodeKeys = iuToNodeKey.get(iu.getKey());
+				if (nodeKeys == null) {
+					nodeKeys = new ArrayList<String>(iu.getValue().size());
+					iuToNodeKey.put(iu.getKey(), nodeKeys);
+				}
+				for (String nodeId : iu.getValue()) {
+					nodeKeys.add(computeItemKey(market.getKey(), nodeId));
+				}
+			}
+		}
 		return iuToNodeKey;
 	}
 
+	/**
+	 * The IU to node mappings are derived from the {@link #setNodeKeyToIU(Map) node to IU mappings}, so this is
+	 * ignored. It is only kept to read the legacy XML format.
+	 */
 	public void setIuToNodeKey(Map<String, List<String>> iuToNodeKey) {
-		this.iuToNodeKey = iuToNodeKey;
+		// derived
+	}
+
+	/**
+	 * @return the urls of all marketplaces with known nodes
+	 */
+	public synchronized List<URL> getMarketUrls() {
+		List<URL> marketUrls = new ArrayList<URL>(marketIndexes.size());
+		for (String urlKey : marketIndexes.keySet()) {
+			try {
+				marketUrls.add(new URL(urlKey));
+			} catch (MalformedURLException e) {
+				// can't query it anyway
+			}
+		}
+		return marketUrls;
 	}
 
 	/**
@@ -82,20 +256,25 @@ public class MarketplaceInfo {
 	 */
 	public synchronized Set<INode> computeInstalledNodes(URL repositoryUrl, Set<String> installedIus) {
 		Set<INode> nodes = new HashSet<INode>();
+		MarketIndex index = marketIndexes.get(computeUrlKey(repositoryUrl));
+		if (index == null) {
+			return nodes;
+		}
 
-		String keyPrefix = computeUrlKey(repositoryUrl) + '#';
-		for (Map.Entry<String, List<String>> entry : nodeKeyToIU.entrySet()) {
-			if (entry.getKey().startsWith(keyPrefix)) {
-				List<String> ius = nodeKeyToIU.get(entry.getKey());
-				if (computeInstalled(installedIus, ius)) {
-					String nodeId = entry.getKey().substring(keyPrefix.length());
-					Node node = new Node();
-					node.setId(nodeId);
-					nodes.add(node);
-				}
+		// a node iu is installed if either it or its feature group is installed, see computeInstalled()
+		Set<String> nodeIds = new HashSet<String>();
+		for (String installedIu : installedIus) {
+			index.addNodeIds(installedIu, nodeIds);
+			if (installedIu.endsWith(P2_FEATURE_GROUP_SUFFIX)) {
+				index.addNodeIds(installedIu.substring(0, installedIu.length() - P2_FEATURE_GROUP_SUFFIX.length()),
+						nodeIds);
 			}
 		}
-
+		for (String nodeId : nodeIds) {
+			Node node = new Node();
+			node.setId(nodeId);
+			nodes.add(node);
+		}
 		return nodes;
 	}
 
@@ -157,40 +336,96 @@ public class MarketplaceInfo {
 	}
 
 	public synchronized void map(URL marketUrl, INode node) {
-		String itemKey = computeItemKey(marketUrl, node);
+		List<String> ius;
 		if (node.getIus() != null && !node.getIus().getIu().isEmpty()) {
-			List<String> ius = new ArrayList<String>(new HashSet<String>(node.getIus().getIu()));
-			nodeKeyToIU.put(itemKey, ius);
-			for (String iu : ius) {
-				List<String> catalogNodes = iuToNodeKey.get(iu);
-				if (catalogNodes != null) {
-					if (!catalogNodes.contains(itemKey)) {
-						catalogNodes.add(itemKey);
-					}
-				} else {
-					catalogNodes = new ArrayList<String>(1);
-					catalogNodes.add(itemKey);
-					iuToNodeKey.put(iu, catalogNodes);
-				}
-			}
+			ius = new ArrayList<String>(new HashSet<String>(node.getIus().getIu()));
 		} else {
-			List<String> ius = nodeKeyToIU.remove(itemKey);
-			if (ius != null) {
-				for (String iu : ius) {
-					List<String> catalogNodes = iuToNodeKey.get(iu);
-					if (catalogNodes != null) {
-						catalogNodes.remove(itemKey);
-						if (catalogNodes.isEmpty()) {
-							iuToNodeKey.remove(iu);
-						}
-					}
+			ius = Collections.emptyList();
+		}
+		String urlKey = computeUrlKey(marketUrl);
+		MarketIndex index = ius.isEmpty() ? marketIndexes.get(urlKey) : getMarketIndex(urlKey);
+		if (index != null && index.put(node.getId(), ius)) {
+			index.dirtyNodeIds.add(node.getId());
+		}
+	}
+
+	/**
+	 * Remember the current listing state of an installed node that is known to be up to date, e.g. because it has
+	 * just been installed or an update check didn't find an update for it.
+	 *
+	 * @param installedIUs
+	 *            the currently installed IUs by id, used to record the installed versions of the node's features
+	 * @see #isKnownUpToDate(URL, INode, Map)
+	 */
+	public synchronized void mapUpToDate(URL marketUrl, INode node, Map<String, IInstallableUnit> installedIUs) {
+		String stamp = computeListingStamp(node, installedIUs);
+		if (stamp == null) {
+			return;
+		}
+		MarketIndex index = getMarketIndex(computeUrlKey(marketUrl));
+		index.listingsByNodeId.put(node.getId(), new Listing(stamp, System.currentTimeMillis()));
+		index.dirtyListingNodeIds.add(node.getId());
+	}
+
+	/**
+	 * Check if an installed node can be assumed to be up to date without loading its update site. This is the case if
+	 * its listing's {@link INode#getChanged() change date} and {@link INode#getVersion() version} as well as the
+	 * installed versions of its features are the same as when it was {@link #mapUpToDate(URL, INode, Map) last known
+	 * to be up to date}, and that wasn't too long ago. A feature that was rolled back or installed in a different
+	 * version since then might have an update even if the listing didn't change.
+	 *
+	 * @param installedIUs
+	 *            the currently installed IUs by id
+	 */
+	public synchronized boolean isKnownUpToDate(URL marketUrl, INode node, Map<String, IInstallableUnit> installedIUs) {
+		MarketIndex index = marketIndexes.get(computeUrlKey(marketUrl));
+		Listing listing = index == null ? null : index.listingsByNodeId.get(node.getId());
+		if (listing == null || System.currentTimeMillis() - listing.recordTime > LISTING_MAX_AGE) {
+			return false;
+		}
+		return listing.stamp.equals(computeListingStamp(node, installedIUs));
+	}
+
+	private static String computeListingStamp(INode node, Map<String, IInstallableUnit> installedIUs) {
+		if (node.getChanged() == null && node.getVersion() == null) {
+			return null;
+		}
+		StringBuilder stamp = new StringBuilder();
+		if (node.getChanged() != null) {
+			stamp.append(node.getChanged().getTime());
+		}
+		stamp.append('/');
+		if (node.getVersion() != null) {
+			stamp.append(node.getVersion());
+		}
+		if (node.getIus() != null) {
+			// sorted, so the stamp doesn't depend on the order of the listing's ius
+			for (String iu : new TreeSet<String>(node.getIus().getIu())) {
+				IInstallableUnit installedIU = installedIUs.get(iu.endsWith(P2_FEATURE_GROUP_SUFFIX) ? iu : iu
+						+ P2_FEATURE_GROUP_SUFFIX);
+				if (installedIU == null) {
+					installedIU = installedIUs.get(iu);
+				}
+				stamp.append('/').append(iu).append('=');
+				if (installedIU != null) {
+					stamp.append(installedIU.getVersion());
 				}
 			}
 		}
+		return stamp.toString();
 	}
 
-	private String computeItemKey(URL marketUrl, INode item) {
-		return computeUrlKey(marketUrl) + '#' + item.getId();
+	private MarketIndex getMarketIndex(String urlKey) {
+		MarketIndex index = marketIndexes.get(urlKey);
+		if (index == null) {
+			index = new MarketIndex();
+			marketIndexes.put(urlKey, index);
+		}
+		return index;
+	}
+
+	private static String computeItemKey(String urlKey, String nodeId) {
+		return urlKey + '#' + nodeId;
 	}
 
 	private String computeUrlKey(URL url) {
@@ -202,61 +437,257 @@ public class MarketplaceInfo {
 	}
 
 	public static MarketplaceInfo getInstance() {
+		File journalFile = computeRegistryFile(PERSISTENT_FILE);
+		if (journalFile != null && journalFile.exists()) {
+			return load(journalFile);
+		}
+		MarketplaceInfo info = new MarketplaceInfo();
+		File legacyFile = computeRegistryFile(LEGACY_PERSISTENT_FILE);
+		if (legacyFile != null && legacyFile.exists()) {
+			info.loadLegacy(legacyFile);
+		}
+		return info;
+	}
 
-		File registryFile = computeRegistryFile();
-		if (registryFile != null && registryFile.exists()) {
-			synchronized (MarketplaceInfo.class) {
+	/**
+	 * Read the mappings from the given journal file. If the journal is damaged, e.g. by an interrupted write, all
+	 * complete blocks are read. Damaged or mostly superseded journals are rewritten.
+	 */
+	public static MarketplaceInfo load(File journalFile) {
+		MarketplaceInfo info = new MarketplaceInfo();
+		if (!journalFile.exists()) {
+			return info;
+		}
+		synchronized (MarketplaceInfo.class) {
+			int entryCount = 0;
+			boolean damaged = false;
+			try {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journalFile)));
 				try {
-					final InputStream in = new BufferedInputStream(new FileInputStream(registryFile));
-					try {
-						XMLDecoder decoder = new XMLDecoder(in);
-						Object object = decoder.readObject();
-						decoder.close();
-						if (object instanceof MarketplaceInfo) {
-							return (MarketplaceInfo) object;
-						}
-					} finally {
-						in.close();
+					if (in.readInt() != JOURNAL_MAGIC || in.readInt() != JOURNAL_VERSION) {
+						damaged = true;
+					} else {
+						entryCount = info.readBlocks(in);
+					}
+				} finally {
+					in.close();
+				}
+			} catch (EOFException e) {
+				damaged = true;
+			} catch (IOException e) {
+				damaged = true;
+				MarketplaceClientUi.error(e);
+			}
+			for (MarketIndex index : info.marketIndexes.values()) {
+				index.dirtyNodeIds.clear();
+				index.dirtyListingNodeIds.clear();
+			}
+			if (damaged || entryCount - info.countEntries() > COMPACTION_THRESHOLD) {
+				info.compact(journalFile);
+			}
+		}
+		return info;
+	}
+
+	/**
+	 * @return the number of read entries
+	 */
+	private int readBlocks(DataInputStream in) throws IOException {
+		int entryCount = 0;
+		for (int type = in.read(); type != -1; type = in.read()) {
+			if (type == JOURNAL_LISTING_BLOCK) {
+				entryCount += readListingBlock(in);
+				continue;
+			} else if (type != JOURNAL_BLOCK) {
+				throw new IOException(NLS.bind(Messages.MarketplaceInfo_corruptJournal, type));
+			}
+			// read the complete block before applying it, so a truncated block is ignored
+			String urlKey = in.readUTF();
+			int nodeCount = in.readInt();
+			String[] nodeIds = new String[nodeCount];
+			List<List<String>> nodeIus = new ArrayList<List<String>>(nodeCount);
+			for (int i = 0; i < nodeCount; i++) {
+				nodeIds[i] = in.readUTF();
+				int iuCount = in.readInt();
+				List<String> ius = new ArrayList<String>(iuCount);
+				for (int j = 0; j < iuCount; j++) {
+					ius.add(in.readUTF());
+				}
+				nodeIus.add(ius);
+			}
+			MarketIndex index = getMarketIndex(urlKey);
+			for (int i = 0; i < nodeCount; i++) {
+				index.put(nodeIds[i], nodeIus.get(i));
+			}
+			entryCount += nodeCount;
+		}
+		return entryCount;
+	}
+
+	private int readListingBlock(DataInputStream in) throws IOException {
+		String urlKey = in.readUTF();
+		int nodeCount = in.readInt();
+		String[] nodeIds = new String[nodeCount];
+		Listing[] listings = new Listing[nodeCount];
+		for (int i = 0; i < nodeCount; i++) {
+			nodeIds[i] = in.readUTF();
+			listings[i] = new Listing(in.readUTF(), in.readLong());
+		}
+		MarketIndex index = getMarketIndex(urlKey);
+		for (int i = 0; i < nodeCount; i++) {
+			index.listingsByNodeId.put(nodeIds[i], listings[i]);
+		}
+		return nodeCount;
+	}
+
+	private int countEntries() {
+		int count = 0;
+		for (MarketIndex index : marketIndexes.values()) {
+			count += index.iusByNodeId.size() + index.listingsByNodeId.size();
+		}
+		return count;
+	}
+
+	private void loadLegacy(File legacyFile) {
+		synchronized (MarketplaceInfo.class) {
+			try {
+				final InputStream in = new BufferedInputStream(new FileInputStream(legacyFile));
+				try {
+					XMLDecoder decoder = new XMLDecoder(in);
+					Object object = decoder.readObject();
+					decoder.close();
+					if (object instanceof MarketplaceInfo) {
+						// all entries are dirty, so they are written to the journal on the next save
+						setNodeKeyToIU(((MarketplaceInfo) object).getNodeKeyToIU());
 					}
-				} catch (Throwable t) {
-					// ignore, fallback
-					MarketplaceClientUi.error(t);
+				} finally {
+					in.close();
 				}
+			} catch (Throwable t) {
+				// ignore, fallback
+				MarketplaceClientUi.error(t);
 			}
 		}
-		return new MarketplaceInfo();
 	}
 
 	public void save() {
-		File registryFile = computeRegistryFile();
-		if (registryFile != null) {
-			synchronized (MarketplaceInfo.class) {
+		File journalFile = computeRegistryFile(PERSISTENT_FILE);
+		if (journalFile != null) {
+			save(journalFile);
+		}
+	}
+
+	/**
+	 * Append all mappings that changed since they were loaded to the given journal file.
+	 */
+	public synchronized void save(File journalFile) {
+		synchronized (MarketplaceInfo.class) {
+			try {
+				boolean exists = journalFile.exists() && journalFile.length() > 0;
+				DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(journalFile,
+						exists)));
 				try {
-					OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(registryFile));
-					try {
-						XMLEncoder encoder = new XMLEncoder(outputStream);
-						encoder.writeObject(this);
-						encoder.close();
-					} finally {
-						outputStream.close();
+					if (!exists) {
+						writeHeader(out);
+					}
+					for (Map.Entry<String, MarketIndex> market : marketIndexes.entrySet()) {
+						MarketIndex index = market.getValue();
+						if (!index.dirtyNodeIds.isEmpty()) {
+							writeBlock(out, market.getKey(), index, index.dirtyNodeIds);
+						}
+						if (!index.dirtyListingNodeIds.isEmpty()) {
+							writeListingBlock(out, market.getKey(), index, index.dirtyListingNodeIds);
+						}
+					}
+				} finally {
+					out.close();
+				}
+				for (MarketIndex index : marketIndexes.values()) {
+					index.dirtyNodeIds.clear();
+					index.dirtyListingNodeIds.clear();
+				}
+			} catch (Throwable t) {
+				// fail safe
+			}
+		}
+	}
+
+	/**
+	 * Rewrite the journal with only the current mappings
+	 */
+	private void compact(File journalFile) {
+		File tempFile = new File(journalFile.getPath() + ".tmp"); //$NON-NLS-1$
+		try {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+			try {
+				writeHeader(out);
+				for (Map.Entry<String, MarketIndex> market : marketIndexes.entrySet()) {
+					MarketIndex index = market.getValue();
+					writeBlock(out, market.getKey(), index, index.iusByNodeId.keySet());
+					if (!index.listingsByNodeId.isEmpty()) {
+						writeListingBlock(out, market.getKey(), index, index.listingsByNodeId.keySet());
 					}
-				} catch (Throwable t) {
-					// fail safe
+				}
+			} finally {
+				out.close();
+			}
+			if (!journalFile.delete() || !tempFile.renameTo(journalFile)) {
+				tempFile.delete();
+			}
+		} catch (IOException e) {
+			tempFile.delete();
+			MarketplaceClientUi.error(e);
+		}
+	}
+
+	private static void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(JOURNAL_MAGIC);
+		out.writeInt(JOURNAL_VERSION);
+	}
+
+	private static void writeBlock(DataOutputStream out, String urlKey, MarketIndex index, Set<String> nodeIds)
+			throws IOException {
+		out.writeByte(JOURNAL_BLOCK);
+		out.writeUTF(urlKey);
+		out.writeInt(nodeIds.size());
+		for (String nodeId : nodeIds) {
+			out.writeUTF(nodeId);
+			// removed nodes are written without ius
+			List<String> ius = index.iusByNodeId.get(nodeId);
+			if (ius == null) {
+				out.writeInt(0);
+			} else {
+				out.writeInt(ius.size());
+				for (String iu : ius) {
+					out.writeUTF(iu);
 				}
 			}
 		}
 	}
 
+	private static void writeListingBlock(DataOutputStream out, String urlKey, MarketIndex index, Set<String> nodeIds)
+			throws IOException {
+		out.writeByte(JOURNAL_LISTING_BLOCK);
+		out.writeUTF(urlKey);
+		out.writeInt(nodeIds.size());
+		for (String nodeId : nodeIds) {
+			Listing listing = index.listingsByNodeId.get(nodeId);
+			out.writeUTF(nodeId);
+			out.writeUTF(listing.stamp);
+			out.writeLong(listing.recordTime);
+		}
+	}
+
 	/**
 	 * compute the registry file
 	 *
 	 * @return the registry file, or null if there's no persistent registry.
 	 */
-	private static final File computeRegistryFile() {
+	private static final File computeRegistryFile(String fileName) {
 		// compute the file we'll use for registry persistence, starting with the platform configuration location
 		File dataFile = Platform.getBundle(MarketplaceClientUi.BUNDLE_ID)
 				.getBundleContext()
-				.getDataFile(PERSISTENT_FILE);
+				.getDataFile(fileName);
 		if (dataFile != null) {
 			return dataFile;
 		}
@@ -271,13 +702,9 @@ public class MarketplaceInfo {
 					return null;
 				}
 			}
-			return computeConfigFile(mpcConfigLocation);
+			return new File(mpcConfigLocation, fileName);
 		}
 		return null;
 	}
 
-	private static File computeConfigFile(File mpcConfigLocation) {
-		return new File(mpcConfigLocation, PERSISTENT_FILE);
-	}
-
 }
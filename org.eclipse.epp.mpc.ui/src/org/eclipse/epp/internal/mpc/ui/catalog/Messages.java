@@ -64,6 +64,10 @@ class Messages extends NLS {
 	public static String MarketplaceDiscoveryStrategy_unidentifiableItem;
 
 	public static String MarketplaceDiscoveryStrategy_unknownFilter;
+
+	public static String MarketplaceInfo_corruptJournal;
+
+	public static String UpdateCheckJob_name;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
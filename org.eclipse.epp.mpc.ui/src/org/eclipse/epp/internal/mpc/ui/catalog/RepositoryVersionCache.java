@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.catalog;
+
+import java.net.URI;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.CacheStats;
+import org.eclipse.epp.internal.mpc.core.util.ConcurrentLruCache;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.IQuery;
+import org.eclipse.equinox.p2.query.QueryUtil;
+import org.eclipse.equinox.p2.repository.IRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
+import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
+
+/**
+ * Caches the {@link RepositoryVersions available feature versions} of update sites, so update checks of different
+ * catalog tabs and wizard sessions don't load and query the same repositories over and over.
+ * <p>
+ * Tables are reused without touching the repository for the {@link #setTimeToLive(long) time-to-live}. After that,
+ * the repository is loaded again, but only queried if its {@link IRepository#PROP_TIMESTAMP timestamp} changed.
+ * Concurrent requests for the same repository share a single load.
+ *
+ * @author Carsten Reckord
+ */
+public class RepositoryVersionCache {
+
+	/**
+	 * Default time in milliseconds for which tables are used without checking the repository
+	 */
+	public static final long DEFAULT_TIME_TO_LIVE = 30 * 60 * 1000;
+
+	private static final int MAX_REPOSITORIES = 200;
+
+	private static final IQuery<IInstallableUnit> FEATURE_GROUP_QUERY = QueryUtil.createMatchQuery( //
+			"id ~= /*.feature.group/ && " + //$NON-NLS-1$
+			"properties['org.eclipse.equinox.p2.type.group'] == true "); //$NON-NLS-1$
+
+	private final IMetadataRepositoryManager repositoryManager;
+
+	private final ConcurrentLruCache<URI, RepositoryVersions> cache;
+
+	// last computed table of each repository, kept beyond expiry to compare timestamps
+	private final ConcurrentMap<URI, RepositoryVersions> lastVersions = //
+			new ConcurrentHashMap<URI, RepositoryVersions>();
+
+	private final AtomicInteger queryCount = new AtomicInteger();
+
+	public RepositoryVersionCache(IMetadataRepositoryManager repositoryManager) {
+		this.repositoryManager = repositoryManager;
+		this.cache = new ConcurrentLruCache<URI, RepositoryVersions>(MAX_REPOSITORIES, DEFAULT_TIME_TO_LIVE);
+	}
+
+	/**
+	 * Get the version table of the given repository, loading the repository if there is no current table.
+	 *
+	 * @throws CoreException
+	 *             if the repository can't be loaded
+	 */
+	public RepositoryVersions getVersions(final URI location, final IProgressMonitor monitor) throws CoreException {
+		return cache.get(location, new ConcurrentLruCache.Loader<RepositoryVersions>() {
+			public RepositoryVersions load() throws CoreException {
+				return RepositoryVersionCache.this.load(location, monitor);
+			}
+		}, monitor);
+	}
+
+	/**
+	 * Load the repository and compute its table, or reuse the previous table if the repository's timestamp didn't
+	 * change.
+	 */
+	protected RepositoryVersions load(URI location, IProgressMonitor monitor) throws CoreException {
+		IMetadataRepository repository = repositoryManager.loadRepository(location, monitor);
+		String timestamp = repository.getProperty(IRepository.PROP_TIMESTAMP);
+		RepositoryVersions versions = lastVersions.get(location);
+		if (versions == null || timestamp == null || !timestamp.equals(versions.getTimestamp())) {
+			queryCount.incrementAndGet();
+			versions = RepositoryVersions.create(location, timestamp, repository.query(FEATURE_GROUP_QUERY, monitor));
+			lastVersions.put(location, versions);
+		}
+		return versions;
+	}
+
+	/**
+	 * Forget the table of the given repository, so the next request queries it again.
+	 */
+	public void invalidate(URI location) {
+		cache.invalidate(location);
+		lastVersions.remove(location);
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+		lastVersions.clear();
+	}
+
+	public long getTimeToLive() {
+		return cache.getTimeToLive();
+	}
+
+	/**
+	 * @param timeToLive
+	 *            the time in milliseconds for which a table is used without checking the repository
+	 */
+	public void setTimeToLive(long timeToLive) {
+		cache.setTimeToLive(timeToLive);
+	}
+
+	/**
+	 * @return the statistics of table requests. Each load of the cache corresponds to a repository load.
+	 */
+	public CacheStats getStats() {
+		return cache.getStats();
+	}
+
+	/**
+	 * @return the number of repository queries run to compute tables
+	 */
+	public int getQueryCount() {
+		return queryCount.get();
+	}
+}
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.catalog;
+
+import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.metadata.Version;
+
+/**
+ * An immutable table of the highest available version of each feature group in a metadata repository, as of a
+ * certain repository timestamp.
+ *
+ * @see RepositoryVersionCache
+ * @author Carsten Reckord
+ */
+public class RepositoryVersions {
+
+	private final URI location;
+
+	private final String timestamp;
+
+	private final Map<String, Version> highestVersionById;
+
+	RepositoryVersions(URI location, String timestamp, Map<String, Version> highestVersionById) {
+		this.location = location;
+		this.timestamp = timestamp;
+		this.highestVersionById = Collections.unmodifiableMap(highestVersionById);
+	}
+
+	/**
+	 * Compute the highest version of each of the given units.
+	 *
+	 * @param timestamp
+	 *            the repository's timestamp property, or null if it has none
+	 */
+	public static RepositoryVersions create(URI location, String timestamp, Iterable<IInstallableUnit> units) {
+		Map<String, Version> highestVersionById = new HashMap<String, Version>();
+		for (IInstallableUnit iu : units) {
+			String id = iu.getId();
+			Version version = iu.getVersion();
+			Version priorVersion = highestVersionById.put(id, version);
+			if (priorVersion != null && priorVersion.compareTo(version) > 0) {
+				highestVersionById.put(id, priorVersion);
+			}
+		}
+		return new RepositoryVersions(location, timestamp, highestVersionById);
+	}
+
+	public URI getLocation() {
+		return location;
+	}
+
+	/**
+	 * @return the repository timestamp the table was computed for, or null if the repository doesn't have one
+	 */
+	public String getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * @return the highest available version of the given feature group, or null if the repository doesn't contain it
+	 */
+	public Version getVersion(String id) {
+		return highestVersionById.get(id);
+	}
+
+	/**
+	 * @return true if the repository contains all of the given feature groups
+	 */
+	public boolean containsAll(Collection<String> ids) {
+		return highestVersionById.keySet().containsAll(ids);
+	}
+
+	/**
+	 * @param ius
+	 *            the feature groups of a marketplace node
+	 * @param installedIUs
+	 *            the installed feature groups by id
+	 * @return true if the repository contains a newer version of any of the given feature groups that are installed
+	 */
+	public boolean hasUpdate(Collection<String> ius, Map<String, IInstallableUnit> installedIUs) {
+		for (String iu : ius) {
+			Version availableVersion = highestVersionById.get(iu);
+			if (availableVersion != null) {
+				IInstallableUnit installedIu = installedIUs.get(iu);
+				if (installedIu != null && installedIu.getVersion().compareTo(availableVersion) < 0) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return an unmodifiable map of the highest available version by feature group id
+	 */
+	public Map<String, Version> getHighestVersionById() {
+		return highestVersionById;
+	}
+}
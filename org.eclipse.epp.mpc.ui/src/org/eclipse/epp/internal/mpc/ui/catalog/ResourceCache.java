@@ -0,0 +1,599 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * A persistent cache for downloaded resources like icons and screenshots, shared by all catalog sources and kept
+ * across sessions. Resource content is stored content-addressed, i.e. in a file named after the hash of its content,
+ * so identical images referenced by different URLs are only stored once. Each resource URL has a small properties file
+ * mapping it to its content, together with the validators needed to revalidate it with a conditional request.
+ * <p>
+ * Entries are {@link #isFresh(Entry) fresh} for {@link #getTimeToLive()} after they have been fetched or revalidated.
+ * The total size of all stored content is bounded by {@link #getMaxSize()}, evicting the least recently used entries
+ * first. The access order is only tracked in memory and {@link #flush() persisted} when entries are evicted or the
+ * cache is no longer used, so lookups don't write to disk.
+ *
+ * @author Carsten Reckord
+ */
+public class ResourceCache {
+
+	private static final long DAY = 24 * 60 * 60 * 1000L;
+
+	public static final long DEFAULT_MAX_SIZE = 32 * 1024 * 1024L;
+
+	public static final long DEFAULT_TIME_TO_LIVE = DAY;
+
+	private static final String DATA_SUFFIX = ".res"; //$NON-NLS-1$
+
+	private static final String META_SUFFIX = ".properties"; //$NON-NLS-1$
+
+	private static final String TEMP_SUFFIX = ".tmp"; //$NON-NLS-1$
+
+	private static final String ACCESS_ORDER_FILE = "access.order"; //$NON-NLS-1$
+
+	private static final String PROP_URL = "url"; //$NON-NLS-1$
+
+	private static final String PROP_CONTENT = "content"; //$NON-NLS-1$
+
+	private static final String PROP_FETCHED = "fetched"; //$NON-NLS-1$
+
+	private static final String PROP_SIZE = "size"; //$NON-NLS-1$
+
+	private static final String PROP_ETAG = "etag"; //$NON-NLS-1$
+
+	private static final String PROP_LAST_MODIFIED = "lastModified"; //$NON-NLS-1$
+
+	/**
+	 * A single cached resource.
+	 */
+	public static class Entry {
+
+		private final String key;
+
+		private final String url;
+
+		private final String contentHash;
+
+		private final long fetched;
+
+		private final long size;
+
+		private final File file;
+
+		private final String eTag;
+
+		private final String lastModified;
+
+		private Entry(String key, String url, String contentHash, long fetched, long size, File file, String eTag,
+				String lastModified) {
+			this.key = key;
+			this.url = url;
+			this.contentHash = contentHash;
+			this.fetched = fetched;
+			this.size = size;
+			this.file = file;
+			this.eTag = eTag;
+			this.lastModified = lastModified;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public String getContentHash() {
+			return contentHash;
+		}
+
+		public long getFetched() {
+			return fetched;
+		}
+
+		public long getSize() {
+			return size;
+		}
+
+		/**
+		 * @return the file holding the resource content
+		 */
+		public File getFile() {
+			return file;
+		}
+
+		public String getETag() {
+			return eTag;
+		}
+
+		public String getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return true if the entry has validators that allow a conditional request to revalidate it
+		 */
+		public boolean hasValidators() {
+			return eTag != null || lastModified != null;
+		}
+	}
+
+	private final File cacheDir;
+
+	private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+	private final Map<String, Integer> contentReferences = new HashMap<String, Integer>();
+
+	private long maxSize = DEFAULT_MAX_SIZE;
+
+	private long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+	private long currentSize;
+
+	private boolean loaded;
+
+	private boolean accessOrderChanged;
+
+	public ResourceCache(File cacheDir) {
+		if (cacheDir == null) {
+			throw new IllegalArgumentException();
+		}
+		this.cacheDir = cacheDir;
+	}
+
+	public File getCacheDir() {
+		return cacheDir;
+	}
+
+	public synchronized long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the maximum total size in bytes of all cached content. Exceeding this size will evict the least recently
+	 * used entries.
+	 */
+	public synchronized void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+		evict();
+	}
+
+	public synchronized long getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Set the time in milliseconds an entry stays fresh after it has been fetched or revalidated.
+	 */
+	public synchronized void setTimeToLive(long timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * @return the total size of all cached content, counting content shared by several entries only once
+	 */
+	public synchronized long getCurrentSize() {
+		load();
+		return currentSize;
+	}
+
+	/**
+	 * Get the cached resource for the given url, or null if there is none. The returned entry might be stale.
+	 */
+	public synchronized Entry get(String url) {
+		load();
+		String key = computeKey(url);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			return null;
+		}
+		if (!entry.file.exists()) {
+			removeEntry(key);
+			return null;
+		}
+		// the map keeps the access order, it is written on flush()
+		accessOrderChanged = true;
+		return entry;
+	}
+
+	public synchronized boolean isFresh(Entry entry) {
+		return System.currentTimeMillis() < entry.getFetched() + timeToLive;
+	}
+
+	/**
+	 * Mark the cached resource for the given url as fresh again, after the server confirmed that it is still current.
+	 *
+	 * @return the updated entry, or null if there is no such entry anymore
+	 */
+	public synchronized Entry revalidate(String url) throws IOException {
+		load();
+		String key = computeKey(url);
+		Entry entry = entries.get(key);
+		if (entry == null || !entry.file.exists()) {
+			return null;
+		}
+		Entry revalidated = new Entry(key, url, entry.contentHash, System.currentTimeMillis(), entry.size,
+				entry.file, entry.eTag, entry.lastModified);
+		writeMeta(revalidated);
+		entries.put(key, revalidated);
+		accessOrderChanged = true;
+		return revalidated;
+	}
+
+	/**
+	 * Store the resource content read from the given stream. The stream is not closed.
+	 *
+	 * @param eTag
+	 *            the response's entity tag or null
+	 * @param lastModified
+	 *            the response's last modification date or null
+	 */
+	public Entry put(String url, InputStream content, String eTag, String lastModified) throws IOException {
+		synchronized (this) {
+			load();
+			if (!cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+				throw new IOException(cacheDir.getAbsolutePath());
+			}
+		}
+		// download outside the lock, so concurrent downloads don't block each other
+		File tempFile = File.createTempFile("res", TEMP_SUFFIX, cacheDir); //$NON-NLS-1$
+		String contentHash;
+		long size;
+		try {
+			MessageDigest digest = createDigest();
+			size = copy(new DigestInputStream(content, digest), tempFile);
+			contentHash = toHex(digest.digest());
+		} catch (IOException e) {
+			tempFile.delete();
+			throw e;
+		}
+
+		synchronized (this) {
+			String key = computeKey(url);
+			removeEntry(key);
+
+			File dataFile = getDataFile(contentHash);
+			if (contentReferences.containsKey(contentHash) || dataFile.exists()) {
+				// same content is already stored for another url
+				tempFile.delete();
+			} else if (!tempFile.renameTo(dataFile)) {
+				tempFile.delete();
+				throw new IOException(dataFile.getAbsolutePath());
+			}
+
+			Entry entry = new Entry(key, url, contentHash, System.currentTimeMillis(), size, dataFile, eTag,
+					lastModified);
+			try {
+				writeMeta(entry);
+			} catch (IOException e) {
+				if (!contentReferences.containsKey(contentHash)) {
+					dataFile.delete();
+				}
+				throw e;
+			}
+			entries.put(key, entry);
+			accessOrderChanged = true;
+			addReference(entry);
+			evict();
+			return entry;
+		}
+	}
+
+	public synchronized void remove(String url) {
+		load();
+		removeEntry(computeKey(url));
+	}
+
+	public synchronized void clear() {
+		load();
+		for (String key : new ArrayList<String>(entries.keySet())) {
+			removeEntry(key);
+		}
+	}
+
+	/**
+	 * Persist the access order of the entries, so the least recently used entries are evicted first in later sessions
+	 * as well.
+	 */
+	public synchronized void flush() throws IOException {
+		if (!accessOrderChanged || !cacheDir.isDirectory()) {
+			return;
+		}
+		File orderFile = new File(cacheDir, ACCESS_ORDER_FILE);
+		File tempFile = new File(cacheDir, ACCESS_ORDER_FILE + TEMP_SUFFIX);
+		Writer out = new FileWriter(tempFile);
+		try {
+			for (String key : entries.keySet()) {
+				out.write(key);
+				out.write('\n');
+			}
+		} finally {
+			out.close();
+		}
+		if (orderFile.exists()) {
+			orderFile.delete();
+		}
+		if (!tempFile.renameTo(orderFile)) {
+			tempFile.delete();
+			throw new IOException(orderFile.getAbsolutePath());
+		}
+		accessOrderChanged = false;
+	}
+
+	private void removeEntry(String key) {
+		Entry entry = entries.remove(key);
+		getMetaFile(key).delete();
+		if (entry != null) {
+			accessOrderChanged = true;
+			removeReference(entry);
+		}
+	}
+
+	private void addReference(Entry entry) {
+		Integer count = contentReferences.get(entry.contentHash);
+		if (count == null) {
+			contentReferences.put(entry.contentHash, 1);
+			currentSize += entry.size;
+		} else {
+			contentReferences.put(entry.contentHash, count + 1);
+		}
+	}
+
+	private void removeReference(Entry entry) {
+		Integer count = contentReferences.get(entry.contentHash);
+		if (count == null || count <= 1) {
+			contentReferences.remove(entry.contentHash);
+			if (count != null) {
+				currentSize -= entry.size;
+			}
+			entry.file.delete();
+		} else {
+			contentReferences.put(entry.contentHash, count - 1);
+		}
+	}
+
+	private void evict() {
+		// always keep the most recently used entry, even if it exceeds the size limit on its own
+		boolean evicted = false;
+		for (Iterator<Entry> i = entries.values().iterator(); currentSize > maxSize && entries.size() > 1;) {
+			Entry entry = i.next();
+			i.remove();
+			getMetaFile(entry.key).delete();
+			removeReference(entry);
+			evicted = true;
+		}
+		if (evicted) {
+			accessOrderChanged = true;
+			try {
+				flush();
+			} catch (IOException e) {
+				// only the order for the next session is lost
+			}
+		}
+	}
+
+	private void load() {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		File[] files = cacheDir.listFiles();
+		if (files == null) {
+			return;
+		}
+		final Map<String, Integer> accessOrder = readAccessOrder();
+		final Map<Entry, Long> lastAccess = new HashMap<Entry, Long>();
+		List<Entry> loadedEntries = new ArrayList<Entry>();
+		List<File> dataFiles = new ArrayList<File>();
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(TEMP_SUFFIX)) {
+				file.delete();
+			} else if (name.endsWith(DATA_SUFFIX)) {
+				dataFiles.add(file);
+			} else if (name.endsWith(META_SUFFIX)) {
+				String key = name.substring(0, name.length() - META_SUFFIX.length());
+				Entry entry = readEntry(key, file);
+				if (entry == null) {
+					file.delete();
+				} else {
+					loadedEntries.add(entry);
+					lastAccess.put(entry, file.lastModified());
+				}
+			}
+		}
+		Collections.sort(loadedEntries, new Comparator<Entry>() {
+			public int compare(Entry o1, Entry o2) {
+				// entries written after the access order was last persisted are the most recent ones
+				Integer order1 = accessOrder.get(o1.key);
+				Integer order2 = accessOrder.get(o2.key);
+				int i1 = order1 == null ? Integer.MAX_VALUE : order1;
+				int i2 = order2 == null ? Integer.MAX_VALUE : order2;
+				if (i1 != i2) {
+					return i1 < i2 ? -1 : 1;
+				}
+				long t1 = lastAccess.get(o1);
+				long t2 = lastAccess.get(o2);
+				return t1 < t2 ? -1 : t1 == t2 ? 0 : 1;
+			}
+		});
+		for (Entry entry : loadedEntries) {
+			entries.put(entry.key, entry);
+			addReference(entry);
+		}
+		// delete content no longer referenced by any entry
+		for (File dataFile : dataFiles) {
+			String name = dataFile.getName();
+			if (!contentReferences.containsKey(name.substring(0, name.length() - DATA_SUFFIX.length()))) {
+				dataFile.delete();
+			}
+		}
+		evict();
+	}
+
+	private Map<String, Integer> readAccessOrder() {
+		Map<String, Integer> accessOrder = new HashMap<String, Integer>();
+		File orderFile = new File(cacheDir, ACCESS_ORDER_FILE);
+		if (!orderFile.isFile()) {
+			return accessOrder;
+		}
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(orderFile));
+			try {
+				for (String key; (key = in.readLine()) != null;) {
+					accessOrder.put(key, accessOrder.size());
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			// fall back to the modification times of the entries
+		}
+		return accessOrder;
+	}
+
+	private void writeMeta(Entry entry) throws IOException {
+		Properties meta = new Properties();
+		meta.setProperty(PROP_URL, entry.url);
+		meta.setProperty(PROP_CONTENT, entry.contentHash);
+		meta.setProperty(PROP_FETCHED, Long.toString(entry.fetched));
+		meta.setProperty(PROP_SIZE, Long.toString(entry.size));
+		if (entry.eTag != null) {
+			meta.setProperty(PROP_ETAG, entry.eTag);
+		}
+		if (entry.lastModified != null) {
+			meta.setProperty(PROP_LAST_MODIFIED, entry.lastModified);
+		}
+
+		File metaFile = getMetaFile(entry.key);
+		File tempFile = new File(cacheDir, entry.key + META_SUFFIX + TEMP_SUFFIX);
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+		try {
+			meta.store(out, null);
+		} finally {
+			out.close();
+		}
+		if (metaFile.exists()) {
+			metaFile.delete();
+		}
+		if (!tempFile.renameTo(metaFile)) {
+			tempFile.delete();
+			throw new IOException(metaFile.getAbsolutePath());
+		}
+	}
+
+	private Entry readEntry(String key, File metaFile) {
+		Properties meta = new Properties();
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(metaFile));
+			try {
+				meta.load(in);
+			} finally {
+				in.close();
+			}
+			String url = meta.getProperty(PROP_URL);
+			String contentHash = meta.getProperty(PROP_CONTENT);
+			if (url == null || contentHash == null || !key.equals(computeKey(url))) {
+				return null;
+			}
+			File dataFile = getDataFile(contentHash);
+			long fetched = Long.parseLong(meta.getProperty(PROP_FETCHED));
+			long size = Long.parseLong(meta.getProperty(PROP_SIZE));
+			if (size != dataFile.length()) {
+				return null;
+			}
+			return new Entry(key, url, contentHash, fetched, size, dataFile, meta.getProperty(PROP_ETAG),
+					meta.getProperty(PROP_LAST_MODIFIED));
+		} catch (IOException e) {
+			return null;
+		} catch (RuntimeException e) {
+			//missing or malformed values
+			return null;
+		}
+	}
+
+	private static long copy(InputStream in, File file) throws IOException {
+		ReadableByteChannel source = Channels.newChannel(in);
+		FileOutputStream out = new FileOutputStream(file);
+		try {
+			FileChannel target = out.getChannel();
+			long position = 0;
+			for (long count; (count = target.transferFrom(source, position, 64 * 1024)) > 0;) {
+				position += count;
+			}
+			return position;
+		} finally {
+			out.close();
+		}
+	}
+
+	private File getDataFile(String contentHash) {
+		return new File(cacheDir, contentHash + DATA_SUFFIX);
+	}
+
+	private File getMetaFile(String key) {
+		return new File(cacheDir, key + META_SUFFIX);
+	}
+
+	private static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String computeKey(String url) {
+		try {
+			return toHex(createDigest().digest(url.getBytes("UTF-8"))); //$NON-NLS-1$
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static String toHex(byte[] hash) {
+		StringBuilder hex = new StringBuilder(hash.length * 2);
+		for (byte b : hash) {
+			String digit = Integer.toHexString(b & 0xff);
+			if (digit.length() == 1) {
+				hex.append('0');
+			}
+			hex.append(digit);
+		}
+		return hex.toString();
+	}
+}
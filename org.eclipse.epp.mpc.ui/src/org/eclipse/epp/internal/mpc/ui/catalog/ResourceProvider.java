@@ -10,82 +10,131 @@
  *******************************************************************************/
 package org.eclipse.epp.internal.mpc.ui.catalog;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.epp.internal.mpc.core.util.TransportFactory;
+import org.eclipse.epp.internal.mpc.core.util.URLUtil;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUiPlugin;
+import org.eclipse.epp.internal.mpc.ui.catalog.ResourceCache.Entry;
+import org.eclipse.epp.mpc.core.service.IConditionalTransport;
+import org.eclipse.epp.mpc.core.service.ITransport;
+import org.eclipse.epp.mpc.core.service.ITransportResponse;
 
 /**
+ * Provides downloaded resources like icons and screenshots to a catalog source. Resources are stored in the
+ * {@link MarketplaceClientUiPlugin#getResourceCache() shared resource cache}, so they are reused across catalog
+ * sources and sessions. If the shared cache is unavailable, resources are kept in a temporary directory until the
+ * provider is {@link #dispose() disposed}.
+ *
  * @author David Green
  */
 class ResourceProvider {
 
-	private final File dir;
+	private final ResourceCache cache;
 
-	private final Map<String, File> resources = new ConcurrentHashMap<String, File>();
+	private final File tempDir;
 
 	public ResourceProvider() throws IOException {
-		dir = File.createTempFile(ResourceProvider.class.getSimpleName(), ".tmp"); //$NON-NLS-1$
-		dir.delete();
-		if (!dir.mkdirs()) {
-			throw new IOException(dir.getAbsolutePath());
+		MarketplaceClientUiPlugin plugin = MarketplaceClientUiPlugin.getInstance();
+		ResourceCache sharedCache = plugin == null ? null : plugin.getResourceCache();
+		if (sharedCache != null) {
+			cache = sharedCache;
+			tempDir = null;
+		} else {
+			tempDir = File.createTempFile(ResourceProvider.class.getSimpleName(), ".tmp"); //$NON-NLS-1$
+			tempDir.delete();
+			if (!tempDir.mkdirs()) {
+				throw new IOException(tempDir.getAbsolutePath());
+			}
+			cache = new ResourceCache(tempDir);
 		}
 	}
 
+	public ResourceProvider(ResourceCache cache) {
+		this.cache = cache;
+		this.tempDir = null;
+	}
+
 	public URL getResource(String resourceName) {
-		File resource = resources.get(resourceName);
+		Entry entry = cache.get(resourceName);
 		try {
-			return resource == null ? null : resource.toURI().toURL();
+			return entry == null ? null : entry.getFile().toURI().toURL();
 		} catch (MalformedURLException e) {
 			MarketplaceClientUi.error(e);
 			return null;
 		}
 	}
 
+	/**
+	 * @return true if a fresh copy of the resource is available, false if it has to be
+	 *         {@link #retrieveResource(String, IProgressMonitor) retrieved} or revalidated
+	 */
 	public boolean containsResource(String resourceName) {
-		return resources.containsKey(resourceName);
+		Entry entry = cache.get(resourceName);
+		return entry != null && cache.isFresh(entry);
 	}
 
 	public void putResource(String resourceName, InputStream input) throws IOException {
-		String filenameHint = resourceName;
-		if (filenameHint.lastIndexOf('/') != -1) {
-			filenameHint = filenameHint.substring(filenameHint.lastIndexOf('/') + 1);
+		cache.put(resourceName, input, null, null);
+	}
+
+	/**
+	 * Download the resource, or revalidate the cached copy with a conditional request if it has validators.
+	 */
+	public void retrieveResource(String resourceName, IProgressMonitor monitor) throws IOException,
+	URISyntaxException, CoreException {
+		URI uri = URLUtil.toURL(resourceName).toURI();
+		ITransport transport = TransportFactory.createTransport();
+		if (!(transport instanceof IConditionalTransport)) {
+			InputStream in = transport.stream(uri, monitor);
+			if (in == null) {
+				return;
+			}
+			try {
+				putResource(resourceName, in);
+			} finally {
+				in.close();
+			}
+			return;
 		}
-		filenameHint = filenameHint.replaceAll("[^a-zA-Z0-9\\.]", "_"); //$NON-NLS-1$ //$NON-NLS-2$
-		if (filenameHint.length() > 32) {
-			filenameHint = filenameHint.substring(filenameHint.length() - 32);
+
+		Entry entry = cache.get(resourceName);
+		String eTag = entry == null ? null : entry.getETag();
+		String lastModified = entry == null ? null : entry.getLastModified();
+		ITransportResponse response = ((IConditionalTransport) transport).stream(uri, eTag, lastModified, monitor);
+		if (response.getStatusCode() == ITransportResponse.STATUS_NOT_MODIFIED) {
+			if (cache.revalidate(resourceName) != null) {
+				return;
+			}
+			// evicted in the meantime
+			response = ((IConditionalTransport) transport).stream(uri, null, null, monitor);
 		}
-		File outputFile = File.createTempFile("res_", filenameHint, dir); //$NON-NLS-1$
-		BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(outputFile));
+		InputStream in = response.getContent();
 		try {
-			input = new BufferedInputStream(input);
-			int i;
-			while ((i = input.read()) != -1) {
-				output.write(i);
-			}
+			cache.put(resourceName, in, response.getETag(), response.getLastModified());
 		} finally {
-			output.close();
+			in.close();
 		}
-		resources.put(resourceName, outputFile);
 	}
 
 	public void dispose() {
-		if (dir != null && dir.exists()) {
-			File[] files = dir.listFiles();
+		if (tempDir != null && tempDir.exists()) {
+			File[] files = tempDir.listFiles();
 			if (files != null) {
 				for (File file : files) {
 					file.delete();
 				}
 			}
-			dir.delete();
+			tempDir.delete();
 		}
 	}
 }
@@ -0,0 +1,244 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+import org.eclipse.epp.internal.mpc.ui.util.Util;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.SWTException;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Decodes and scales catalog icons in the background and caches the resulting {@link ImageData}, so the display
+ * thread only has to wrap ready-made image data into an image. Scaled images are kept in memory and, if a
+ * {@link ResourceCache} is given, stored there as PNG for later sessions. Entries are keyed by source URL and target
+ * size. Since the sources are usually served from the content-addressed {@link ResourceCache}, a changed image gets a
+ * new source URL and is scaled again.
+ *
+ * @author Carsten Reckord
+ */
+public class ScaledImageCache {
+
+	/**
+	 * Callback for {@link ScaledImageCache#load(URL, int, int, Display, Callback) asynchronous loads}
+	 */
+	public static interface Callback {
+
+		/**
+		 * Called on the display thread once the image is available. Not called if the image can't be loaded.
+		 */
+		void imageLoaded(ImageData imageData);
+	}
+
+	public static final long DEFAULT_MAX_MEMORY = 8 * 1024 * 1024L;
+
+	private static final String DISK_KEY_PREFIX = "scaled:"; //$NON-NLS-1$
+
+	/**
+	 * Images narrower than this fraction of the maximum width are scaled up
+	 */
+	private static final float MIN_WIDTH_RATIO = 0.8f;
+
+	private final ResourceCache diskCache;
+
+	private final Map<String, ImageData> memoryCache = new LinkedHashMap<String, ImageData>(16, 0.75f, true);
+
+	private final Map<String, List<Callback>> pendingLoads = new HashMap<String, List<Callback>>();
+
+	private long maxMemory = DEFAULT_MAX_MEMORY;
+
+	private long currentMemory;
+
+	/**
+	 * @param diskCache
+	 *            the cache to store scaled images across sessions, or null to only keep them in memory
+	 */
+	public ScaledImageCache(ResourceCache diskCache) {
+		this.diskCache = diskCache;
+	}
+
+	public synchronized void setMaxMemory(long maxMemory) {
+		this.maxMemory = maxMemory;
+		evict();
+	}
+
+	/**
+	 * Get an already scaled image from memory. This never blocks, so it can be used on the display thread.
+	 *
+	 * @return the scaled image data, or null if it has to be {@link #load(URL, int, int, Display, Callback) loaded}
+	 *         first
+	 */
+	public synchronized ImageData get(URL source, int maxWidth, int maxHeight) {
+		return memoryCache.get(computeKey(source, maxWidth, maxHeight));
+	}
+
+	/**
+	 * Load, decode and scale the image at the given location in the background. Concurrent loads of the same image
+	 * are coalesced.
+	 *
+	 * @param display
+	 *            the display on whose thread the callback is run
+	 */
+	public void load(final URL source, final int maxWidth, final int maxHeight, final Display display,
+			Callback callback) {
+		final String key = computeKey(source, maxWidth, maxHeight);
+		synchronized (this) {
+			ImageData imageData = memoryCache.get(key);
+			if (imageData != null) {
+				notifyLoaded(display, callback, imageData);
+				return;
+			}
+			List<Callback> callbacks = pendingLoads.get(key);
+			if (callbacks != null) {
+				callbacks.add(callback);
+				return;
+			}
+			callbacks = new ArrayList<Callback>(2);
+			callbacks.add(callback);
+			pendingLoads.put(key, callbacks);
+		}
+		IOScheduler.getDefault().getExecutor(Lane.ICONS).execute(new Runnable() {
+			public void run() {
+				ImageData imageData = null;
+				try {
+					imageData = loadScaled(key, source, maxWidth, maxHeight);
+				} catch (IOException e) {
+					// keep the default icon
+				} catch (SWTException e) {
+					// ignore, probably a bad image format
+				} catch (RuntimeException e) {
+					MarketplaceClientUi.error(e);
+				}
+				List<Callback> callbacks;
+				synchronized (ScaledImageCache.this) {
+					callbacks = pendingLoads.remove(key);
+					if (imageData != null) {
+						put(key, imageData);
+					}
+				}
+				if (imageData != null && callbacks != null) {
+					for (Callback callback : callbacks) {
+						notifyLoaded(display, callback, imageData);
+					}
+				}
+			}
+		});
+	}
+
+	private ImageData loadScaled(String key, URL source, int maxWidth, int maxHeight) throws IOException {
+		String diskKey = DISK_KEY_PREFIX + key;
+		if (diskCache != null) {
+			ResourceCache.Entry entry = diskCache.get(diskKey);
+			if (entry != null) {
+				try {
+					return decode(new FileInputStream(entry.getFile()));
+				} catch (SWTException e) {
+					// corrupt entry, scale again
+					diskCache.remove(diskKey);
+				} catch (IOException e) {
+					// evicted in the meantime
+				}
+			}
+		}
+
+		ImageData imageData = decode(source.openStream());
+		if (needsScaling(imageData, maxWidth, maxHeight)) {
+			imageData = Util.scaleImageData(imageData, maxWidth, maxHeight);
+		}
+
+		if (diskCache != null) {
+			ImageLoader imageLoader = new ImageLoader();
+			imageLoader.data = new ImageData[] { imageData };
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try {
+				imageLoader.save(out, SWT.IMAGE_PNG);
+				diskCache.put(diskKey, new ByteArrayInputStream(out.toByteArray()), null, null);
+			} catch (SWTException e) {
+				// can't encode this image, keep it in memory only
+			}
+		}
+		return imageData;
+	}
+
+	private static ImageData decode(InputStream in) throws IOException {
+		try {
+			return new ImageData(new BufferedInputStream(in));
+		} finally {
+			in.close();
+		}
+	}
+
+	private static boolean needsScaling(ImageData imageData, int maxWidth, int maxHeight) {
+		return imageData.width < MIN_WIDTH_RATIO * maxWidth || imageData.width > maxWidth
+				|| imageData.height > maxHeight;
+	}
+
+	private void put(String key, ImageData imageData) {
+		ImageData previous = memoryCache.put(key, imageData);
+		if (previous != null) {
+			currentMemory -= sizeOf(previous);
+		}
+		currentMemory += sizeOf(imageData);
+		evict();
+	}
+
+	private void evict() {
+		for (Iterator<ImageData> i = memoryCache.values().iterator(); currentMemory > maxMemory && i.hasNext();) {
+			ImageData imageData = i.next();
+			i.remove();
+			currentMemory -= sizeOf(imageData);
+		}
+	}
+
+	private static void notifyLoaded(Display display, final Callback callback, final ImageData imageData) {
+		if (display.isDisposed()) {
+			return;
+		}
+		display.asyncExec(new Runnable() {
+			public void run() {
+				callback.imageLoaded(imageData);
+			}
+		});
+	}
+
+	private static long sizeOf(ImageData imageData) {
+		long size = imageData.data == null ? 0 : imageData.data.length;
+		if (imageData.alphaData != null) {
+			size += imageData.alphaData.length;
+		}
+		if (imageData.maskData != null) {
+			size += imageData.maskData.length;
+		}
+		return size;
+	}
+
+	private static String computeKey(URL source, int maxWidth, int maxHeight) {
+		return maxWidth + "x" + maxHeight + ":" + source.toExternalForm(); //$NON-NLS-1$ //$NON-NLS-2$
+	}
+}
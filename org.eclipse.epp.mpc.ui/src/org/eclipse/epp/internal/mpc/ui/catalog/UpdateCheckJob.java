@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.catalog;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.epp.internal.mpc.core.ServiceLocator;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
+import org.eclipse.epp.internal.mpc.core.util.URLUtil;
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUiPlugin;
+import org.eclipse.epp.internal.mpc.ui.ProfileSnapshot;
+import org.eclipse.epp.internal.mpc.ui.ProfileSnapshotService;
+import org.eclipse.epp.internal.mpc.ui.util.ConcurrentTaskManager;
+import org.eclipse.epp.mpc.core.model.INode;
+import org.eclipse.epp.mpc.core.service.IMarketplaceService;
+import org.eclipse.epp.mpc.core.service.INodeQueryResult;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.jface.preference.IPreferenceStore;
+
+/**
+ * Periodically checks for updates of all installed nodes known from {@link MarketplaceInfo}, so the wizard can show
+ * update badges right away instead of waiting for the update sites to load. The check runs with low priority and
+ * uses the cached node metadata of the marketplace service and the shared {@link RepositoryVersionCache}. Update sites
+ * are only loaded for nodes whose listing or installed features changed since they were
+ * {@link MarketplaceInfo#isKnownUpToDate(URL, INode, Map) last known to be up to date}. The results are
+ * {@link MarketplaceClientUiPlugin#setUpdateCheckResults(UpdateCheckResults) published} to the plugin, which persists
+ * them.
+ * <p>
+ * The check is controlled by the {@link #PREF_ENABLED} and {@link #PREF_INTERVAL} preferences of the plugin, which
+ * are shown on the {@link org.eclipse.epp.internal.mpc.ui.MarketplacePreferencePage Marketplace preference page}. It
+ * is off by default, since it contacts the marketplace server without the user having opened the wizard.
+ *
+ * @author Carsten Reckord
+ */
+public class UpdateCheckJob extends Job {
+
+	/**
+	 * Boolean preference to enable or disable scheduled update checks
+	 */
+	public static final String PREF_ENABLED = "updateCheck.enabled"; //$NON-NLS-1$
+
+	/**
+	 * Integer preference with the time in minutes between scheduled update checks
+	 */
+	public static final String PREF_INTERVAL = "updateCheck.interval"; //$NON-NLS-1$
+
+	public static final boolean DEFAULT_ENABLED = false;
+
+	public static final int DEFAULT_INTERVAL = 12 * 60;
+
+	private static final String DOT_FEATURE_DOT_GROUP = ".feature.group"; //$NON-NLS-1$
+
+	private static final long MINUTE = 60 * 1000;
+
+	/**
+	 * Delay of the first check after startup, so it doesn't compete with the workbench for resources
+	 */
+	private static final long STARTUP_DELAY = 5 * MINUTE;
+
+	private static final long UPDATE_CHECK_TIMEOUT = 10 * MINUTE;
+
+	private final IPreferenceStore preferences;
+
+	public UpdateCheckJob(IPreferenceStore preferences) {
+		super(Messages.UpdateCheckJob_name);
+		this.preferences = preferences;
+		setSystem(true);
+		setPriority(Job.DECORATE);
+	}
+
+	public boolean isEnabled() {
+		return preferences.getBoolean(PREF_ENABLED);
+	}
+
+	/**
+	 * @return the time in milliseconds between scheduled update checks
+	 */
+	public long getInterval() {
+		return Math.max(1, preferences.getInt(PREF_INTERVAL)) * MINUTE;
+	}
+
+	/**
+	 * Schedule the first check after a short delay. Later checks are scheduled by the job itself.
+	 */
+	public void scheduleInitialCheck() {
+		schedule(STARTUP_DELAY);
+	}
+
+	@Override
+	public boolean shouldSchedule() {
+		return isEnabled();
+	}
+
+	@Override
+	public boolean belongsTo(Object family) {
+		return family == UpdateCheckJob.class;
+	}
+
+	@Override
+	protected IStatus run(IProgressMonitor monitor) {
+		try {
+			return checkForUpdates(monitor);
+		} finally {
+			if (!monitor.isCanceled()) {
+				schedule(getInterval());
+			}
+		}
+	}
+
+	private IStatus checkForUpdates(IProgressMonitor monitor) {
+		MarketplaceClientUiPlugin plugin = MarketplaceClientUiPlugin.getInstance();
+		ProfileSnapshotService snapshotService = plugin == null ? null : plugin.getProfileSnapshotService();
+		if (snapshotService == null) {
+			return Status.OK_STATUS;
+		}
+		SubMonitor progress = SubMonitor.convert(monitor, Messages.MarketplaceCatalog_checkingForUpdates, 100);
+		ProfileSnapshot snapshot = snapshotService.getSnapshot(progress.newChild(10));
+		if (progress.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+		Map<String, IInstallableUnit> installedIUs = snapshot.getInstalledIUsById();
+		UpdateCheckResults results = new UpdateCheckResults(snapshot.getTimestamp(), System.currentTimeMillis());
+
+		MarketplaceInfo marketplaceInfo = MarketplaceInfo.getInstance();
+		List<URL> marketUrls = marketplaceInfo.getMarketUrls();
+		Map<URI, List<InstalledNode>> installedNodesByUpdateUri = new HashMap<URI, List<InstalledNode>>();
+		SubMonitor nodeProgress = SubMonitor.convert(progress.newChild(30), marketUrls.size());
+		for (URL marketUrl : marketUrls) {
+			Set<INode> installedNodes = marketplaceInfo.computeInstalledNodes(marketUrl, installedIUs.keySet());
+			if (installedNodes.isEmpty()) {
+				nodeProgress.worked(1);
+				continue;
+			}
+			IMarketplaceService marketplaceService = ServiceLocator.getCompatibilityLocator().getMarketplaceService(
+					marketUrl.toExternalForm());
+			INodeQueryResult nodes;
+			try {
+				nodes = marketplaceService.getNodes(installedNodes, nodeProgress.newChild(1));
+			} catch (CoreException e) {
+				if (e.getStatus().getSeverity() == IStatus.CANCEL) {
+					return Status.CANCEL_STATUS;
+				}
+				// skip this marketplace, its nodes are checked live by the catalog
+				continue;
+			}
+			for (INode node : nodes.getNodes()) {
+				if (marketplaceInfo.isKnownUpToDate(marketUrl, node, installedIUs)) {
+					// the listing didn't change since the node was last up to date, so don't load its update site
+					results.setUpdateAvailable(marketUrl, node.getId(), false);
+				} else {
+					addInstalledNode(installedNodesByUpdateUri, marketUrl, node);
+				}
+			}
+		}
+
+		final SubMonitor siteProgress = progress.newChild(60);
+		// the sites are loaded concurrently, so only propagate cancellation
+		final IProgressMonitor pm = new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return super.isCanceled() || siteProgress.isCanceled();
+			}
+		};
+		final RepositoryVersionCache versionCache = plugin.getRepositoryVersionCache();
+		ConcurrentTaskManager executor = new ConcurrentTaskManager(Lane.REPOSITORIES,
+				Messages.MarketplaceCatalog_checkingForUpdates);
+		executor.setTimeout(UPDATE_CHECK_TIMEOUT);
+		try {
+			for (Map.Entry<URI, List<InstalledNode>> entry : installedNodesByUpdateUri.entrySet()) {
+				executor.submit(new UpdateSiteCheck(versionCache, entry.getKey(), entry.getValue(), installedIUs,
+						results, marketplaceInfo, pm));
+			}
+			try {
+				executor.waitUntilFinished(siteProgress);
+			} catch (CoreException e) {
+				// publish what we have, the remaining nodes are checked live by the catalog
+				MarketplaceClientUi.error(e);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		marketplaceInfo.save();
+		if (progress.isCanceled()) {
+			return Status.CANCEL_STATUS;
+		}
+		plugin.setUpdateCheckResults(results);
+		return Status.OK_STATUS;
+	}
+
+	private static void addInstalledNode(Map<URI, List<InstalledNode>> installedNodesByUpdateUri, URL marketUrl,
+			INode node) {
+		String updateurl = node.getUpdateurl();
+		if (updateurl == null || node.getIus() == null) {
+			return;
+		}
+		try {
+			URI uri = URLUtil.toURI(updateurl);
+			List<InstalledNode> nodesThisSite = installedNodesByUpdateUri.get(uri);
+			if (nodesThisSite == null) {
+				nodesThisSite = new ArrayList<InstalledNode>();
+				installedNodesByUpdateUri.put(uri, nodesThisSite);
+			}
+			nodesThisSite.add(new InstalledNode(marketUrl, node));
+		} catch (URISyntaxException e) {
+			// the catalog will report it
+		}
+	}
+
+	private static class InstalledNode {
+
+		private final URL marketUrl;
+
+		private final INode node;
+
+		private final List<String> featureGroups;
+
+		public InstalledNode(URL marketUrl, INode node) {
+			this.marketUrl = marketUrl;
+			this.node = node;
+			this.featureGroups = new ArrayList<String>();
+			for (String iu : node.getIus().getIu()) {
+				featureGroups.add(iu.endsWith(DOT_FEATURE_DOT_GROUP) ? iu : iu + DOT_FEATURE_DOT_GROUP);
+			}
+		}
+	}
+
+	private static class UpdateSiteCheck implements Runnable {
+
+		private final RepositoryVersionCache versionCache;
+
+		private final URI updateUri;
+
+		private final List<InstalledNode> nodes;
+
+		private final Map<String, IInstallableUnit> installedIUs;
+
+		private final UpdateCheckResults results;
+
+		private final MarketplaceInfo marketplaceInfo;
+
+		private final IProgressMonitor monitor;
+
+		public UpdateSiteCheck(RepositoryVersionCache versionCache, URI updateUri, List<InstalledNode> nodes,
+				Map<String, IInstallableUnit> installedIUs, UpdateCheckResults results,
+				MarketplaceInfo marketplaceInfo, IProgressMonitor monitor) {
+			this.versionCache = versionCache;
+			this.updateUri = updateUri;
+			this.nodes = nodes;
+			this.installedIUs = installedIUs;
+			this.results = results;
+			this.marketplaceInfo = marketplaceInfo;
+			this.monitor = monitor;
+		}
+
+		public void run() {
+			RepositoryVersions versions;
+			try {
+				versions = versionCache.getVersions(updateUri, monitor);
+			} catch (CoreException e) {
+				// unreachable sites are left to the live check, which reports them
+				return;
+			}
+			for (InstalledNode node : nodes) {
+				if (versions.containsAll(node.featureGroups)) {
+					boolean updateAvailable = versions.hasUpdate(node.featureGroups, installedIUs);
+					results.setUpdateAvailable(node.marketUrl, node.node.getId(), updateAvailable);
+					if (!updateAvailable) {
+						marketplaceInfo.mapUpToDate(node.marketUrl, node.node, installedIUs);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+
+/**
+ * The update availability of installed marketplace nodes, as computed by a {@link UpdateCheckJob scheduled update
+ * check}. The results are only valid for the profile state they were computed for.
+ *
+ * @author Carsten Reckord
+ */
+public class UpdateCheckResults {
+
+	private static final String PROFILE_TIMESTAMP_KEY = "@profileTimestamp"; //$NON-NLS-1$
+
+	private static final String CHECK_TIME_KEY = "@checkTime"; //$NON-NLS-1$
+
+	private final long profileTimestamp;
+
+	private final long checkTime;
+
+	private final Map<String, Boolean> updateAvailableByNodeKey = new HashMap<String, Boolean>();
+
+	/**
+	 * @param profileTimestamp
+	 *            the timestamp of the profile the update check was run against
+	 * @param checkTime
+	 *            the time of the update check
+	 */
+	public UpdateCheckResults(long profileTimestamp, long checkTime) {
+		this.profileTimestamp = profileTimestamp;
+		this.checkTime = checkTime;
+	}
+
+	public long getProfileTimestamp() {
+		return profileTimestamp;
+	}
+
+	public long getCheckTime() {
+		return checkTime;
+	}
+
+	public synchronized void setUpdateAvailable(URL marketUrl, String nodeId, boolean updateAvailable) {
+		updateAvailableByNodeKey.put(computeNodeKey(marketUrl, nodeId), updateAvailable);
+	}
+
+	/**
+	 * @return whether an update is available for the given node, or null if the node hasn't been checked
+	 */
+	public synchronized Boolean getUpdateAvailable(URL marketUrl, String nodeId) {
+		return updateAvailableByNodeKey.get(computeNodeKey(marketUrl, nodeId));
+	}
+
+	public synchronized int size() {
+		return updateAvailableByNodeKey.size();
+	}
+
+	private static String computeNodeKey(URL marketUrl, String nodeId) {
+		try {
+			return marketUrl.toURI().toString() + '#' + nodeId;
+		} catch (URISyntaxException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+
+	/**
+	 * Read results written by {@link #save(File)}.
+	 *
+	 * @return the results, or null if the file doesn't exist or can't be read
+	 */
+	public static UpdateCheckResults load(File file) {
+		if (!file.exists()) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				properties.load(in);
+			} finally {
+				in.close();
+			}
+			UpdateCheckResults results = new UpdateCheckResults(Long.parseLong(properties
+					.getProperty(PROFILE_TIMESTAMP_KEY)), Long.parseLong(properties.getProperty(CHECK_TIME_KEY)));
+			for (Map.Entry<Object, Object> entry : properties.entrySet()) {
+				String key = (String) entry.getKey();
+				if (!key.startsWith("@")) { //$NON-NLS-1$
+					results.updateAvailableByNodeKey.put(key, Boolean.valueOf((String) entry.getValue()));
+				}
+			}
+			return results;
+		} catch (IOException e) {
+			MarketplaceClientUi.error(e);
+		} catch (NumberFormatException e) {
+			// damaged, so treat as missing
+		}
+		return null;
+	}
+
+	public synchronized void save(File file) {
+		Properties properties = new Properties();
+		properties.setProperty(PROFILE_TIMESTAMP_KEY, Long.toString(profileTimestamp));
+		properties.setProperty(CHECK_TIME_KEY, Long.toString(checkTime));
+		for (Map.Entry<String, Boolean> entry : updateAvailableByNodeKey.entrySet()) {
+			properties.setProperty(entry.getKey(), entry.getValue().toString());
+		}
+		try {
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				properties.store(out, null);
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			MarketplaceClientUi.error(e);
+		}
+	}
+}
@@ -19,18 +19,19 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubMonitor;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
 import org.eclipse.epp.internal.mpc.core.util.URLUtil;
+import org.eclipse.epp.internal.mpc.ui.util.ConcurrentTaskManager;
 import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
 import org.eclipse.equinox.p2.core.ProvisionException;
 import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 import org.eclipse.equinox.p2.operations.ProvisioningSession;
 import org.eclipse.equinox.p2.operations.RepositoryTracker;
-import org.eclipse.equinox.p2.query.IQuery;
-import org.eclipse.equinox.p2.query.IQueryResult;
-import org.eclipse.equinox.p2.query.QueryUtil;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepository;
 import org.eclipse.equinox.p2.repository.metadata.IMetadataRepositoryManager;
 import org.eclipse.equinox.p2.ui.ProvisioningUI;
@@ -40,6 +41,11 @@ public abstract class AbstractProvisioningOperation implements IRunnableWithProg
 
 	protected static final String P2_FEATURE_GROUP_SUFFIX = ".feature.group"; //$NON-NLS-1$
 
+	/**
+	 * Time in milliseconds to wait for all repositories to be loaded or queried
+	 */
+	private static final long REPOSITORY_TIMEOUT = 30 * 60 * 1000;
+
 	protected final List<CatalogItem> items;
 
 	protected final ProvisioningUI provisioningUI;
@@ -79,43 +85,86 @@ public abstract class AbstractProvisioningOperation implements IRunnableWithProg
 			monitor.worked(1);
 		}
 
-		// fetch meta-data for these repositories
-		ArrayList<IMetadataRepository> repositories = new ArrayList<IMetadataRepository>();
-		monitor.setWorkRemaining(repositories.size());
-		IMetadataRepositoryManager manager = (IMetadataRepositoryManager) session.getProvisioningAgent().getService(
-				IMetadataRepositoryManager.SERVICE_NAME);
-		for (URI uri : repositoryLocations) {
-			checkCancelled(monitor);
-			IMetadataRepository repository = manager.loadRepository(uri, monitor.newChild(1));
-			repositories.add(repository);
+		// fetch meta-data for these repositories concurrently, each repository reports its progress once it's loaded
+		final List<URI> locations = new ArrayList<URI>(repositoryLocations);
+		final IMetadataRepository[] repositories = new IMetadataRepository[locations.size()];
+		final ProvisionException[] failures = new ProvisionException[locations.size()];
+		final IMetadataRepositoryManager manager = (IMetadataRepositoryManager) session.getProvisioningAgent()
+				.getService(IMetadataRepositoryManager.SERVICE_NAME);
+		final IProgressMonitor pm = createCancellationMonitor(monitor);
+		monitor.setWorkRemaining(locations.size());
+		ConcurrentTaskManager executor = new ConcurrentTaskManager(Lane.REPOSITORIES,
+				Messages.AbstractProvisioningOperation_loadingRepositories);
+		executor.setTimeout(REPOSITORY_TIMEOUT);
+		try {
+			for (int i = 0; i < locations.size(); i++) {
+				final int index = i;
+				executor.submit(new Runnable() {
+					public void run() {
+						try {
+							repositories[index] = manager.loadRepository(locations.get(index), pm);
+						} catch (ProvisionException e) {
+							failures[index] = e;
+						}
+					}
+				});
+			}
+			waitUntilFinished(executor, monitor.newChild(locations.size()));
+		} finally {
+			executor.shutdownNow();
+		}
+		// report the first failure in the same order as a sequential load would have
+		for (ProvisionException failure : failures) {
+			if (failure != null) {
+				throw failure;
+			}
 		}
-		return repositories;
+		return new ArrayList<IMetadataRepository>(Arrays.asList(repositories));
 	}
 
 	/**
 	 * Perform a query to get the installable units. This causes p2 to determine what features are available in each
 	 * repository. We select installable units by matching both the feature id and the repository; it is possible though
 	 * unlikely that the same feature id is available from more than one of the selected repositories, and we must
-	 * ensure that the user gets the one that they asked for.
+	 * ensure that the user gets the one that they asked for. Only the feature groups of the selected items are
+	 * {@link FeatureGroupQueries queried}, so large repositories don't need to materialize all their units.
 	 */
 	protected List<IInstallableUnit> queryInstallableUnits(SubMonitor monitor, List<IMetadataRepository> repositories)
-			throws URISyntaxException {
-		final List<IInstallableUnit> installableUnits = new ArrayList<IInstallableUnit>();
+			throws URISyntaxException, ProvisionException {
+		// match the ids up front, so the queries don't need to access the descriptors
+		final List<Set<String>> installableUnitIdsByRepository = new ArrayList<Set<String>>(repositories.size());
+		for (IMetadataRepository repository : repositories) {
+			installableUnitIdsByRepository.add(getDescriptorIds(repository));
+		}
 
+		final List<List<IInstallableUnit>> installableUnitsByRepository = new ArrayList<List<IInstallableUnit>>(
+				repositories.size());
+		final IProgressMonitor pm = createCancellationMonitor(monitor);
 		monitor.setWorkRemaining(repositories.size());
-		for (final IMetadataRepository repository : repositories) {
-			checkCancelled(monitor);
-			final Set<String> installableUnitIdsThisRepository = getDescriptorIds(repository);
-
-			IQuery<IInstallableUnit> query = QueryUtil.createLatestQuery(QueryUtil.createIUGroupQuery());
-			IQueryResult<IInstallableUnit> result = repository.query(query, monitor.newChild(1));
-
-			for (IInstallableUnit iu : result) {
-				String id = iu.getId();
-				if (installableUnitIdsThisRepository.contains(id)) {
-					installableUnits.add(iu);
-				}
+		ConcurrentTaskManager executor = new ConcurrentTaskManager(Lane.REPOSITORIES,
+				Messages.AbstractProvisioningOperation_queryingRepositories);
+		executor.setTimeout(REPOSITORY_TIMEOUT);
+		try {
+			for (int i = 0; i < repositories.size(); i++) {
+				final IMetadataRepository repository = repositories.get(i);
+				final Set<String> installableUnitIdsThisRepository = installableUnitIdsByRepository.get(i);
+				final List<IInstallableUnit> installableUnitsThisRepository = new ArrayList<IInstallableUnit>();
+				installableUnitsByRepository.add(installableUnitsThisRepository);
+				executor.submit(new Runnable() {
+					public void run() {
+						installableUnitsThisRepository.addAll(FeatureGroupQueries.queryLatestFeatureGroups(
+								repository, installableUnitIdsThisRepository, pm));
+					}
+				});
 			}
+			waitUntilFinished(executor, monitor.newChild(repositories.size()));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		final List<IInstallableUnit> installableUnits = new ArrayList<IInstallableUnit>();
+		for (List<IInstallableUnit> installableUnitsThisRepository : installableUnitsByRepository) {
+			installableUnits.addAll(installableUnitsThisRepository);
 		}
 		return installableUnits;
 	}
@@ -142,6 +191,37 @@ public abstract class AbstractProvisioningOperation implements IRunnableWithProg
 		return featureIds;
 	}
 
+	/**
+	 * Wait for the repository tasks of the given executor to finish.
+	 *
+	 * @throws OperationCanceledException
+	 *             if the monitor was canceled
+	 * @throws ProvisionException
+	 *             if any of the tasks failed or timed out
+	 */
+	private void waitUntilFinished(ConcurrentTaskManager executor, IProgressMonitor monitor) throws ProvisionException {
+		try {
+			executor.waitUntilFinished(monitor);
+		} catch (CoreException e) {
+			checkCancelled(monitor);
+			throw new ProvisionException(e.getStatus());
+		}
+		checkCancelled(monitor);
+	}
+
+	/**
+	 * The repository tasks run concurrently and can't share the progress monitor, so they only get one that propagates
+	 * cancellation.
+	 */
+	private static IProgressMonitor createCancellationMonitor(final IProgressMonitor monitor) {
+		return new NullProgressMonitor() {
+			@Override
+			public boolean isCanceled() {
+				return super.isCanceled() || monitor.isCanceled();
+			}
+		};
+	}
+
 	protected void checkCancelled(IProgressMonitor monitor) {
 		if (monitor.isCanceled()) {
 			throw new OperationCanceledException();
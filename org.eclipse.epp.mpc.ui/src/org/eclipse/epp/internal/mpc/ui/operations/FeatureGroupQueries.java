@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.operations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
+import org.eclipse.equinox.p2.query.IQuery;
+import org.eclipse.equinox.p2.query.IQueryable;
+import org.eclipse.equinox.p2.query.QueryUtil;
+
+/**
+ * Queries for the feature groups of selected catalog items. The queries are constrained to the requested ids, so
+ * repositories with an id index (like all loaded metadata repositories) only look at the matching units instead of
+ * materializing every group in the repository.
+ * <p>
+ * Note that the id index is only used for plain match queries. Wrapping them in
+ * {@link QueryUtil#createLatestQuery(IQuery)} makes p2 iterate the whole repository again, so the latest versions
+ * are selected here instead.
+ *
+ * @author Carsten Reckord
+ */
+public final class FeatureGroupQueries {
+
+	private static final String EXPRESSION = "$0.exists(x | id == x) && properties[$1] == $2"; //$NON-NLS-1$
+
+	private FeatureGroupQueries() {
+	}
+
+	/**
+	 * @param ids
+	 *            the ids of the wanted feature groups, including the <code>.feature.group</code> suffix
+	 * @return a query matching all versions of the feature groups with the given ids
+	 */
+	public static IQuery<IInstallableUnit> createFeatureGroupQuery(Collection<String> ids) {
+		return QueryUtil.createMatchQuery(EXPRESSION, ids, QueryUtil.PROP_TYPE_GROUP,
+				Boolean.TRUE.toString());
+	}
+
+	/**
+	 * Query the latest versions of the feature groups with the given ids. This is equivalent to filtering the result
+	 * of <code>QueryUtil.createLatestQuery(QueryUtil.createIUGroupQuery())</code> by id.
+	 *
+	 * @param ids
+	 *            the ids of the wanted feature groups, including the <code>.feature.group</code> suffix
+	 * @return the latest version of each feature group found, in the order in which they were found
+	 */
+	public static List<IInstallableUnit> queryLatestFeatureGroups(IQueryable<IInstallableUnit> queryable,
+			Collection<String> ids, IProgressMonitor monitor) {
+		if (ids.isEmpty()) {
+			return Collections.emptyList();
+		}
+		Map<String, IInstallableUnit> latestById = new LinkedHashMap<String, IInstallableUnit>();
+		for (IInstallableUnit iu : queryable.query(createFeatureGroupQuery(ids), monitor)) {
+			IInstallableUnit latest = latestById.get(iu.getId());
+			if (latest == null || latest.getVersion().compareTo(iu.getVersion()) < 0) {
+				latestById.put(iu.getId(), iu);
+			}
+		}
+		return new ArrayList<IInstallableUnit>(latestById.values());
+	}
+}
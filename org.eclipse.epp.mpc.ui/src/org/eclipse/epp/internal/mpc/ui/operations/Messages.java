@@ -15,6 +15,10 @@ import org.eclipse.osgi.util.NLS;
 class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.eclipse.epp.internal.mpc.ui.operations.messages"; //$NON-NLS-1$
 
+	public static String AbstractProvisioningOperation_loadingRepositories;
+
+	public static String AbstractProvisioningOperation_queryingRepositories;
+
 	public static String ProfileChangeOperationComputer_unknownOperation;
 
 	public static String ProvisioningOperation_commaSeparator;
@@ -12,26 +12,37 @@ package org.eclipse.epp.internal.mpc.ui.util;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.MultiStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.epp.internal.mpc.core.util.CancellationScope;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+import org.eclipse.osgi.util.NLS;
 
 /**
- * A utility for managing tasks performed in an executor service. Use as follows:
+ * A utility for managing a batch of tasks performed concurrently. Tasks are run in the lanes of the shared
+ * {@link IOScheduler}, so no threads are created per batch. The batch forms a cancellation group:
+ * {@link #shutdownNow()} cancels only the tasks of this batch and aborts their running transport requests. Use as
+ * follows:
  *
  * <pre>
  * <code>
- * ConcurrentTaskManager executor = new ConcurrentTaskManager(anticipatedNumberOfTasks,"Checking for updates");
+ * ConcurrentTaskManager executor = new ConcurrentTaskManager(Lane.REPOSITORIES, "Checking for updates");
  *   try {
  *   	for (...) {
  *   		executor.submit(new Runnable() {...});
@@ -47,69 +58,178 @@ import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
  */
 public class ConcurrentTaskManager {
 
-	private final java.util.concurrent.ExecutorService executor;
+	/**
+	 * Listener notified in the waiting thread as tasks finish, in the order in which they finish.
+	 *
+	 * @see ConcurrentTaskManager#setCompletionListener(CompletionListener)
+	 */
+	public static interface CompletionListener {
+
+		/**
+		 * @param task
+		 *            the finished, failed or canceled task
+		 * @param latency
+		 *            the time in milliseconds between submission and completion of the task
+		 */
+		void taskCompleted(Future<?> task, long latency);
+	}
+
+	/**
+	 * Default time in milliseconds that {@link #waitUntilFinished(IProgressMonitor)} waits for all tasks to finish
+	 */
+	public static final long DEFAULT_TIMEOUT = 60 * 1000;
+
+	private static final long POLL_INTERVAL = 250;
+
+	private final java.util.concurrent.ExecutorService ownedExecutor;
+
+	private final Lane defaultLane;
+
+	private final CancellationScope scope = new CancellationScope();
 
 	private final List<Future<?>> futures = new ArrayList<Future<?>>();
 
+	private final BlockingQueue<TrackedTask<?>> completedTasks = new LinkedBlockingQueue<TrackedTask<?>>();
+
 	private final String taskName;
 
+	private long timeout = DEFAULT_TIMEOUT;
+
+	private CompletionListener completionListener;
+
+	/**
+	 * Run all tasks in the given executor, which is shut down once the tasks are finished.
+	 */
 	public ConcurrentTaskManager(java.util.concurrent.ExecutorService executor, String taskName) {
-		this.executor = executor;
+		this.ownedExecutor = executor;
+		this.defaultLane = null;
 		this.taskName = taskName;
 	}
 
+	/**
+	 * Run tasks in the given lane of the shared {@link IOScheduler}, unless another lane is given on
+	 * {@link #submit(Lane, Runnable) submission}.
+	 */
+	public ConcurrentTaskManager(Lane lane, String taskName) {
+		this.ownedExecutor = null;
+		this.defaultLane = lane;
+		this.taskName = taskName;
+	}
+
+	/**
+	 * @deprecated use {@link #ConcurrentTaskManager(Lane, String)} instead. This runs tasks in the {@link Lane#API}
+	 *             lane.
+	 */
+	@Deprecated
 	public ConcurrentTaskManager(int size, String taskName) {
-		this(Executors.newFixedThreadPool(Math.max(1, Math.min(size, 10))), taskName);
+		this(Lane.API, taskName);
 	}
 
 	public <T> void submit(Callable<T> task) {
-		futures.add(executor.submit(task));
+		submit(defaultLane, task);
 	}
 
 	public void submit(Runnable task) {
-		futures.add(executor.submit(task));
+		submit(defaultLane, task);
+	}
+
+	public <T> void submit(Lane lane, final Callable<T> task) {
+		TrackedTask<T> future = new TrackedTask<T>(new Callable<T>() {
+			public T call() throws Exception {
+				CancellationScope previous = scope.enter();
+				try {
+					return task.call();
+				} finally {
+					scope.exit(previous);
+				}
+			}
+		});
+		futures.add(future);
+		getExecutor(lane).execute(future);
+	}
+
+	public void submit(Lane lane, Runnable task) {
+		submit(lane, Executors.callable(task));
+	}
+
+	private Executor getExecutor(Lane lane) {
+		if (ownedExecutor != null) {
+			return ownedExecutor;
+		}
+		return IOScheduler.getDefault().getExecutor(lane == null ? defaultLane : lane);
 	}
 
 	public List<Future<?>> getFutures() {
 		return futures;
 	}
 
+	/**
+	 * Set the time budget for {@link #waitUntilFinished(IProgressMonitor)}. Tasks still running after this time are
+	 * canceled.
+	 *
+	 * @param timeout
+	 *            the maximum time in milliseconds to wait for all tasks
+	 */
+	public void setTimeout(long timeout) {
+		this.timeout = timeout;
+	}
+
+	public void setCompletionListener(CompletionListener completionListener) {
+		this.completionListener = completionListener;
+	}
+
+	/**
+	 * Wait for all submitted tasks to finish. Progress is reported and the
+	 * {@link #setCompletionListener(CompletionListener) completion listener} notified as tasks finish, regardless of
+	 * the order in which they were submitted. Tasks that haven't finished within the {@link #setTimeout(long)
+	 * timeout} are canceled and reported with a warning status.
+	 *
+	 * @throws CoreException
+	 *             if any of the tasks failed or timed out
+	 */
 	public void waitUntilFinished(IProgressMonitor monitor) throws CoreException {
 		final MultiStatus errorStatus = new MultiStatus(MarketplaceClientUi.BUNDLE_ID, IStatus.OK,
 				Messages.ConcurrentTaskManager_multipleErrorsOccurred, null);
 		final int totalWork = futures.isEmpty() ? 1 : futures.size();
 		monitor.beginTask(taskName, totalWork);
 		try {
-			if (!futures.isEmpty()) {
-				final int workUnit = 1;
-				while (!futures.isEmpty()) {
-					Future<?> future = futures.remove(0);
-					final int maxRetries = 15;
-					for (int retryCount = 0;; ++retryCount) {
-						try {
-							future.get(1L, TimeUnit.SECONDS);
-							break;
-						} catch (TimeoutException e) {
-							if (monitor.isCanceled()) {
-								return;
-							}
-						} catch (InterruptedException e) {
-							throw new CoreException(new Status(IStatus.CANCEL, MarketplaceClientUi.BUNDLE_ID,
-									e.getMessage()));
-						} catch (ExecutionException e) {
-							errorStatus.add(new Status(IStatus.ERROR, MarketplaceClientUi.BUNDLE_ID, e.getCause()
-									.getMessage(), e.getCause()));
-							if (monitor.isCanceled()) {
-								break;
-							}
-						}
-						if (retryCount > maxRetries) {
-							future.cancel(true);
-							break;
-						}
-					}
-					monitor.worked(workUnit);
+			final long deadline = System.currentTimeMillis() + timeout;
+			int pending = futures.size();
+			while (pending > 0) {
+				if (monitor.isCanceled()) {
+					return;
+				}
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) {
+					String message = NLS.bind(Messages.ConcurrentTaskManager_timeout, new Object[] { pending,
+							futures.size(), taskName });
+					errorStatus.add(new Status(IStatus.WARNING, MarketplaceClientUi.BUNDLE_ID, message));
+					break;
 				}
+				TrackedTask<?> task;
+				try {
+					task = completedTasks.poll(Math.min(remaining, POLL_INTERVAL), TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					throw new CoreException(new Status(IStatus.CANCEL, MarketplaceClientUi.BUNDLE_ID, e.getMessage()));
+				}
+				if (task == null) {
+					continue;
+				}
+				pending--;
+				try {
+					task.get();
+				} catch (CancellationException e) {
+					// canceled through shutdownNow()
+				} catch (InterruptedException e) {
+					// can't happen, the task is done
+				} catch (ExecutionException e) {
+					errorStatus.add(new Status(IStatus.ERROR, MarketplaceClientUi.BUNDLE_ID, e.getCause().getMessage(),
+							e.getCause()));
+				}
+				if (completionListener != null) {
+					completionListener.taskCompleted(task, task.getLatency());
+				}
+				monitor.worked(1);
 			}
 			if (!errorStatus.isOK() && errorStatus.getChildren().length > 0) {
 				if (errorStatus.getChildren().length == 1) {
@@ -119,13 +239,43 @@ public class ConcurrentTaskManager {
 				}
 			}
 		} finally {
-			executor.shutdownNow();
+			shutdownNow();
 			monitor.done();
 		}
 	}
 
+	/**
+	 * Cancel all unfinished tasks of this batch and abort their transport requests. Tasks of other batches in the
+	 * shared lanes are not affected.
+	 */
 	public void shutdownNow() {
-		executor.shutdownNow();
+		for (Future<?> future : futures) {
+			future.cancel(true);
+		}
+		scope.cancel();
+		if (ownedExecutor != null) {
+			ownedExecutor.shutdownNow();
+		}
 	}
 
+	private class TrackedTask<T> extends FutureTask<T> {
+
+		private final long submitTime = System.currentTimeMillis();
+
+		private volatile long latency = -1;
+
+		public TrackedTask(Callable<T> callable) {
+			super(callable);
+		}
+
+		@Override
+		protected void done() {
+			latency = System.currentTimeMillis() - submitTime;
+			completedTasks.add(this);
+		}
+
+		public long getLatency() {
+			return latency;
+		}
+	}
 }
@@ -19,6 +19,8 @@ class Messages extends NLS {
 	private static final String BUNDLE_NAME = "org.eclipse.epp.internal.mpc.ui.util.messages"; //$NON-NLS-1$
 
 	public static String ConcurrentTaskManager_multipleErrorsOccurred;
+
+	public static String ConcurrentTaskManager_timeout;
 	static {
 		// initialize resource bundle
 		NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -28,11 +28,12 @@ import org.eclipse.swt.graphics.GC;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.RGB;
 import org.eclipse.swt.graphics.Rectangle;
 
 public class Util {
-	private static boolean useAwt = true;
+	private static volatile boolean useAwt = true;
 
 	/**
 	 * Scale an image to a size that conforms to the given maximums while maintaining its original aspect ratio.
@@ -49,59 +50,19 @@ public class Util {
 		// scale the image using native scaling
 		// and maintain aspect ratio
 		Rectangle bounds = image.getBounds();
-		int newHeight;
-		int newWidth;
-		float widthRatio = ((float) bounds.width) / maxWidth;
-		float heightRatio = ((float) bounds.height) / maxHeight;
-		if (widthRatio > heightRatio) {
-			newWidth = maxWidth;
-			newHeight = -1;
-		} else {
-			newWidth = -1;
-			newHeight = maxHeight;
-		}
+		Point size = computeScaledSize(bounds.width, bounds.height, maxWidth, maxHeight);
 
 		// try high-quality scaling using AWT
-		if (useAwt) {
-			try {
-				// convert to awt
-				BufferedImage img = convertToAWT(image.getImageData());
-
-				// scale using best scaling filter; currently AreaAveragingScaleFilter, see BufferedImage.getScaledInstance() hint for SCALE_SMOOTH.
-				// we could just call BufferedImage.getScaledInstance(), but that does a full AWT initialization.
-				ImageFilter filter;
-				filter = new AreaAveragingScaleFilter(newWidth, newHeight);
-				ImageProducer prod;
-				prod = new FilteredImageSource(img.getSource(), filter);
-				final PixelGrabber pixelGrabber = new PixelGrabber(prod, 0, 0, newWidth, newHeight, null, 0, newWidth) {
-					@Override
-					public void setDimensions(int width, int height) {
-						super.setDimensions(width, height);
-					}
-				};
-				if (pixelGrabber.grabPixels()) {
-					final Image scaledImage = new Image(image.getDevice(), convertToSWT(pixelGrabber));
-					return scaledImage;
-				}
-				// else it didn't work on this image - no cause to completely disable AWT...
-			} catch (Exception e) {
-				//something went wrong with AWT - disable it
-				useAwt = false;
-			} catch (AWTError e) {
-				useAwt = false;
-			}
+		ImageData scaledData = scaleWithAwt(image.getImageData(), size.x, size.y);
+		if (scaledData != null) {
+			return new Image(image.getDevice(), scaledData);
 		}
 		//fall back to SWT method
 		{
-			if (newHeight == -1) {
-				newHeight = Math.min(maxHeight, (int) (bounds.height / widthRatio));
-			} else {
-				newWidth = Math.min(maxWidth, (int) (bounds.width / heightRatio));
-			}
-			final Image scaledImage = new Image(image.getDevice(), newWidth, newHeight);
+			final Image scaledImage = new Image(image.getDevice(), size.x, size.y);
 			GC gc = new GC(scaledImage);
 			try {
-				gc.drawImage(image, 0, 0, bounds.width, bounds.height, 0, 0, newWidth, newHeight);
+				gc.drawImage(image, 0, 0, bounds.width, bounds.height, 0, 0, size.x, size.y);
 			} finally {
 				gc.dispose();
 			}
@@ -109,6 +70,58 @@ public class Util {
 		}
 	}
 
+	/**
+	 * Scale image data to a size that conforms to the given maximums while maintaining its original aspect ratio.
+	 * Unlike {@link #scaleImage(Image, int, int)}, this doesn't need a device, so it can be used outside of the display
+	 * thread.
+	 * 
+	 * @return the scaled image data
+	 */
+	public static ImageData scaleImageData(ImageData data, int maxWidth, int maxHeight) {
+		Point size = computeScaledSize(data.width, data.height, maxWidth, maxHeight);
+		ImageData scaledData = scaleWithAwt(data, size.x, size.y);
+		if (scaledData == null) {
+			scaledData = data.scaledTo(size.x, size.y);
+		}
+		return scaledData;
+	}
+
+	private static Point computeScaledSize(int width, int height, int maxWidth, int maxHeight) {
+		float widthRatio = ((float) width) / maxWidth;
+		float heightRatio = ((float) height) / maxHeight;
+		if (widthRatio > heightRatio) {
+			return new Point(maxWidth, Math.min(maxHeight, Math.max(1, (int) (height / widthRatio))));
+		} else {
+			return new Point(Math.min(maxWidth, Math.max(1, (int) (width / heightRatio))), maxHeight);
+		}
+	}
+
+	private static ImageData scaleWithAwt(ImageData data, int newWidth, int newHeight) {
+		if (!useAwt) {
+			return null;
+		}
+		try {
+			// convert to awt
+			BufferedImage img = convertToAWT(data);
+
+			// scale using best scaling filter; currently AreaAveragingScaleFilter, see BufferedImage.getScaledInstance() hint for SCALE_SMOOTH.
+			// we could just call BufferedImage.getScaledInstance(), but that does a full AWT initialization.
+			ImageFilter filter = new AreaAveragingScaleFilter(newWidth, newHeight);
+			ImageProducer prod = new FilteredImageSource(img.getSource(), filter);
+			final PixelGrabber pixelGrabber = new PixelGrabber(prod, 0, 0, newWidth, newHeight, null, 0, newWidth);
+			if (pixelGrabber.grabPixels()) {
+				return convertToSWT(pixelGrabber);
+			}
+			// else it didn't work on this image - no cause to completely disable AWT...
+		} catch (Exception e) {
+			//something went wrong with AWT - disable it
+			useAwt = false;
+		} catch (AWTError e) {
+			useAwt = false;
+		}
+		return null;
+	}
+
 	/**
 	 * Convert SWT image to AWT using <a href=
 	 * "http://git.eclipse.org/c/platform/eclipse.platform.swt.git/tree/examples/org.eclipse.swt.snippets/src/org/eclipse/swt/snippets/Snippet156.java"
@@ -14,6 +14,7 @@ package org.eclipse.epp.internal.mpc.ui.wizards;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
+import java.net.URL;
 import java.text.MessageFormat;
 
 import org.eclipse.core.runtime.IAdaptable;
@@ -21,7 +22,7 @@ import org.eclipse.epp.internal.mpc.core.util.TextUtil;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUiPlugin;
 import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceNodeCatalogItem;
-import org.eclipse.epp.internal.mpc.ui.util.Util;
+import org.eclipse.epp.internal.mpc.ui.catalog.ScaledImageCache;
 import org.eclipse.epp.mpc.core.model.INode;
 import org.eclipse.epp.mpc.core.model.ITag;
 import org.eclipse.epp.mpc.core.model.ITags;
@@ -29,6 +30,7 @@ import org.eclipse.epp.mpc.core.payment.PaymentItem;
 import org.eclipse.epp.mpc.ui.Operation;
 import org.eclipse.equinox.internal.p2.discovery.AbstractCatalogSource;
 import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
+import org.eclipse.equinox.internal.p2.discovery.model.Icon;
 import org.eclipse.equinox.internal.p2.discovery.model.Overview;
 import org.eclipse.equinox.internal.p2.ui.discovery.util.WorkbenchUtil;
 import org.eclipse.equinox.internal.p2.ui.discovery.wizards.AbstractDiscoveryItem;
@@ -59,6 +61,7 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
 import org.eclipse.swt.graphics.Point;
 import org.eclipse.swt.graphics.Rectangle;
 import org.eclipse.swt.widgets.Button;
@@ -180,6 +183,8 @@ public class DiscoveryItem<T extends CatalogItem> extends AbstractDiscoveryItem<
 
 	private Label iconLabel;
 
+	private boolean iconRequested;
+
 	private Label nameLabel;
 
 	private final MarketplaceViewer viewer;
@@ -616,27 +621,7 @@ public class DiscoveryItem<T extends CatalogItem> extends AbstractDiscoveryItem<
 		GridDataFactory.swtDefaults()
 		.align(SWT.CENTER, SWT.BEGINNING).grab(true, true)
 		.applyTo(iconLabel);
-		if (connector.getIcon() != null) {
-			try {
-				Image image = resources.getIconImage(connector.getSource(), connector.getIcon(), 64, true);
-				Rectangle bounds = image.getBounds();
-				if (bounds.width < 0.8 * MAX_IMAGE_WIDTH || bounds.width > MAX_IMAGE_WIDTH
-						|| bounds.height > MAX_IMAGE_HEIGHT) {
-					final Image scaledImage = Util.scaleImage(image, MAX_IMAGE_WIDTH, MAX_IMAGE_HEIGHT);
-					image = scaledImage;
-					iconLabel.addDisposeListener(new DisposeListener() {
-						public void widgetDisposed(DisposeEvent e) {
-							scaledImage.dispose();
-						}
-					});
-				}
-				iconLabel.setImage(image);
-			} catch (SWTException e) {
-				// ignore, probably a bad image format
-//				MarketplaceClientUi.error(NLS.bind(Messages.DiscoveryItem_cannotRenderImage_reason, connector.getIcon()
-//						.getImage32(), e.getMessage()), e);
-			}
-		}
+		loadIcon();
 		if (iconLabel.getImage() == null) {
 			iconLabel.setImage(MarketplaceClientUiPlugin.getInstance()
 					.getImageRegistry()
@@ -644,6 +629,77 @@ public class DiscoveryItem<T extends CatalogItem> extends AbstractDiscoveryItem<
 		}
 	}
 
+	/**
+	 * Show the item's icon if it only became available after this item was created, e.g. because it was still being
+	 * downloaded.
+	 */
+	void updateIcon() {
+		if (!iconRequested && iconLabel != null && !iconLabel.isDisposed() && loadIcon()) {
+			layout(true, true);
+		}
+	}
+
+	/**
+	 * @return true if the icon was set immediately
+	 */
+	private boolean loadIcon() {
+		URL iconUrl = getIconUrl();
+		if (iconUrl == null) {
+			return false;
+		}
+		iconRequested = true;
+		// decoding and scaling happens in the background, so we don't block while rendering the list
+		ScaledImageCache imageCache = MarketplaceClientUiPlugin.getInstance().getScaledImageCache();
+		ImageData iconData = imageCache.get(iconUrl, MAX_IMAGE_WIDTH, MAX_IMAGE_HEIGHT);
+		if (iconData != null) {
+			setIconData(iconData);
+			return true;
+		}
+		imageCache.load(iconUrl, MAX_IMAGE_WIDTH, MAX_IMAGE_HEIGHT, getDisplay(), new ScaledImageCache.Callback() {
+			public void imageLoaded(ImageData imageData) {
+				if (!iconLabel.isDisposed()) {
+					setIconData(imageData);
+					layout(true, true);
+				}
+			}
+		});
+		return false;
+	}
+
+	private URL getIconUrl() {
+		Icon icon = connector.getIcon();
+		if (icon == null) {
+			return null;
+		}
+		// same preference as DiscoveryResources.getIconImage(source, icon, 64, true)
+		String[] candidates = new String[] { icon.getImage64(), icon.getImage48(), icon.getImage32() };
+		for (String candidate : candidates) {
+			if (candidate != null && candidate.length() > 0) {
+				URL url = connector.getSource().getResource(candidate);
+				if (url != null) {
+					return url;
+				}
+			}
+		}
+		return null;
+	}
+
+	private void setIconData(ImageData iconData) {
+		final Image image;
+		try {
+			image = new Image(getDisplay(), iconData);
+		} catch (SWTException e) {
+			// ignore, probably a bad image format
+			return;
+		}
+		iconLabel.setImage(image);
+		iconLabel.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				image.dispose();
+			}
+		});
+	}
+
 	private StyleRange appendLink(StyledText styledText, String text, int style) {
 		StyleRange range = new StyleRange(0, 0, styledText.getForeground(), null, style);
 		range.underline = true;
@@ -17,8 +17,11 @@ import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 
@@ -26,6 +29,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.epp.internal.mpc.core.service.Identifiable;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
 import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUiPlugin;
@@ -61,6 +65,7 @@ import org.eclipse.jface.viewers.StructuredViewer;
 import org.eclipse.jface.viewers.ViewerFilter;
 import org.eclipse.jface.window.IShellProvider;
 import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.ScrolledComposite;
 import org.eclipse.swt.events.DisposeEvent;
 import org.eclipse.swt.events.DisposeListener;
 import org.eclipse.swt.events.SelectionAdapter;
@@ -68,7 +73,10 @@ import org.eclipse.swt.events.SelectionEvent;
 import org.eclipse.swt.widgets.Button;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Event;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Listener;
 import org.eclipse.ui.statushandlers.StatusManager;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceReference;
@@ -89,13 +97,28 @@ public class MarketplaceViewer extends CatalogViewer {
 
 		private static final Object[] NO_ELEMENTS = new Object[0];
 
+		private List<CatalogItem> partialItems;
+
 		@Override
 		public Catalog getCatalog() {
 			return super.getCatalog();
 		}
 
+		/**
+		 * Show the given items instead of the catalog's content while a query is still running.
+		 *
+		 * @param partialItems
+		 *            the items found so far, or null to show the catalog's items again
+		 */
+		public void setPartialItems(List<CatalogItem> partialItems) {
+			this.partialItems = partialItems;
+		}
+
 		@Override
 		public Object[] getElements(Object inputElement) {
+			if (partialItems != null) {
+				return partialItems.toArray();
+			}
 			if (getCatalog() != null) {
 				// don't provide any categories unless it's featured
 				List<Object> items = new ArrayList<Object>(getCatalog().getItems());
@@ -120,6 +143,16 @@ public class MarketplaceViewer extends CatalogViewer {
 
 	public static String CONTENT_TYPE_PROPERTY = "contentType"; //$NON-NLS-1$
 
+	/**
+	 * System property to enable the {@link #isVirtual() virtual mode} of the result list
+	 */
+	public static final String PROP_VIRTUAL_LIST = "marketplace.virtualList.enabled"; //$NON-NLS-1$
+
+	/**
+	 * System property to enable {@link #isInfiniteScroll() infinite scrolling} through search results
+	 */
+	public static final String PROP_INFINITE_SCROLL = "marketplace.infiniteScroll.enabled"; //$NON-NLS-1$
+
 	private final SelectionModel selectionModel;
 
 	private String queryText;
@@ -142,6 +175,19 @@ public class MarketplaceViewer extends CatalogViewer {
 
 	private boolean inUpdate;
 
+	private PartialResultUpdater partialResultUpdater;
+
+	private final Map<CatalogItem, DiscoveryItem<CatalogItem>> discoveryItems =
+			new IdentityHashMap<CatalogItem, DiscoveryItem<CatalogItem>>();
+
+	private boolean virtual = "true".equals(System.getProperty(PROP_VIRTUAL_LIST)); //$NON-NLS-1$
+
+	private VirtualListController virtualListController;
+
+	private boolean infiniteScroll = "true".equals(System.getProperty(PROP_INFINITE_SCROLL)); //$NON-NLS-1$
+
+	private Job nextPageJob;
+
 	public MarketplaceViewer(Catalog catalog, IShellProvider shellProvider, MarketplaceWizard wizard) {
 		super(catalog, shellProvider, wizard.getContainer(), wizard.getConfiguration());
 		this.browser = wizard;
@@ -222,6 +268,11 @@ public class MarketplaceViewer extends CatalogViewer {
 				CatalogDescriptor catalogDescriptor = (CatalogDescriptor) catalogItem.getData();
 				return new BrowseCatalogItem(parent, getResources(), shellProvider, browser,
 						(MarketplaceCategory) catalogItem.getCategory(), catalogDescriptor, this);
+			} else if (virtualListController != null) {
+				VirtualDiscoveryItem virtualItem = new VirtualDiscoveryItem(parent, getResources(), catalogItem, this,
+						virtualListController);
+				virtualItem.setSelected(getCheckedItems().contains(catalogItem));
+				return virtualItem;
 			} else {
 				DiscoveryItem<CatalogItem> discoveryItem = createDiscoveryItem(parent, catalogItem);
 				discoveryItem.setSelected(getCheckedItems().contains(catalogItem));
@@ -242,13 +293,24 @@ public class MarketplaceViewer extends CatalogViewer {
 		return super.doCreateViewerItem(parent, element);
 	}
 
-	private DiscoveryItem<CatalogItem> createDiscoveryItem(Composite parent, CatalogItem catalogItem) {
+	DiscoveryItem<CatalogItem> createDiscoveryItem(Composite parent, final CatalogItem catalogItem) {
+		final DiscoveryItem<CatalogItem> discoveryItem;
 		if (discoveryItemFactory != null) {
-			return discoveryItemFactory.createDiscoveryItem(catalogItem, this, parent, getResources(), shellProvider,
-					browser);
+			discoveryItem = discoveryItemFactory.createDiscoveryItem(catalogItem, this, parent, getResources(),
+					shellProvider, browser);
+		} else {
+			discoveryItem = new DiscoveryItem<CatalogItem>(parent, SWT.NONE, getResources(), browser, catalogItem, this);
 		}
-		return new DiscoveryItem<CatalogItem>(parent, SWT.NONE, getResources(), browser, catalogItem,
-				this);
+		// remember the shown items, so they can be updated when their resources arrive
+		discoveryItems.put(catalogItem, discoveryItem);
+		discoveryItem.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				if (discoveryItems.get(catalogItem) == discoveryItem) {
+					discoveryItems.remove(catalogItem);
+				}
+			}
+		});
+		return discoveryItem;
 	}
 
 	public void show(Set<? extends INode> nodes) {
@@ -370,49 +432,64 @@ public class MarketplaceViewer extends CatalogViewer {
 	private void doQuery(final IMarket market, final ICategory category, final String queryText,
 			final Set<? extends INode> nodes) {
 		try {
+			cancelNextPage();
 			final ContentType queryType = contentType;
 			queryContentType = queryType;
 			final IStatus[] result = new IStatus[1];
-			context.run(true, true, new IRunnableWithProgress() {
-				public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
-					switch (queryType) {
-					case POPULAR:
-						result[0] = getCatalog().popular(monitor);
-						break;
-					case RECENT:
-						result[0] = getCatalog().recent(monitor);
-						break;
-					case INSTALLED:
-						result[0] = getCatalog().installed(monitor);
-						break;
-					case SELECTION:
-						Set<String> nodeIds = new HashSet<String>();
-						for (CatalogItem item : getSelectionModel().getItemToSelectedOperation().keySet()) {
-							nodeIds.add(((INode) item.getData()).getId());
+			final PartialResultUpdater updater = new PartialResultUpdater();
+			partialResultUpdater = updater;
+			getCatalog().addPartialResultListener(updater);
+			final ResourceUpdater resourceUpdater = new ResourceUpdater();
+			getCatalog().addResourceListener(resourceUpdater);
+			try {
+				context.run(true, true, new IRunnableWithProgress() {
+					public void run(IProgressMonitor monitor) throws InvocationTargetException, InterruptedException {
+						switch (queryType) {
+						case POPULAR:
+							result[0] = getCatalog().popular(monitor);
+							break;
+						case RECENT:
+							result[0] = getCatalog().recent(monitor);
+							break;
+						case INSTALLED:
+							result[0] = getCatalog().installed(monitor);
+							break;
+						case SELECTION:
+							Set<String> nodeIds = new HashSet<String>();
+							for (CatalogItem item : getSelectionModel().getItemToSelectedOperation().keySet()) {
+								nodeIds.add(((INode) item.getData()).getId());
+							}
+							result[0] = getCatalog().performQuery(monitor, nodeIds);
+							break;
+						case SEARCH:
+						default:
+							if (nodes != null && !nodes.isEmpty()) {
+								result[0] = getCatalog().performNodeQuery(monitor, nodes);
+							} else if (queryText != null && queryText.length() > 0) {
+								result[0] = getCatalog().performQuery(market, category, queryText, monitor);
+							} else {
+								result[0] = getCatalog().featured(monitor, market, category);
+							}
+							break;
 						}
-						result[0] = getCatalog().performQuery(monitor, nodeIds);
-						break;
-					case SEARCH:
-					default:
-						if (nodes != null && !nodes.isEmpty()) {
-							result[0] = getCatalog().performNodeQuery(monitor, nodes);
-						} else if (queryText != null && queryText.length() > 0) {
-							result[0] = getCatalog().performQuery(market, category, queryText, monitor);
-						} else {
-							result[0] = getCatalog().featured(monitor, market, category);
+						if (!monitor.isCanceled() && result[0] != null && result[0].getSeverity() != IStatus.CANCEL) {
+							getCatalog().checkForUpdates(monitor);
 						}
-						break;
-					}
-					if (!monitor.isCanceled() && result[0] != null && result[0].getSeverity() != IStatus.CANCEL) {
-						getCatalog().checkForUpdates(monitor);
+						MarketplaceViewer.this.getControl().getDisplay().syncExec(new Runnable() {
+							public void run() {
+								updateViewer(queryText);
+							}
+						});
 					}
-					MarketplaceViewer.this.getControl().getDisplay().syncExec(new Runnable() {
-						public void run() {
-							updateViewer(queryText);
-						}
-					});
+				});
+			} finally {
+				getCatalog().removePartialResultListener(updater);
+				getCatalog().removeResourceListener(resourceUpdater);
+				if (endPartialResult(updater)) {
+					// the query didn't complete normally, so drop the partial result
+					refresh();
 				}
-			});
+			}
 
 			if (result[0] != null && !result[0].isOK() && result[0].getSeverity() != IStatus.CANCEL) {
 				StatusManager.getManager().handle(result[0],
@@ -429,6 +506,7 @@ public class MarketplaceViewer extends CatalogViewer {
 	}
 
 	private void updateViewer(final String queryText) {
+		endPartialResult(partialResultUpdater);
 		runUpdate(new Runnable() {
 
 			public void run() {
@@ -443,6 +521,195 @@ public class MarketplaceViewer extends CatalogViewer {
 				getViewer().getControl().getParent().layout(true, true);
 			}
 		});
+		scheduleNextPageCheck();
+	}
+
+	private void hookInfiniteScroll(final ScrolledComposite scrolled) {
+		Listener scrollListener = new Listener() {
+			public void handleEvent(Event event) {
+				maybeLoadNextPage();
+			}
+		};
+		scrolled.addListener(SWT.Resize, scrollListener);
+		if (scrolled.getVerticalBar() != null) {
+			scrolled.getVerticalBar().addListener(SWT.Selection, scrollListener);
+		}
+		scrolled.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				cancelNextPage();
+			}
+		});
+	}
+
+	/**
+	 * Check if the next result page is needed once the current layout has settled
+	 */
+	private void scheduleNextPageCheck() {
+		final Control control = getControl();
+		if (infiniteScroll && control != null && !control.isDisposed()) {
+			control.getDisplay().asyncExec(new Runnable() {
+				public void run() {
+					if (!control.isDisposed()) {
+						maybeLoadNextPage();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Prefetch the next page of a search result when the user has scrolled to within one screen of the list's end.
+	 */
+	private void maybeLoadNextPage() {
+		if (!infiniteScroll || nextPageJob != null || partialResultUpdater != null || !getCatalog().hasNextPage()) {
+			return;
+		}
+		if (!(getViewer().getControl() instanceof ScrolledComposite)) {
+			return;
+		}
+		ScrolledComposite scrolled = (ScrolledComposite) getViewer().getControl();
+		if (scrolled.isDisposed() || scrolled.getContent() == null || scrolled.getContent().isDisposed()) {
+			return;
+		}
+		Control content = scrolled.getContent();
+		int viewportHeight = scrolled.getClientArea().height;
+		int remaining = content.getSize().y - scrolled.getOrigin().y - viewportHeight;
+		if (remaining <= viewportHeight) {
+			loadNextPage();
+		}
+	}
+
+	private void loadNextPage() {
+		final MarketplaceCatalog catalog = getCatalog();
+		final Display display = getControl().getDisplay();
+		Job job = new Job(Messages.MarketplaceViewer_loadingMoreResults) {
+			@Override
+			protected IStatus run(IProgressMonitor monitor) {
+				IStatus status = catalog.loadNextPage(monitor);
+				if (!monitor.isCanceled() && status.getSeverity() != IStatus.CANCEL) {
+					catalog.checkForUpdates(monitor);
+				}
+				final Job thisJob = this;
+				display.asyncExec(new Runnable() {
+					public void run() {
+						if (nextPageJob != thisJob) {
+							// a new query has been started in the meantime and will refresh the list itself
+							return;
+						}
+						nextPageJob = null;
+						if (!getControl().isDisposed()) {
+							refresh();
+							scheduleNextPageCheck();
+						}
+					}
+				});
+				// system job, so errors are only logged
+				return status;
+			}
+		};
+		job.setSystem(true);
+		nextPageJob = job;
+		job.schedule();
+	}
+
+	private void cancelNextPage() {
+		if (nextPageJob != null) {
+			nextPageJob.cancel();
+			nextPageJob = null;
+		}
+	}
+
+	/**
+	 * Stop showing partial results for the given query
+	 *
+	 * @return true if the query's partial results were still active
+	 */
+	private boolean endPartialResult(PartialResultUpdater updater) {
+		if (updater != null && updater == partialResultUpdater) {
+			partialResultUpdater = null;
+			((MarketplaceCatalogContentProvider) getViewer().getContentProvider()).setPartialItems(null);
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Shows the items found so far while a query is running. Partial results arrive on the query thread and are
+	 * batched, so the list is refreshed at most once per UI event loop iteration with the latest items.
+	 */
+	private class PartialResultUpdater implements MarketplaceCatalog.PartialResultListener, Runnable {
+
+		private List<CatalogItem> pendingItems;
+
+		public void partialResult(List<CatalogItem> items) {
+			boolean schedule;
+			synchronized (this) {
+				schedule = pendingItems == null;
+				pendingItems = items;
+			}
+			if (schedule) {
+				Control control = getControl();
+				if (control != null && !control.isDisposed()) {
+					control.getDisplay().asyncExec(this);
+				}
+			}
+		}
+
+		public void run() {
+			List<CatalogItem> items;
+			synchronized (this) {
+				items = pendingItems;
+				pendingItems = null;
+			}
+			if (items == null || partialResultUpdater != this || getControl().isDisposed()) {
+				return;
+			}
+			((MarketplaceCatalogContentProvider) getViewer().getContentProvider()).setPartialItems(items);
+			refresh();
+		}
+	}
+
+	/**
+	 * Updates the shown items as soon as their resources have been loaded, instead of waiting for all resources of the
+	 * query. Like partial results, loaded resources are batched per UI event loop iteration.
+	 */
+	private class ResourceUpdater implements MarketplaceCatalog.ResourceListener, Runnable {
+
+		private Set<CatalogItem> pendingItems;
+
+		public void resourceLoaded(CatalogItem item, long latency) {
+			boolean schedule;
+			synchronized (this) {
+				schedule = pendingItems == null;
+				if (schedule) {
+					pendingItems = new LinkedHashSet<CatalogItem>();
+				}
+				pendingItems.add(item);
+			}
+			if (schedule) {
+				Control control = getControl();
+				if (control != null && !control.isDisposed()) {
+					control.getDisplay().asyncExec(this);
+				}
+			}
+		}
+
+		public void run() {
+			Set<CatalogItem> items;
+			synchronized (this) {
+				items = pendingItems;
+				pendingItems = null;
+			}
+			if (items == null || getControl().isDisposed()) {
+				return;
+			}
+			for (CatalogItem item : items) {
+				DiscoveryItem<CatalogItem> discoveryItem = discoveryItems.get(item);
+				if (discoveryItem != null && !discoveryItem.isDisposed()) {
+					discoveryItem.updateIcon();
+				}
+			}
+		}
 	}
 
 	private void runUpdate(Runnable r) {
@@ -570,6 +837,12 @@ public class MarketplaceViewer extends CatalogViewer {
 		}
 		StructuredViewer viewer = super.doCreateViewer(container);
 		viewer.setSorter(null);
+		if (virtual && viewer.getControl() instanceof ScrolledComposite) {
+			virtualListController = new VirtualListController((ScrolledComposite) viewer.getControl());
+		}
+		if (infiniteScroll && viewer.getControl() instanceof ScrolledComposite) {
+			hookInfiniteScroll((ScrolledComposite) viewer.getControl());
+		}
 		if (serviceReference != null) {
 			final ServiceReference<IDiscoveryItemFactory> ref = serviceReference;
 			viewer.getControl().addDisposeListener(new DisposeListener() {
@@ -656,6 +929,46 @@ public class MarketplaceViewer extends CatalogViewer {
 		return new StructuredSelection(getCheckedItems());
 	}
 
+	/**
+	 * In virtual mode, discovery items are only created for entries in and around the visible part of the list, and
+	 * disposed again when they are scrolled far out of view. This is disabled by default and can be turned on with the
+	 * {@value #PROP_VIRTUAL_LIST} system property.
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Enable or disable {@link #isVirtual() virtual mode}. This has to be called before the viewer's controls are
+	 * created.
+	 */
+	public void setVirtual(boolean virtual) {
+		if (getViewer() != null) {
+			throw new IllegalStateException();
+		}
+		this.virtual = virtual;
+	}
+
+	/**
+	 * With infinite scrolling, further pages of a search result are loaded as the user scrolls towards the end of the
+	 * list, instead of only linking to the complete result on the marketplace website. This is disabled by default and
+	 * can be turned on with the {@value #PROP_INFINITE_SCROLL} system property.
+	 */
+	public boolean isInfiniteScroll() {
+		return infiniteScroll;
+	}
+
+	/**
+	 * Enable or disable {@link #isInfiniteScroll() infinite scrolling}. This has to be called before the viewer's
+	 * controls are created.
+	 */
+	public void setInfiniteScroll(boolean infiniteScroll) {
+		if (getViewer() != null) {
+			throw new IllegalStateException();
+		}
+		this.infiniteScroll = infiniteScroll;
+	}
+
 	public SelectionModel getSelectionModel() {
 		return selectionModel;
 	}
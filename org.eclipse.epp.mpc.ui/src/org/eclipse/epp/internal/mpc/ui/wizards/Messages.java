@@ -155,6 +155,8 @@ class Messages extends NLS {
 
 	public static String MarketplaceViewer_go;
 
+	public static String MarketplaceViewer_loadingMoreResults;
+
 	public static String MarketplaceViewer_unexpectedException;
 
 	public static String MarketplaceWizard_cannotOpenUrl;
@@ -12,6 +12,7 @@
 package org.eclipse.epp.internal.mpc.ui.wizards;
 
 import java.net.URL;
+import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.core.runtime.CoreException;
@@ -22,12 +23,16 @@ import org.eclipse.core.runtime.Status;
 import org.eclipse.core.runtime.jobs.IJobChangeEvent;
 import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.core.runtime.jobs.JobChangeAdapter;
+import org.eclipse.epp.internal.mpc.core.util.IOScheduler.Lane;
+import org.eclipse.epp.internal.mpc.ui.MarketplaceClientUi;
+import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceInfo;
 import org.eclipse.epp.internal.mpc.ui.catalog.MarketplaceNodeCatalogItem;
 import org.eclipse.epp.internal.mpc.ui.util.ConcurrentTaskManager;
 import org.eclipse.epp.mpc.core.model.INode;
 import org.eclipse.epp.mpc.core.service.IMarketplaceService;
 import org.eclipse.epp.mpc.core.service.ServiceHelper;
 import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
+import org.eclipse.equinox.p2.metadata.IInstallableUnit;
 
 /**
  * A job listener that produces notifications of a successful install.
@@ -53,7 +58,8 @@ class ProvisioningJobListener extends JobChangeAdapter {
 
 				@Override
 				protected IStatus run(final IProgressMonitor monitor) {
-					ConcurrentTaskManager taskManager = new ConcurrentTaskManager(installItems.size(),
+					mapInstalledListings(monitor);
+					ConcurrentTaskManager taskManager = new ConcurrentTaskManager(Lane.API,
 							Messages.ProvisioningJobListener_notificationTaskName);
 					for (CatalogItem item : installItems) {
 						if (item instanceof MarketplaceNodeCatalogItem) {
@@ -86,4 +92,27 @@ class ProvisioningJobListener extends JobChangeAdapter {
 			job.schedule();
 		}
 	}
+
+	/**
+	 * Remember the listings and installed features of the installed nodes, so update checks don't need to load their
+	 * update sites until either of them changes.
+	 */
+	private void mapInstalledListings(IProgressMonitor monitor) {
+		// the profile snapshot is invalidated by the install, so this includes the newly installed features
+		Map<String, IInstallableUnit> installedIUs = MarketplaceClientUi.computeInstalledIUsById(monitor);
+		if (installedIUs.isEmpty()) {
+			// no profile to compare with, so let the next update check find out
+			return;
+		}
+		MarketplaceInfo marketplaceInfo = MarketplaceInfo.getInstance();
+		for (CatalogItem item : installItems) {
+			if (item instanceof MarketplaceNodeCatalogItem) {
+				MarketplaceNodeCatalogItem nodeItem = (MarketplaceNodeCatalogItem) item;
+				if (nodeItem.getMarketplaceUrl() != null) {
+					marketplaceInfo.mapUpToDate(nodeItem.getMarketplaceUrl(), nodeItem.getData(), installedIUs);
+				}
+			}
+		}
+		marketplaceInfo.save();
+	}
 }
\ No newline at end of file
@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.wizards;
+
+import org.eclipse.equinox.internal.p2.discovery.model.CatalogItem;
+import org.eclipse.equinox.internal.p2.ui.discovery.wizards.AbstractDiscoveryItem;
+import org.eclipse.equinox.internal.p2.ui.discovery.wizards.DiscoveryResources;
+import org.eclipse.jface.layout.GridDataFactory;
+import org.eclipse.jface.layout.GridLayoutFactory;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.widgets.Composite;
+
+/**
+ * A list item that stands in for a {@link DiscoveryItem} in the {@link MarketplaceViewer}'s virtual mode. The actual
+ * discovery item is only created once the placeholder scrolls into view, and is disposed again by the
+ * {@link VirtualListController} when it is no longer needed. While no discovery item is present, the placeholder keeps
+ * the last measured height of its item, or the controller's estimate if it was never shown.
+ *
+ * @author Carsten Reckord
+ */
+class VirtualDiscoveryItem extends AbstractDiscoveryItem<CatalogItem> {
+
+	private final MarketplaceViewer viewer;
+
+	private final VirtualListController controller;
+
+	private DiscoveryItem<CatalogItem> item;
+
+	private boolean selected;
+
+	private int height = -1;
+
+	public VirtualDiscoveryItem(Composite parent, DiscoveryResources resources, CatalogItem element,
+			MarketplaceViewer viewer, VirtualListController controller) {
+		super(parent, SWT.NONE, resources, element);
+		this.viewer = viewer;
+		this.controller = controller;
+		GridLayoutFactory.fillDefaults().applyTo(this);
+		controller.register(this);
+	}
+
+	/**
+	 * @return true if the discovery item was created, false if it already existed
+	 */
+	boolean materialize() {
+		if (item != null) {
+			return false;
+		}
+		item = viewer.createDiscoveryItem(this, getData());
+		item.setSelected(selected);
+		item.setBackground(getBackground());
+		GridDataFactory.fillDefaults().grab(true, false).applyTo(item);
+		return true;
+	}
+
+	/**
+	 * Dispose the discovery item and keep its current height for the placeholder.
+	 */
+	void release() {
+		if (item == null) {
+			return;
+		}
+		height = getSize().y;
+		item.dispose();
+		item = null;
+	}
+
+	boolean isMaterialized() {
+		return item != null;
+	}
+
+	@Override
+	public Point computeSize(int wHint, int hHint, boolean changed) {
+		if (item == null) {
+			int placeholderHeight = height >= 0 ? height : controller.getEstimatedItemHeight();
+			return new Point(wHint == SWT.DEFAULT ? 0 : wHint, hHint == SWT.DEFAULT ? placeholderHeight : hHint);
+		}
+		return super.computeSize(wHint, hHint, changed);
+	}
+
+	@Override
+	public void setSelected(boolean select) {
+		super.setSelected(select);
+		selected = select;
+		if (item != null) {
+			item.setSelected(select);
+		}
+	}
+
+	@Override
+	public void setBackground(Color color) {
+		super.setBackground(color);
+		if (item != null) {
+			item.setBackground(color);
+		}
+	}
+
+	@Override
+	protected void refresh() {
+		if (item != null) {
+			item.refresh();
+		}
+	}
+}
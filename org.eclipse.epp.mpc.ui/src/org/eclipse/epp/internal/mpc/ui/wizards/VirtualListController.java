@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Copyright (c) 2014 The Eclipse Foundation and others.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     The Eclipse Foundation - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.epp.internal.mpc.ui.wizards;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.ScrolledComposite;
+import org.eclipse.swt.events.DisposeEvent;
+import org.eclipse.swt.events.DisposeListener;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Event;
+import org.eclipse.swt.widgets.Listener;
+
+/**
+ * Creates the discovery items of {@link VirtualDiscoveryItem placeholders} in a scrolled list once they come close to
+ * the visible area, and disposes them again once they have been out of view for a while. This keeps the number of
+ * widgets bounded by the size of the viewport instead of the size of the result.
+ *
+ * @author Carsten Reckord
+ */
+class VirtualListController {
+
+	/**
+	 * Default placeholder height until the first item has been measured
+	 */
+	static final int DEFAULT_ITEM_HEIGHT = 140;
+
+	/**
+	 * Maximum number of items kept alive outside of the visible area plus overscan, so scrolling back and forth
+	 * doesn't recreate them every time
+	 */
+	static final int MAX_RETAINED_ITEMS = 30;
+
+	private final ScrolledComposite scrolled;
+
+	private final Listener updateListener = new Listener() {
+		public void handleEvent(Event event) {
+			scheduleUpdate();
+		}
+	};
+
+	/**
+	 * Items with a created discovery item, least recently visible first
+	 */
+	private final Set<VirtualDiscoveryItem> materializedItems = new LinkedHashSet<VirtualDiscoveryItem>();
+
+	private Composite content;
+
+	private int estimatedItemHeight = DEFAULT_ITEM_HEIGHT;
+
+	private boolean measured;
+
+	private boolean updateScheduled;
+
+	public VirtualListController(ScrolledComposite scrolled) {
+		this.scrolled = scrolled;
+		scrolled.addListener(SWT.Resize, updateListener);
+	}
+
+	int getEstimatedItemHeight() {
+		return estimatedItemHeight;
+	}
+
+	void register(final VirtualDiscoveryItem item) {
+		Composite parent = item.getParent();
+		if (content != parent) {
+			hookContent(parent);
+		}
+		item.addDisposeListener(new DisposeListener() {
+			public void widgetDisposed(DisposeEvent e) {
+				materializedItems.remove(item);
+			}
+		});
+		// create the first page right away, so the list doesn't start out empty
+		int index = parent.getChildren().length - 1;
+		if (index * estimatedItemHeight < scrolled.getClientArea().height) {
+			materialize(item);
+		}
+		scheduleUpdate();
+	}
+
+	private void hookContent(Composite parent) {
+		if (content != null && !content.isDisposed()) {
+			content.removeListener(SWT.Move, updateListener);
+			content.removeListener(SWT.Resize, updateListener);
+		}
+		content = parent;
+		// scrolling moves the content within the scrolled composite
+		content.addListener(SWT.Move, updateListener);
+		content.addListener(SWT.Resize, updateListener);
+	}
+
+	private void scheduleUpdate() {
+		if (updateScheduled || scrolled.isDisposed()) {
+			return;
+		}
+		updateScheduled = true;
+		scrolled.getDisplay().asyncExec(new Runnable() {
+			public void run() {
+				updateScheduled = false;
+				update();
+			}
+		});
+	}
+
+	void update() {
+		if (scrolled.isDisposed() || content == null || content.isDisposed()) {
+			return;
+		}
+		Rectangle clientArea = scrolled.getClientArea();
+		int top = -content.getLocation().y;
+		int overscan = Math.max(clientArea.height / 2, estimatedItemHeight);
+		int visibleTop = top - overscan;
+		int visibleBottom = top + clientArea.height + overscan;
+
+		boolean changed = !measured && measure();
+		List<VirtualDiscoveryItem> visibleItems = new ArrayList<VirtualDiscoveryItem>();
+		for (Control child : content.getChildren()) {
+			if (child instanceof VirtualDiscoveryItem && !child.isDisposed()) {
+				Rectangle bounds = child.getBounds();
+				if (bounds.width == 0 && bounds.height == 0) {
+					// not laid out yet
+					continue;
+				}
+				if (bounds.y + bounds.height >= visibleTop && bounds.y <= visibleBottom) {
+					VirtualDiscoveryItem item = (VirtualDiscoveryItem) child;
+					changed |= materialize(item);
+					visibleItems.add(item);
+				}
+			}
+		}
+		// move visible items to the end of the access order
+		for (VirtualDiscoveryItem item : visibleItems) {
+			materializedItems.remove(item);
+			materializedItems.add(item);
+		}
+		releaseExcessItems(visibleItems.size());
+
+		if (changed) {
+			// placeholder heights were only estimates, so lay out again
+			content.layout(true, true);
+			Point size = content.computeSize(content.getSize().x, SWT.DEFAULT, true);
+			content.setSize(size);
+			scrolled.setMinSize(size);
+		}
+	}
+
+	private boolean materialize(VirtualDiscoveryItem item) {
+		if (!item.materialize()) {
+			return false;
+		}
+		materializedItems.add(item);
+		return true;
+	}
+
+	/**
+	 * Use the first laid out item as the estimate for all placeholders that haven't been shown yet
+	 *
+	 * @return true if the estimate changed
+	 */
+	private boolean measure() {
+		for (VirtualDiscoveryItem item : materializedItems) {
+			Point size = item.getSize();
+			if (size.x > 0 && size.y > 0) {
+				measured = true;
+				if (size.y != estimatedItemHeight) {
+					estimatedItemHeight = size.y;
+					return true;
+				}
+				return false;
+			}
+		}
+		return false;
+	}
+
+	private void releaseExcessItems(int visibleCount) {
+		int excess = materializedItems.size() - visibleCount - MAX_RETAINED_ITEMS;
+		for (Iterator<VirtualDiscoveryItem> i = materializedItems.iterator(); excess > 0 && i.hasNext();) {
+			VirtualDiscoveryItem item = i.next();
+			i.remove();
+			if (!item.isDisposed()) {
+				item.release();
+			}
+			excess--;
+		}
+	}
+}